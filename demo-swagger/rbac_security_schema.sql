@@ -14,12 +14,13 @@ DROP TABLE IF EXISTS `t_role`;
 DROP TABLE IF EXISTS `t_user`;
 
 -- 1. 用户表
+-- 已有数据库：ALTER TABLE `t_user` MODIFY `username` varchar(50) DEFAULT NULL, MODIFY `password` varchar(255) DEFAULT NULL;
 CREATE TABLE `t_user` (
   `id` int(11) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
   `name` varchar(50) NOT NULL COMMENT '用户姓名',
   `job` varchar(100) DEFAULT NULL COMMENT '工作岗位',
-  `username` varchar(50) NOT NULL COMMENT '登录用户名',
-  `password` varchar(255) NOT NULL COMMENT '密码（加密后）',
+  `username` varchar(50) DEFAULT NULL COMMENT '登录用户名（/db 接口创建的用户没有登录名，不能登录）',
+  `password` varchar(255) DEFAULT NULL COMMENT '密码（加密后）',
   `email` varchar(100) DEFAULT NULL COMMENT '邮箱',
   `phone` varchar(20) DEFAULT NULL COMMENT '手机号',
   `status` tinyint(1) NOT NULL DEFAULT '1' COMMENT '用户状态（1:正常 0:禁用）',
@@ -28,7 +29,9 @@ CREATE TABLE `t_user` (
   PRIMARY KEY (`id`),
   UNIQUE KEY `uk_username` (`username`),
   KEY `idx_email` (`email`),
-  KEY `idx_status` (`status`)
+  KEY `idx_status` (`status`),
+  KEY `idx_name_id` (`name`, `id`) COMMENT '按姓名排序的游标分页',
+  KEY `idx_job_id` (`job`, `id`) COMMENT '按岗位排序的游标分页'
 ) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8mb4 COMMENT='用户表';
 
 -- 2. 角色表
@@ -96,6 +99,16 @@ CREATE TABLE `t_role_permission` (
   CONSTRAINT `fk_role_permission_permission_id` FOREIGN KEY (`permission_id`) REFERENCES `t_permission` (`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8mb4 COMMENT='角色权限关联表';
 
+-- 用户名查找表（仅开启 datasource.sharding 时使用，建在主库）：分配全局唯一的用户 id，按用户名定位分片。
+-- 分片库中 t_user 的结构不变，但 id 由本表分配；t_user_role 的外键 fk_user_role_user_id 不能跨库，由下方迁移段删除
+DROP TABLE IF EXISTS `t_user_lookup`;
+CREATE TABLE `t_user_lookup` (
+  `id` int(11) NOT NULL AUTO_INCREMENT COMMENT '用户ID',
+  `username` varchar(50) DEFAULT NULL COMMENT '登录用户名',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_username` (`username`)
+) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8mb4 COMMENT='用户名查找表';
+
 -- ================= 初始化数据 =================
 
 -- 插入默认角色
@@ -160,5 +173,22 @@ INSERT INTO `t_role_permission` (`role_id`, `permission_id`, `create_by`) VALUES
 (3, (SELECT id FROM t_permission WHERE permission_code = 'schedule:read'), 'system'),
 (3, (SELECT id FROM t_permission WHERE permission_code = 'file:list'), 'system');
 
+-- 删除指向 t_user 的外键（对已有数据库开启分片时单独执行这一段）：用户在其他分片时插入角色会违反外键，
+-- 把用户移出主库时 ON DELETE CASCADE 还会删掉其全部角色。删除用户时由应用删除其角色；外键存在时 rebalance 拒绝执行
+ALTER TABLE `t_user_role` DROP FOREIGN KEY `fk_user_role_user_id`;
+
+-- 登记已有用户（应用启动时也会自动补登记）。
+-- 显式插入 id 后 InnoDB 会把自增值推进到 MAX(id) 之后，新分配的 id 不会与已有用户及其角色重复
+INSERT INTO `t_user_lookup` (`id`, `username`)
+SELECT u.`id`, u.`username` FROM `t_user` u
+WHERE NOT EXISTS (SELECT 1 FROM `t_user_lookup` l WHERE l.`id` = u.`id`);
+SET @next_user_id = (SELECT COALESCE(MAX(`id`), 0) + 1 FROM `t_user_lookup`);
+SET @alter_lookup = CONCAT('ALTER TABLE `t_user_lookup` AUTO_INCREMENT = ', @next_user_id);
+PREPARE stmt FROM @alter_lookup;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+-- 已有用户仍在主库的 t_user 中，按 id 哈希后大多属于其他分片：
+-- 设置 datasource.sharding.rebalance-on-startup=true 启动一次，把它们移到对应分片后再关闭
+
 -- 重新开启外键检查
 SET FOREIGN_KEY_CHECKS = 1;
@@ -0,0 +1,20 @@
+package com.xkcoding.swagger.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * <p>
+ * 副本读取注解
+ * </p>
+ *
+ * 标记只读的方法，方法内（不在读写事务中时）的查询访问只读副本；
+ * 当前请求或当前用户刚写入过数据时仍访问主库。@Transactional(readOnly = true) 的事务也访问副本
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadFromReplica {
+}
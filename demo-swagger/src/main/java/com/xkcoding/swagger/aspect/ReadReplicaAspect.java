@@ -0,0 +1,33 @@
+package com.xkcoding.swagger.aspect;
+
+import com.xkcoding.swagger.jdbc.ReadWriteRoutingDataSource;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ * 副本读取切面
+ * </p>
+ *
+ * 在标记了 {@link com.xkcoding.swagger.annotation.ReadFromReplica} 的方法执行期间把当前线程标记为只读，
+ * 由 {@link ReadWriteRoutingDataSource} 决定是否访问副本；未开启读写分离时没有影响
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Aspect
+@Component
+public class ReadReplicaAspect {
+
+    @Around("@annotation(com.xkcoding.swagger.annotation.ReadFromReplica) || @within(com.xkcoding.swagger.annotation.ReadFromReplica)")
+    public Object readFromReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean previous = ReadWriteRoutingDataSource.beginRead();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReadWriteRoutingDataSource.endRead(previous);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.xkcoding.swagger.aspect;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xkcoding.swagger.annotation.WebLog;
+import com.xkcoding.swagger.common.IdGenerator;
 import com.xkcoding.swagger.entity.WebLogInfo;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
@@ -16,7 +17,6 @@ import javax.servlet.http.HttpServletRequest;
 import java.lang.reflect.Method;
 import java.time.LocalDateTime;
 import java.util.Arrays;
-import java.util.UUID;
 
 /**
  * <p>
@@ -34,6 +34,11 @@ import java.util.UUID;
 public class WebLogAspect {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final IdGenerator idGenerator;
+
+    public WebLogAspect(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
 
     /**
      * 定义切点：拦截所有标记了 @WebLog 注解的方法
@@ -48,7 +53,7 @@ public class WebLogAspect {
     @Around("webLogPointcut()")
     public Object around(ProceedingJoinPoint joinPoint) throws Throwable {
         long startTime = System.currentTimeMillis();
-        String requestId = UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+        String requestId = idGenerator.nextCompactId();
         
         // 获取 HttpServletRequest
         ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
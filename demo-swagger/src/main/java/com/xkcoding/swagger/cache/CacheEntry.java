@@ -0,0 +1,84 @@
+package com.xkcoding.swagger.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * <p>
+ * 二级缓存条目
+ * </p>
+ *
+ * L1 和 L2 存放的都是该包装对象，携带写入时间和逻辑过期时间，
+ * 保证 L1 中的副本不会比 L2 活得更久
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Getter
+public class CacheEntry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 缓存值（空值已转换为 NullValue）
+     */
+    private final Object value;
+
+    /**
+     * 写入时间（毫秒）
+     */
+    private final long createdAt;
+
+    /**
+     * 逻辑过期时间（毫秒）
+     */
+    private final long expiresAt;
+
+    /**
+     * 本次加载耗时（毫秒），用于提前刷新的概率计算；直接 put 的条目为 0
+     */
+    private final long loadMillis;
+
+    /**
+     * 条目依赖的标签（如 "user:3"），用于按标签失效
+     */
+    private final Set<String> tags;
+
+    /**
+     * 序列化后的字节数，用作 L1 的权重，不参与序列化
+     */
+    @Setter
+    private transient int weight;
+
+    public CacheEntry(Object value, long createdAt, long expiresAt, long loadMillis, Set<String> tags) {
+        this.value = value;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+        this.loadMillis = loadMillis;
+        this.tags = tags != null ? tags : Collections.emptySet();
+    }
+
+    /**
+     * 是否已经逻辑过期
+     */
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+
+    /**
+     * 剩余存活时间（毫秒）
+     */
+    public long remainingMillis(long now) {
+        return Math.max(0, expiresAt - now);
+    }
+
+    /**
+     * 过期后是否仍在允许返回旧值的时间内
+     */
+    public boolean isUsable(long now, long maxStaleMillis) {
+        return now < expiresAt + maxStaleMillis;
+    }
+}
@@ -0,0 +1,78 @@
+package com.xkcoding.swagger.cache;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * <p>
+ * 缓存失效事件
+ * </p>
+ *
+ * 某个节点主动写入或失效缓存后广播给其他节点，其他节点只清除各自 L1 中对应的条目（L2 是共享的，已由发起节点处理）
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class CacheInvalidation {
+
+    public enum Type {
+        /**
+         * 单个key
+         */
+        KEY,
+        /**
+         * 标签
+         */
+        TAG,
+        /**
+         * key通配符
+         */
+        PATTERN,
+        /**
+         * 清空整个缓存
+         */
+        CLEAR,
+        /**
+         * key的字符串形式，String.valueOf(key) 相同的key都清除（管理端点传入的key不知道原始类型）
+         */
+        KEY_STRING
+    }
+
+    private final Type type;
+    private final String cacheName;
+
+    /**
+     * KEY 为原始缓存key，KEY_STRING 为key的字符串形式，TAG 为标签，PATTERN 为通配符，CLEAR 为 null
+     */
+    private final Object target;
+
+    CacheInvalidation(Type type, String cacheName, Object target) {
+        this.type = type;
+        this.cacheName = cacheName;
+        this.target = target;
+    }
+
+    public static CacheInvalidation key(String cacheName, Object key) {
+        return new CacheInvalidation(Type.KEY, cacheName, key);
+    }
+
+    public static CacheInvalidation keyString(String cacheName, String key) {
+        return new CacheInvalidation(Type.KEY_STRING, cacheName, key);
+    }
+
+    public static CacheInvalidation tag(String cacheName, String tag) {
+        return new CacheInvalidation(Type.TAG, cacheName, tag);
+    }
+
+    public static CacheInvalidation pattern(String cacheName, String pattern) {
+        return new CacheInvalidation(Type.PATTERN, cacheName, pattern);
+    }
+
+    public static CacheInvalidation clear(String cacheName) {
+        return new CacheInvalidation(Type.CLEAR, cacheName, null);
+    }
+}
@@ -0,0 +1,91 @@
+package com.xkcoding.swagger.cache;
+
+import lombok.Getter;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * 一条失效广播消息：发送节点、序号和一批失效事件
+ * </p>
+ *
+ * 格式：格式版本、节点ID、序号（varint）、是否心跳、事件数，
+ * 每个事件为类型、缓存名和目标值（按 {@link CompactCacheSerializer} 的类型编码，key可以是任意类型）。
+ * 同一节点的序号连续递增，心跳不占用序号，只携带最近一次发送的序号
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Getter
+public class CacheInvalidationBatch {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final String nodeId;
+    private final long sequence;
+    private final boolean heartbeat;
+    private final List<CacheInvalidation> invalidations;
+
+    public CacheInvalidationBatch(String nodeId, long sequence, boolean heartbeat, List<CacheInvalidation> invalidations) {
+        this.nodeId = nodeId;
+        this.sequence = sequence;
+        this.heartbeat = heartbeat;
+        this.invalidations = invalidations;
+    }
+
+    public static CacheInvalidationBatch heartbeat(String nodeId, long sequence) {
+        return new CacheInvalidationBatch(nodeId, sequence, true, Collections.<CacheInvalidation>emptyList());
+    }
+
+    public byte[] encode(CompactCacheSerializer serializer) {
+        CompactOutput out = new CompactOutput(serializer);
+        try {
+            out.writeByte(FORMAT_VERSION);
+            out.writeString(nodeId);
+            out.writeVarLong(sequence);
+            out.writeByte(heartbeat ? 1 : 0);
+            out.writeVarInt(invalidations.size());
+            for (CacheInvalidation invalidation : invalidations) {
+                out.writeByte(invalidation.getType().ordinal());
+                out.writeString(invalidation.getCacheName());
+                out.writeValue(invalidation.getTarget());
+            }
+        } catch (IOException e) {
+            throw new SerializationException("失效消息编码失败", e);
+        }
+        return out.toByteArray();
+    }
+
+    public static CacheInvalidationBatch decode(byte[] bytes, CompactCacheSerializer serializer) {
+        CompactInput in = new CompactInput(bytes, serializer);
+        try {
+            int version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new SerializationException("不支持的失效消息版本: " + version);
+            }
+            String nodeId = in.readString();
+            long sequence = in.readVarLong();
+            boolean heartbeat = in.readByte() == 1;
+            int size = in.readVarInt();
+            if (size < 0 || size > bytes.length) {
+                throw new SerializationException("失效消息格式错误: size=" + size);
+            }
+            CacheInvalidation.Type[] types = CacheInvalidation.Type.values();
+            List<CacheInvalidation> invalidations = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                int type = in.readByte();
+                if (type >= types.length) {
+                    throw new SerializationException("未知的失效类型: " + type);
+                }
+                invalidations.add(new CacheInvalidation(types[type], in.readString(), in.readValue()));
+            }
+            return new CacheInvalidationBatch(nodeId, sequence, heartbeat, invalidations);
+        } catch (IOException e) {
+            throw new SerializationException("失效消息解码失败", e);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.xkcoding.swagger.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * 缓存失效广播：合并一段时间内的失效事件后批量发送
+ * </p>
+ *
+ * 事件先进入待发送集合（相同事件只保留一个），等待 batchWindow 或攒够 maxBatchSize 后由后台线程发送。
+ * 同一个缓存在一批中的事件超过 stormThreshold 时合并为一次清空，避免批量更新时产生大量消息。
+ * 每条消息带递增序号，发送失败时序号照常占用，接收方发现序号不连续后清空 L1；
+ * 空闲时定期发送心跳（携带最近的序号），使最后一条消息丢失时接收方也能发现
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+public class CacheInvalidationPublisher implements DisposableBean {
+
+    private final String nodeId;
+    private final CompactCacheSerializer serializer;
+    private final Consumer<byte[]> transport;
+    private final long batchWindowMillis;
+    private final int maxBatchSize;
+    private final int stormThreshold;
+    private final long heartbeatMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private final Object pendingLock = new Object();
+    private Set<CacheInvalidation> pending = new LinkedHashSet<>();
+    private boolean flushScheduled;
+
+    /**
+     * 发送到 RabbitMQ 期间持有（网络 I/O），同样不用 synchronized，避免固定虚拟线程的载体线程
+     */
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile long lastSentAt;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param nodeId         当前节点ID，接收方据此忽略自己发出的消息
+     * @param serializer     编码key等目标值
+     * @param transport      发送编码后的消息，如发送到 RabbitMQ 广播交换机
+     * @param batchWindow    合并等待时间
+     * @param maxBatchSize   每条消息最多包含的事件数
+     * @param stormThreshold 同一缓存在一批中的事件数超过该值时改为清空整个缓存
+     * @param heartbeat      心跳间隔，为 0 时不发送心跳
+     */
+    public CacheInvalidationPublisher(String nodeId, CompactCacheSerializer serializer, Consumer<byte[]> transport,
+                                      Duration batchWindow, int maxBatchSize, int stormThreshold, Duration heartbeat) {
+        this.nodeId = nodeId;
+        this.serializer = serializer;
+        this.transport = transport;
+        this.batchWindowMillis = batchWindow.toMillis();
+        this.maxBatchSize = maxBatchSize;
+        this.stormThreshold = stormThreshold;
+        this.heartbeatMillis = heartbeat.toMillis();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                new CustomizableThreadFactory("cache-invalidation-"));
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+        if (heartbeatMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 登记一个失效事件，由后台线程合并发送
+     */
+    public void publish(CacheInvalidation invalidation) {
+        boolean flushNow = false;
+        boolean scheduleFlush = false;
+        synchronized (pendingLock) {
+            pending.add(invalidation);
+            published.increment();
+            if (pending.size() >= maxBatchSize) {
+                // 发送跟不上时先在本地合并，待发送集合不会无限增长
+                if (pending.size() >= maxBatchSize * 10) {
+                    pending = new LinkedHashSet<>(collapse(pending));
+                }
+                flushNow = true;
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduleFlush = true;
+            }
+        }
+        try {
+            if (flushNow) {
+                scheduler.execute(this::flush);
+            } else if (scheduleFlush) {
+                scheduler.schedule(this::flush, batchWindowMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // 已关闭：剩余事件在关闭时已发送或丢弃，其他节点依赖序号检测
+            log.debug("失效广播已关闭，忽略事件: {}", invalidation);
+        }
+    }
+
+    /**
+     * 立即发送所有待发送的事件
+     */
+    public void flush() {
+        sendLock.lock();
+        try {
+            Set<CacheInvalidation> batch;
+            synchronized (pendingLock) {
+                batch = pending;
+                pending = new LinkedHashSet<>();
+                flushScheduled = false;
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<CacheInvalidation> invalidations = collapse(batch);
+            for (int from = 0; from < invalidations.size(); from += maxBatchSize) {
+                List<CacheInvalidation> chunk = invalidations.subList(from, Math.min(from + maxBatchSize, invalidations.size()));
+                send(new CacheInvalidationBatch(nodeId, sequence.incrementAndGet(), false, new ArrayList<>(chunk)));
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    /**
+     * 空闲超过心跳间隔时发送心跳
+     */
+    public void heartbeat() {
+        sendLock.lock();
+        try {
+            if (System.currentTimeMillis() - lastSentAt >= heartbeatMillis) {
+                send(CacheInvalidationBatch.heartbeat(nodeId, sequence.get()));
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 登记的事件数
+     */
+    public long getPublished() {
+        return published.sum();
+    }
+
+    /**
+     * 因合并为清空而省略的事件数
+     */
+    public long getCollapsed() {
+        return collapsed.sum();
+    }
+
+    /**
+     * 成功发送的消息数（含心跳）
+     */
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    /**
+     * 发送失败的消息数
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdown();
+        flush();
+    }
+
+    private void send(CacheInvalidationBatch batch) {
+        try {
+            transport.accept(batch.encode(serializer));
+            messages.increment();
+        } catch (Exception e) {
+            // 序号已占用，其他节点收到后续消息或心跳时会发现缺失并清空 L1
+            failures.increment();
+            log.warn("缓存失效广播发送失败: seq={}, events={}, error={}",
+                    batch.getSequence(), batch.getInvalidations().size(), e.getMessage());
+        }
+        lastSentAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 按缓存分组：包含清空或事件数超过阈值的缓存只保留一个清空事件
+     */
+    private List<CacheInvalidation> collapse(Collection<CacheInvalidation> invalidations) {
+        Map<String, List<CacheInvalidation>> byCache = new LinkedHashMap<>();
+        for (CacheInvalidation invalidation : invalidations) {
+            byCache.computeIfAbsent(invalidation.getCacheName(), name -> new ArrayList<>()).add(invalidation);
+        }
+        List<CacheInvalidation> result = new ArrayList<>(invalidations.size());
+        byCache.forEach((cacheName, events) -> {
+            CacheInvalidation clear = CacheInvalidation.clear(cacheName);
+            if (events.size() > stormThreshold || events.contains(clear)) {
+                result.add(clear);
+                collapsed.add(events.size() - 1);
+            } else {
+                result.addAll(events);
+            }
+        });
+        return result;
+    }
+}
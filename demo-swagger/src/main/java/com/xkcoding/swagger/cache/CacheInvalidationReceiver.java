@@ -0,0 +1,149 @@
+package com.xkcoding.swagger.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * 接收其他节点的失效广播，清除本地 L1
+ * </p>
+ *
+ * 按节点记录最近处理的序号：序号不连续（或心跳中的序号大于已处理的序号）说明有消息丢失，
+ * 此时无法知道哪些条目已经过时，清空所有缓存的 L1（L2 不受影响，之后按需回填）；
+ * 序号不大于已处理序号的消息为重复投递，直接忽略。自己发出的消息不处理
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+public class CacheInvalidationReceiver {
+
+    private final String nodeId;
+    private final TieredCacheManager cacheManager;
+    private final CompactCacheSerializer serializer;
+    private final Map<String, Long> lastSequences = new ConcurrentHashMap<>();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder gaps = new LongAdder();
+
+    public CacheInvalidationReceiver(String nodeId, TieredCacheManager cacheManager, CompactCacheSerializer serializer) {
+        this.nodeId = nodeId;
+        this.cacheManager = cacheManager;
+        this.serializer = serializer;
+    }
+
+    /**
+     * 处理一条失效消息，消息格式错误时记录日志后丢弃
+     */
+    public void onMessage(byte[] body) {
+        CacheInvalidationBatch batch;
+        try {
+            batch = CacheInvalidationBatch.decode(body, serializer);
+        } catch (Exception e) {
+            log.warn("缓存失效消息解析失败，已丢弃: error={}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(batch.getNodeId())) {
+            return;
+        }
+        received.increment();
+        if (acceptSequence(batch) && !batch.isHeartbeat()) {
+            for (CacheInvalidation invalidation : batch.getInvalidations()) {
+                try {
+                    apply(invalidation);
+                } catch (Exception e) {
+                    // 序号已记录，重新投递会被忽略：单条失败时清空该缓存的 L1，不影响同一批的其他事件
+                    log.warn("执行其他节点的缓存失效失败，清空该缓存的本地数据: invalidation={}, error={}", invalidation, e.getMessage());
+                    clearLocal(invalidation.getCacheName());
+                }
+            }
+        }
+    }
+
+    /**
+     * 收到的其他节点消息数（含心跳）
+     */
+    public long getReceived() {
+        return received.sum();
+    }
+
+    /**
+     * 已执行的失效事件数
+     */
+    public long getApplied() {
+        return applied.sum();
+    }
+
+    /**
+     * 发现消息丢失（并清空 L1）的次数
+     */
+    public long getGaps() {
+        return gaps.sum();
+    }
+
+    /**
+     * 检查序号，返回是否需要处理这条消息；发现缺失时清空 L1
+     */
+    private synchronized boolean acceptSequence(CacheInvalidationBatch batch) {
+        long sequence = batch.getSequence();
+        Long last = lastSequences.get(batch.getNodeId());
+        if (last == null) {
+            // 首次收到该节点的消息：订阅之前的消息与本节点无关
+            lastSequences.put(batch.getNodeId(), sequence);
+            return true;
+        }
+        long expected = batch.isHeartbeat() ? last : last + 1;
+        if (sequence < expected) {
+            return false;
+        }
+        if (sequence > expected) {
+            gaps.increment();
+            log.warn("缓存失效消息缺失，清空本地缓存: node={}, lastSeq={}, seq={}", batch.getNodeId(), last, sequence);
+            cacheManager.clearLocal();
+        }
+        lastSequences.put(batch.getNodeId(), sequence);
+        return true;
+    }
+
+    private void apply(CacheInvalidation invalidation) {
+        if (!cacheManager.getCacheNames().contains(invalidation.getCacheName())) {
+            // 本节点还没有用到这个缓存，L1 中没有数据
+            return;
+        }
+        TieredCache cache = (TieredCache) cacheManager.getCache(invalidation.getCacheName());
+        switch (invalidation.getType()) {
+            case KEY:
+                cache.evictLocal(invalidation.getTarget());
+                break;
+            case KEY_STRING:
+                cache.evictLocalByKeyString((String) invalidation.getTarget());
+                break;
+            case TAG:
+                cache.evictLocalTags(Collections.singleton((String) invalidation.getTarget()));
+                break;
+            case PATTERN:
+                cache.evictLocalByPattern((String) invalidation.getTarget());
+                break;
+            default:
+                cache.clearLocal();
+                break;
+        }
+        applied.increment();
+        log.debug("执行其他节点的缓存失效: {}", invalidation);
+    }
+
+    private void clearLocal(String cacheName) {
+        try {
+            if (cacheManager.getCacheNames().contains(cacheName)) {
+                ((TieredCache) cacheManager.getCache(cacheName)).clearLocal();
+            }
+        } catch (Exception e) {
+            log.warn("清空本地缓存失败: cache={}, error={}", cacheName, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.xkcoding.swagger.cache;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>
+ * 单个缓存的策略
+ * </p>
+ *
+ * 过期时间（含空结果的单独过期时间和随机抖动）写入每个条目，L1 和 L2 都按条目的过期时间淘汰；
+ * L1 的容量限制和本地过期时间在创建缓存时生效
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Getter
+@Builder(toBuilder = true)
+public class CachePolicy {
+
+    /**
+     * 条目过期时间
+     */
+    private final Duration timeToLive;
+
+    /**
+     * 空结果（null）的过期时间，为 0 时不缓存空结果
+     */
+    @Builder.Default
+    private final Duration nullValueTimeToLive = Duration.ZERO;
+
+    /**
+     * 过期时间随机抖动比例（0-1）：实际过期时间在 [ttl * (1 - jitter), ttl] 之间，避免同一批条目同时过期
+     */
+    private final double ttlJitter;
+
+    /**
+     * L1 过期时间（不会超过条目本身的剩余过期时间）
+     */
+    private final Duration localTimeToLive;
+
+    /**
+     * L1 最大容量（字节，按序列化后大小计算），设置了 localMaximumSize 时不生效
+     */
+    private final long localMaximumWeight;
+
+    /**
+     * L1 最大条目数，大于 0 时代替 localMaximumWeight
+     */
+    private final long localMaximumSize;
+
+    /**
+     * 是否把序列化后较大的条目放在堆外存储（需开启 cache.off-heap）
+     */
+    private final boolean offHeap;
+
+    /**
+     * L1 是否只保留热点key（需开启 cache.hot-keys）：其余条目每次从堆外或 L2 读取，L1 占用和多节点间的不一致窗口更小
+     */
+    private final boolean localHotOnly;
+
+    /**
+     * 提前刷新策略，为 null 时不开启
+     */
+    private final RefreshAheadPolicy refreshPolicy;
+
+    /**
+     * 是否缓存空结果
+     */
+    public boolean cachesNullValues() {
+        return nullValueTimeToLive != null && !nullValueTimeToLive.isZero() && !nullValueTimeToLive.isNegative();
+    }
+
+    /**
+     * 计算新条目的过期时间
+     *
+     * @param now       当前时间（毫秒）
+     * @param nullValue 是否为空结果
+     */
+    public long expiresAt(long now, boolean nullValue) {
+        long ttlMillis = nullValue ? nullValueTimeToLive.toMillis() : timeToLive.toMillis();
+        if (ttlJitter > 0) {
+            ttlMillis -= (long) (ttlMillis * ttlJitter * ThreadLocalRandom.current().nextDouble());
+        }
+        return now + ttlMillis;
+    }
+
+    /**
+     * 条目可能的最长过期时间
+     */
+    public Duration maxTimeToLive() {
+        return nullValueTimeToLive.compareTo(timeToLive) > 0 ? nullValueTimeToLive : timeToLive;
+    }
+
+    /**
+     * 允许返回旧值的最长时间，未开启提前刷新时为 0
+     */
+    public long maxStaleMillis() {
+        return refreshPolicy != null ? refreshPolicy.getMaxStale().toMillis() : 0;
+    }
+}
@@ -0,0 +1,66 @@
+package com.xkcoding.swagger.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * L1 标签反向索引：标签 -> 缓存key
+ * </p>
+ *
+ * 条目写入 L1 时登记，被淘汰时由 Caffeine 的移除监听器注销，
+ * 按标签失效时直接取出对应的key，无需遍历整个缓存
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class CacheTagIndex {
+
+    private final ConcurrentMap<String, Set<Object>> index = new ConcurrentHashMap<>();
+
+    /**
+     * 登记key的标签。在 compute 内加入，与 {@link #remove} 中移除空集合互斥，
+     * 避免刚取到的集合被并发移除后登记丢失
+     */
+    public void add(Object key, Collection<String> tags) {
+        for (String tag : tags) {
+            index.compute(tag, (t, keys) -> {
+                if (keys == null) {
+                    keys = ConcurrentHashMap.newKeySet();
+                }
+                keys.add(key);
+                return keys;
+            });
+        }
+    }
+
+    /**
+     * 注销key的标签，标签下没有key时移除标签
+     */
+    public void remove(Object key, Collection<String> tags) {
+        for (String tag : tags) {
+            index.computeIfPresent(tag, (t, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    /**
+     * 取出并移除标签下的所有key
+     */
+    public Set<Object> removeTag(String tag) {
+        Set<Object> keys = index.remove(tag);
+        return keys != null ? keys : Collections.emptySet();
+    }
+
+    /**
+     * 当前索引的标签数量
+     */
+    public int tagCount() {
+        return index.size();
+    }
+}
@@ -0,0 +1,81 @@
+package com.xkcoding.swagger.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * <p>
+ * 缓存标签声明
+ * </p>
+ *
+ * 在被缓存的方法（加载逻辑）中调用 {@link #tag(String...)} 声明结果依赖的实体，
+ * 例如 "user:3"。写操作只需按标签失效，即可精确清除所有包含该实体的缓存条目。
+ * 标签通过 ThreadLocal 收集，只对通过 {@code @Cacheable(sync = true)} 加载的条目生效；
+ * 嵌套加载时内层的标签会同时记到外层
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public final class CacheTags {
+
+    private static final ThreadLocal<Set<String>> CURRENT = new ThreadLocal<>();
+
+    private CacheTags() {
+    }
+
+    /**
+     * 声明当前加载结果依赖的标签，不在加载过程中调用时忽略
+     */
+    public static void tag(String... tags) {
+        Set<String> current = CURRENT.get();
+        if (current != null) {
+            Collections.addAll(current, tags);
+        }
+    }
+
+    /**
+     * 声明一组标签，用于把命中的内层条目的标签并入外层加载
+     */
+    public static void tagAll(Collection<String> tags) {
+        Set<String> current = CURRENT.get();
+        if (current != null) {
+            current.addAll(tags);
+        }
+    }
+
+    /**
+     * 实体标签：类型 + ":" + ID
+     */
+    public static String entity(String type, Object id) {
+        return type + ":" + id;
+    }
+
+    /**
+     * 开始收集标签
+     *
+     * @return 外层正在收集的标签集合，需传给 {@link #end(Set)}
+     */
+    static Set<String> begin() {
+        Set<String> outer = CURRENT.get();
+        CURRENT.set(new LinkedHashSet<>());
+        return outer;
+    }
+
+    /**
+     * 结束收集，恢复外层并把本次的标签并入外层
+     *
+     * @return 本次收集到的标签
+     */
+    static Set<String> end(Set<String> outer) {
+        Set<String> collected = CURRENT.get();
+        if (outer != null) {
+            outer.addAll(collected);
+            CURRENT.set(outer);
+        } else {
+            CURRENT.remove();
+        }
+        return collected;
+    }
+}
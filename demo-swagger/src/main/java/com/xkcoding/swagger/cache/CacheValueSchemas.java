@@ -0,0 +1,416 @@
+package com.xkcoding.swagger.cache;
+
+import com.xkcoding.swagger.common.PageResponse;
+import com.xkcoding.swagger.entity.Permission;
+import com.xkcoding.swagger.entity.Role;
+import com.xkcoding.swagger.entity.User;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * <p>
+ * 缓存实体的二进制结构
+ * </p>
+ *
+ * 每个结构先写一个 varint 位图标记非空字段，再按顺序写非空字段。
+ * 用户的 password 不写入缓存，读取后为 null。
+ * 新增字段时追加到末尾并提升版本号，旧版本数据缺少的字段保持 null
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public final class CacheValueSchemas {
+
+    public static final int TYPE_USER = 32;
+    public static final int TYPE_PAGE_RESPONSE = 33;
+    public static final int TYPE_ROLE = 34;
+    public static final int TYPE_PERMISSION = 35;
+
+    private CacheValueSchemas() {
+    }
+
+    /**
+     * 注册项目内会被缓存的实体
+     */
+    public static CompactCacheSerializer registerDefaults(CompactCacheSerializer serializer) {
+        return serializer
+                .register(TYPE_USER, User.class, new UserSchema())
+                .register(TYPE_PAGE_RESPONSE, PageResponse.class, new PageResponseSchema())
+                .register(TYPE_ROLE, Role.class, new RoleSchema())
+                .register(TYPE_PERMISSION, Permission.class, new PermissionSchema());
+    }
+
+    /**
+     * 非空字段位图
+     */
+    private static int presence(Object... fields) {
+        int mask = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    private static boolean has(int mask, int index) {
+        return (mask & (1 << index)) != 0;
+    }
+
+    private static void checkVersion(String type, int version, int current) throws IOException {
+        if (version < 1 || version > current) {
+            throw new IOException("不支持的" + type + "结构版本: " + version);
+        }
+    }
+
+    /**
+     * 用户：不包含 password
+     */
+    static class UserSchema implements ValueSchema<User> {
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public void write(User user, CompactOutput out) throws IOException {
+            int mask = presence(user.getId(), user.getName(), user.getJob(), user.getUsername(), user.getEmail(),
+                    user.getPhone(), user.getStatus(), user.getCreateTime(), user.getUpdateTime(),
+                    user.getRoles(), user.getPermissions());
+            out.writeVarInt(mask);
+            if (has(mask, 0)) {
+                out.writeSignedInt(user.getId());
+            }
+            if (has(mask, 1)) {
+                out.writeString(user.getName());
+            }
+            if (has(mask, 2)) {
+                out.writeString(user.getJob());
+            }
+            if (has(mask, 3)) {
+                out.writeString(user.getUsername());
+            }
+            if (has(mask, 4)) {
+                out.writeString(user.getEmail());
+            }
+            if (has(mask, 5)) {
+                out.writeString(user.getPhone());
+            }
+            if (has(mask, 6)) {
+                out.writeSignedInt(user.getStatus());
+            }
+            if (has(mask, 7)) {
+                out.writeDateTime(user.getCreateTime());
+            }
+            if (has(mask, 8)) {
+                out.writeDateTime(user.getUpdateTime());
+            }
+            if (has(mask, 9)) {
+                out.writeValue(user.getRoles());
+            }
+            if (has(mask, 10)) {
+                out.writeValue(user.getPermissions());
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public User read(int version, CompactInput in) throws IOException {
+            checkVersion("用户", version, version());
+            int mask = in.readVarInt();
+            User user = new User();
+            if (has(mask, 0)) {
+                user.setId(in.readSignedInt());
+            }
+            if (has(mask, 1)) {
+                user.setName(in.readString());
+            }
+            if (has(mask, 2)) {
+                user.setJob(in.readString());
+            }
+            if (has(mask, 3)) {
+                user.setUsername(in.readString());
+            }
+            if (has(mask, 4)) {
+                user.setEmail(in.readString());
+            }
+            if (has(mask, 5)) {
+                user.setPhone(in.readString());
+            }
+            if (has(mask, 6)) {
+                user.setStatus(in.readSignedInt());
+            }
+            if (has(mask, 7)) {
+                user.setCreateTime(in.readDateTime());
+            }
+            if (has(mask, 8)) {
+                user.setUpdateTime(in.readDateTime());
+            }
+            if (has(mask, 9)) {
+                user.setRoles((List<Role>) in.readValue());
+            }
+            if (has(mask, 10)) {
+                user.setPermissions((List<Permission>) in.readValue());
+            }
+            return user;
+        }
+    }
+
+    /**
+     * 分页响应：data 中的元素按各自类型写入。
+     * 版本 2 追加 nextCursor、approximateCount（存在位 7、8），版本 1 的数据没有这两个字段
+     */
+    @SuppressWarnings("rawtypes")
+    static class PageResponseSchema implements ValueSchema<PageResponse> {
+
+        @Override
+        public int version() {
+            return 2;
+        }
+
+        @Override
+        public void write(PageResponse page, CompactOutput out) throws IOException {
+            int mask = presence(page.getCurrentPage(), page.getPageSize(), page.getTotalCount(),
+                    page.getTotalPages(), page.getHasNext(), page.getHasPrevious(), page.getData(), page.getNextCursor(),
+                    page.getApproximateCount());
+            out.writeVarInt(mask);
+            if (has(mask, 0)) {
+                out.writeSignedInt(page.getCurrentPage());
+            }
+            if (has(mask, 1)) {
+                out.writeSignedInt(page.getPageSize());
+            }
+            if (has(mask, 2)) {
+                out.writeSignedLong(page.getTotalCount());
+            }
+            if (has(mask, 3)) {
+                out.writeSignedInt(page.getTotalPages());
+            }
+            if (has(mask, 4)) {
+                out.writeByte(page.getHasNext() ? 1 : 0);
+            }
+            if (has(mask, 5)) {
+                out.writeByte(page.getHasPrevious() ? 1 : 0);
+            }
+            if (has(mask, 6)) {
+                out.writeValue(page.getData());
+            }
+            if (has(mask, 7)) {
+                out.writeString(page.getNextCursor());
+            }
+            if (has(mask, 8)) {
+                out.writeByte(page.getApproximateCount() ? 1 : 0);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public PageResponse read(int version, CompactInput in) throws IOException {
+            checkVersion("分页", version, version());
+            int mask = in.readVarInt();
+            PageResponse page = new PageResponse();
+            if (has(mask, 0)) {
+                page.setCurrentPage(in.readSignedInt());
+            }
+            if (has(mask, 1)) {
+                page.setPageSize(in.readSignedInt());
+            }
+            if (has(mask, 2)) {
+                page.setTotalCount(in.readSignedLong());
+            }
+            if (has(mask, 3)) {
+                page.setTotalPages(in.readSignedInt());
+            }
+            if (has(mask, 4)) {
+                page.setHasNext(in.readByte() != 0);
+            }
+            if (has(mask, 5)) {
+                page.setHasPrevious(in.readByte() != 0);
+            }
+            if (has(mask, 6)) {
+                page.setData((List) in.readValue());
+            }
+            if (version < 2) {
+                return page;
+            }
+            if (has(mask, 7)) {
+                page.setNextCursor(in.readString());
+            }
+            if (has(mask, 8)) {
+                page.setApproximateCount(in.readByte() != 0);
+            }
+            return page;
+        }
+    }
+
+    static class RoleSchema implements ValueSchema<Role> {
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public void write(Role role, CompactOutput out) throws IOException {
+            int mask = presence(role.getId(), role.getRoleCode(), role.getRoleName(), role.getDescription(),
+                    role.getStatus(), role.getCreateTime(), role.getUpdateTime(), role.getPermissions());
+            out.writeVarInt(mask);
+            if (has(mask, 0)) {
+                out.writeSignedInt(role.getId());
+            }
+            if (has(mask, 1)) {
+                out.writeString(role.getRoleCode());
+            }
+            if (has(mask, 2)) {
+                out.writeString(role.getRoleName());
+            }
+            if (has(mask, 3)) {
+                out.writeString(role.getDescription());
+            }
+            if (has(mask, 4)) {
+                out.writeSignedInt(role.getStatus());
+            }
+            if (has(mask, 5)) {
+                out.writeDateTime(role.getCreateTime());
+            }
+            if (has(mask, 6)) {
+                out.writeDateTime(role.getUpdateTime());
+            }
+            if (has(mask, 7)) {
+                out.writeValue(role.getPermissions());
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Role read(int version, CompactInput in) throws IOException {
+            checkVersion("角色", version, version());
+            int mask = in.readVarInt();
+            Role role = new Role();
+            if (has(mask, 0)) {
+                role.setId(in.readSignedInt());
+            }
+            if (has(mask, 1)) {
+                role.setRoleCode(in.readString());
+            }
+            if (has(mask, 2)) {
+                role.setRoleName(in.readString());
+            }
+            if (has(mask, 3)) {
+                role.setDescription(in.readString());
+            }
+            if (has(mask, 4)) {
+                role.setStatus(in.readSignedInt());
+            }
+            if (has(mask, 5)) {
+                role.setCreateTime(in.readDateTime());
+            }
+            if (has(mask, 6)) {
+                role.setUpdateTime(in.readDateTime());
+            }
+            if (has(mask, 7)) {
+                role.setPermissions((List<Permission>) in.readValue());
+            }
+            return role;
+        }
+    }
+
+    static class PermissionSchema implements ValueSchema<Permission> {
+
+        @Override
+        public int version() {
+            return 1;
+        }
+
+        @Override
+        public void write(Permission permission, CompactOutput out) throws IOException {
+            int mask = presence(permission.getId(), permission.getPermissionCode(), permission.getPermissionName(),
+                    permission.getType(), permission.getPath(), permission.getMethod(), permission.getParentId(),
+                    permission.getDescription(), permission.getStatus(), permission.getSortOrder(),
+                    permission.getCreateTime(), permission.getUpdateTime());
+            out.writeVarInt(mask);
+            if (has(mask, 0)) {
+                out.writeSignedInt(permission.getId());
+            }
+            if (has(mask, 1)) {
+                out.writeString(permission.getPermissionCode());
+            }
+            if (has(mask, 2)) {
+                out.writeString(permission.getPermissionName());
+            }
+            if (has(mask, 3)) {
+                out.writeSignedInt(permission.getType());
+            }
+            if (has(mask, 4)) {
+                out.writeString(permission.getPath());
+            }
+            if (has(mask, 5)) {
+                out.writeString(permission.getMethod());
+            }
+            if (has(mask, 6)) {
+                out.writeSignedInt(permission.getParentId());
+            }
+            if (has(mask, 7)) {
+                out.writeString(permission.getDescription());
+            }
+            if (has(mask, 8)) {
+                out.writeSignedInt(permission.getStatus());
+            }
+            if (has(mask, 9)) {
+                out.writeSignedInt(permission.getSortOrder());
+            }
+            if (has(mask, 10)) {
+                out.writeDateTime(permission.getCreateTime());
+            }
+            if (has(mask, 11)) {
+                out.writeDateTime(permission.getUpdateTime());
+            }
+        }
+
+        @Override
+        public Permission read(int version, CompactInput in) throws IOException {
+            checkVersion("权限", version, version());
+            int mask = in.readVarInt();
+            Permission permission = new Permission();
+            if (has(mask, 0)) {
+                permission.setId(in.readSignedInt());
+            }
+            if (has(mask, 1)) {
+                permission.setPermissionCode(in.readString());
+            }
+            if (has(mask, 2)) {
+                permission.setPermissionName(in.readString());
+            }
+            if (has(mask, 3)) {
+                permission.setType(in.readSignedInt());
+            }
+            if (has(mask, 4)) {
+                permission.setPath(in.readString());
+            }
+            if (has(mask, 5)) {
+                permission.setMethod(in.readString());
+            }
+            if (has(mask, 6)) {
+                permission.setParentId(in.readSignedInt());
+            }
+            if (has(mask, 7)) {
+                permission.setDescription(in.readString());
+            }
+            if (has(mask, 8)) {
+                permission.setStatus(in.readSignedInt());
+            }
+            if (has(mask, 9)) {
+                permission.setSortOrder(in.readSignedInt());
+            }
+            if (has(mask, 10)) {
+                permission.setCreateTime(in.readDateTime());
+            }
+            if (has(mask, 11)) {
+                permission.setUpdateTime(in.readDateTime());
+            }
+            return permission;
+        }
+    }
+}
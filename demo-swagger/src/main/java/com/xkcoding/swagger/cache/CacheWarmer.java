@@ -0,0 +1,28 @@
+package com.xkcoding.swagger.cache;
+
+/**
+ * <p>
+ * 缓存预热加载器
+ * </p>
+ *
+ * 按缓存名称和字符串形式的key加载一个条目，通常直接调用带缓存注解的方法，使结果经过正常的加载流程写入两级缓存
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public interface CacheWarmer {
+
+    /**
+     * 是否负责该缓存的预热
+     */
+    boolean supports(String cacheName);
+
+    /**
+     * 加载一个条目
+     *
+     * @param cacheName 缓存名称
+     * @param key       key的字符串形式（配置的key或快照中记录的 String.valueOf(key)）
+     * @return 是否加载，无法识别的key返回 false
+     */
+    boolean warm(String cacheName, String key) throws Exception;
+}
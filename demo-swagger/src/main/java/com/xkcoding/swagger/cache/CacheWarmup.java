@@ -0,0 +1,202 @@
+package com.xkcoding.swagger.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * 启动时缓存预热
+ * </p>
+ *
+ * 预热的key来自配置和上次关闭时保存的快照（各缓存 L1 中访问频率最高的key），
+ * 由对应的 {@link CacheWarmer} 以有限并发加载；超过超时时间仍未完成的加载会被取消，不影响启动。
+ * 快照为文本文件，每行 "缓存名 TAB key"
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+public class CacheWarmup {
+
+    private final TieredCacheManager cacheManager;
+    private final List<CacheWarmer> warmers;
+    private final int concurrency;
+    private final Duration timeout;
+    private final Path snapshotFile;
+    private final int snapshotMaxKeys;
+    private Map<String, List<String>> configuredKeys = Collections.emptyMap();
+
+    /**
+     * @param snapshotFile    快照文件，为 null 时不读写快照
+     * @param snapshotMaxKeys 每个缓存最多保存的key数
+     */
+    public CacheWarmup(TieredCacheManager cacheManager, List<CacheWarmer> warmers, int concurrency,
+                       Duration timeout, Path snapshotFile, int snapshotMaxKeys) {
+        this.cacheManager = cacheManager;
+        this.warmers = warmers;
+        this.concurrency = concurrency;
+        this.timeout = timeout;
+        this.snapshotFile = snapshotFile;
+        this.snapshotMaxKeys = snapshotMaxKeys;
+    }
+
+    /**
+     * 设置需要预热的key（缓存名 -> key列表），排在快照中的key之前
+     */
+    public void setConfiguredKeys(Map<String, List<String>> configuredKeys) {
+        this.configuredKeys = configuredKeys;
+    }
+
+    /**
+     * 执行预热，阻塞到全部完成或超时
+     *
+     * @return 成功加载的条目数
+     */
+    public int run() {
+        Map<String, Set<String>> keys = collectKeys();
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        keys.forEach((cacheName, cacheKeys) -> {
+            CacheWarmer warmer = findWarmer(cacheName);
+            if (warmer == null) {
+                log.warn("缓存没有对应的预热加载器，跳过: cache={}, keys={}", cacheName, cacheKeys.size());
+                return;
+            }
+            for (String key : cacheKeys) {
+                tasks.add(() -> warmer.warm(cacheName, key));
+            }
+        });
+        if (tasks.isEmpty()) {
+            log.info("没有需要预热的缓存key");
+            return 0;
+        }
+
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, tasks.size()),
+                new CustomizableThreadFactory("cache-warmup-"));
+        int loaded = 0;
+        int skipped = 0;
+        int failed = 0;
+        int timedOut = 0;
+        try {
+            // 超时后未完成的任务会被取消（中断）
+            List<Future<Boolean>> futures = executor.invokeAll(tasks, timeout.toMillis(), TimeUnit.MILLISECONDS);
+            for (Future<Boolean> future : futures) {
+                try {
+                    if (future.get()) {
+                        loaded++;
+                    } else {
+                        skipped++;
+                    }
+                } catch (CancellationException e) {
+                    timedOut++;
+                } catch (ExecutionException e) {
+                    failed++;
+                    log.warn("缓存预热加载失败: error={}", e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("缓存预热被中断");
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("缓存预热结束: total={}, loaded={}, skipped={}, failed={}, timedOut={}, elapsed={}ms",
+                tasks.size(), loaded, skipped, failed, timedOut, System.currentTimeMillis() - start);
+        return loaded;
+    }
+
+    /**
+     * 保存快照：有预热加载器的缓存各自 L1 中访问频率最高的key
+     */
+    public void saveSnapshot() {
+        if (snapshotFile == null) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        for (String cacheName : cacheManager.getCacheNames()) {
+            if (findWarmer(cacheName) == null) {
+                continue;
+            }
+            TieredCache cache = (TieredCache) cacheManager.getCache(cacheName);
+            for (Object key : cache.hottestKeys(snapshotMaxKeys)) {
+                String value = String.valueOf(key);
+                if (value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                    lines.add(cacheName + "\t" + value);
+                }
+            }
+        }
+        try {
+            Path parent = snapshotFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            // 先写临时文件再替换，避免关闭过程中被中断时留下不完整的快照
+            Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            Files.write(tempFile, lines, StandardCharsets.UTF_8);
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+            log.info("缓存预热快照已保存: file={}, keys={}", snapshotFile, lines.size());
+        } catch (IOException e) {
+            log.warn("缓存预热快照保存失败: file={}, error={}", snapshotFile, e.getMessage());
+        }
+    }
+
+    /**
+     * 合并配置的key和快照中的key（保持顺序、去重）
+     */
+    Map<String, Set<String>> collectKeys() {
+        Map<String, Set<String>> keys = new LinkedHashMap<>();
+        configuredKeys.forEach((cacheName, cacheKeys) ->
+                keys.computeIfAbsent(cacheName, name -> new LinkedHashSet<>()).addAll(cacheKeys));
+        for (String line : readSnapshot()) {
+            int separator = line.indexOf('\t');
+            if (separator > 0) {
+                keys.computeIfAbsent(line.substring(0, separator), name -> new LinkedHashSet<>())
+                        .add(line.substring(separator + 1));
+            }
+        }
+        return keys;
+    }
+
+    private Collection<String> readSnapshot() {
+        if (snapshotFile == null || !Files.isRegularFile(snapshotFile)) {
+            return Collections.emptyList();
+        }
+        try {
+            return Files.readAllLines(snapshotFile, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("缓存预热快照读取失败: file={}, error={}", snapshotFile, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private CacheWarmer findWarmer(String cacheName) {
+        for (CacheWarmer warmer : warmers) {
+            if (warmer.supports(cacheName)) {
+                return warmer;
+            }
+        }
+        return null;
+    }
+}
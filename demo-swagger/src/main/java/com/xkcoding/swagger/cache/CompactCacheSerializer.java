@@ -0,0 +1,227 @@
+package com.xkcoding.swagger.cache;
+
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * 紧凑二进制缓存序列化器（替代 JDK 序列化写入 L2）
+ * </p>
+ *
+ * 格式：魔数 + 格式版本 + 内容类型，{@link CacheEntry} 的元数据用 varint 写入，
+ * 值按类型标识写入：常用类型内置，注册了 {@link ValueSchema} 的类型按字段顺序写入并带结构版本号，
+ * 其他类型退回 JDK 序列化（同样带类型标识）。
+ * 魔数、格式版本或结构版本不识别时抛出 {@link SerializationException}，由缓存按未命中处理，
+ * 因此切换格式或滚动升级时旧数据只会触发一次重新加载
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class CompactCacheSerializer implements RedisSerializer<Object> {
+
+    private static final int MAGIC = 0xCA;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int KIND_ENTRY = 0;
+    private static final int KIND_VALUE = 1;
+
+    /**
+     * 内置类型标识，自定义类型从 {@link #MIN_CUSTOM_TYPE_ID} 开始
+     */
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_NULL_VALUE = 1;
+    private static final int TYPE_STRING = 2;
+    private static final int TYPE_INTEGER = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_BOOLEAN = 5;
+    private static final int TYPE_LIST = 6;
+    private static final int TYPE_DATE_TIME = 7;
+    private static final int TYPE_JAVA = 127;
+
+    public static final int MIN_CUSTOM_TYPE_ID = 32;
+
+    private final Map<Class<?>, Registration<?>> byClass = new ConcurrentHashMap<>();
+    private final Map<Integer, Registration<?>> byTypeId = new ConcurrentHashMap<>();
+    private final JdkSerializationRedisSerializer fallback;
+
+    public CompactCacheSerializer(ClassLoader classLoader) {
+        this.fallback = new JdkSerializationRedisSerializer(classLoader);
+    }
+
+    /**
+     * 注册类型结构
+     *
+     * @param typeId 类型标识（32-126），写入数据中，注册后不能再修改
+     * @param type   类型（按精确类型匹配，不匹配子类）
+     * @param schema 结构定义
+     */
+    public <T> CompactCacheSerializer register(int typeId, Class<T> type, ValueSchema<T> schema) {
+        if (typeId < MIN_CUSTOM_TYPE_ID || typeId >= TYPE_JAVA) {
+            throw new IllegalArgumentException("类型标识必须在 " + MIN_CUSTOM_TYPE_ID + "-" + (TYPE_JAVA - 1) + " 之间: " + typeId);
+        }
+        Registration<T> registration = new Registration<>(typeId, schema);
+        if (byTypeId.putIfAbsent(typeId, registration) != null) {
+            throw new IllegalArgumentException("类型标识重复: " + typeId);
+        }
+        byClass.put(type, registration);
+        return this;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        CompactOutput out = new CompactOutput(this);
+        out.writeByte(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        try {
+            if (value instanceof CacheEntry) {
+                CacheEntry entry = (CacheEntry) value;
+                out.writeByte(KIND_ENTRY);
+                out.writeVarLong(entry.getCreatedAt());
+                out.writeSignedLong(entry.getExpiresAt() - entry.getCreatedAt());
+                out.writeVarLong(entry.getLoadMillis());
+                out.writeVarInt(entry.getTags().size());
+                for (String tag : entry.getTags()) {
+                    out.writeString(tag);
+                }
+                writeValue(entry.getValue(), out);
+            } else {
+                out.writeByte(KIND_VALUE);
+                writeValue(value, out);
+            }
+        } catch (IOException e) {
+            throw new SerializationException("缓存值序列化失败: " + e.getMessage(), e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        CompactInput in = new CompactInput(bytes, this);
+        try {
+            if (in.readByte() != MAGIC) {
+                throw new SerializationException("不是紧凑格式的缓存数据");
+            }
+            int formatVersion = in.readByte();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new SerializationException("不支持的缓存格式版本: " + formatVersion);
+            }
+            if (in.readByte() == KIND_VALUE) {
+                return readValue(in);
+            }
+            long createdAt = in.readVarLong();
+            long expiresAt = createdAt + in.readSignedLong();
+            long loadMillis = in.readVarLong();
+            int tagCount = in.readVarInt();
+            Set<String> tags = new LinkedHashSet<>();
+            for (int i = 0; i < tagCount; i++) {
+                tags.add(in.readString());
+            }
+            Object value = readValue(in);
+            return new CacheEntry(value, createdAt, expiresAt, loadMillis, tags);
+        } catch (IOException e) {
+            throw new SerializationException("缓存值反序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void writeValue(Object value, CompactOutput out) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+            return;
+        }
+        if (value instanceof NullValue) {
+            out.writeByte(TYPE_NULL_VALUE);
+            return;
+        }
+        Registration<Object> registration = (Registration<Object>) byClass.get(value.getClass());
+        if (registration != null) {
+            out.writeByte(registration.typeId);
+            out.writeByte(registration.schema.version());
+            registration.schema.write(value, out);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeSignedInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeSignedLong((Long) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeByte((Boolean) value ? 1 : 0);
+        } else if (value instanceof LocalDateTime) {
+            out.writeByte(TYPE_DATE_TIME);
+            out.writeDateTime((LocalDateTime) value);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(TYPE_LIST);
+            out.writeVarInt(list.size());
+            for (Object item : list) {
+                writeValue(item, out);
+            }
+        } else {
+            out.writeByte(TYPE_JAVA);
+            out.writeBytes(fallback.serialize(value));
+        }
+    }
+
+    Object readValue(CompactInput in) throws IOException {
+        int typeId = in.readByte();
+        switch (typeId) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_NULL_VALUE:
+                return NullValue.INSTANCE;
+            case TYPE_STRING:
+                return in.readString();
+            case TYPE_INTEGER:
+                return in.readSignedInt();
+            case TYPE_LONG:
+                return in.readSignedLong();
+            case TYPE_BOOLEAN:
+                return in.readByte() != 0;
+            case TYPE_DATE_TIME:
+                return in.readDateTime();
+            case TYPE_LIST:
+                int size = in.readVarInt();
+                List<Object> list = new ArrayList<>(Math.min(size, 1024));
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            case TYPE_JAVA:
+                return fallback.deserialize(in.readBytes());
+            default:
+                Registration<?> registration = byTypeId.get(typeId);
+                if (registration == null) {
+                    throw new SerializationException("未注册的缓存值类型: " + typeId);
+                }
+                return registration.schema.read(in.readByte(), in);
+        }
+    }
+
+    private static final class Registration<T> {
+        private final int typeId;
+        private final ValueSchema<T> schema;
+
+        private Registration(int typeId, ValueSchema<T> schema) {
+            this.typeId = typeId;
+            this.schema = schema;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.xkcoding.swagger.cache;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * <p>
+ * 紧凑二进制读取，与 {@link CompactOutput} 对应
+ * </p>
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class CompactInput {
+
+    private final byte[] bytes;
+    private final CompactCacheSerializer serializer;
+    private int position;
+
+    CompactInput(byte[] bytes, CompactCacheSerializer serializer) {
+        this.bytes = bytes;
+        this.serializer = serializer;
+    }
+
+    public int readByte() throws IOException {
+        if (position >= bytes.length) {
+            throw new EOFException("数据不完整");
+        }
+        return bytes[position++] & 0xFF;
+    }
+
+    public byte[] readBytes() throws IOException {
+        int length = readVarInt();
+        if (length < 0 || length > bytes.length - position) {
+            throw new EOFException("数据不完整");
+        }
+        byte[] result = new byte[length];
+        System.arraycopy(bytes, position, result, 0, length);
+        position += length;
+        return result;
+    }
+
+    public int readVarInt() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("varint 格式错误");
+    }
+
+    public long readVarLong() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("varlong 格式错误");
+    }
+
+    public int readSignedInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public long readSignedLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public String readString() throws IOException {
+        int length = readVarInt();
+        if (length < 0 || length > bytes.length - position) {
+            throw new EOFException("数据不完整");
+        }
+        String result = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return result;
+    }
+
+    public LocalDateTime readDateTime() throws IOException {
+        long epochSecond = readSignedLong();
+        int nano = readVarInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    /**
+     * 读取 {@link CompactOutput#writeValue(Object)} 写入的值
+     */
+    public Object readValue() throws IOException {
+        return serializer.readValue(this);
+    }
+
+    boolean hasRemaining() {
+        return position < bytes.length;
+    }
+}
@@ -0,0 +1,99 @@
+package com.xkcoding.swagger.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * 紧凑二进制写入
+ * </p>
+ *
+ * 整数使用 varint（有符号数先做 zigzag 编码），字符串为 varint 长度 + UTF-8 字节，
+ * 嵌套的值通过 {@link #writeValue(Object)} 交给 {@link CompactCacheSerializer} 按类型写入
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class CompactOutput {
+
+    private final CompactCacheSerializer serializer;
+    private byte[] buffer = new byte[128];
+    private int size;
+
+    CompactOutput(CompactCacheSerializer serializer) {
+        this.serializer = serializer;
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+    }
+
+    public void writeBytes(byte[] bytes) {
+        writeVarInt(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    /**
+     * 无符号 varint，每字节 7 位，最高位表示后面还有字节
+     */
+    public void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * 有符号整数：zigzag 编码后写 varint，绝对值小的负数同样只占 1-2 个字节
+     */
+    public void writeSignedInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public void writeSignedLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeString(String value) {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void writeDateTime(LocalDateTime value) {
+        writeSignedLong(value.toEpochSecond(ZoneOffset.UTC));
+        writeVarInt(value.getNano());
+    }
+
+    /**
+     * 写入任意值（带类型标识），可以为 null
+     */
+    public void writeValue(Object value) throws IOException {
+        serializer.writeValue(value, this);
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
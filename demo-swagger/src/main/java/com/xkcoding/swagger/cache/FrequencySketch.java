@@ -0,0 +1,90 @@
+package com.xkcoding.swagger.cache;
+
+/**
+ * <p>
+ * 访问频率估计（Count-Min Sketch，4 位计数器）
+ * </p>
+ *
+ * 每个key映射到 4 行中各一个计数器，估计值取最小值；计数器上限 15。
+ * 累计增加次数达到 sampleSize 后所有计数器减半，使旧的热度逐渐衰减（TinyLFU 的老化机制）。
+ * 非线程安全，由调用方加锁
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedEntries 预计同时跟踪的key数量，决定计数器数量和老化周期
+     */
+    public FrequencySketch(int expectedEntries) {
+        int size = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+        this.table = new long[size];
+        this.tableMask = size - 1;
+        this.sampleSize = 10 * size;
+    }
+
+    /**
+     * 估计访问次数（0-15）
+     */
+    public int frequency(int hash) {
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = indexOf(hash, i);
+            int offset = offsetOf(hash, i);
+            frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 0xF));
+        }
+        return frequency;
+    }
+
+    /**
+     * 记录一次访问
+     */
+    public void increment(int hash) {
+        boolean added = false;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = indexOf(hash, i);
+            int offset = offsetOf(hash, i);
+            if (((table[index] >>> offset) & 0xF) != 0xF) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * 所有计数器减半
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    /**
+     * 每个 long 存 16 个 4 位计数器，每行使用不同的计数器位置
+     */
+    private int offsetOf(int hash, int row) {
+        int spread = hash * 0x9E3779B9 >>> (28 - row * 4);
+        return (spread & 0xF) << 2;
+    }
+}
@@ -0,0 +1,124 @@
+package com.xkcoding.swagger.cache;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * 热点key识别：Count-Min Sketch 估计访问频率 + 固定大小的 Top-K 列表
+ * </p>
+ *
+ * 只记录 L1 未命中、需要读堆外或 L2 的访问，因此识别出的是给共享的 L2 带来压力的key。
+ * 频率估计值超过 threshold 的key视为热点；Sketch 周期性减半，不再被访问的key会逐渐冷却。
+ * Top-K 列表按当前估计值替换最冷的key，同时记录进入列表后的读取次数，用于管理端点展示
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class HotKeyDetector {
+
+    private final int topK;
+    private final int threshold;
+    private final FrequencySketch sketch;
+    private final Map<Object, long[]> top = new HashMap<>();
+
+    /**
+     * @param topK         Top-K 列表大小
+     * @param threshold    频率估计值（0-15）不低于该值时视为热点
+     * @param expectedKeys 预计同时活跃的key数量，决定 Sketch 的大小和老化周期
+     */
+    public HotKeyDetector(int topK, int threshold, int expectedKeys) {
+        this.topK = topK;
+        this.threshold = threshold;
+        this.sketch = new FrequencySketch(expectedKeys);
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @return 该key当前是否为热点
+     */
+    public synchronized boolean record(Object key) {
+        int hash = key.hashCode();
+        sketch.increment(hash);
+        int frequency = sketch.frequency(hash);
+        long[] reads = top.get(key);
+        if (reads != null) {
+            reads[0]++;
+        } else if (top.size() < topK) {
+            top.put(key, new long[]{1});
+        } else {
+            Object coldest = coldest();
+            if (sketch.frequency(coldest.hashCode()) < frequency) {
+                top.remove(coldest);
+                top.put(key, new long[]{1});
+            }
+        }
+        return frequency >= threshold;
+    }
+
+    /**
+     * 该key当前是否为热点（不记录访问）
+     */
+    public synchronized boolean isHot(Object key) {
+        return sketch.frequency(key.hashCode()) >= threshold;
+    }
+
+    /**
+     * 当前的 Top-K 列表，按频率估计值从高到低排序
+     */
+    public synchronized List<HotKey> topKeys() {
+        List<HotKey> result = new ArrayList<>(top.size());
+        for (Map.Entry<Object, long[]> entry : top.entrySet()) {
+            int frequency = sketch.frequency(entry.getKey().hashCode());
+            result.add(new HotKey(String.valueOf(entry.getKey()), frequency, entry.getValue()[0], frequency >= threshold));
+        }
+        result.sort(Comparator.comparingInt(HotKey::getFrequency).thenComparingLong(HotKey::getReads).reversed());
+        return result;
+    }
+
+    private Object coldest() {
+        Object coldest = null;
+        int min = Integer.MAX_VALUE;
+        for (Object key : top.keySet()) {
+            int frequency = sketch.frequency(key.hashCode());
+            if (frequency < min) {
+                min = frequency;
+                coldest = key;
+            }
+        }
+        return coldest;
+    }
+
+    /**
+     * Top-K 中的一个key
+     */
+    @Getter
+    public static class HotKey {
+        private final String key;
+
+        /**
+         * 频率估计值（0-15，周期性减半）
+         */
+        private final int frequency;
+
+        /**
+         * 进入 Top-K 后的读取次数
+         */
+        private final long reads;
+
+        private final boolean hot;
+
+        HotKey(String key, int frequency, long reads, boolean hot) {
+            this.key = key;
+            this.frequency = frequency;
+            this.reads = reads;
+            this.hot = hot;
+        }
+    }
+}
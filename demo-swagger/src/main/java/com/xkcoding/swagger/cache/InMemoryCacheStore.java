@@ -0,0 +1,116 @@
+package com.xkcoding.swagger.cache;
+
+import org.springframework.util.PatternMatchUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * 进程内 L2 存储
+ * </p>
+ *
+ * 模拟 Redis 的 key/value + TTL 语义，用于没有 Redis 的本地开发和单元测试
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class InMemoryCacheStore implements RemoteCacheStore {
+
+    private final Map<String, StoredValue> store = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sets = new ConcurrentHashMap<>();
+
+    @Override
+    public byte[] get(String key) {
+        StoredValue stored = store.get(key);
+        if (stored == null) {
+            return null;
+        }
+        if (stored.isExpired()) {
+            store.remove(key, stored);
+            return null;
+        }
+        return stored.value;
+    }
+
+    @Override
+    public List<byte[]> multiGet(List<String> keys) {
+        List<byte[]> values = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            values.add(get(key));
+        }
+        return values;
+    }
+
+    @Override
+    public void set(String key, byte[] value, Duration ttl) {
+        store.put(key, new StoredValue(value, System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    @Override
+    public long delete(String... keys) {
+        long count = 0;
+        for (String key : keys) {
+            boolean removed = store.remove(key) != null;
+            removed = sets.remove(key) != null || removed;
+            if (removed) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long deleteByPattern(String pattern) {
+        long count = 0;
+        for (String key : store.keySet()) {
+            if (PatternMatchUtils.simpleMatch(pattern, key) && store.remove(key) != null) {
+                count++;
+            }
+        }
+        for (String key : sets.keySet()) {
+            if (PatternMatchUtils.simpleMatch(pattern, key) && sets.remove(key) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void addMember(String key, String member, Duration ttl) {
+        sets.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(member);
+    }
+
+    @Override
+    public Set<String> removeMembers(String key) {
+        Set<String> members = sets.remove(key);
+        return members != null ? new HashSet<>(members) : Collections.emptySet();
+    }
+
+    /**
+     * 当前存储的key数量（包含尚未清理的过期key）
+     */
+    public int size() {
+        return store.size();
+    }
+
+    private static final class StoredValue {
+        private final byte[] value;
+        private final long expireAt;
+
+        private StoredValue(byte[] value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expireAt;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.xkcoding.swagger.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * <p>
+ * 堆外缓存存储：序列化后的条目保存在直接内存（DirectByteBuffer）中
+ * </p>
+ *
+ * 内存按固定大小的块（block）分配：直接内存以 slab 为单位按需申请，总量不超过预算，每个 slab 切分为若干块，
+ * 一个值占用若干个不要求连续的块，空闲块用栈管理，不会产生外部碎片。
+ * 空间不足时按 LRU 顺序淘汰，并用 TinyLFU 做准入：新条目的访问频率不高于将被淘汰的条目时放弃写入，
+ * 避免只访问一次的大值把热点数据挤出去。堆上只保留索引（key -> 块编号），
+ * 大值不再占用堆空间，也不会在 GC 时被反复扫描和复制。所有操作在同一把锁内完成
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class OffHeapStore {
+
+    private final int blockSize;
+    private final int blocksPerSlab;
+    private final int maxBlocks;
+    private final int maxValueBytes;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private int[] freeBlocks;
+    private int freeCount;
+    private int allocatedBlocks;
+
+    private final Map<String, Slot> index = new HashMap<>();
+    private final Slot lru = new Slot(null, null, 0, 0);
+    private final FrequencySketch sketch;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+    private long usedBytes;
+
+    /**
+     * @param capacityBytes 直接内存预算
+     * @param slabSize      每次申请的直接内存大小
+     * @param blockSize     块大小
+     * @param maxValueBytes 单个值的最大字节数，超过时不写入
+     */
+    public OffHeapStore(long capacityBytes, int slabSize, int blockSize, int maxValueBytes) {
+        if (blockSize <= 0 || slabSize < blockSize || capacityBytes < slabSize) {
+            throw new IllegalArgumentException("堆外缓存配置错误: capacity=" + capacityBytes
+                    + ", slabSize=" + slabSize + ", blockSize=" + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.blocksPerSlab = slabSize / blockSize;
+        this.maxBlocks = (int) Math.min(Integer.MAX_VALUE, capacityBytes / slabSize * blocksPerSlab);
+        this.maxValueBytes = (int) Math.min(maxValueBytes, (long) maxBlocks * blockSize);
+        this.freeBlocks = new int[Math.min(maxBlocks, blocksPerSlab * 4)];
+        this.sketch = new FrequencySketch(maxBlocks);
+        lru.prev = lru;
+        lru.next = lru;
+    }
+
+    /**
+     * 值的大小是否在可存放范围内
+     */
+    public boolean accepts(int length) {
+        return length > 0 && length <= maxValueBytes;
+    }
+
+    /**
+     * 读取未过期的值（复制到堆上），过期的值顺带释放
+     */
+    public synchronized byte[] get(String key, long now) {
+        sketch.increment(key.hashCode());
+        Slot slot = index.get(key);
+        if (slot == null) {
+            misses++;
+            return null;
+        }
+        if (now >= slot.expiresAt) {
+            release(slot);
+            misses++;
+            return null;
+        }
+        hits++;
+        moveToTail(slot);
+        return read(slot);
+    }
+
+    /**
+     * 写入值，返回是否写入；空间不足且新条目不如被淘汰的条目热门时放弃写入
+     *
+     * @param expiresAt 过期时间（毫秒）
+     */
+    public synchronized boolean put(String key, byte[] value, long expiresAt) {
+        Slot existing = index.get(key);
+        if (existing != null) {
+            release(existing);
+        }
+        if (!accepts(value.length)) {
+            return false;
+        }
+        int hash = key.hashCode();
+        sketch.increment(hash);
+        int blocksNeeded = (value.length + blockSize - 1) / blockSize;
+        if (!reserve(blocksNeeded, sketch.frequency(hash), System.currentTimeMillis())) {
+            rejections++;
+            return false;
+        }
+        int[] blocks = new int[blocksNeeded];
+        for (int i = 0; i < blocksNeeded; i++) {
+            blocks[i] = freeBlocks[--freeCount];
+        }
+        Slot slot = new Slot(key, blocks, value.length, expiresAt);
+        write(slot, value);
+        index.put(key, slot);
+        linkTail(slot);
+        usedBytes += value.length;
+        return true;
+    }
+
+    public synchronized boolean remove(String key) {
+        Slot slot = index.get(key);
+        if (slot == null) {
+            return false;
+        }
+        release(slot);
+        return true;
+    }
+
+    /**
+     * 删除key满足条件的条目
+     *
+     * @return 删除的条目数
+     */
+    public synchronized long removeIf(Predicate<String> filter) {
+        List<Slot> matched = new ArrayList<>();
+        for (Slot slot : index.values()) {
+            if (filter.test(slot.key)) {
+                matched.add(slot);
+            }
+        }
+        for (Slot slot : matched) {
+            release(slot);
+        }
+        return matched.size();
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * 值占用的字节数
+     */
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * 已申请的直接内存字节数
+     */
+    public synchronized long allocatedBytes() {
+        return (long) slabs.size() * blocksPerSlab * blockSize;
+    }
+
+    public long capacityBytes() {
+        return (long) maxBlocks * blockSize;
+    }
+
+    public synchronized long hitCount() {
+        return hits;
+    }
+
+    public synchronized long missCount() {
+        return misses;
+    }
+
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    /**
+     * 因 TinyLFU 准入被拒绝写入的次数
+     */
+    public synchronized long rejectionCount() {
+        return rejections;
+    }
+
+    /**
+     * 保证有 blocksNeeded 个空闲块：先用空闲块，再申请新的 slab，最后按 LRU 淘汰（过期条目直接淘汰）
+     */
+    private boolean reserve(int blocksNeeded, int candidateFrequency, long now) {
+        while (freeCount < blocksNeeded && allocatedBlocks < maxBlocks) {
+            allocateSlab();
+        }
+        if (freeCount >= blocksNeeded) {
+            return true;
+        }
+        // 先确认淘汰的条目都不如新条目热门，再真正淘汰，避免淘汰了一部分后才发现不能写入
+        int reclaimable = freeCount;
+        for (Slot victim = lru.next; victim != lru && reclaimable < blocksNeeded; victim = victim.next) {
+            if (now < victim.expiresAt && sketch.frequency(victim.key.hashCode()) >= candidateFrequency) {
+                return false;
+            }
+            reclaimable += victim.blocks.length;
+        }
+        if (reclaimable < blocksNeeded) {
+            return false;
+        }
+        while (freeCount < blocksNeeded) {
+            release(lru.next);
+            evictions++;
+        }
+        return true;
+    }
+
+    private void allocateSlab() {
+        int slabIndex = slabs.size();
+        slabs.add(ByteBuffer.allocateDirect(blocksPerSlab * blockSize));
+        int first = slabIndex * blocksPerSlab;
+        int count = Math.min(blocksPerSlab, maxBlocks - first);
+        // 释放时所有已分配的块都可能回到空闲列表，容量按已分配的块数计算
+        ensureFreeCapacity(allocatedBlocks + count);
+        for (int block = first + count - 1; block >= first; block--) {
+            freeBlocks[freeCount++] = block;
+        }
+        allocatedBlocks += count;
+    }
+
+    private void ensureFreeCapacity(int capacity) {
+        if (capacity > freeBlocks.length) {
+            int[] grown = new int[Math.min(maxBlocks, Math.max(capacity, freeBlocks.length * 2))];
+            System.arraycopy(freeBlocks, 0, grown, 0, freeCount);
+            freeBlocks = grown;
+        }
+    }
+
+    private void release(Slot slot) {
+        index.remove(slot.key);
+        unlink(slot);
+        for (int block : slot.blocks) {
+            freeBlocks[freeCount++] = block;
+        }
+        usedBytes -= slot.length;
+    }
+
+    private void write(Slot slot, byte[] value) {
+        int offset = 0;
+        for (int block : slot.blocks) {
+            int length = Math.min(blockSize, value.length - offset);
+            ByteBuffer buffer = slabs.get(block / blocksPerSlab).duplicate();
+            buffer.position((block % blocksPerSlab) * blockSize);
+            buffer.put(value, offset, length);
+            offset += length;
+        }
+    }
+
+    private byte[] read(Slot slot) {
+        byte[] value = new byte[slot.length];
+        int offset = 0;
+        for (int block : slot.blocks) {
+            int length = Math.min(blockSize, value.length - offset);
+            ByteBuffer buffer = slabs.get(block / blocksPerSlab).duplicate();
+            buffer.position((block % blocksPerSlab) * blockSize);
+            buffer.get(value, offset, length);
+            offset += length;
+        }
+        return value;
+    }
+
+    private void linkTail(Slot slot) {
+        slot.prev = lru.prev;
+        slot.next = lru;
+        lru.prev.next = slot;
+        lru.prev = slot;
+    }
+
+    private void unlink(Slot slot) {
+        slot.prev.next = slot.next;
+        slot.next.prev = slot.prev;
+        slot.prev = null;
+        slot.next = null;
+    }
+
+    private void moveToTail(Slot slot) {
+        unlink(slot);
+        linkTail(slot);
+    }
+
+    /**
+     * 条目索引：占用的块编号、长度、过期时间和 LRU 链表指针
+     */
+    private static final class Slot {
+        private final String key;
+        private final int[] blocks;
+        private final int length;
+        private final long expiresAt;
+        private Slot prev;
+        private Slot next;
+
+        private Slot(String key, int[] blocks, int length, long expiresAt) {
+            this.key = key;
+            this.blocks = blocks;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
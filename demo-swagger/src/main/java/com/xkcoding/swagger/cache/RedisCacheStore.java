@@ -0,0 +1,162 @@
+package com.xkcoding.swagger.cache;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>
+ * 基于 Redis 的 L2 存储
+ * </p>
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class RedisCacheStore implements RemoteCacheStore {
+
+    /**
+     * 按前缀清理时每批删除的key数量
+     */
+    private static final int SCAN_BATCH_SIZE = 500;
+
+    /**
+     * 批量读取时每条 MGET 的key数量，多条 MGET 通过管道一次发送
+     */
+    private static final int MGET_BATCH_SIZE = 100;
+
+    private final RedisTemplate<String, byte[]> redisTemplate;
+
+    public RedisCacheStore(RedisTemplate<String, byte[]> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return redisTemplate.opsForValue().get(key);
+    }
+
+    @Override
+    public List<byte[]> multiGet(List<String> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // 按批拆分为多条 MGET，并在同一个管道中发送，只有一次网络往返
+        List<Object> batches = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int from = 0; from < keys.size(); from += MGET_BATCH_SIZE) {
+                List<String> batch = keys.subList(from, Math.min(from + MGET_BATCH_SIZE, keys.size()));
+                byte[][] rawKeys = new byte[batch.size()][];
+                for (int i = 0; i < batch.size(); i++) {
+                    rawKeys[i] = batch.get(i).getBytes(StandardCharsets.UTF_8);
+                }
+                connection.mGet(rawKeys);
+            }
+            return null;
+        }, RedisSerializer.byteArray());
+
+        List<byte[]> values = new ArrayList<>(keys.size());
+        for (Object batch : batches) {
+            for (Object value : (List<?>) batch) {
+                values.add((byte[]) value);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public void set(String key, byte[] value, Duration ttl) {
+        redisTemplate.opsForValue().set(key, value, ttl);
+    }
+
+    @Override
+    public long delete(String... keys) {
+        if (keys.length == 0) {
+            return 0;
+        }
+        Long deleted = redisTemplate.delete(Arrays.asList(keys));
+        return deleted != null ? deleted : 0;
+    }
+
+    @Override
+    public long deleteByPattern(String pattern) {
+        // 使用 SCAN 分批删除，避免 KEYS 阻塞 Redis
+        Long deleted = redisTemplate.execute((RedisCallback<Long>) connection -> {
+            long count = 0;
+            ScanOptions options = ScanOptions.scanOptions().match(escapePattern(pattern)).count(SCAN_BATCH_SIZE).build();
+            List<byte[]> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+            try (Cursor<byte[]> cursor = connection.scan(options)) {
+                while (cursor.hasNext()) {
+                    batch.add(cursor.next());
+                    if (batch.size() >= SCAN_BATCH_SIZE) {
+                        count += del(connection, batch);
+                        batch.clear();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                count += del(connection, batch);
+            }
+            return count;
+        });
+        return deleted != null ? deleted : 0;
+    }
+
+    @Override
+    public void addMember(String key, String member, Duration ttl) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        byte[] rawMember = member.getBytes(StandardCharsets.UTF_8);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.sAdd(rawKey, rawMember);
+            connection.pExpire(rawKey, ttl.toMillis());
+            return null;
+        });
+    }
+
+    @Override
+    public Set<String> removeMembers(String key) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        Set<byte[]> members = redisTemplate.execute((RedisCallback<Set<byte[]>>) connection -> {
+            Set<byte[]> result = connection.sMembers(rawKey);
+            connection.del(rawKey);
+            return result;
+        });
+        if (members == null || members.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> result = new HashSet<>(members.size());
+        for (byte[] member : members) {
+            result.add(new String(member, StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    private static long del(RedisConnection connection, List<byte[]> keys) {
+        Long deleted = connection.del(keys.toArray(new byte[0][]));
+        return deleted != null ? deleted : 0;
+    }
+
+    /**
+     * 转义 Redis MATCH 的特殊字符，只保留 "*" 作为通配符
+     */
+    private static String escapePattern(String pattern) {
+        StringBuilder sb = new StringBuilder(pattern.length() + 8);
+        for (char c : pattern.toCharArray()) {
+            if (c == '?' || c == '[' || c == ']' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,46 @@
+package com.xkcoding.swagger.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <p>
+ * 提前刷新（refresh-ahead）策略
+ * </p>
+ *
+ * 采用概率提前过期（XFetch）：条目被访问时，以 loadMillis * beta * -ln(rand) 作为提前量，
+ * 越接近过期、加载越慢，越可能触发后台刷新，从而把同一批条目的刷新时间打散。
+ * 过期后 maxStale 时间内仍返回旧值并触发刷新，超过后按未命中同步加载
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Getter
+@AllArgsConstructor
+public class RefreshAheadPolicy {
+
+    /**
+     * 过期后仍允许返回旧值的最长时间
+     */
+    private final Duration maxStale;
+
+    /**
+     * 提前刷新系数，越大越早刷新
+     */
+    private final double beta;
+
+    /**
+     * 被访问的条目是否需要后台刷新
+     */
+    public boolean shouldRefresh(CacheEntry entry, long now) {
+        if (entry.isExpired(now)) {
+            return true;
+        }
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        double earlyMillis = entry.getLoadMillis() * beta * -Math.log(random);
+        return now + earlyMillis >= entry.getExpiresAt();
+    }
+}
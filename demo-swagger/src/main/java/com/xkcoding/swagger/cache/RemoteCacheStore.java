@@ -0,0 +1,77 @@
+package com.xkcoding.swagger.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>
+ * 二级缓存 L2 存储接口
+ * </p>
+ *
+ * 只处理字节数组，序列化由上层负责。生产环境使用 Redis，
+ * 本地开发和测试可以切换为进程内实现
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public interface RemoteCacheStore {
+
+    /**
+     * 读取缓存
+     *
+     * @param key 完整的缓存key（已包含前缀）
+     * @return 缓存内容，不存在时返回 null
+     */
+    byte[] get(String key);
+
+    /**
+     * 批量读取缓存
+     *
+     * @param keys 完整的缓存key
+     * @return 与 keys 顺序一致的缓存内容，不存在的位置为 null
+     */
+    List<byte[]> multiGet(List<String> keys);
+
+    /**
+     * 写入缓存
+     *
+     * @param key   完整的缓存key
+     * @param value 缓存内容
+     * @param ttl   过期时间
+     */
+    void set(String key, byte[] value, Duration ttl);
+
+    /**
+     * 删除缓存
+     *
+     * @param keys 完整的缓存key
+     * @return 实际删除的数量
+     */
+    long delete(String... keys);
+
+    /**
+     * 删除key匹配通配符的所有缓存
+     *
+     * @param pattern 完整key的通配符，只支持 "*"（匹配任意字符），其他字符按字面匹配
+     * @return 实际删除的数量
+     */
+    long deleteByPattern(String pattern);
+
+    /**
+     * 向集合中添加成员并刷新集合的过期时间（用于标签反向索引）
+     *
+     * @param key    集合key
+     * @param member 成员
+     * @param ttl    集合过期时间
+     */
+    void addMember(String key, String member, Duration ttl);
+
+    /**
+     * 取出集合的所有成员并删除集合
+     *
+     * @param key 集合key
+     * @return 集合成员，不存在时返回空集合
+     */
+    Set<String> removeMembers(String key);
+}
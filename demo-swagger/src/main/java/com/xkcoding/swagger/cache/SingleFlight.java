@@ -0,0 +1,80 @@
+package com.xkcoding.swagger.cache;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * 按key合并并发加载（single-flight）
+ * </p>
+ *
+ * 同一个key同时只有一个调用方（leader）真正执行加载，其余调用方等待 leader 的结果；
+ * leader 抛出的异常会原样传递给所有等待者
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class SingleFlight {
+
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 执行加载
+     *
+     * @param key         合并的key
+     * @param loader      加载逻辑
+     * @param waitTimeout 等待其他调用方加载结果的最长时间
+     * @return 加载结果
+     * @throws Exception 加载异常或等待超时（java.util.concurrent.TimeoutException）
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, Callable<T> loader, Duration waitTimeout) throws Exception {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+
+        if (existing != null) {
+            return (T) await(existing, waitTimeout);
+        }
+
+        try {
+            T value = loader.call();
+            future.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * 当前正在加载的key数量
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private Object await(CompletableFuture<Object> future, Duration waitTimeout) throws Exception {
+        try {
+            return future.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,837 @@
+package com.xkcoding.swagger.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.PatternMatchUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * 二级缓存：L1 本地 Caffeine + L2 远程存储（Redis）
+ * </p>
+ *
+ * 读：先查 L1，未命中再查 L2 并回填 L1；写：同时写 L2 和 L1；
+ * 删除/清空：两级同时处理。L2 异常时降级为只用 L1，不影响业务。
+ * 过期时间、空结果是否缓存等由 {@link CachePolicy} 决定，
+ * 策略中配置了 {@link RefreshAheadPolicy} 的缓存在 get(key, loader) 命中时按策略在后台刷新，
+ * 刷新期间继续返回旧值。加载时通过 {@link CacheTags} 声明的标签会同时登记到 L1 反向索引和 L2 标签集合，
+ * 用于按标签精确失效。两级的命中、加载与淘汰分别记录在 {@link TieredCacheStats} 中。
+ * 设置了 {@link CacheInvalidationPublisher} 时，主动写入和失效会广播给其他节点，由其他节点清除各自的 L1。
+ * 设置了 {@link OffHeapStore} 时，序列化后较大的条目不放 L1 而是放在堆外（位于 L1 和 L2 之间），
+ * 读取时从堆外复制并反序列化；本地失效对 L1 和堆外同时生效。
+ * 设置了 {@link HotKeyDetector} 时，L1 未命中的读取计入热点识别：热点key即使较大或策略只在 L1 保留热点，
+ * 也会以较短的 TTL 提升到 L1，减少对 L2 的重复读取
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+public class TieredCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final Cache<Object, CacheEntry> localCache;
+    private final CacheTagIndex tagIndex;
+    private final TieredCacheStats stats;
+    private final RemoteCacheStore remoteStore;
+    private final RedisSerializer<Object> serializer;
+    private final String remoteKeyPrefix;
+    private final CachePolicy policy;
+    private final RefreshAheadPolicy refreshPolicy;
+    private final SingleFlight singleFlight = new SingleFlight();
+    private Duration loadWaitTimeout = Duration.ofSeconds(10);
+    private Executor refreshExecutor;
+    private CacheInvalidationPublisher invalidationPublisher;
+    private OffHeapStore offHeapStore;
+    private int offHeapMinBytes;
+    private HotKeyDetector hotKeyDetector;
+    private long hotKeyTtlMillis;
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+
+    public TieredCache(String name, Cache<Object, CacheEntry> localCache, CacheTagIndex tagIndex,
+                       TieredCacheStats stats, RemoteCacheStore remoteStore, RedisSerializer<Object> serializer,
+                       String remoteKeyPrefix, CachePolicy policy) {
+        // 空结果按策略决定是否缓存，不缓存时直接跳过写入，而不是抛出异常
+        super(true);
+        this.name = name;
+        this.localCache = localCache;
+        this.tagIndex = tagIndex;
+        this.stats = stats;
+        this.remoteStore = remoteStore;
+        this.serializer = serializer;
+        this.remoteKeyPrefix = remoteKeyPrefix;
+        this.policy = policy;
+        this.refreshPolicy = policy.getRefreshPolicy();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return localCache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        // 没有 loader 的普通读取不返回已过期的旧值
+        long now = System.currentTimeMillis();
+        CacheEntry entry = findEntry(key, now, true);
+        if (entry == null || entry.isExpired(now)) {
+            return null;
+        }
+        return entry.getValue();
+    }
+
+    /**
+     * 未命中时按key合并并发加载：同一个key只有一个调用方执行 valueLoader，
+     * 其余调用方最多等待 loadWaitTimeout，加载异常会传递给所有等待者
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        long now = System.currentTimeMillis();
+        CacheEntry entry = findEntry(key, now, true);
+        if (entry != null) {
+            CacheTags.tagAll(entry.getTags());
+            if (refreshPolicy != null && refreshExecutor != null && refreshPolicy.shouldRefresh(entry, now)) {
+                scheduleRefresh(key, valueLoader);
+            }
+            return (T) fromStoreValue(entry.getValue());
+        }
+
+        try {
+            return singleFlight.execute(key, () -> {
+                // 再查一次，避免刚结束的上一轮加载之后重复加载
+                CacheEntry loaded = findEntry(key, System.currentTimeMillis(), false);
+                if (loaded != null) {
+                    return (T) fromStoreValue(loaded.getValue());
+                }
+                return load(key, valueLoader);
+            }, loadWaitTimeout);
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null && !policy.cachesNullValues()) {
+            // 不缓存空结果：删除旧值，避免继续返回过时的数据
+            evict(key);
+            return;
+        }
+        put(key, value, 0, null);
+        broadcast(CacheInvalidation.key(name, key));
+    }
+
+    /**
+     * 批量读取：逐个key查 L1，L1 未命中的key用一次 L2 批量读取（MGET），
+     * 仍未命中的key交给 loader 一次性加载并逐个写回缓存
+     *
+     * @param keys   缓存key（重复的key只查询一次）
+     * @param loader 批量加载未命中的key，返回 key -> value，不存在的key不放入结果
+     * @return 按 keys 顺序排列的 key -> value，不包含不存在或缓存为空值的key
+     */
+    public <K, V> Map<K, V> getAll(Collection<K> keys, Function<Set<K>, Map<K, V>> loader) {
+        return getAll(keys, loader, null);
+    }
+
+    /**
+     * 批量读取，加载的每个条目带上 tagger 给出的标签。loader 中通过 {@link CacheTags} 声明的标签
+     * 无法区分属于哪个key，对这一批加载的所有条目都生效
+     *
+     * @param tagger 加载的条目的标签，可以为 null
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> getAll(Collection<K> keys, Function<Set<K>, Map<K, V>> loader,
+                                   Function<? super K, ? extends Collection<String>> tagger) {
+        long now = System.currentTimeMillis();
+        Map<K, CacheEntry> found = new LinkedHashMap<>();
+        List<K> localMisses = new ArrayList<>();
+
+        // 1. 查询 L1
+        Set<K> uniqueKeys = new LinkedHashSet<>(keys);
+        for (K key : uniqueKeys) {
+            CacheEntry entry = localCache.getIfPresent(key);
+            if (entry != null && !entry.isExpired(now)) {
+                stats.recordLocalHit();
+                found.put(key, entry);
+                continue;
+            }
+            stats.recordLocalMiss();
+            boolean hot = recordRead(key);
+            entry = readOffHeap(key, now);
+            if (entry != null && !entry.isExpired(now)) {
+                if (hot) {
+                    promote(key, entry);
+                }
+                found.put(key, entry);
+            } else {
+                localMisses.add(key);
+            }
+        }
+
+        // 2. 本地未命中的key批量查询 L2，命中后回填本地
+        Set<K> missing = new LinkedHashSet<>();
+        if (!localMisses.isEmpty()) {
+            List<byte[]> values = multiGetRemote(localMisses);
+            for (int i = 0; i < localMisses.size(); i++) {
+                K key = localMisses.get(i);
+                CacheEntry entry = decode(key, values.get(i));
+                if (entry != null && !entry.isExpired(now)) {
+                    stats.recordRemoteHit();
+                    putLocal(key, entry, values.get(i), isHot(key));
+                    found.put(key, entry);
+                } else {
+                    stats.recordRemoteMiss();
+                    missing.add(key);
+                }
+            }
+        }
+
+        // 3. 仍未命中的key一次性加载，逐个写回
+        Map<K, V> loaded = Collections.emptyMap();
+        if (!missing.isEmpty()) {
+            Set<String> outerTags = CacheTags.begin();
+            Set<String> batchTags;
+            try {
+                loaded = loadAll(missing, loader);
+            } finally {
+                batchTags = CacheTags.end(outerTags);
+            }
+            for (Map.Entry<K, V> item : loaded.entrySet()) {
+                if (item.getValue() == null) {
+                    continue;
+                }
+                Set<String> tags = new LinkedHashSet<>(batchTags);
+                if (tagger != null) {
+                    Collection<String> keyTags = tagger.apply(item.getKey());
+                    if (keyTags != null) {
+                        tags.addAll(keyTags);
+                    }
+                }
+                put(item.getKey(), item.getValue(), 0, tags);
+                CacheTags.tagAll(tags);
+            }
+        }
+
+        Map<K, V> result = new LinkedHashMap<>();
+        for (K key : uniqueKeys) {
+            CacheEntry entry = found.get(key);
+            Object value = entry != null ? fromStoreValue(entry.getValue()) : loaded.get(key);
+            if (entry != null) {
+                CacheTags.tagAll(entry.getTags());
+            }
+            if (value != null) {
+                result.put(key, (V) value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        put(key, value);
+        return null;
+    }
+
+    @Override
+    public void evict(Object key) {
+        if (localCache.asMap().remove(key) != null) {
+            stats.recordEviction(TieredCacheStats.TIER_LOCAL, TieredCacheStats.CAUSE_EXPLICIT, 1);
+        }
+        removeOffHeap(key);
+        try {
+            long deleted = remoteStore.delete(remoteKey(key));
+            stats.recordEviction(TieredCacheStats.TIER_REMOTE, TieredCacheStats.CAUSE_EXPLICIT, deleted);
+        } catch (Exception e) {
+            log.warn("L2缓存删除失败: cache={}, key={}, error={}", name, key, e.getMessage());
+        }
+        broadcast(CacheInvalidation.key(name, key));
+    }
+
+    @Override
+    public void clear() {
+        clearLocal();
+        try {
+            long deleted = remoteStore.deleteByPattern(remoteKeyPrefix + "*");
+            stats.recordEviction(TieredCacheStats.TIER_REMOTE, TieredCacheStats.CAUSE_CLEAR, deleted);
+        } catch (Exception e) {
+            log.warn("L2缓存清空失败: cache={}, error={}", name, e.getMessage());
+        }
+        broadcast(CacheInvalidation.clear(name));
+    }
+
+    /**
+     * 按key的字符串形式失效：清除 L1 中 String.valueOf(key) 相同的条目和 L2 中对应的条目，
+     * 其他节点同样按字符串比较，用于管理端点等不知道key原始类型（如 Integer 类型的用户ID）的场景
+     *
+     * @return L1 中清除的条目数
+     */
+    public long evictByKeyString(String key) {
+        long localCount = evictLocalByKeyString(key);
+        try {
+            long deleted = remoteStore.delete(remoteKey(key));
+            stats.recordEviction(TieredCacheStats.TIER_REMOTE, TieredCacheStats.CAUSE_EXPLICIT, deleted);
+        } catch (Exception e) {
+            log.warn("L2缓存删除失败: cache={}, key={}, error={}", name, key, e.getMessage());
+        }
+        broadcast(CacheInvalidation.keyString(name, key));
+        return localCount;
+    }
+
+    /**
+     * 按通配符失效：清除 L1 和 L2 中key匹配的条目，只支持 "*" 通配
+     *
+     * @param pattern key通配符，如 "job:*"（不含缓存前缀）
+     * @return L1 中清除的条目数
+     */
+    public long evictByPattern(String pattern) {
+        long localCount = evictLocalByPattern(pattern);
+        try {
+            long deleted = remoteStore.deleteByPattern(remoteKeyPrefix + pattern);
+            stats.recordEviction(TieredCacheStats.TIER_REMOTE, TieredCacheStats.CAUSE_PATTERN, deleted);
+        } catch (Exception e) {
+            log.warn("L2按通配符失效失败: cache={}, pattern={}, error={}", name, pattern, e.getMessage());
+        }
+        broadcast(CacheInvalidation.pattern(name, pattern));
+        log.info("按通配符失效缓存: cache={}, pattern={}, localKeys={}", name, pattern, localCount);
+        return localCount;
+    }
+
+    /**
+     * 按标签失效：清除 L1 和 L2 中所有声明了这些标签的条目
+     *
+     * @param tags 标签，如 "user:3"
+     */
+    public void evictTags(Collection<String> tags) {
+        for (String tag : tags) {
+            long localCount = evictLocalTag(tag);
+            try {
+                Set<String> remoteKeys = remoteStore.removeMembers(tagKey(tag));
+                if (!remoteKeys.isEmpty()) {
+                    long deleted = remoteStore.delete(remoteKeys.toArray(new String[0]));
+                    stats.recordEviction(TieredCacheStats.TIER_REMOTE, TieredCacheStats.CAUSE_TAG, deleted);
+                }
+            } catch (Exception e) {
+                log.warn("L2按标签失效失败: cache={}, tag={}, error={}", name, tag, e.getMessage());
+            }
+            broadcast(CacheInvalidation.tag(name, tag));
+            log.debug("按标签失效缓存: cache={}, tag={}, localKeys={}", name, tag, localCount);
+        }
+    }
+
+    /**
+     * 只清除本地 L1 中的条目
+     */
+    public void evictLocal(Object key) {
+        localCache.invalidate(key);
+        removeOffHeap(key);
+    }
+
+    /**
+     * 只清空本地 L1
+     */
+    public void clearLocal() {
+        stats.recordEviction(TieredCacheStats.TIER_LOCAL, TieredCacheStats.CAUSE_CLEAR, localCache.estimatedSize());
+        localCache.invalidateAll();
+        if (offHeapStore != null) {
+            offHeapStore.removeIf(remoteKey -> remoteKey.startsWith(remoteKeyPrefix));
+        }
+    }
+
+    /**
+     * 只按通配符清除本地 L1 中的条目
+     *
+     * @return 清除的条目数
+     */
+    public long evictLocalByPattern(String pattern) {
+        long localCount = 0;
+        for (Object key : localCache.asMap().keySet()) {
+            if (PatternMatchUtils.simpleMatch(pattern, String.valueOf(key)) && localCache.asMap().remove(key) != null) {
+                localCount++;
+            }
+        }
+        if (offHeapStore != null) {
+            String remotePattern = remoteKeyPrefix + pattern;
+            localCount += offHeapStore.removeIf(remoteKey -> PatternMatchUtils.simpleMatch(remotePattern, remoteKey));
+        }
+        stats.recordEviction(TieredCacheStats.TIER_LOCAL, TieredCacheStats.CAUSE_PATTERN, localCount);
+        return localCount;
+    }
+
+    /**
+     * 只清除本地 L1 中字符串形式为 key 的条目
+     *
+     * @return 清除的条目数
+     */
+    public long evictLocalByKeyString(String key) {
+        long localCount = 0;
+        if (localCache.asMap().remove(key) != null) {
+            localCount++;
+        }
+        for (Object localKey : localCache.asMap().keySet()) {
+            if (key.equals(String.valueOf(localKey)) && localCache.asMap().remove(localKey) != null) {
+                localCount++;
+            }
+        }
+        // 堆外按 L2 的key存放，本身就是字符串形式
+        if (removeOffHeap(key)) {
+            localCount++;
+        }
+        stats.recordEviction(TieredCacheStats.TIER_LOCAL, TieredCacheStats.CAUSE_EXPLICIT, localCount);
+        return localCount;
+    }
+
+    /**
+     * 只按标签清除本地 L1 中的条目
+     */
+    public void evictLocalTags(Collection<String> tags) {
+        for (String tag : tags) {
+            evictLocalTag(tag);
+        }
+    }
+
+    /**
+     * 设置失效广播，主动写入和失效时通知其他节点清除各自的 L1；为 null 时不广播
+     */
+    public void setInvalidationPublisher(CacheInvalidationPublisher invalidationPublisher) {
+        this.invalidationPublisher = invalidationPublisher;
+    }
+
+    /**
+     * 是否使用堆外存储
+     */
+    public boolean usesOffHeap() {
+        return offHeapStore != null;
+    }
+
+    /**
+     * 设置堆外存储：序列化后不小于 minValueBytes 的条目放在堆外而不是 L1，为 null 时不使用
+     */
+    public void setOffHeapStore(OffHeapStore offHeapStore, int minValueBytes) {
+        this.offHeapStore = offHeapStore;
+        this.offHeapMinBytes = minValueBytes;
+    }
+
+    /**
+     * 设置热点key识别，热点key以 promotionTtl 提升到 L1；为 null 时不识别
+     */
+    public void setHotKeyDetector(HotKeyDetector hotKeyDetector, Duration promotionTtl) {
+        this.hotKeyDetector = hotKeyDetector;
+        this.hotKeyTtlMillis = promotionTtl.toMillis();
+    }
+
+    /**
+     * 热点key识别，未开启时为 null
+     */
+    public HotKeyDetector getHotKeyDetector() {
+        return hotKeyDetector;
+    }
+
+    /**
+     * 设置执行后台刷新的线程池（应为有界队列，满时放弃本次刷新），策略未开启提前刷新时不使用
+     */
+    public void setRefreshExecutor(Executor refreshExecutor) {
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * 缓存策略
+     */
+    public CachePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * 设置等待其他调用方加载结果的最长时间
+     */
+    public void setLoadWaitTimeout(Duration loadWaitTimeout) {
+        this.loadWaitTimeout = loadWaitTimeout;
+    }
+
+    /**
+     * 缓存统计
+     */
+    public TieredCacheStats getStats() {
+        return stats;
+    }
+
+    /**
+     * L1 当前条目数（估算）
+     */
+    public long localSize() {
+        return localCache.estimatedSize();
+    }
+
+    /**
+     * L1 当前占用的字节数（按条目序列化后的大小计算），按条目数限制容量的缓存返回 0
+     */
+    public long localWeightedSize() {
+        return localCache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    /**
+     * L1 中访问频率最高的key（按 Caffeine 记录的频率从高到低），用于保存预热快照
+     */
+    public List<Object> hottestKeys(int limit) {
+        return localCache.policy().eviction()
+                .map(eviction -> (List<Object>) new ArrayList<>(eviction.hottest(limit).keySet()))
+                .orElse(Collections.emptyList());
+    }
+
+    /**
+     * 把管理端传入的字符串key还原为 L1 中的原始key（如 Integer 类型的用户ID），
+     * L1 中没有时原样返回（L2 的key本身就是字符串形式）
+     */
+    public Object resolveKey(String key) {
+        if (localCache.asMap().containsKey(key)) {
+            return key;
+        }
+        for (Object localKey : localCache.asMap().keySet()) {
+            if (key.equals(String.valueOf(localKey))) {
+                return localKey;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * 查看 L1 中的条目，不影响统计和淘汰顺序
+     */
+    public CacheEntry peekLocal(Object key) {
+        return localCache.policy().getIfPresentQuietly(key);
+    }
+
+    /**
+     * 查看 L2 中的条目，不回填 L1、不影响统计
+     */
+    public CacheEntry peekRemote(Object key) {
+        return decode(key, remoteStore.get(remoteKey(key)));
+    }
+
+    /**
+     * 生成 L2 中的完整key：前缀 + 缓存名 + "::" + key
+     */
+    public String remoteKey(Object key) {
+        return remoteKeyPrefix + key;
+    }
+
+    /**
+     * 查找可用的条目：先查 L1，再查 L2 并回填 L1。
+     * 开启提前刷新时，过期但仍在 maxStale 内的条目也会返回
+     */
+    private CacheEntry findEntry(Object key, long now, boolean recordStats) {
+        long maxStaleMillis = maxStaleMillis();
+
+        CacheEntry entry = localCache.getIfPresent(key);
+        if (entry != null && entry.isUsable(now, maxStaleMillis)) {
+            if (recordStats) {
+                stats.recordLocalHit();
+            }
+            return entry;
+        }
+        if (recordStats) {
+            stats.recordLocalMiss();
+        }
+        boolean hot = recordStats ? recordRead(key) : isHot(key);
+
+        entry = readOffHeap(key, now);
+        if (entry != null && entry.isUsable(now, maxStaleMillis)) {
+            if (hot) {
+                promote(key, entry);
+            }
+            return entry;
+        }
+
+        byte[] bytes = readRemote(key);
+        entry = decode(key, bytes);
+        boolean usable = entry != null && entry.isUsable(now, maxStaleMillis);
+        if (recordStats) {
+            if (usable) {
+                stats.recordRemoteHit();
+            } else {
+                stats.recordRemoteMiss();
+            }
+        }
+        if (!usable) {
+            return null;
+        }
+        putLocal(key, entry, bytes, hot);
+        return entry;
+    }
+
+    /**
+     * 执行加载并收集加载过程中声明的标签
+     */
+    private <T> T load(Object key, Callable<T> valueLoader) throws Exception {
+        long start = System.nanoTime();
+        Set<String> outerTags = CacheTags.begin();
+        T value;
+        Set<String> tags;
+        try {
+            value = valueLoader.call();
+        } catch (Exception | Error e) {
+            stats.recordLoad(System.nanoTime() - start, false);
+            throw e;
+        } finally {
+            tags = CacheTags.end(outerTags);
+        }
+        long loadNanos = System.nanoTime() - start;
+        stats.recordLoad(loadNanos, true);
+        if (value != null || policy.cachesNullValues()) {
+            put(key, value, TimeUnit.NANOSECONDS.toMillis(loadNanos), tags);
+        }
+        return value;
+    }
+
+    /**
+     * 执行批量加载并记录耗时
+     */
+    private <K, V> Map<K, V> loadAll(Set<K> keys, Function<Set<K>, Map<K, V>> loader) {
+        long start = System.nanoTime();
+        try {
+            Map<K, V> loaded = loader.apply(keys);
+            stats.recordLoad(System.nanoTime() - start, true);
+            return loaded;
+        } catch (RuntimeException | Error e) {
+            stats.recordLoad(System.nanoTime() - start, false);
+            throw e;
+        }
+    }
+
+    private void put(Object key, Object value, long loadMillis, Set<String> tags) {
+        long now = System.currentTimeMillis();
+        CacheEntry entry = new CacheEntry(toStoreValue(value), now, policy.expiresAt(now, value == null), loadMillis, tags);
+        stats.recordPut();
+        byte[] bytes = encode(key, entry);
+        writeRemote(key, entry, bytes);
+        putLocal(key, entry, bytes, isHot(key));
+    }
+
+    /**
+     * 写入本地：序列化后较大的条目放在堆外（未通过准入时不在本地缓存，下次从 L2 读取），其余放在 L1；
+     * 热点key提升到 L1，策略只在 L1 保留热点时，非热点条目不在本地缓存
+     *
+     * @param bytes 条目序列化后的字节，序列化失败时为 null
+     * @param hot   是否为热点key
+     */
+    private void putLocal(Object key, CacheEntry entry, byte[] bytes, boolean hot) {
+        boolean largeValue = offHeapStore != null && bytes != null && bytes.length >= offHeapMinBytes;
+        if (hot && (largeValue || policy.isLocalHotOnly())) {
+            promote(key, entry);
+            return;
+        }
+        if (largeValue) {
+            // 先删除 L1 中的旧值（其淘汰回调会注销旧值的标签），再登记新值的标签
+            localCache.invalidate(key);
+            tagIndex.add(key, entry.getTags());
+            long now = System.currentTimeMillis();
+            long expiresAt = Math.min(now + policy.getLocalTimeToLive().toMillis(), entry.getExpiresAt() + maxStaleMillis());
+            offHeapStore.put(remoteKey(key), bytes, expiresAt);
+            return;
+        }
+        removeOffHeap(key);
+        if (policy.isLocalHotOnly()) {
+            localCache.invalidate(key);
+            return;
+        }
+        // 先登记索引再写入，保证条目可见时一定能被按标签失效
+        tagIndex.add(key, entry.getTags());
+        localCache.put(key, entry);
+    }
+
+    /**
+     * 把热点key放入 L1，过期时间取 hotKeyTtl 与条目剩余过期时间中较小者；堆外的副本删除
+     */
+    private void promote(Object key, CacheEntry entry) {
+        removeOffHeap(key);
+        tagIndex.add(key, entry.getTags());
+        long remainingMillis = entry.remainingMillis(System.currentTimeMillis() - maxStaleMillis());
+        long ttlMillis = Math.max(1, Math.min(hotKeyTtlMillis, remainingMillis));
+        if (localCache.policy().expireVariably().isPresent()) {
+            localCache.policy().expireVariably().get().put(key, entry, ttlMillis, TimeUnit.MILLISECONDS);
+        } else {
+            localCache.put(key, entry);
+        }
+        stats.recordPromotion();
+    }
+
+    /**
+     * 记录一次 L1 未命中的读取，返回该key是否为热点
+     */
+    private boolean recordRead(Object key) {
+        return hotKeyDetector != null && hotKeyDetector.record(key);
+    }
+
+    private boolean isHot(Object key) {
+        return hotKeyDetector != null && hotKeyDetector.isHot(key);
+    }
+
+    private CacheEntry readOffHeap(Object key, long now) {
+        if (offHeapStore == null) {
+            return null;
+        }
+        CacheEntry entry = decode(key, offHeapStore.get(remoteKey(key), now));
+        if (entry != null) {
+            stats.recordOffHeapHit();
+        } else {
+            stats.recordOffHeapMiss();
+        }
+        return entry;
+    }
+
+    private boolean removeOffHeap(Object key) {
+        return offHeapStore != null && offHeapStore.remove(remoteKey(key));
+    }
+
+    private long evictLocalTag(String tag) {
+        long localCount = 0;
+        for (Object key : tagIndex.removeTag(tag)) {
+            boolean removed = localCache.asMap().remove(key) != null;
+            if (removeOffHeap(key) || removed) {
+                localCount++;
+            }
+        }
+        stats.recordEviction(TieredCacheStats.TIER_LOCAL, TieredCacheStats.CAUSE_TAG, localCount);
+        return localCount;
+    }
+
+    private void broadcast(CacheInvalidation invalidation) {
+        if (invalidationPublisher != null) {
+            invalidationPublisher.publish(invalidation);
+        }
+    }
+
+    private String tagKey(String tag) {
+        return remoteKeyPrefix + "#tag:" + tag;
+    }
+
+    /**
+     * 提交后台刷新，同一个key同时只刷新一次；线程池满时放弃，等下次访问再触发
+     */
+    private void scheduleRefresh(Object key, Callable<?> valueLoader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load(key, valueLoader);
+                    log.debug("缓存后台刷新完成: cache={}, key={}", name, key);
+                } catch (Exception e) {
+                    log.warn("缓存后台刷新失败，继续使用旧值: cache={}, key={}, error={}", name, key, e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            log.debug("刷新线程池已满，跳过本次刷新: cache={}, key={}", name, key);
+        }
+    }
+
+    /**
+     * 允许返回旧值的最长时间，未开启提前刷新时为 0
+     */
+    public long maxStaleMillis() {
+        return policy.maxStaleMillis();
+    }
+
+    private byte[] readRemote(Object key) {
+        try {
+            return remoteStore.get(remoteKey(key));
+        } catch (Exception e) {
+            stats.recordRemoteError();
+            log.warn("L2缓存读取失败，降级为未命中: cache={}, key={}, error={}", name, key, e.getMessage());
+            return null;
+        }
+    }
+
+    private List<byte[]> multiGetRemote(List<?> keys) {
+        List<String> remoteKeys = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            remoteKeys.add(remoteKey(key));
+        }
+        try {
+            return remoteStore.multiGet(remoteKeys);
+        } catch (Exception e) {
+            stats.recordRemoteError();
+            log.warn("L2缓存批量读取失败，降级为未命中: cache={}, size={}, error={}", name, keys.size(), e.getMessage());
+            return Collections.nCopies(keys.size(), null);
+        }
+    }
+
+    private CacheEntry decode(Object key, byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            CacheEntry entry = (CacheEntry) serializer.deserialize(bytes);
+            if (entry != null) {
+                entry.setWeight(bytes.length);
+            }
+            return entry;
+        } catch (Exception e) {
+            log.warn("L2缓存反序列化失败，按未命中处理: cache={}, key={}, error={}", name, key, e.getMessage());
+            return null;
+        }
+    }
+
+    private byte[] encode(Object key, CacheEntry entry) {
+        try {
+            byte[] bytes = serializer.serialize(entry);
+            entry.setWeight(bytes == null ? 1 : bytes.length);
+            return bytes;
+        } catch (Exception e) {
+            stats.recordRemoteError();
+            log.warn("缓存条目序列化失败，仅写入本地缓存: cache={}, key={}, error={}", name, key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRemote(Object key, CacheEntry entry, byte[] bytes) {
+        if (bytes == null) {
+            return;
+        }
+        try {
+            // 按条目自身的过期时间（含抖动、空结果的过期时间）写入，并多保留 maxStale，保证刷新期间其他节点也能读到旧值
+            Duration ttl = Duration.ofMillis(Math.max(1, entry.remainingMillis(System.currentTimeMillis()) + maxStaleMillis()));
+            String remoteKey = remoteKey(key);
+            remoteStore.set(remoteKey, bytes, ttl);
+            // 标签集合被同一缓存中的所有条目共用，按最长的过期时间续期，避免先于其中的条目过期
+            Duration tagTtl = policy.maxTimeToLive().plusMillis(maxStaleMillis());
+            for (String tag : entry.getTags()) {
+                remoteStore.addMember(tagKey(tag), remoteKey, tagTtl);
+            }
+        } catch (Exception e) {
+            stats.recordRemoteError();
+            log.warn("L2缓存写入失败，仅写入本地缓存: cache={}, key={}, error={}", name, key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.xkcoding.swagger.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * 二级缓存管理端点：/actuator/tieredcaches
+ * </p>
+ *
+ * GET /actuator/tieredcaches              各缓存 L1/L2 分层统计
+ * GET /actuator/tieredcaches/{cache}      某个缓存当前的热点key（Top-K，按频率估计值排序）
+ * GET /actuator/tieredcaches/{cache}/{key} 查看某个key在两级中的条目信息（不返回缓存值）
+ * DELETE /actuator/tieredcaches/{cache}?key=xx 或 ?pattern=job:* 按key或通配符失效，无需清空整个缓存
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+@Endpoint(id = "tieredcaches")
+public class TieredCacheEndpoint {
+
+    private final TieredCacheManager cacheManager;
+
+    public TieredCacheEndpoint(TieredCacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @ReadOperation
+    public Map<String, Object> caches() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            result.put(name, describe((TieredCache) cacheManager.getCache(name)));
+        }
+        return result;
+    }
+
+    @ReadOperation
+    public Map<String, Object> hotKeys(@Selector String cache) {
+        TieredCache tieredCache = findCache(cache);
+        if (tieredCache == null) {
+            return null;
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cache", cache);
+        HotKeyDetector detector = tieredCache.getHotKeyDetector();
+        result.put("enabled", detector != null);
+        result.put("promotions", tieredCache.getStats().promotionCount());
+        result.put("hotKeys", detector == null ? Collections.emptyList() : detector.topKeys());
+        return result;
+    }
+
+    @ReadOperation
+    public Map<String, Object> inspect(@Selector String cache, @Selector String key) {
+        TieredCache tieredCache = findCache(cache);
+        if (tieredCache == null) {
+            return null;
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cache", cache);
+        result.put("key", key);
+        result.put("l1", describe(tieredCache.peekLocal(tieredCache.resolveKey(key))));
+        try {
+            result.put("l2", describe(tieredCache.peekRemote(key)));
+        } catch (Exception e) {
+            result.put("l2", null);
+            result.put("l2Error", e.getMessage());
+        }
+        return result;
+    }
+
+    @DeleteOperation
+    public Map<String, Object> evict(@Selector String cache, @Nullable String key, @Nullable String pattern) {
+        TieredCache tieredCache = findCache(cache);
+        if (tieredCache == null) {
+            return null;
+        }
+        if (key == null && pattern == null) {
+            throw new InvalidEndpointRequestException("需要指定 key 或 pattern", "Missing parameter 'key' or 'pattern'");
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cache", cache);
+        if (key != null) {
+            result.put("key", key);
+            // 本节点 L1 中可能没有这个key，无法得知原始类型，按字符串形式失效并广播
+            result.put("localEvicted", tieredCache.evictByKeyString(key));
+        } else {
+            result.put("pattern", pattern);
+            result.put("localEvicted", tieredCache.evictByPattern(pattern));
+        }
+        log.info("通过管理端点失效缓存: {}", result);
+        return result;
+    }
+
+    private TieredCache findCache(String name) {
+        // getCache 会按需创建缓存，这里只处理已存在的缓存
+        return cacheManager.getCacheNames().contains(name) ? (TieredCache) cacheManager.getCache(name) : null;
+    }
+
+    private Map<String, Object> describe(TieredCache cache) {
+        TieredCacheStats stats = cache.getStats();
+
+        Map<String, Object> local = new LinkedHashMap<>();
+        local.put("hits", stats.localHitCount());
+        local.put("misses", stats.localMissCount());
+        local.put("size", cache.localSize());
+        local.put("memoryBytes", cache.localWeightedSize());
+        local.put("evictions", stats.evictions(TieredCacheStats.TIER_LOCAL));
+        local.put("promotions", stats.promotionCount());
+        if (cache.usesOffHeap()) {
+            Map<String, Object> offHeap = new LinkedHashMap<>();
+            offHeap.put("hits", stats.offHeapHitCount());
+            offHeap.put("misses", stats.offHeapMissCount());
+            local.put("offHeap", offHeap);
+        }
+
+        Map<String, Object> remote = new LinkedHashMap<>();
+        remote.put("hits", stats.remoteHitCount());
+        remote.put("misses", stats.remoteMissCount());
+        remote.put("errors", stats.remoteErrorCount());
+        remote.put("evictions", stats.evictions(TieredCacheStats.TIER_REMOTE));
+
+        long loads = stats.loadSuccessCount() + stats.loadFailureCount();
+        long lookups = stats.hitCount() + stats.missCount();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hitRatio", lookups == 0 ? 0 : (double) stats.hitCount() / lookups);
+        result.put("puts", stats.putCount());
+        result.put("loadSuccess", stats.loadSuccessCount());
+        result.put("loadFailure", stats.loadFailureCount());
+        result.put("avgLoadMillis", loads == 0 ? 0 : stats.totalLoadNanos() / 1_000_000.0 / loads);
+        result.put("l1", local);
+        result.put("l2", remote);
+        return result;
+    }
+
+    private Map<String, Object> describe(CacheEntry entry) {
+        if (entry == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("valueType", entry.getValue() == null ? null : entry.getValue().getClass().getName());
+        result.put("createdAt", Instant.ofEpochMilli(entry.getCreatedAt()).toString());
+        result.put("expiresAt", Instant.ofEpochMilli(entry.getExpiresAt()).toString());
+        result.put("remainingMillis", entry.remainingMillis(now));
+        result.put("expired", entry.isExpired(now));
+        result.put("loadMillis", entry.getLoadMillis());
+        result.put("weightBytes", entry.getWeight());
+        result.put("tags", entry.getTags());
+        return result;
+    }
+}
@@ -0,0 +1,289 @@
+package com.xkcoding.swagger.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.support.AbstractCacheManager;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * 二级缓存管理器
+ * </p>
+ *
+ * 为每个缓存名称创建一个独立的 L1 并共享同一个 L2 存储。每个缓存按 {@link CachePolicy} 设置过期时间、
+ * 空结果缓存、L1 容量和提前刷新，没有单独配置策略的缓存使用默认策略；
+ * 未预先配置的缓存名称会在首次使用时创建
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class TieredCacheManager extends AbstractCacheManager implements DisposableBean {
+
+    /**
+     * 热点key识别的 Sketch 按该活跃key数量设置大小
+     */
+    private static final int HOT_KEY_SKETCH_KEYS = 4096;
+
+    private final RemoteCacheStore remoteStore;
+    private final RedisSerializer<Object> serializer;
+    private final Collection<String> initialCacheNames;
+    private final String keyPrefix;
+    private final CachePolicy defaultPolicy;
+    private Map<String, CachePolicy> cachePolicies = new LinkedHashMap<>();
+    private Duration loadWaitTimeout = Duration.ofSeconds(10);
+    private ExecutorService refreshExecutor;
+    private Consumer<TieredCache> cacheCreatedListener;
+    private CacheInvalidationPublisher invalidationPublisher;
+    private OffHeapStore offHeapStore;
+    private int offHeapMinBytes;
+    private int hotKeyTopK;
+    private int hotKeyThreshold;
+    private Duration hotKeyPromotionTtl;
+
+    public TieredCacheManager(RemoteCacheStore remoteStore, RedisSerializer<Object> serializer,
+                              Collection<String> initialCacheNames, String keyPrefix,
+                              Duration timeToLive, boolean allowNullValues,
+                              long localMaximumWeight, Duration localTimeToLive) {
+        this.remoteStore = remoteStore;
+        this.serializer = serializer;
+        this.initialCacheNames = initialCacheNames;
+        this.keyPrefix = keyPrefix;
+        this.defaultPolicy = CachePolicy.builder()
+                .timeToLive(timeToLive)
+                .nullValueTimeToLive(allowNullValues ? timeToLive : Duration.ZERO)
+                .localTimeToLive(localTimeToLive)
+                .localMaximumWeight(localMaximumWeight)
+                .build();
+    }
+
+    /**
+     * 设置缓存未命中时等待其他调用方加载结果的最长时间
+     */
+    public void setLoadWaitTimeout(Duration loadWaitTimeout) {
+        this.loadWaitTimeout = loadWaitTimeout;
+    }
+
+    /**
+     * 设置各缓存的策略，配置了策略的缓存在启动时创建；需在初始化之前调用
+     *
+     * @param cachePolicies 缓存名称 -> 策略
+     */
+    public void setCachePolicies(Map<String, CachePolicy> cachePolicies) {
+        this.cachePolicies = new LinkedHashMap<>(cachePolicies);
+    }
+
+    /**
+     * 设置后台刷新线程池，随缓存管理器一起关闭
+     */
+    public void setRefreshExecutor(ExecutorService refreshExecutor) {
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * 默认策略（构造参数指定的过期时间、空值缓存和 L1 配置）
+     */
+    public CachePolicy getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    /**
+     * 设置运行时按需创建缓存后的回调（如为新缓存注册指标），只对之后创建的缓存生效
+     */
+    public void setCacheCreatedListener(Consumer<TieredCache> cacheCreatedListener) {
+        this.cacheCreatedListener = cacheCreatedListener;
+    }
+
+    /**
+     * 设置失效广播，对已创建和之后创建的缓存都生效
+     */
+    public void setInvalidationPublisher(CacheInvalidationPublisher invalidationPublisher) {
+        this.invalidationPublisher = invalidationPublisher;
+        for (String name : getCacheNames()) {
+            ((TieredCache) getCache(name)).setInvalidationPublisher(invalidationPublisher);
+        }
+    }
+
+    /**
+     * 设置共用的堆外存储，只对策略开启了 offHeap 的缓存生效；需在初始化之前调用
+     *
+     * @param minValueBytes 序列化后不小于该大小的条目放在堆外
+     */
+    public void setOffHeapStore(OffHeapStore offHeapStore, int minValueBytes) {
+        this.offHeapStore = offHeapStore;
+        this.offHeapMinBytes = minValueBytes;
+    }
+
+    /**
+     * 开启热点key识别：每个缓存各自识别，热点key以 promotionTtl 提升到 L1；需在初始化之前调用
+     *
+     * @param topK      每个缓存的 Top-K 列表大小
+     * @param threshold 频率估计值（0-15）不低于该值时视为热点
+     */
+    public void setHotKeyDetection(int topK, int threshold, Duration promotionTtl) {
+        this.hotKeyTopK = topK;
+        this.hotKeyThreshold = threshold;
+        this.hotKeyPromotionTtl = promotionTtl;
+    }
+
+    /**
+     * 共用的堆外存储，未开启时为 null
+     */
+    public OffHeapStore getOffHeapStore() {
+        return offHeapStore;
+    }
+
+    /**
+     * 清空所有缓存的 L1（L2 不受影响）
+     */
+    public void clearLocal() {
+        for (String name : getCacheNames()) {
+            ((TieredCache) getCache(name)).clearLocal();
+        }
+    }
+
+    /**
+     * 在所有缓存中按标签失效
+     *
+     * @param tags 标签，如 "user:3"
+     */
+    public void evictTags(String... tags) {
+        List<String> tagList = Arrays.asList(tags);
+        for (String name : getCacheNames()) {
+            ((TieredCache) getCache(name)).evictTags(tagList);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    protected Collection<? extends org.springframework.cache.Cache> loadCaches() {
+        Set<String> names = new LinkedHashSet<>(initialCacheNames);
+        names.addAll(cachePolicies.keySet());
+        List<TieredCache> caches = new ArrayList<>();
+        for (String name : names) {
+            caches.add(createCache(name));
+        }
+        return caches;
+    }
+
+    @Override
+    protected org.springframework.cache.Cache getMissingCache(String name) {
+        TieredCache cache = createCache(name);
+        if (cacheCreatedListener != null) {
+            cacheCreatedListener.accept(cache);
+        }
+        return cache;
+    }
+
+    private TieredCache createCache(String name) {
+        CachePolicy policy = cachePolicies.getOrDefault(name, defaultPolicy);
+
+        CacheTagIndex tagIndex = new CacheTagIndex();
+        TieredCacheStats stats = new TieredCacheStats();
+        TieredCache cache = new TieredCache(name, buildLocalCache(policy, tagIndex, stats), tagIndex,
+                stats, remoteStore, serializer, keyPrefix + name + "::", policy);
+        cache.setLoadWaitTimeout(loadWaitTimeout);
+        cache.setRefreshExecutor(refreshExecutor);
+        cache.setInvalidationPublisher(invalidationPublisher);
+        if (offHeapStore != null && policy.isOffHeap()) {
+            cache.setOffHeapStore(offHeapStore, offHeapMinBytes);
+        }
+        if (hotKeyPromotionTtl != null) {
+            cache.setHotKeyDetector(new HotKeyDetector(hotKeyTopK, hotKeyThreshold, HOT_KEY_SKETCH_KEYS), hotKeyPromotionTtl);
+        }
+        return cache;
+    }
+
+    /**
+     * 构建 L1：按条目数或条目的序列化字节数加权限制总容量，
+     * 过期时间取本地TTL与条目剩余逻辑TTL（含允许返回旧值的时间）中较小者；
+     * 条目被淘汰时同步注销标签索引（被覆盖的条目由新条目重新登记，不注销），
+     * 并按原因记录自动淘汰（主动失效由 TieredCache 按具体原因记录）
+     */
+    private Cache<Object, CacheEntry> buildLocalCache(CachePolicy policy, CacheTagIndex tagIndex, TieredCacheStats stats) {
+        long maxStaleMillis = policy.maxStaleMillis();
+        long localTtlNanos = policy.getLocalTimeToLive().toNanos();
+        AtomicReference<Cache<Object, CacheEntry>> cacheRef = new AtomicReference<>();
+        Caffeine<Object, Object> builder = Caffeine.newBuilder();
+        if (policy.getLocalMaximumSize() > 0) {
+            builder.maximumSize(policy.getLocalMaximumSize());
+        } else {
+            builder.maximumWeight(policy.getLocalMaximumWeight())
+                    .weigher((Object key, Object entry) -> Math.max(1, ((CacheEntry) entry).getWeight()));
+        }
+        Cache<Object, CacheEntry> localCache = builder
+                .executor(Runnable::run)
+                .removalListener((Object key, CacheEntry entry, RemovalCause cause) -> {
+                    if (key == null || entry == null || cause == RemovalCause.REPLACED) {
+                        return;
+                    }
+                    if (cause.wasEvicted()) {
+                        stats.recordEviction(TieredCacheStats.TIER_LOCAL, evictionCause(cause), 1);
+                    }
+                    // 过期条目被新值覆盖时也会触发，只注销新条目不再使用的标签
+                    CacheEntry current = cacheRef.get().asMap().get(key);
+                    if (current == null) {
+                        tagIndex.remove(key, entry.getTags());
+                    } else {
+                        Set<String> staleTags = new HashSet<>(entry.getTags());
+                        staleTags.removeAll(current.getTags());
+                        tagIndex.remove(key, staleTags);
+                    }
+                })
+                .expireAfter(new Expiry<Object, CacheEntry>() {
+                    @Override
+                    public long expireAfterCreate(Object key, CacheEntry entry, long currentTime) {
+                        long remainingMillis = entry.remainingMillis(System.currentTimeMillis() - maxStaleMillis);
+                        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(remainingMillis);
+                        return Math.min(localTtlNanos, remainingNanos);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Object key, CacheEntry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Object key, CacheEntry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        cacheRef.set(localCache);
+        return localCache;
+    }
+
+    private static String evictionCause(RemovalCause cause) {
+        switch (cause) {
+            case SIZE:
+                return TieredCacheStats.CAUSE_SIZE;
+            case EXPIRED:
+                return TieredCacheStats.CAUSE_EXPIRED;
+            default:
+                return TieredCacheStats.CAUSE_COLLECTED;
+        }
+    }
+}
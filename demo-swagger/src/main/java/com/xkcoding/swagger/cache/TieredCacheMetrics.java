@@ -0,0 +1,127 @@
+package com.xkcoding.swagger.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * <p>
+ * 二级缓存的 Micrometer 指标
+ * </p>
+ *
+ * 通用指标（cache.gets / cache.puts / cache.evictions / cache.size）按整个缓存统计，
+ * 与其他缓存实现一致；额外按层级（tier=l1/l2）导出命中、淘汰原因、L1 内存占用和 L2 异常次数，
+ * 以及带分布直方图的加载耗时 cache.load.duration
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class TieredCacheMetrics extends CacheMeterBinder<TieredCache> {
+
+    public TieredCacheMetrics(TieredCache cache, Iterable<Tag> tags) {
+        super(cache, cache.getName(), tags);
+    }
+
+    @Override
+    protected Long size() {
+        return getCache().localSize();
+    }
+
+    @Override
+    protected long hitCount() {
+        return stats().hitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        return stats().missCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        return stats().evictionCount(TieredCacheStats.TIER_LOCAL);
+    }
+
+    @Override
+    protected long putCount() {
+        return stats().putCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        TieredCacheStats stats = stats();
+
+        tierCounter(registry, "cache.tier.gets", TieredCacheStats.TIER_LOCAL, "hit", TieredCacheStats::localHitCount);
+        tierCounter(registry, "cache.tier.gets", TieredCacheStats.TIER_LOCAL, "miss", TieredCacheStats::localMissCount);
+        if (getCache().usesOffHeap()) {
+            tierCounter(registry, "cache.tier.gets", TieredCacheStats.TIER_OFF_HEAP, "hit", TieredCacheStats::offHeapHitCount);
+            tierCounter(registry, "cache.tier.gets", TieredCacheStats.TIER_OFF_HEAP, "miss", TieredCacheStats::offHeapMissCount);
+        }
+        tierCounter(registry, "cache.tier.gets", TieredCacheStats.TIER_REMOTE, "hit", TieredCacheStats::remoteHitCount);
+        tierCounter(registry, "cache.tier.gets", TieredCacheStats.TIER_REMOTE, "miss", TieredCacheStats::remoteMissCount);
+
+        FunctionCounter.builder("cache.tier.errors", stats, TieredCacheStats::remoteErrorCount)
+                .tags(getTagsWithCacheName()).tag("tier", TieredCacheStats.TIER_REMOTE)
+                .description("L2 读写异常（已降级处理）的次数")
+                .register(registry);
+
+        for (String cause : TieredCacheStats.LOCAL_CAUSES) {
+            evictionCounter(registry, TieredCacheStats.TIER_LOCAL, cause);
+        }
+        for (String cause : TieredCacheStats.REMOTE_CAUSES) {
+            evictionCounter(registry, TieredCacheStats.TIER_REMOTE, cause);
+        }
+
+        Gauge.builder("cache.tier.size", getCache(), TieredCache::localSize)
+                .tags(getTagsWithCacheName()).tag("tier", TieredCacheStats.TIER_LOCAL)
+                .description("L1 条目数（估算）")
+                .register(registry);
+        Gauge.builder("cache.tier.memory", getCache(), TieredCache::localWeightedSize)
+                .tags(getTagsWithCacheName()).tag("tier", TieredCacheStats.TIER_LOCAL)
+                .description("L1 占用的字节数（按序列化后的大小计算）")
+                .baseUnit("bytes")
+                .register(registry);
+
+        FunctionCounter.builder("cache.load", stats, TieredCacheStats::loadSuccessCount)
+                .tags(getTagsWithCacheName()).tag("result", "success")
+                .description("缓存加载次数")
+                .register(registry);
+        FunctionCounter.builder("cache.load", stats, TieredCacheStats::loadFailureCount)
+                .tags(getTagsWithCacheName()).tag("result", "failure")
+                .description("缓存加载次数")
+                .register(registry);
+
+        Timer loadTimer = Timer.builder("cache.load.duration")
+                .tags(getTagsWithCacheName())
+                .description("缓存加载耗时")
+                .publishPercentileHistogram()
+                .register(registry);
+        stats.addLoadTimeListener(nanos -> loadTimer.record(nanos, TimeUnit.NANOSECONDS));
+    }
+
+    private TieredCacheStats stats() {
+        return getCache().getStats();
+    }
+
+    private void tierCounter(MeterRegistry registry, String name, String tier, String result,
+                             ToDoubleFunction<TieredCacheStats> count) {
+        FunctionCounter.builder(name, stats(), count)
+                .tags(Tags.concat(getTagsWithCacheName(), "tier", tier, "result", result))
+                .description("按层级统计的缓存读取次数")
+                .register(registry);
+    }
+
+    private void evictionCounter(MeterRegistry registry, String tier, String cause) {
+        FunctionCounter.builder("cache.tier.evictions", stats(), s -> s.evictionCount(tier, cause))
+                .tags(Tags.concat(getTagsWithCacheName(), "tier", tier, "cause", cause))
+                .description("按层级和原因统计的淘汰条目数")
+                .register(registry);
+    }
+}
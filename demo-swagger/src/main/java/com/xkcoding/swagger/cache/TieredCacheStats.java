@@ -0,0 +1,230 @@
+package com.xkcoding.swagger.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * <p>
+ * 二级缓存统计
+ * </p>
+ *
+ * L1、堆外、L2 的命中/未命中分开计数；加载次数与耗时、写入次数、按层级和原因区分的淘汰次数。
+ * 只用 LongAdder 计数，不依赖 Micrometer，由 {@code TieredCacheMetrics} 负责导出
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class TieredCacheStats {
+
+    public static final String TIER_LOCAL = "l1";
+    public static final String TIER_REMOTE = "l2";
+    public static final String TIER_OFF_HEAP = "offheap";
+
+    /**
+     * L1 自动淘汰原因（来自 Caffeine）
+     */
+    public static final String CAUSE_SIZE = "size";
+    public static final String CAUSE_EXPIRED = "expired";
+    public static final String CAUSE_COLLECTED = "collected";
+
+    /**
+     * 主动失效原因
+     */
+    public static final String CAUSE_EXPLICIT = "explicit";
+    public static final String CAUSE_TAG = "tag";
+    public static final String CAUSE_PATTERN = "pattern";
+    public static final String CAUSE_CLEAR = "clear";
+
+    public static final List<String> LOCAL_CAUSES = Collections.unmodifiableList(Arrays.asList(
+            CAUSE_SIZE, CAUSE_EXPIRED, CAUSE_COLLECTED, CAUSE_EXPLICIT, CAUSE_TAG, CAUSE_PATTERN, CAUSE_CLEAR));
+    public static final List<String> REMOTE_CAUSES = Collections.unmodifiableList(Arrays.asList(
+            CAUSE_EXPLICIT, CAUSE_TAG, CAUSE_PATTERN, CAUSE_CLEAR));
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder localMisses = new LongAdder();
+    private final LongAdder offHeapHits = new LongAdder();
+    private final LongAdder offHeapMisses = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder remoteMisses = new LongAdder();
+    private final LongAdder remoteErrors = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder promotions = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> evictions = new ConcurrentHashMap<>();
+    private final List<LongConsumer> loadTimeListeners = new CopyOnWriteArrayList<>();
+
+    public void recordLocalHit() {
+        localHits.increment();
+    }
+
+    public void recordLocalMiss() {
+        localMisses.increment();
+    }
+
+    public void recordOffHeapHit() {
+        offHeapHits.increment();
+    }
+
+    public void recordOffHeapMiss() {
+        offHeapMisses.increment();
+    }
+
+    public void recordRemoteHit() {
+        remoteHits.increment();
+    }
+
+    public void recordRemoteMiss() {
+        remoteMisses.increment();
+    }
+
+    public void recordRemoteError() {
+        remoteErrors.increment();
+    }
+
+    public void recordPut() {
+        puts.increment();
+    }
+
+    /**
+     * 记录一次热点key提升到 L1
+     */
+    public void recordPromotion() {
+        promotions.increment();
+    }
+
+    /**
+     * 记录一次加载
+     *
+     * @param nanos   加载耗时（纳秒）
+     * @param success 是否成功
+     */
+    public void recordLoad(long nanos, boolean success) {
+        if (success) {
+            loadSuccesses.increment();
+        } else {
+            loadFailures.increment();
+        }
+        totalLoadNanos.add(nanos);
+        for (LongConsumer listener : loadTimeListeners) {
+            listener.accept(nanos);
+        }
+    }
+
+    /**
+     * 记录淘汰
+     *
+     * @param tier  层级：{@link #TIER_LOCAL} / {@link #TIER_REMOTE}
+     * @param cause 原因
+     * @param count 淘汰的条目数
+     */
+    public void recordEviction(String tier, String cause, long count) {
+        if (count > 0) {
+            evictions.computeIfAbsent(tier + ":" + cause, k -> new LongAdder()).add(count);
+        }
+    }
+
+    /**
+     * 订阅每次加载的耗时（纳秒），用于导出耗时分布
+     */
+    public void addLoadTimeListener(LongConsumer listener) {
+        loadTimeListeners.add(listener);
+    }
+
+    public long localHitCount() {
+        return localHits.sum();
+    }
+
+    public long localMissCount() {
+        return localMisses.sum();
+    }
+
+    public long offHeapHitCount() {
+        return offHeapHits.sum();
+    }
+
+    public long offHeapMissCount() {
+        return offHeapMisses.sum();
+    }
+
+    public long promotionCount() {
+        return promotions.sum();
+    }
+
+    public long remoteHitCount() {
+        return remoteHits.sum();
+    }
+
+    public long remoteMissCount() {
+        return remoteMisses.sum();
+    }
+
+    public long remoteErrorCount() {
+        return remoteErrors.sum();
+    }
+
+    public long putCount() {
+        return puts.sum();
+    }
+
+    public long loadSuccessCount() {
+        return loadSuccesses.sum();
+    }
+
+    public long loadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    public long totalLoadNanos() {
+        return totalLoadNanos.sum();
+    }
+
+    /**
+     * 两级都未命中的次数（需要加载）
+     */
+    public long missCount() {
+        return remoteMissCount();
+    }
+
+    /**
+     * 任一级命中的次数
+     */
+    public long hitCount() {
+        return localHitCount() + offHeapHitCount() + remoteHitCount();
+    }
+
+    public long evictionCount(String tier, String cause) {
+        LongAdder adder = evictions.get(tier + ":" + cause);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    public long evictionCount(String tier) {
+        long total = 0;
+        List<String> causes = TIER_LOCAL.equals(tier) ? LOCAL_CAUSES : REMOTE_CAUSES;
+        for (String cause : causes) {
+            total += evictionCount(tier, cause);
+        }
+        return total;
+    }
+
+    /**
+     * 指定层级按原因统计的淘汰次数
+     */
+    public Map<String, Long> evictions(String tier) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        List<String> causes = TIER_LOCAL.equals(tier) ? LOCAL_CAUSES : REMOTE_CAUSES;
+        for (String cause : causes) {
+            result.put(cause, evictionCount(tier, cause));
+        }
+        return result;
+    }
+}
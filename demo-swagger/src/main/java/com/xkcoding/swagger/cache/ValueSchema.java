@@ -0,0 +1,34 @@
+package com.xkcoding.swagger.cache;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ * 缓存值的二进制结构定义
+ * </p>
+ *
+ * 每种类型按固定字段顺序读写，不写字段名；结构变化时提升版本号，
+ * 并在 {@link #read(int, CompactInput)} 中保留旧版本的读取逻辑，滚动升级期间新旧节点可以互相读取
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public interface ValueSchema<T> {
+
+    /**
+     * 当前写入使用的版本号（0-255）
+     */
+    int version();
+
+    /**
+     * 写入值
+     */
+    void write(T value, CompactOutput out) throws IOException;
+
+    /**
+     * 读取值
+     *
+     * @param version 写入时的版本号，不支持时抛出异常（按缓存未命中处理）
+     */
+    T read(int version, CompactInput in) throws IOException;
+}
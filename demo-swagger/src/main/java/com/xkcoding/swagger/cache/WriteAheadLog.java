@@ -0,0 +1,149 @@
+package com.xkcoding.swagger.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.StringUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * <p>
+ * 预写日志：延迟写入的数据先追加到本地文件，进程崩溃后重启时重放
+ * </p>
+ *
+ * 每条记录为 [长度][CRC32][序列化后的值]，重放时遇到长度或校验和不对的记录即停止（崩溃时写了一半的末尾记录）。
+ * 数据写入数据库后用剩余未写入的数据重写日志（先写临时文件再原子替换），日志大小不超过待写入的数据量。
+ * sync 为 true 时每次追加都调用 fsync，可以在操作系统崩溃或断电时不丢数据，代价是每次写入多一次磁盘同步；
+ * 为 false 时只保证进程崩溃不丢数据。非线程安全，由调用方加锁
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+public class WriteAheadLog<V> implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+
+    private final Path file;
+    private final RedisSerializer<Object> serializer;
+    private final boolean sync;
+    private FileChannel channel;
+
+    /**
+     * @param file       日志文件，不存在时创建
+     * @param serializer 记录的编码方式，需能完整保存值的所有字段
+     * @param sync       每次追加后是否 fsync
+     */
+    public WriteAheadLog(Path file, RedisSerializer<Object> serializer, boolean sync) throws IOException {
+        this.file = file;
+        this.serializer = serializer;
+        this.sync = sync;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = openChannel(file);
+    }
+
+    /**
+     * 在目录下打开名为 name 的日志，记录用 JDK 序列化（保留值的所有字段），目录为空时返回 null
+     */
+    public static <V> WriteAheadLog<V> open(String dir, String name, boolean sync) {
+        if (!StringUtils.hasText(dir)) {
+            return null;
+        }
+        Path file = Paths.get(dir, name + ".wal");
+        try {
+            return new WriteAheadLog<>(file, new JdkSerializationRedisSerializer(WriteAheadLog.class.getClassLoader()), sync);
+        } catch (IOException e) {
+            throw new IllegalStateException("打开预写日志失败: " + file, e);
+        }
+    }
+
+    /**
+     * 读取日志中的所有完整记录
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> replay() throws IOException {
+        List<V> values = new ArrayList<>();
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+        while (content.remaining() >= HEADER_BYTES) {
+            int length = content.getInt();
+            int checksum = content.getInt();
+            if (length <= 0 || length > content.remaining()) {
+                log.warn("预写日志末尾记录不完整，已忽略: file={}, offset={}", file, content.position() - HEADER_BYTES);
+                break;
+            }
+            byte[] payload = new byte[length];
+            content.get(payload);
+            if (checksum(payload) != checksum) {
+                log.warn("预写日志记录校验失败，忽略之后的记录: file={}, offset={}", file, content.position() - length - HEADER_BYTES);
+                break;
+            }
+            values.add((V) serializer.deserialize(payload));
+        }
+        return values;
+    }
+
+    /**
+     * 追加一条记录
+     */
+    public void append(V value) throws IOException {
+        channel.write(record(value));
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * 用给定的值重写日志
+     */
+    public void rewrite(Collection<V> values) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (V value : values) {
+                out.write(record(value));
+            }
+            out.force(false);
+        }
+        channel.close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = openChannel(file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer record(V value) {
+        byte[] payload = serializer.serialize(value);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        buffer.putInt(payload.length).putInt(checksum(payload)).put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static FileChannel openChannel(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,325 @@
+package com.xkcoding.swagger.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * 延迟写入（write-behind）：同一个key在一段时间内的多次更新合并为一次，批量写入数据库
+ * </p>
+ *
+ * 更新先追加到预写日志并合并到待写入集合（按 merger 合并同一个key的旧值和新值），等待 window
+ * 或攒够 maxBatchSize 后由后台线程调用 writer 批量写入。写入失败时把这一批合并回待写入集合，稍后重试；
+ * 写入成功后用剩余的待写入数据重写日志。关闭时同步写入剩余数据，仍未写入的保留在日志中；
+ * 创建时重放日志中上次未写入的数据，因此 writer 需是幂等的（如按主键 UPDATE）。
+ * 写入完成之前数据库中仍是旧值，读取方可以用 {@link #pending(Object)} 叠加尚未写入的更新
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+public class WriteBehindBuffer<K, V> implements DisposableBean {
+
+    private final String name;
+    private final Function<V, K> keyOf;
+    private final BinaryOperator<V> merger;
+    private final Consumer<List<V>> writer;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final WriteAheadLog<V> wal;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 持有期间会写预写日志，用显式锁而不是 synchronized：虚拟线程在锁内阻塞于文件 I/O 时可以让出载体线程
+     */
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private Map<K, V> pending = new LinkedHashMap<>();
+    private Map<K, V> inFlight = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param name         名称，用于日志和线程名
+     * @param keyOf        取值的key（如用户ID）
+     * @param merger       合并同一个key的旧值和新值，参数依次为旧值、新值
+     * @param writer       批量写入，失败时抛出异常
+     * @param window       合并等待时间
+     * @param maxBatchSize 每批最多写入的条数，待写入数据达到该数量时立即写入
+     * @param wal          预写日志，为 null 时不落盘（进程崩溃会丢失未写入的更新）
+     */
+    public WriteBehindBuffer(String name, Function<V, K> keyOf, BinaryOperator<V> merger, Consumer<List<V>> writer,
+                             Duration window, int maxBatchSize, WriteAheadLog<V> wal) {
+        this.name = name;
+        this.keyOf = keyOf;
+        this.merger = merger;
+        this.writer = writer;
+        this.windowMillis = window.toMillis();
+        this.maxBatchSize = maxBatchSize;
+        this.wal = wal;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                new CustomizableThreadFactory("write-behind-" + name + "-"));
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.scheduler = executor;
+        recover();
+    }
+
+    /**
+     * 登记一次更新，由后台线程合并写入
+     *
+     * @return 是否已登记；写预写日志失败时返回 false，调用方应改为同步写入
+     */
+    public boolean submit(V value) {
+        K key = keyOf.apply(value);
+        boolean flushNow;
+        pendingLock.lock();
+        try {
+            if (wal != null) {
+                try {
+                    wal.append(value);
+                } catch (IOException e) {
+                    log.warn("写预写日志失败，改为同步写入: name={}, key={}", name, key, e);
+                    return false;
+                }
+            }
+            V previous = pending.get(key);
+            pending.put(key, previous == null ? value : merger.apply(previous, value));
+            submitted.increment();
+            if (previous != null) {
+                coalesced.increment();
+            }
+            flushNow = pending.size() >= maxBatchSize;
+            if (!flushNow && flushScheduled) {
+                return true;
+            }
+            flushScheduled = true;
+        } finally {
+            pendingLock.unlock();
+        }
+        schedule(flushNow ? 0 : windowMillis);
+        return true;
+    }
+
+    /**
+     * 尚未写入数据库的更新（包括正在写入的），没有时返回 null
+     */
+    public V pending(K key) {
+        pendingLock.lock();
+        try {
+            V writing = inFlight.get(key);
+            V waiting = pending.get(key);
+            if (writing == null) {
+                return waiting;
+            }
+            return waiting == null ? writing : merger.apply(writing, waiting);
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    /**
+     * 立即写入所有待写入的数据
+     *
+     * @return 是否全部写入成功
+     */
+    public boolean flush() {
+        flushLock.lock();
+        try {
+            List<V> batch;
+            pendingLock.lock();
+            try {
+                flushScheduled = false;
+                if (pending.isEmpty()) {
+                    return true;
+                }
+                inFlight = pending;
+                pending = new LinkedHashMap<>();
+                batch = new ArrayList<>(inFlight.values());
+            } finally {
+                pendingLock.unlock();
+            }
+            try {
+                for (int from = 0; from < batch.size(); from += maxBatchSize) {
+                    writer.accept(batch.subList(from, Math.min(from + maxBatchSize, batch.size())));
+                    batches.increment();
+                }
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("延迟写入失败，稍后重试: name={}, size={}", name, batch.size(), e);
+                requeue();
+                return false;
+            }
+            written.add(batch.size());
+            pendingLock.lock();
+            try {
+                inFlight = new LinkedHashMap<>();
+                if (wal != null) {
+                    try {
+                        wal.rewrite(pending.values());
+                    } catch (IOException e) {
+                        // 日志中多出已写入的记录，重放时重复写入一次，不影响结果
+                        log.warn("重写预写日志失败: name={}", name, e);
+                    }
+                }
+            } finally {
+                pendingLock.unlock();
+            }
+            return true;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 待写入（包括正在写入）的条数
+     */
+    public int pendingCount() {
+        pendingLock.lock();
+        try {
+            return pending.size() + inFlight.size();
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    /**
+     * 登记的更新次数
+     */
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    /**
+     * 被合并掉的更新次数
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * 写入数据库的条数
+     */
+    public long getWritten() {
+        return written.sum();
+    }
+
+    /**
+     * 批量写入次数
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * 关闭时同步写入剩余数据，写入失败的保留在预写日志中，下次启动时重放
+     */
+    @Override
+    public void destroy() {
+        // 不中断正在进行的写入（中断会关闭日志文件的 FileChannel），等它完成后再写入剩余数据
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!flush()) {
+            log.warn("关闭时仍有数据未写入，已保留在预写日志中: name={}, size={}", name, pendingCount());
+        }
+        if (wal != null) {
+            try {
+                wal.close();
+            } catch (IOException e) {
+                log.warn("关闭预写日志失败: name={}", name, e);
+            }
+        }
+    }
+
+    /**
+     * 重放预写日志中上次未写入的数据，在后台写入
+     */
+    private void recover() {
+        if (wal == null) {
+            return;
+        }
+        List<V> values;
+        try {
+            values = wal.replay();
+        } catch (IOException e) {
+            log.warn("读取预写日志失败: name={}", name, e);
+            return;
+        }
+        if (values.isEmpty()) {
+            return;
+        }
+        pendingLock.lock();
+        try {
+            for (V value : values) {
+                pending.merge(keyOf.apply(value), value, merger);
+            }
+            flushScheduled = true;
+        } finally {
+            pendingLock.unlock();
+        }
+        log.info("从预写日志恢复未写入的数据: name={}, records={}, keys={}", name, values.size(), pendingCount());
+        schedule(0);
+    }
+
+    /**
+     * 写入失败的一批合并回待写入集合（在之后的更新之前），并安排重试
+     */
+    private void requeue() {
+        pendingLock.lock();
+        try {
+            Map<K, V> merged = new LinkedHashMap<>(inFlight);
+            for (Map.Entry<K, V> entry : pending.entrySet()) {
+                merged.merge(entry.getKey(), entry.getValue(), merger);
+            }
+            pending = merged;
+            inFlight = new LinkedHashMap<>();
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        } finally {
+            pendingLock.unlock();
+        }
+        schedule(Math.max(windowMillis, 1000));
+    }
+
+    private void schedule(long delayMillis) {
+        try {
+            scheduler.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 已关闭：剩余数据在关闭时写入或保留在预写日志中
+            log.debug("延迟写入已关闭: name={}", name);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.xkcoding.swagger.common;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * 批量操作结果
+ * </p>
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "批量操作结果")
+public class BulkResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+    public static final String NOT_FOUND = "not_found";
+    public static final String FAILED = "failed";
+
+    /**
+     * 请求中的条数
+     */
+    @Schema(description = "请求中的条数", example = "100")
+    private Integer total;
+
+    /**
+     * 成功条数（not_found 不算成功）
+     */
+    @Schema(description = "成功条数", example = "98")
+    private Integer succeeded;
+
+    /**
+     * 失败条数
+     */
+    @Schema(description = "失败或未找到的条数", example = "2")
+    private Integer failed;
+
+    /**
+     * 每一条的结果，顺序与请求一致
+     */
+    @Schema(description = "每一条的结果，顺序与请求一致")
+    private List<Item> items;
+
+    /**
+     * 汇总每一条的结果
+     */
+    public static BulkResult of(Item[] items) {
+        int succeeded = 0;
+        for (Item item : items) {
+            if (!FAILED.equals(item.getStatus()) && !NOT_FOUND.equals(item.getStatus())) {
+                succeeded++;
+            }
+        }
+        return new BulkResult(items.length, succeeded, items.length - succeeded, Arrays.asList(items));
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "单条结果")
+    public static class Item implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 在请求中的位置（从0开始）
+         */
+        @Schema(description = "在请求中的位置（从0开始）", example = "0")
+        private Integer index;
+
+        /**
+         * 用户ID，新增时为生成的ID
+         */
+        @Schema(description = "用户ID，新增时为生成的ID", example = "1")
+        private Integer id;
+
+        /**
+         * 结果：created/updated/deleted/not_found/failed
+         */
+        @Schema(description = "结果：created/updated/deleted/not_found/failed", example = "created")
+        private String status;
+
+        /**
+         * 失败原因
+         */
+        @Schema(description = "失败原因")
+        private String message;
+    }
+}
@@ -0,0 +1,197 @@
+package com.xkcoding.swagger.common;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>
+ * 64 位趋势递增 id 生成器（Snowflake 布局）
+ * </p>
+ *
+ * 1 位符号（恒为 0） + 41 位毫秒时间戳（自 2024-01-01 UTC 起，约 69 年） + 10 位 workerId + 12 位序号，
+ * 单个 workerId 每毫秒最多 4096 个。上一次的时间戳和序号放在一个 AtomicLong 中用 CAS 推进，不加锁。
+ * 时钟回拨时沿用上一次的时间戳继续递增序号，序号用完时借用下一毫秒，不阻塞也不抛异常；
+ * 只有当前毫秒的序号用完且时钟正常时才等到下一毫秒。
+ * 多个实例必须使用不同的 workerId，否则会产生重复 id
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+public class IdGenerator {
+
+    /**
+     * 2024-01-01T00:00:00Z
+     */
+    public static final long EPOCH = 1704067200000L;
+
+    public static final int WORKER_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_WORKER_ID = (1 << WORKER_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = WORKER_BITS + SEQUENCE_BITS;
+
+    /**
+     * Crockford Base32，字符按 ASCII 升序排列，定长编码后字符串顺序与数值顺序一致
+     */
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int COMPACT_LENGTH = 13;
+    private static final int[] DECODE = new int[128];
+
+    static {
+        Arrays.fill(DECODE, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = i;
+            DECODE[Character.toLowerCase(ALPHABET[i])] = i;
+        }
+    }
+
+    private static volatile IdGenerator defaultGenerator = new IdGenerator(fallbackWorkerId());
+
+    private final long workerBits;
+    private final LongSupplier clock;
+    private final long skewWarnMillis;
+    /**
+     * (相对 EPOCH 的时间戳 << SEQUENCE_BITS) | 序号
+     */
+    private final AtomicLong state = new AtomicLong();
+    private volatile long lastSkewWarning;
+
+    public IdGenerator(int workerId) {
+        this(workerId, 10);
+    }
+
+    /**
+     * @param skewWarnMillis 时钟回拨超过该毫秒数时输出警告（每秒最多一次）
+     */
+    public IdGenerator(int workerId, long skewWarnMillis) {
+        this(workerId, skewWarnMillis, System::currentTimeMillis);
+    }
+
+    IdGenerator(int workerId, long skewWarnMillis, LongSupplier clock) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId 必须在 0 到 " + MAX_WORKER_ID + " 之间: " + workerId);
+        }
+        this.workerBits = (long) workerId << SEQUENCE_BITS;
+        this.skewWarnMillis = skewWarnMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * 供无法注入的地方（如实体构造器）使用，应用启动后替换为配置了 workerId 的实例
+     */
+    public static IdGenerator getDefault() {
+        return defaultGenerator;
+    }
+
+    /**
+     * workerId 相同时保留当前实例，避免新实例从零开始的序号与已发出的 id 重复
+     */
+    public static void setDefault(IdGenerator generator) {
+        if (generator.getWorkerId() != defaultGenerator.getWorkerId()) {
+            defaultGenerator = generator;
+        }
+    }
+
+    public int getWorkerId() {
+        return (int) (workerBits >>> SEQUENCE_BITS);
+    }
+
+    public long nextId() {
+        while (true) {
+            long current = state.get();
+            long last = current >>> SEQUENCE_BITS;
+            long now = clock.getAsLong() - EPOCH;
+            long next;
+            if (now > last) {
+                next = now << SEQUENCE_BITS;
+            } else if ((current & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                // 同一毫秒，或时钟回拨后沿用上一次的时间戳
+                next = current + 1;
+            } else if (now < last) {
+                // 回拨期间序号用完，借用下一毫秒
+                next = (last + 1) << SEQUENCE_BITS;
+            } else {
+                // 当前毫秒的序号用完，等时钟走到下一毫秒
+                Thread.yield();
+                continue;
+            }
+            if (state.compareAndSet(current, next)) {
+                if (last - now > skewWarnMillis) {
+                    warnSkew(last - now);
+                }
+                return (next >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT | workerBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 13 位定长 Crockford Base32，按字符串排序即按生成顺序排序
+     */
+    public String nextCompactId() {
+        return toCompact(nextId());
+    }
+
+    public static String toCompact(long id) {
+        char[] chars = new char[COMPACT_LENGTH];
+        for (int i = COMPACT_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @throws IllegalArgumentException 长度不是 13 或含有非法字符
+     */
+    public static long fromCompact(String compact) {
+        if (compact == null || compact.length() != COMPACT_LENGTH) {
+            throw new IllegalArgumentException("无效的 id: " + compact);
+        }
+        long id = 0;
+        for (int i = 0; i < COMPACT_LENGTH; i++) {
+            char c = compact.charAt(i);
+            int value = c < DECODE.length ? DECODE[c] : -1;
+            if (value < 0 || (i == 0 && value > 7)) {
+                throw new IllegalArgumentException("无效的 id: " + compact);
+            }
+            id = id << 5 | value;
+        }
+        return id;
+    }
+
+    /**
+     * id 中的生成时间（epoch 毫秒），回拨或借用时可能与实际时间相差几毫秒
+     */
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+
+    public static int workerIdOf(long id) {
+        return (int) (id >>> SEQUENCE_BITS & MAX_WORKER_ID);
+    }
+
+    /**
+     * 未配置 workerId 时由主机名和进程号推算，多实例部署时仍可能冲突
+     */
+    public static int fallbackWorkerId() {
+        // "pid@hostname"
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int h = name.hashCode();
+        h ^= h >>> 16;
+        return h & MAX_WORKER_ID;
+    }
+
+    private void warnSkew(long skewMillis) {
+        long now = System.currentTimeMillis();
+        if (now - lastSkewWarning >= 1000) {
+            lastSkewWarning = now;
+            log.warn("检测到时钟回拨 {}ms，沿用上一次的时间戳生成 id", skewMillis);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.xkcoding.swagger.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * <p>
+ * 分页游标内容
+ * </p>
+ *
+ * 记录查询条件和上一页最后一行的 (排序字段值, id)，下一页从该位置之后开始读取（keyset 分页），
+ * 不需要像 OFFSET 那样扫描并丢弃前面的行。对外以签名后的不透明字符串传递
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageCursor {
+
+    /**
+     * 排序字段（id/name/job）
+     */
+    private String sortBy;
+
+    /**
+     * 排序方向（asc/desc）
+     */
+    private String sortDir;
+
+    /**
+     * 搜索关键字，为 null 时不过滤
+     */
+    private String keyword;
+
+    /**
+     * 下一页的页码
+     */
+    private int page;
+
+    /**
+     * 上一页最后一行的排序字段值，按 id 排序或该值为空时为 null
+     */
+    private String lastValue;
+
+    /**
+     * 上一页最后一行的 id
+     */
+    private int lastId;
+}
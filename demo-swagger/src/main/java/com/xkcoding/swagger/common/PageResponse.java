@@ -38,15 +38,15 @@ public class PageResponse<T> implements Serializable {
     private Integer pageSize;
 
     /**
-     * 总记录数
+     * 总记录数，未统计时为 null
      */
-    @Schema(description = "总记录数", example = "100")
+    @Schema(description = "总记录数，未要求统计时为空", example = "100")
     private Long totalCount;
 
     /**
-     * 总页数
+     * 总页数，未统计总数时为 null
      */
-    @Schema(description = "总页数", example = "10")
+    @Schema(description = "总页数，未要求统计总数时为空", example = "10")
     private Integer totalPages;
 
     /**
@@ -67,6 +67,18 @@ public class PageResponse<T> implements Serializable {
     @Schema(description = "数据列表")
     private List<T> data;
 
+    /**
+     * 下一页的游标，没有下一页时为 null
+     */
+    @Schema(description = "下一页的游标（传给下一次请求的 cursor 参数），没有下一页时为空")
+    private String nextCursor;
+
+    /**
+     * 总记录数是否为估计值
+     */
+    @Schema(description = "总记录数是否为估计值（来自表统计信息），精确统计时为空")
+    private Boolean approximateCount;
+
     /**
      * 计算总页数
      */
@@ -93,4 +105,20 @@ public class PageResponse<T> implements Serializable {
                 .data(data)
                 .build();
     }
+
+    /**
+     * 构建分页响应：是否有下一页由调用方给出（如多读取一行判断），totalCount 可以为 null
+     */
+    public static <T> PageResponse<T> build(Integer currentPage, Integer pageSize, Long totalCount, List<T> data,
+                                            boolean hasNext) {
+        return PageResponse.<T>builder()
+                .currentPage(currentPage)
+                .pageSize(pageSize)
+                .totalCount(totalCount)
+                .totalPages(totalCount == null ? null : calculateTotalPages(totalCount, pageSize))
+                .hasNext(hasNext)
+                .hasPrevious(currentPage > 1)
+                .data(data)
+                .build();
+    }
 }
\ No newline at end of file
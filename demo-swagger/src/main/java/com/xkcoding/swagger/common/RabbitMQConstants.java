@@ -31,6 +31,11 @@ public class RabbitMQConstants {
      * 延迟交换机
      */
     public static final String DELAY_EXCHANGE = "demo.delay.exchange";
+    
+    /**
+     * 缓存失效广播交换机
+     */
+    public static final String CACHE_INVALIDATION_EXCHANGE = "demo.cache.invalidation.exchange";
 
     // ==================== 队列名称 ====================
     
@@ -73,6 +78,11 @@ public class RabbitMQConstants {
      * 死信队列
      */
     public static final String DEAD_LETTER_QUEUE = "demo.dead.letter.queue";
+    
+    /**
+     * 缓存失效广播队列前缀，每个节点一个临时队列（前缀 + 节点ID）
+     */
+    public static final String CACHE_INVALIDATION_QUEUE_PREFIX = "demo.cache.invalidation.";
 
     // ==================== 路由键 ====================
     
@@ -0,0 +1,177 @@
+package com.xkcoding.swagger.config;
+
+import com.xkcoding.swagger.cache.CachePolicy;
+import com.xkcoding.swagger.cache.CacheValueSchemas;
+import com.xkcoding.swagger.cache.CompactCacheSerializer;
+import com.xkcoding.swagger.cache.InMemoryCacheStore;
+import com.xkcoding.swagger.cache.OffHeapStore;
+import com.xkcoding.swagger.cache.RedisCacheStore;
+import com.xkcoding.swagger.cache.RefreshAheadPolicy;
+import com.xkcoding.swagger.cache.RemoteCacheStore;
+import com.xkcoding.swagger.cache.TieredCacheManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * 二级缓存配置类
+ * </p>
+ *
+ * 启用 Spring Cache，并以 L1 本地 Caffeine + L2 Redis 的二级缓存作为 CacheManager
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    /**
+     * 默认缓存过期时间（未配置 spring.cache.redis.time-to-live 时使用）
+     */
+    private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+
+    /**
+     * L2 存储
+     * cache.remote.type=memory 时使用进程内替身，便于在没有 Redis 的环境下运行
+     */
+    @Bean
+    public RemoteCacheStore remoteCacheStore(TieredCacheProperties tieredCacheProperties,
+                                             ObjectProvider<RedisConnectionFactory> connectionFactory) {
+        if ("memory".equalsIgnoreCase(tieredCacheProperties.getRemote().getType())) {
+            log.info("二级缓存 L2 使用进程内存储");
+            return new InMemoryCacheStore();
+        }
+
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory.getObject());
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return new RedisCacheStore(template);
+    }
+
+    /**
+     * 二级缓存管理器
+     */
+    @Bean
+    public TieredCacheManager cacheManager(CacheProperties cacheProperties,
+                                           TieredCacheProperties tieredCacheProperties,
+                                           RemoteCacheStore remoteCacheStore) {
+        CacheProperties.Redis redis = cacheProperties.getRedis();
+        Duration timeToLive = redis.getTimeToLive() != null ? redis.getTimeToLive() : DEFAULT_TIME_TO_LIVE;
+        String keyPrefix = redis.isUseKeyPrefix() && redis.getKeyPrefix() != null ? redis.getKeyPrefix() : "";
+
+        TieredCacheManager cacheManager = new TieredCacheManager(
+                remoteCacheStore,
+                cacheSerializer(tieredCacheProperties.getRemote().getCodec()),
+                cacheProperties.getCacheNames(),
+                keyPrefix,
+                timeToLive,
+                redis.isCacheNullValues(),
+                tieredCacheProperties.getLocal().getMaximumWeight(),
+                tieredCacheProperties.getLocal().getTimeToLive());
+        cacheManager.setLoadWaitTimeout(tieredCacheProperties.getLoadWaitTimeout());
+
+        // 后台刷新线程池：有界队列，队列满时拒绝任务，由缓存跳过本次刷新；随缓存管理器一起关闭
+        TieredCacheProperties.Refresh refresh = tieredCacheProperties.getRefresh();
+        ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(refresh.getPoolSize(), refresh.getPoolSize(),
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(refresh.getQueueCapacity()),
+                new CustomizableThreadFactory("cache-refresh-"), new ThreadPoolExecutor.AbortPolicy());
+        refreshExecutor.allowCoreThreadTimeOut(true);
+        cacheManager.setRefreshExecutor(refreshExecutor);
+        cacheManager.setCachePolicies(cachePolicies(tieredCacheProperties, cacheManager.getDefaultPolicy()));
+
+        TieredCacheProperties.HotKeys hotKeys = tieredCacheProperties.getHotKeys();
+        if (hotKeys.isEnabled()) {
+            cacheManager.setHotKeyDetection(hotKeys.getTopK(), hotKeys.getThreshold(), hotKeys.getPromotionTtl());
+        }
+
+        TieredCacheProperties.OffHeap offHeap = tieredCacheProperties.getOffHeap();
+        if (offHeap.isEnabled()) {
+            cacheManager.setOffHeapStore(new OffHeapStore(offHeap.getCapacity(), offHeap.getSlabSize(),
+                    offHeap.getBlockSize(), offHeap.getMaxValueBytes()), offHeap.getMinValueBytes());
+            log.info("二级缓存堆外存储已开启: capacity={}, minValueBytes={}", offHeap.getCapacity(), offHeap.getMinValueBytes());
+        }
+        return cacheManager;
+    }
+
+    /**
+     * 按缓存名称合并策略：未配置的项使用默认策略
+     */
+    private Map<String, CachePolicy> cachePolicies(TieredCacheProperties properties, CachePolicy defaults) {
+        TieredCacheProperties.Refresh refresh = properties.getRefresh();
+        Map<String, CachePolicy> policies = new LinkedHashMap<>();
+        properties.getPolicies().forEach((name, config) -> {
+            CachePolicy.CachePolicyBuilder builder = defaults.toBuilder();
+            if (config.getTimeToLive() != null) {
+                builder.timeToLive(config.getTimeToLive());
+                if (config.getNullValueTimeToLive() == null && defaults.cachesNullValues()) {
+                    builder.nullValueTimeToLive(config.getTimeToLive());
+                }
+            }
+            if (config.getNullValueTimeToLive() != null) {
+                builder.nullValueTimeToLive(config.getNullValueTimeToLive());
+            }
+            if (config.getTtlJitter() != null) {
+                builder.ttlJitter(config.getTtlJitter());
+            }
+            if (config.getLocalTimeToLive() != null) {
+                builder.localTimeToLive(config.getLocalTimeToLive());
+            }
+            if (config.getLocalMaximumWeight() != null) {
+                builder.localMaximumWeight(config.getLocalMaximumWeight());
+            }
+            if (config.getLocalMaximumSize() != null) {
+                builder.localMaximumSize(config.getLocalMaximumSize());
+            }
+            if (config.getOffHeap() != null) {
+                builder.offHeap(config.getOffHeap());
+            }
+            if (config.getLocalHotOnly() != null) {
+                builder.localHotOnly(config.getLocalHotOnly());
+            }
+            if (Boolean.TRUE.equals(config.getRefresh())) {
+                Duration maxStale = config.getMaxStale() != null ? config.getMaxStale() : refresh.getMaxStale();
+                double beta = config.getBeta() != null ? config.getBeta() : refresh.getBeta();
+                builder.refreshPolicy(new RefreshAheadPolicy(maxStale, beta));
+            }
+            CachePolicy policy = builder.build();
+            policies.put(name, policy);
+            log.info("缓存策略: cache={}, ttl={}, nullValueTtl={}, jitter={}, offHeap={}, refresh={}", name,
+                    policy.getTimeToLive(), policy.getNullValueTimeToLive(), policy.getTtlJitter(),
+                    policy.isOffHeap(), policy.getRefreshPolicy() != null);
+        });
+        return policies;
+    }
+
+    /**
+     * L2 值编码：默认使用紧凑二进制格式，jdk 用于排查问题或兼容旧数据
+     */
+    private RedisSerializer<Object> cacheSerializer(String codec) {
+        ClassLoader classLoader = getClass().getClassLoader();
+        if ("jdk".equalsIgnoreCase(codec)) {
+            return new JdkSerializationRedisSerializer(classLoader);
+        }
+        return CacheValueSchemas.registerDefaults(new CompactCacheSerializer(classLoader));
+    }
+}
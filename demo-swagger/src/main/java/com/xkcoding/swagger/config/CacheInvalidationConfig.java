@@ -0,0 +1,132 @@
+package com.xkcoding.swagger.config;
+
+import com.xkcoding.swagger.cache.CacheInvalidationPublisher;
+import com.xkcoding.swagger.cache.CacheInvalidationReceiver;
+import com.xkcoding.swagger.cache.CacheValueSchemas;
+import com.xkcoding.swagger.cache.CompactCacheSerializer;
+import com.xkcoding.swagger.cache.TieredCacheManager;
+import com.xkcoding.swagger.common.RabbitMQConstants;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.ExchangeBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.UUID;
+
+/**
+ * <p>
+ * 多节点 L1 失效广播配置
+ * </p>
+ *
+ * 每个节点声明一个绑定到失效广播交换机的临时队列（独占、自动删除），
+ * 本节点主动写入或失效缓存后合并发送失效事件，收到其他节点的事件时只清除本地 L1。
+ * cache.invalidation.enabled=false 时不广播（单节点部署）
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "cache.invalidation", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CacheInvalidationConfig {
+
+    /**
+     * 当前节点ID，每次启动重新生成，接收方按节点ID跟踪消息序号
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // ==================== 交换机和队列配置 ====================
+
+    /**
+     * 缓存失效广播交换机
+     */
+    @Bean
+    public FanoutExchange cacheInvalidationExchange() {
+        return ExchangeBuilder.fanoutExchange(RabbitMQConstants.CACHE_INVALIDATION_EXCHANGE)
+                .durable(true)
+                .build();
+    }
+
+    /**
+     * 本节点的失效队列：节点下线后自动删除，重连后重新声明（期间丢失的消息通过序号发现）
+     */
+    @Bean
+    public Queue cacheInvalidationQueue() {
+        return QueueBuilder.nonDurable(RabbitMQConstants.CACHE_INVALIDATION_QUEUE_PREFIX + nodeId)
+                .exclusive()
+                .autoDelete()
+                .build();
+    }
+
+    /**
+     * 失效队列绑定
+     */
+    @Bean
+    public Binding cacheInvalidationBinding(Queue cacheInvalidationQueue, FanoutExchange cacheInvalidationExchange) {
+        return BindingBuilder.bind(cacheInvalidationQueue).to(cacheInvalidationExchange);
+    }
+
+    // ==================== 发送和接收配置 ====================
+
+    /**
+     * 失效广播发送方，注册到缓存管理器
+     */
+    @Bean
+    public CacheInvalidationPublisher cacheInvalidationPublisher(ConnectionFactory connectionFactory,
+                                                                 TieredCacheManager cacheManager,
+                                                                 TieredCacheProperties tieredCacheProperties) {
+        // 独立的 RabbitTemplate：失效消息量大，不走业务消息的确认/退回日志
+        RabbitTemplate template = new RabbitTemplate(connectionFactory);
+        TieredCacheProperties.Invalidation invalidation = tieredCacheProperties.getInvalidation();
+        CacheInvalidationPublisher publisher = new CacheInvalidationPublisher(nodeId, invalidationSerializer(),
+                body -> template.send(RabbitMQConstants.CACHE_INVALIDATION_EXCHANGE, "",
+                        MessageBuilder.withBody(body)
+                                .setContentType(MessageProperties.CONTENT_TYPE_BYTES)
+                                .build()),
+                invalidation.getBatchWindow(), invalidation.getMaxBatchSize(),
+                invalidation.getStormThreshold(), invalidation.getHeartbeat());
+        cacheManager.setInvalidationPublisher(publisher);
+        log.info("缓存失效广播已开启: nodeId={}", nodeId);
+        return publisher;
+    }
+
+    /**
+     * 失效广播接收方
+     */
+    @Bean
+    public CacheInvalidationReceiver cacheInvalidationReceiver(TieredCacheManager cacheManager) {
+        return new CacheInvalidationReceiver(nodeId, cacheManager, invalidationSerializer());
+    }
+
+    /**
+     * 失效队列监听：单消费者保证同一节点的消息按序处理，处理异常由接收方记录，自动确认
+     */
+    @Bean
+    public SimpleMessageListenerContainer cacheInvalidationListenerContainer(ConnectionFactory connectionFactory,
+                                                                            Queue cacheInvalidationQueue,
+                                                                            CacheInvalidationReceiver cacheInvalidationReceiver) {
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueues(cacheInvalidationQueue);
+        container.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        container.setConcurrentConsumers(1);
+        container.setPrefetchCount(100);
+        container.setMessageListener(message -> cacheInvalidationReceiver.onMessage(message.getBody()));
+        return container;
+    }
+
+    private CompactCacheSerializer invalidationSerializer() {
+        return CacheValueSchemas.registerDefaults(new CompactCacheSerializer(getClass().getClassLoader()));
+    }
+}
@@ -0,0 +1,79 @@
+package com.xkcoding.swagger.config;
+
+import com.xkcoding.swagger.cache.OffHeapStore;
+import com.xkcoding.swagger.cache.TieredCache;
+import com.xkcoding.swagger.cache.TieredCacheEndpoint;
+import com.xkcoding.swagger.cache.TieredCacheManager;
+import com.xkcoding.swagger.cache.TieredCacheMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.CacheMetricsRegistrar;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * <p>
+ * 二级缓存监控配置类
+ * </p>
+ *
+ * 让 actuator 的缓存指标自动注册支持 {@link TieredCache}，运行时按需创建的缓存（如 tempCache）
+ * 在创建时补充注册；并暴露管理端点 /actuator/tieredcaches
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Configuration
+public class CacheMetricsConfig {
+
+    /**
+     * 与 actuator 为启动时已有缓存添加的标签保持一致（缓存管理器的 Bean 名称）
+     */
+    private static final Tag CACHE_MANAGER_TAG = Tag.of("cache.manager", "cacheManager");
+
+    @Bean
+    public CacheMeterBinderProvider<TieredCache> tieredCacheMeterBinderProvider() {
+        return TieredCacheMetrics::new;
+    }
+
+    @Bean
+    public SmartInitializingSingleton tieredCacheMetricsBinder(TieredCacheManager cacheManager,
+                                                               ObjectProvider<CacheMetricsRegistrar> registrar) {
+        return () -> registrar.ifAvailable(r ->
+                cacheManager.setCacheCreatedListener(cache -> r.bindCacheToRegistry(cache, CACHE_MANAGER_TAG)));
+    }
+
+    /**
+     * 堆外存储指标（所有缓存共用一个存储），未开启时不注册。
+     * 缓存管理器间接依赖 MeterRegistry（经由 RabbitMQ 连接工厂），所以不用 MeterBinder，而是在单例初始化完成后注册
+     */
+    @Bean
+    public SmartInitializingSingleton offHeapStoreMetricsBinder(TieredCacheManager cacheManager,
+                                                                ObjectProvider<MeterRegistry> registry) {
+        return () -> registry.ifAvailable(r -> {
+            OffHeapStore store = cacheManager.getOffHeapStore();
+            if (store == null) {
+                return;
+            }
+            Gauge.builder("cache.offheap.used", store, OffHeapStore::usedBytes).baseUnit("bytes")
+                    .description("堆外存储中值占用的字节数").register(r);
+            Gauge.builder("cache.offheap.allocated", store, OffHeapStore::allocatedBytes).baseUnit("bytes")
+                    .description("已申请的直接内存字节数").register(r);
+            Gauge.builder("cache.offheap.entries", store, OffHeapStore::size)
+                    .description("堆外存储的条目数").register(r);
+            FunctionCounter.builder("cache.offheap.evictions", store, OffHeapStore::evictionCount)
+                    .description("空间不足时按 LRU 淘汰的条目数").register(r);
+            FunctionCounter.builder("cache.offheap.rejections", store, OffHeapStore::rejectionCount)
+                    .description("未通过 TinyLFU 准入而放弃写入的次数").register(r);
+        });
+    }
+
+    @Bean
+    public TieredCacheEndpoint tieredCacheEndpoint(TieredCacheManager cacheManager) {
+        return new TieredCacheEndpoint(cacheManager);
+    }
+}
@@ -0,0 +1,52 @@
+package com.xkcoding.swagger.config;
+
+import com.xkcoding.swagger.cache.CacheWarmer;
+import com.xkcoding.swagger.cache.CacheWarmup;
+import com.xkcoding.swagger.cache.TieredCacheManager;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * <p>
+ * 缓存预热配置
+ * </p>
+ *
+ * 预热在 ApplicationRunner 中同步执行：Spring Boot 在所有 Runner 执行完之后才把就绪状态切换为
+ * ACCEPTING_TRAFFIC，因此 /actuator/health/readiness 在预热完成或超时之前一直是 OUT_OF_SERVICE，
+ * 负载均衡不会把流量转发给还没预热的节点。关闭时保存热点key快照，供下次启动预热
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "cache.warmup", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CacheWarmupConfig {
+
+    /**
+     * 缓存预热，关闭时保存快照
+     */
+    @Bean(destroyMethod = "saveSnapshot")
+    public CacheWarmup cacheWarmup(TieredCacheManager cacheManager, List<CacheWarmer> warmers,
+                                   TieredCacheProperties tieredCacheProperties) {
+        TieredCacheProperties.Warmup warmup = tieredCacheProperties.getWarmup();
+        CacheWarmup cacheWarmup = new CacheWarmup(cacheManager, warmers, warmup.getConcurrency(), warmup.getTimeout(),
+                StringUtils.hasText(warmup.getSnapshotFile()) ? Paths.get(warmup.getSnapshotFile()) : null,
+                warmup.getSnapshotMaxKeys());
+        cacheWarmup.setConfiguredKeys(warmup.getKeys());
+        return cacheWarmup;
+    }
+
+    /**
+     * 启动时执行预热
+     */
+    @Bean
+    public ApplicationRunner cacheWarmupRunner(CacheWarmup cacheWarmup) {
+        return args -> cacheWarmup.run();
+    }
+}
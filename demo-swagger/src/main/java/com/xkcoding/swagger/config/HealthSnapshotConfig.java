@@ -0,0 +1,121 @@
+package com.xkcoding.swagger.config;
+
+import com.xkcoding.swagger.jdbc.ReadWriteRoutingDataSource;
+import com.xkcoding.swagger.jdbc.UserShards;
+import com.xkcoding.swagger.service.HealthSnapshotService;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * 健康检查快照配置类
+ * </p>
+ *
+ * 数据库、RabbitMQ、Redis 和磁盘由 {@link HealthSnapshotService} 在后台定时检查，
+ * 这里注册的 dbHealthIndicator 等同名 bean 只返回快照，Spring Boot 自带的实时检查随之不再创建，
+ * /actuator/health 中组件名称保持不变。/monitor/health/deep 可以立即重新检查
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Configuration
+public class HealthSnapshotConfig {
+
+    public static final String DB = "db";
+    public static final String RABBIT = "rabbit";
+    public static final String REDIS = "redis";
+    public static final String DISK_SPACE = "diskSpace";
+    public static final String USER_COUNT = "userCount";
+
+    /**
+     * RabbitMQ 和 Redis 的连接工厂在检查时才获取，避免与缓存、消息相关的 bean 形成依赖环
+     */
+    @Bean
+    public HealthSnapshotService healthSnapshotService(HealthSnapshotProperties properties, JdbcTemplate jdbcTemplate,
+                                                       UserShards userShards,
+                                                       ObjectProvider<ConnectionFactory> rabbitConnectionFactory,
+                                                       ObjectProvider<RedisConnectionFactory> redisConnectionFactory) {
+        List<HealthSnapshotService.Check> checks = new ArrayList<>();
+        checks.add(new HealthSnapshotService.Check(DB, null, () -> {
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            if (!userShards.isSharded()) {
+                return Health.up().build();
+            }
+            userShards.scatter(userShards.getShards(), shard -> shard.getJdbcTemplate().queryForObject("SELECT 1", Integer.class));
+            return Health.up().withDetail("shards", userShards.getShards().size()).build();
+        }));
+        checks.add(new HealthSnapshotService.Check(RABBIT, null, () -> {
+            ConnectionFactory factory = rabbitConnectionFactory.getIfAvailable();
+            if (factory == null) {
+                return Health.unknown().withDetail("reason", "未配置 RabbitMQ").build();
+            }
+            try (Connection connection = factory.createConnection()) {
+                return (connection.isOpen() ? Health.up() : Health.down())
+                        .withDetail("host", factory.getHost() + ":" + factory.getPort())
+                        .build();
+            }
+        }));
+        checks.add(new HealthSnapshotService.Check(REDIS, null, () -> {
+            RedisConnectionFactory factory = redisConnectionFactory.getIfAvailable();
+            if (factory == null) {
+                return Health.unknown().withDetail("reason", "未配置 Redis").build();
+            }
+            try (RedisConnection connection = factory.getConnection()) {
+                return Health.up().withDetail("ping", connection.ping()).build();
+            }
+        }));
+        checks.add(new HealthSnapshotService.Check(DISK_SPACE, null, () -> {
+            File path = new File(properties.getDiskPath());
+            long free = path.getUsableSpace();
+            long threshold = properties.getDiskThreshold().toBytes();
+            return (free >= threshold ? Health.up() : Health.down())
+                    .withDetail("path", path.getAbsolutePath())
+                    .withDetail("free", free)
+                    .withDetail("threshold", threshold)
+                    .build();
+        }));
+        // 用户总数只是展示用的业务指标，统计间隔较长，开启读写分离时从副本读取，分片时为各分片之和
+        checks.add(new HealthSnapshotService.Check(USER_COUNT, properties.getUserCountInterval(), () -> {
+            boolean previous = ReadWriteRoutingDataSource.beginRead();
+            try {
+                long count = userShards.sum(userShards.getShards(), "SELECT COUNT(*) FROM t_user");
+                return Health.up().withDetail("count", count).build();
+            } finally {
+                ReadWriteRoutingDataSource.endRead(previous);
+            }
+        }));
+        return new HealthSnapshotService(properties, checks);
+    }
+
+    @Bean
+    public HealthIndicator dbHealthIndicator(HealthSnapshotService healthSnapshotService) {
+        return () -> healthSnapshotService.health(DB);
+    }
+
+    @Bean
+    public HealthIndicator rabbitHealthIndicator(HealthSnapshotService healthSnapshotService) {
+        return () -> healthSnapshotService.health(RABBIT);
+    }
+
+    @Bean
+    public HealthIndicator redisHealthIndicator(HealthSnapshotService healthSnapshotService) {
+        return () -> healthSnapshotService.health(REDIS);
+    }
+
+    @Bean
+    public HealthIndicator diskSpaceHealthIndicator(HealthSnapshotService healthSnapshotService) {
+        return () -> healthSnapshotService.health(DISK_SPACE);
+    }
+}
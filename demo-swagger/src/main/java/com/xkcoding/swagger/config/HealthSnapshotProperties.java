@@ -0,0 +1,52 @@
+package com.xkcoding.swagger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * <p>
+ * 健康检查快照配置属性
+ * </p>
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "health.snapshot")
+public class HealthSnapshotProperties {
+
+    /**
+     * 后台检查数据库、RabbitMQ、Redis 和磁盘的间隔
+     */
+    private Duration interval = Duration.ofSeconds(10);
+
+    /**
+     * 单项检查的超时时间，超时记为 DOWN
+     */
+    private Duration timeout = Duration.ofSeconds(3);
+
+    /**
+     * 快照的最长有效时间，超过后（后台检查卡住或停止）报告 DOWN。应大于各项检查的间隔（包括 userCountInterval）
+     */
+    private Duration maxStaleness = Duration.ofSeconds(90);
+
+    /**
+     * 用户总数的统计间隔，/monitor 接口中的 userCount 使用该统计值
+     */
+    private Duration userCountInterval = Duration.ofMinutes(1);
+
+    /**
+     * 磁盘检查的路径
+     */
+    private String diskPath = ".";
+
+    /**
+     * 可用空间低于该值时磁盘检查为 DOWN
+     */
+    private DataSize diskThreshold = DataSize.ofMegabytes(10);
+}
@@ -0,0 +1,36 @@
+package com.xkcoding.swagger.config;
+
+import com.xkcoding.swagger.common.IdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * <p>
+ * id 生成器配置类
+ * </p>
+ *
+ * 按 id.generator.worker-id 创建 {@link IdGenerator}，同时设为 {@link IdGenerator#getDefault()}，
+ * 供 MessageInfo 等不经过 Spring 创建的对象使用
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean
+    public IdGenerator idGenerator(IdGeneratorProperties properties) {
+        int workerId;
+        if (properties.getWorkerId() != null) {
+            workerId = properties.getWorkerId();
+        } else {
+            workerId = IdGenerator.fallbackWorkerId();
+            log.warn("未配置 id.generator.worker-id，使用由主机名和进程号推算的 {}，多实例部署时请为每个实例单独配置", workerId);
+        }
+        IdGenerator generator = new IdGenerator(workerId, properties.getSkewWarnThreshold().toMillis());
+        IdGenerator.setDefault(generator);
+        return IdGenerator.getDefault();
+    }
+}
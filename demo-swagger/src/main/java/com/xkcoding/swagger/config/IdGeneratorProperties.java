@@ -0,0 +1,31 @@
+package com.xkcoding.swagger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * <p>
+ * id 生成器配置属性
+ * </p>
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "id.generator")
+public class IdGeneratorProperties {
+
+    /**
+     * 0 到 1023，每个实例必须不同；不配置时由主机名和进程号推算
+     */
+    private Integer workerId;
+
+    /**
+     * 时钟回拨超过该时间时输出警告
+     */
+    private Duration skewWarnThreshold = Duration.ofMillis(10);
+}
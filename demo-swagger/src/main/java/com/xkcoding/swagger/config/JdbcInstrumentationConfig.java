@@ -0,0 +1,76 @@
+package com.xkcoding.swagger.config;
+
+import com.xkcoding.swagger.jdbc.InstrumentedDataSource;
+import com.xkcoding.swagger.jdbc.JdbcInstrumentation;
+import com.xkcoding.swagger.jdbc.JdbcInstrumentationEndpoint;
+import com.xkcoding.swagger.jdbc.JdbcRequestFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * <p>
+ * JDBC 监控配置类
+ * </p>
+ *
+ * 把容器中的数据源包装为 {@link InstrumentedDataSource}，注册按请求统计语句数的过滤器和管理端点 /actuator/jdbc。
+ * jdbc.instrumentation.enabled=false 时不包装数据源，统计为空
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Configuration
+public class JdbcInstrumentationConfig {
+
+    @Bean
+    public JdbcInstrumentation jdbcInstrumentation(JdbcInstrumentationProperties properties) {
+        return new JdbcInstrumentation(properties);
+    }
+
+    /**
+     * 后置处理器需要尽早注册，声明为 static 并延迟获取统计对象，避免提前初始化配置类和属性
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "jdbc.instrumentation", name = "enabled", matchIfMissing = true)
+    public static BeanPostProcessor instrumentedDataSourcePostProcessor(ObjectProvider<JdbcInstrumentation> instrumentation) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof InstrumentedDataSource)) {
+                    return new InstrumentedDataSource((DataSource) bean, instrumentation.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<JdbcRequestFilter> jdbcRequestFilter(JdbcInstrumentation instrumentation) {
+        FilterRegistrationBean<JdbcRequestFilter> registration = new FilterRegistrationBean<>(new JdbcRequestFilter(instrumentation));
+        // 在 Spring Security 过滤器链（-100）之前
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+
+    /**
+     * MeterRegistry 间接依赖数据源（经由缓存管理器和 RabbitMQ 连接工厂），在单例初始化完成后再绑定
+     */
+    @Bean
+    public SmartInitializingSingleton jdbcInstrumentationMetricsBinder(JdbcInstrumentation instrumentation,
+                                                                       ObjectProvider<MeterRegistry> registry) {
+        return () -> registry.ifAvailable(instrumentation::bindTo);
+    }
+
+    @Bean
+    public JdbcInstrumentationEndpoint jdbcInstrumentationEndpoint(JdbcInstrumentation instrumentation) {
+        return new JdbcInstrumentationEndpoint(instrumentation);
+    }
+}
@@ -0,0 +1,46 @@
+package com.xkcoding.swagger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * <p>
+ * JDBC 监控配置属性
+ * </p>
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "jdbc.instrumentation")
+public class JdbcInstrumentationProperties {
+
+    /**
+     * 是否包装数据源记录每条语句
+     */
+    private boolean enabled = true;
+
+    /**
+     * 慢 SQL 阈值，超过时记录日志（只记录参数类型，不记录参数值）
+     */
+    private Duration slowQueryThreshold = Duration.ofMillis(200);
+
+    /**
+     * 保留最近多少条慢 SQL，在 /actuator/jdbc 中查看
+     */
+    private int recentSlowQueries = 50;
+
+    /**
+     * 一次请求中同一形状的语句执行次数达到该值时视为疑似 N+1
+     */
+    private int repeatedStatementThreshold = 5;
+
+    /**
+     * 最多统计的语句形状数，超过后新的形状归入 "other"
+     */
+    private int maxStatements = 500;
+}
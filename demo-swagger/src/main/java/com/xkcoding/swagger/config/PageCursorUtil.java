@@ -0,0 +1,116 @@
+package com.xkcoding.swagger.config;
+
+import com.xkcoding.swagger.common.PageCursor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * <p>
+ * 分页游标工具类
+ * </p>
+ *
+ * 游标格式：Base64URL(内容) + "." + Base64URL(HMAC-SHA256 签名前 16 字节)。
+ * 签名保证客户端无法伪造或修改游标（如换成其他查询条件），游标本身不加密
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+@Component
+public class PageCursorUtil {
+
+    private static final int VERSION = 1;
+    private static final int SIGNATURE_BYTES = 16;
+    private static final String ALGORITHM = "HmacSHA256";
+
+    /**
+     * 游标签名密钥，默认与 JWT 共用
+     */
+    @Value("${pagination.cursor-secret:${jwt.secret:demo-swagger-security-jwt-secret-key-2024}}")
+    private String cursorSecret;
+
+    /**
+     * 生成游标
+     */
+    public String encode(PageCursor cursor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(cursor.getSortBy());
+            out.writeUTF(cursor.getSortDir());
+            writeNullable(out, cursor.getKeyword());
+            out.writeInt(cursor.getPage());
+            writeNullable(out, cursor.getLastValue());
+            out.writeInt(cursor.getLastId());
+        } catch (IOException e) {
+            throw new IllegalStateException("生成分页游标失败", e);
+        }
+        byte[] payload = bytes.toByteArray();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payload) + "." + encoder.encodeToString(sign(payload));
+    }
+
+    /**
+     * 解析游标
+     *
+     * @return 游标内容，格式错误或签名不匹配时返回 null
+     */
+    public PageCursor decode(String token) {
+        int dot = token == null ? -1 : token.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] payload = decoder.decode(token.substring(0, dot));
+            byte[] signature = decoder.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payload), signature)) {
+                log.warn("分页游标签名不匹配");
+                return null;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            if (in.readByte() != VERSION) {
+                return null;
+            }
+            return new PageCursor(in.readUTF(), in.readUTF(), readNullable(in), in.readInt(), readNullable(in), in.readInt());
+        } catch (IllegalArgumentException | IOException e) {
+            log.warn("分页游标格式错误: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(cursorSecret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return Arrays.copyOf(mac.doFinal(payload), SIGNATURE_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("分页游标签名失败", e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
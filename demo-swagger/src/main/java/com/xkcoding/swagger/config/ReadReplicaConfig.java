@@ -0,0 +1,94 @@
+package com.xkcoding.swagger.config;
+
+import com.xkcoding.swagger.jdbc.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * 读写分离配置类
+ * </p>
+ *
+ * datasource.routing.enabled=true 时代替自动配置的数据源：主库沿用 spring.datasource（包括 spring.datasource.hikari），
+ * 副本按 datasource.routing.replicas 各建一个只读连接池，由 {@link ReadWriteRoutingDataSource} 路由。
+ * 健康检查 /actuator/health 中的 readReplicas 显示各副本状态
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "datasource.routing", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, ReadReplicaProperties properties,
+                                 Environment environment) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+
+        List<ReadWriteRoutingDataSource.Replica> replicas = new ArrayList<>();
+        for (ReadReplicaProperties.Replica config : properties.getReplicas()) {
+            HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .url(config.getUrl())
+                    .username(config.getUsername() != null ? config.getUsername() : dataSourceProperties.determineUsername())
+                    .password(config.getPassword() != null ? config.getPassword() : dataSourceProperties.determinePassword())
+                    .driverClassName(StringUtils.hasText(config.getDriverClassName())
+                            ? config.getDriverClassName() : dataSourceProperties.determineDriverClassName())
+                    .build();
+            String name = StringUtils.hasText(config.getName()) ? config.getName() : "replica-" + (replicas.size() + 1);
+            replica.setPoolName(name);
+            replica.setReadOnly(true);
+            replica.setMaximumPoolSize(config.getMaximumPoolSize());
+            replica.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+            // 副本不可用时不影响启动，由健康检查摘除
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(new ReadWriteRoutingDataSource.Replica(name, replica, config.getWeight()));
+        }
+
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replicas,
+                properties.getReadYourWritesWindow(), properties.getFailureThreshold());
+        dataSource.startHealthChecks(properties.getHealthCheckInterval());
+        log.info("已开启读写分离，只读副本 {} 个", replicas.size());
+        return dataSource;
+    }
+
+    /**
+     * 数据源可能被 JDBC 监控包装，通过 unwrap 取得路由数据源
+     */
+    @Bean
+    public HealthIndicator readReplicasHealthIndicator(DataSource dataSource) {
+        return () -> {
+            ReadWriteRoutingDataSource routing;
+            try {
+                routing = dataSource.unwrap(ReadWriteRoutingDataSource.class);
+            } catch (SQLException e) {
+                return Health.unknown().withDetail("error", e.getMessage()).build();
+            }
+            Map<String, Object> details = routing.describe();
+            // 副本全部不可用时读取退回主库，服务仍然可用，只标记为降级
+            boolean anyHealthy = routing.getReplicas().isEmpty();
+            for (ReadWriteRoutingDataSource.Replica replica : routing.getReplicas()) {
+                anyHealthy |= replica.isHealthy();
+            }
+            return (anyHealthy ? Health.up() : Health.status("DEGRADED")).withDetails(details).build();
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package com.xkcoding.swagger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * 读写分离配置属性
+ * </p>
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "datasource.routing")
+public class ReadReplicaProperties {
+
+    /**
+     * 是否开启读写分离，关闭时所有语句都访问 spring.datasource 主库
+     */
+    private boolean enabled = false;
+
+    /**
+     * 只读副本
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * 写入后该时间内同一用户的读取仍访问主库（读己之写），覆盖副本的复制延迟
+     */
+    private Duration readYourWritesWindow = Duration.ofSeconds(2);
+
+    /**
+     * 副本健康检查间隔
+     */
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+    /**
+     * 连续失败多少次后摘除副本，摘除后由健康检查恢复
+     */
+    private int failureThreshold = 2;
+
+    /**
+     * 从副本连接池获取连接的超时时间，副本不可用时尽快改用其他副本或主库
+     */
+    private Duration connectionTimeout = Duration.ofSeconds(2);
+
+    @Data
+    public static class Replica {
+
+        /**
+         * 副本名称，用于日志和健康信息
+         */
+        private String name;
+
+        private String url;
+        private String username;
+        private String password;
+
+        /**
+         * 驱动类名，为空时沿用 spring.datasource.driver-class-name
+         */
+        private String driverClassName;
+
+        /**
+         * 权重，按权重随机分配读取
+         */
+        private int weight = 1;
+
+        /**
+         * 连接池最大连接数
+         */
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,51 @@
+package com.xkcoding.swagger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * <p>
+ * 用户搜索索引配置属性
+ * </p>
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "search.user-index")
+public class SearchProperties {
+
+    /**
+     * 是否开启内存索引，关闭时关键字查询使用 LIKE
+     */
+    private boolean enabled = true;
+
+    /**
+     * 全量重建间隔，用于同步其他节点或其他途径对 t_user 的修改
+     */
+    private Duration rebuildInterval = Duration.ofMinutes(1);
+
+    /**
+     * 分页查询只使用该时间内重建过的索引（重建失败或卡住时退回 LIKE），应大于 rebuild-interval
+     */
+    private Duration maxIndexAge = Duration.ofMinutes(3);
+
+    /**
+     * 分页查询中关键字匹配的用户数不超过该值时，用 id IN (...) 代替 LIKE
+     */
+    private int maxInListSize = 1000;
+
+    /**
+     * 姓名在相关度中的权重
+     */
+    private double nameWeight = 2.0;
+
+    /**
+     * 岗位在相关度中的权重
+     */
+    private double jobWeight = 1.0;
+}
@@ -126,7 +126,7 @@ public class SecurityConfig {
                 // 公共访问路径 - 不需要认证
                 .antMatchers("/auth/**").permitAll()
                 .antMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
-                .antMatchers("/actuator/health", "/actuator/info").permitAll()
+                .antMatchers("/actuator/health", "/actuator/health/liveness", "/actuator/health/readiness", "/actuator/info").permitAll()
                 .antMatchers("/error").permitAll()
                 
                 // 静态资源
@@ -138,6 +138,8 @@ public class SecurityConfig {
                 // 管理员权限
                 .antMatchers(HttpMethod.DELETE, "/user/**").hasRole("ADMIN")
                 .antMatchers(HttpMethod.DELETE, "/db/**").hasRole("ADMIN")
+                .antMatchers(HttpMethod.DELETE, "/actuator/tieredcaches/**").hasRole("ADMIN")
+                .antMatchers(HttpMethod.DELETE, "/actuator/jdbc").hasRole("ADMIN")
                 .antMatchers("/schedule/**").hasAnyRole("ADMIN", "USER")
                 
                 // 数据库写操作需要特定权限
@@ -0,0 +1,330 @@
+package com.xkcoding.swagger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * 二级缓存配置属性
+ * </p>
+ *
+ * 默认的TTL、key前缀、是否缓存空值沿用 spring.cache.redis 配置，
+ * 这里配置 L1、L2 存储类型、提前刷新参数，以及按缓存名称覆盖默认值的策略
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache")
+public class TieredCacheProperties {
+
+    /**
+     * 本地缓存（L1）配置
+     */
+    private Local local = new Local();
+
+    /**
+     * 远程缓存（L2）配置
+     */
+    private Remote remote = new Remote();
+
+    /**
+     * 缓存未命中时等待同一个key其他加载方结果的最长时间
+     */
+    private Duration loadWaitTimeout = Duration.ofSeconds(10);
+
+    /**
+     * 提前刷新配置
+     */
+    private Refresh refresh = new Refresh();
+
+    /**
+     * 按缓存名称配置的策略，未配置的项使用默认值
+     */
+    private Map<String, Policy> policies = new LinkedHashMap<>();
+
+    /**
+     * 多节点 L1 失效广播配置
+     */
+    private Invalidation invalidation = new Invalidation();
+
+    /**
+     * 启动预热配置
+     */
+    private Warmup warmup = new Warmup();
+
+    /**
+     * 堆外存储配置
+     */
+    private OffHeap offHeap = new OffHeap();
+
+    /**
+     * 热点key识别配置
+     */
+    private HotKeys hotKeys = new HotKeys();
+
+    /**
+     * 用户更新延迟写入配置
+     */
+    private WriteBehind writeBehind = new WriteBehind();
+
+    @Data
+    public static class Local {
+        /**
+         * 每个缓存的最大容量（字节，按序列化后大小计算）
+         */
+        private long maximumWeight = 64 * 1024 * 1024;
+
+        /**
+         * 本地缓存过期时间
+         */
+        private Duration timeToLive = Duration.ofSeconds(60);
+    }
+
+    @Data
+    public static class Remote {
+        /**
+         * L2 存储类型：redis / memory（进程内替身）
+         */
+        private String type = "redis";
+
+        /**
+         * L2 值编码：compact（紧凑二进制）/ jdk（JDK 序列化）
+         */
+        private String codec = "compact";
+    }
+
+    @Data
+    public static class Refresh {
+        /**
+         * 过期后仍允许返回旧值的最长时间（后台刷新期间），策略中未配置时使用
+         */
+        private Duration maxStale = Duration.ofSeconds(60);
+
+        /**
+         * 提前刷新系数（XFetch beta），越大越早刷新，策略中未配置时使用
+         */
+        private double beta = 1.0;
+
+        /**
+         * 刷新线程数
+         */
+        private int poolSize = 2;
+
+        /**
+         * 刷新任务队列容量，队列满时跳过刷新
+         */
+        private int queueCapacity = 100;
+    }
+
+    @Data
+    public static class Invalidation {
+        /**
+         * 是否通过 RabbitMQ 广播失效事件（多节点部署时开启，保证各节点 L1 一致）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 合并等待时间
+         */
+        private Duration batchWindow = Duration.ofMillis(20);
+
+        /**
+         * 每条消息最多包含的事件数
+         */
+        private int maxBatchSize = 500;
+
+        /**
+         * 同一缓存在一批中的事件数超过该值时改为清空该缓存的 L1
+         */
+        private int stormThreshold = 200;
+
+        /**
+         * 空闲时的心跳间隔，用于发现最后一条消息丢失
+         */
+        private Duration heartbeat = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Warmup {
+        /**
+         * 是否在启动时预热（预热完成或超时后应用才进入就绪状态）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 并发加载数
+         */
+        private int concurrency = 4;
+
+        /**
+         * 预热最长时间，超时后取消未完成的加载
+         */
+        private Duration timeout = Duration.ofSeconds(30);
+
+        /**
+         * 需要预热的key：缓存名 -> key列表
+         */
+        private Map<String, List<String>> keys = new LinkedHashMap<>();
+
+        /**
+         * 关闭时保存热点key的快照文件，为空时不使用快照
+         */
+        private String snapshotFile;
+
+        /**
+         * 快照中每个缓存最多保存的key数
+         */
+        private int snapshotMaxKeys = 100;
+    }
+
+    @Data
+    public static class WriteBehind {
+        /**
+         * 是否开启：开启后用户更新先写缓存和预写日志，合并后批量写入数据库
+         */
+        private boolean enabled = false;
+
+        /**
+         * 合并等待时间，同一用户在此期间的多次更新只写入一次
+         */
+        private Duration window = Duration.ofMillis(500);
+
+        /**
+         * 每批最多写入的条数，待写入数据达到该数量时立即写入
+         */
+        private int maxBatchSize = 200;
+
+        /**
+         * 预写日志目录，为空时不落盘（进程崩溃会丢失未写入的更新）
+         */
+        private String walDir;
+
+        /**
+         * 每次追加预写日志后是否 fsync（断电不丢数据，写入延迟更高）
+         */
+        private boolean fsync = false;
+    }
+
+    @Data
+    public static class HotKeys {
+        /**
+         * 是否识别热点key（只统计 L1 未命中的读取）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每个缓存的 Top-K 列表大小
+         */
+        private int topK = 20;
+
+        /**
+         * 频率估计值（0-15）不低于该值时视为热点
+         */
+        private int threshold = 8;
+
+        /**
+         * 热点key提升到 L1 后的过期时间
+         */
+        private Duration promotionTtl = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class OffHeap {
+        /**
+         * 是否开启堆外存储（开启后对策略中 off-heap 为 true 的缓存生效）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 直接内存预算（字节），所有缓存共用
+         */
+        private long capacity = 256 * 1024 * 1024;
+
+        /**
+         * 每次申请的直接内存大小（字节）
+         */
+        private int slabSize = 4 * 1024 * 1024;
+
+        /**
+         * 分配块大小（字节），值按块存放，最后一块的剩余空间浪费
+         */
+        private int blockSize = 4096;
+
+        /**
+         * 序列化后不小于该大小的条目放在堆外，较小的条目仍放 L1
+         */
+        private int minValueBytes = 8192;
+
+        /**
+         * 单个值的最大字节数，超过时不在本地缓存
+         */
+        private int maxValueBytes = 16 * 1024 * 1024;
+    }
+
+    @Data
+    public static class Policy {
+        /**
+         * 条目过期时间，默认 spring.cache.redis.time-to-live
+         */
+        private Duration timeToLive;
+
+        /**
+         * 空结果的过期时间，0 表示不缓存空结果；
+         * 默认 spring.cache.redis.cache-null-values 为 true 时与 time-to-live 相同，否则为 0
+         */
+        private Duration nullValueTimeToLive;
+
+        /**
+         * 过期时间随机抖动比例（0-1），默认 0
+         */
+        private Double ttlJitter;
+
+        /**
+         * L1 过期时间，默认 cache.local.time-to-live
+         */
+        private Duration localTimeToLive;
+
+        /**
+         * L1 最大容量（字节），默认 cache.local.maximum-weight
+         */
+        private Long localMaximumWeight;
+
+        /**
+         * L1 最大条目数，配置后代替 local-maximum-weight
+         */
+        private Long localMaximumSize;
+
+        /**
+         * 是否把较大的条目放在堆外，默认不放（需开启 cache.off-heap.enabled）
+         */
+        private Boolean offHeap;
+
+        /**
+         * L1 是否只保留热点key，默认不限制（需开启 cache.hot-keys.enabled）
+         */
+        private Boolean localHotOnly;
+
+        /**
+         * 是否开启提前刷新，默认不开启
+         */
+        private Boolean refresh;
+
+        /**
+         * 提前刷新时过期后仍允许返回旧值的最长时间，默认 cache.refresh.max-stale
+         */
+        private Duration maxStale;
+
+        /**
+         * 提前刷新系数，默认 cache.refresh.beta
+         */
+        private Double beta;
+    }
+}
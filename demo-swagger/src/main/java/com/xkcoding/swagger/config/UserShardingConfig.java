@@ -0,0 +1,118 @@
+package com.xkcoding.swagger.config;
+
+import com.xkcoding.swagger.jdbc.InstrumentedDataSource;
+import com.xkcoding.swagger.jdbc.JdbcInstrumentation;
+import com.xkcoding.swagger.jdbc.ReadWriteRoutingDataSource;
+import com.xkcoding.swagger.jdbc.ShardLayout;
+import com.xkcoding.swagger.jdbc.UserShards;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * <p>
+ * 用户表分片配置类
+ * </p>
+ *
+ * datasource.sharding.enabled=true 时按 datasource.sharding.shards 为每个分片建连接池（url 为空的分片使用主库），
+ * 开启 JDBC 监控时分片连接池同样经过监控包装，并行查询各分片的线程沿用调用线程的请求范围和只读标记。
+ * 用户名查找表 t_user_lookup 和角色权限表留在主库。
+ * 启动时把主库中已有的用户补登记到查找表，rebalance-on-startup=true 时再把用户移到各自的分片。
+ * 未开启时 {@link UserShards} 只有主库一个分片
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+@Configuration
+public class UserShardingConfig {
+
+    @Bean
+    public UserShards userShards(UserShardingProperties properties, JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate, DataSourceProperties dataSourceProperties,
+                                 ObjectProvider<JdbcInstrumentation> instrumentation,
+                                 JdbcInstrumentationProperties instrumentationProperties, Environment environment) {
+        if (!properties.isEnabled()) {
+            return UserShards.single(jdbcTemplate, transactionTemplate);
+        }
+        if (properties.getShards().isEmpty()) {
+            throw new IllegalStateException("已开启 datasource.sharding 但没有配置分片");
+        }
+
+        List<UserShards.Shard> shards = new ArrayList<>();
+        List<String> slotSpecs = new ArrayList<>();
+        List<AutoCloseable> pools = new ArrayList<>();
+        // 与主库一致，jdbc.instrumentation.enabled=false 时不包装
+        JdbcInstrumentation jdbcInstrumentation = instrumentationProperties.isEnabled() ? instrumentation.getIfAvailable() : null;
+        for (UserShardingProperties.Shard config : properties.getShards()) {
+            String name = StringUtils.hasText(config.getName()) ? config.getName() : "shard-" + shards.size();
+            slotSpecs.add(config.getSlots());
+            if (!StringUtils.hasText(config.getUrl())) {
+                shards.add(new UserShards.Shard(name, jdbcTemplate, transactionTemplate));
+                continue;
+            }
+            HikariDataSource pool = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .url(config.getUrl())
+                    .username(config.getUsername() != null ? config.getUsername() : dataSourceProperties.determineUsername())
+                    .password(config.getPassword() != null ? config.getPassword() : dataSourceProperties.determinePassword())
+                    .driverClassName(StringUtils.hasText(config.getDriverClassName())
+                            ? config.getDriverClassName() : dataSourceProperties.determineDriverClassName())
+                    .build();
+            pool.setPoolName(name);
+            pool.setMaximumPoolSize(config.getMaximumPoolSize());
+            pool.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+            // 分片不可用时不影响启动，访问该分片的请求失败
+            pool.setInitializationFailTimeout(-1);
+            pools.add(pool);
+            DataSource dataSource = jdbcInstrumentation != null ? new InstrumentedDataSource(pool, jdbcInstrumentation) : pool;
+            shards.add(new UserShards.Shard(name, new JdbcTemplate(dataSource),
+                    new TransactionTemplate(new DataSourceTransactionManager(dataSource))));
+        }
+        ShardLayout layout = new ShardLayout(properties.getSlots(), slotSpecs);
+
+        ThreadFactory threads;
+        if (environment.getProperty("threads.virtual.enabled", Boolean.class, true) && VirtualThreads.isSupported()) {
+            threads = VirtualThreads.factory("user-shard-");
+        } else {
+            CustomizableThreadFactory platform = new CustomizableThreadFactory("user-shard-");
+            platform.setDaemon(true);
+            threads = platform;
+        }
+        log.info("已开启用户表分片: {} 个分片, {} 个槽", shards.size(), properties.getSlots());
+        UserShards userShards = new UserShards(shards, layout, jdbcTemplate, Executors.newCachedThreadPool(threads),
+                properties.getQueryTimeout(), pools);
+        // 线程池中的查询沿用调用线程的请求范围（SQL 统计、N+1 检测）和只读标记（访问副本）
+        userShards.setTaskDecorator(jdbcInstrumentation == null ? ReadWriteRoutingDataSource::propagate
+                : task -> jdbcInstrumentation.propagate(ReadWriteRoutingDataSource.propagate(task)));
+        try {
+            // 开启分片前已有的用户必须先登记到查找表，否则无法登录，新分配的 id 还会与其重复并继承其角色
+            int seeded = userShards.syncLookup();
+            if (seeded > 0) {
+                log.info("已将 {} 个已有用户登记到 t_user_lookup", seeded);
+            }
+            if (properties.isRebalanceOnStartup()) {
+                log.info("用户迁移完成，共移动 {} 个用户", userShards.rebalance(properties.getRebalanceBatchSize()));
+            }
+        } catch (RuntimeException e) {
+            userShards.destroy();
+            throw e;
+        }
+        return userShards;
+    }
+}
@@ -0,0 +1,89 @@
+package com.xkcoding.swagger.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * 用户表分片配置属性
+ * </p>
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "datasource.sharding")
+public class UserShardingProperties {
+
+    /**
+     * 是否按 id 把 t_user 分布到多个数据库，关闭时全部访问 spring.datasource
+     */
+    private boolean enabled = false;
+
+    /**
+     * 逻辑槽数量：id 哈希后取模得到槽，槽再分配给分片。上线后不能修改，迁移数据时只调整各分片的 slots
+     */
+    private int slots = 1024;
+
+    /**
+     * 分片，顺序决定未指定 slots 时的平均分配
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * 跨分片查询时等待各分片结果的最长时间
+     */
+    private Duration queryTimeout = Duration.ofSeconds(5);
+
+    /**
+     * 从分片连接池获取连接的超时时间
+     */
+    private Duration connectionTimeout = Duration.ofSeconds(2);
+
+    /**
+     * 启动时把不属于所在分片的用户移到 id 对应的分片（首次开启分片、调整 slots 后），迁移完成后关闭
+     */
+    private boolean rebalanceOnStartup = false;
+
+    /**
+     * 迁移时每批移动的用户数
+     */
+    private int rebalanceBatchSize = 500;
+
+    @Data
+    public static class Shard {
+
+        /**
+         * 分片名称，用于日志和健康信息
+         */
+        private String name;
+
+        /**
+         * 为空时使用 spring.datasource 主库（与用户名查找表、角色权限表在同一个库）
+         */
+        private String url;
+        private String username;
+        private String password;
+
+        /**
+         * 驱动类名，为空时沿用 spring.datasource.driver-class-name
+         */
+        private String driverClassName;
+
+        /**
+         * 分配给该分片的槽，如 0-511,768-1023；所有分片都不指定时按顺序平均分配
+         */
+        private String slots;
+
+        /**
+         * 连接池最大连接数
+         */
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,99 @@
+package com.xkcoding.swagger.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.config.AbstractRabbitListenerContainerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.autoconfigure.quartz.QuartzProperties;
+import org.springframework.boot.autoconfigure.quartz.SchedulerFactoryBeanCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * <p>
+ * 虚拟线程配置类
+ * </p>
+ *
+ * 在 Java 21 及以上运行且 threads.virtual.enabled 不为 false 时，Tomcat 请求处理、Quartz 任务执行和 RabbitMQ 监听器
+ * 都改为每个任务一个虚拟线程，阻塞在 JDBC、Thread.sleep 和文件 I/O 上时不再占用固定大小的平台线程池。
+ * server.tomcat.threads.max、Quartz 的 threadCount 在此模式下不再限制并发，并发上限由 server.tomcat.max-connections
+ * 和数据库连接池决定。用 mvn -Pjava21 构建
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+@Configuration
+@Conditional(VirtualThreadConfig.OnVirtualThreadsCondition.class)
+public class VirtualThreadConfig {
+
+    private static final String QUARTZ_THREAD_POOL_PREFIX = "org.quartz.threadPool.";
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        log.info("Tomcat 请求处理使用虚拟线程");
+        return protocolHandler -> protocolHandler.setExecutor(executor("tomcat-vt-"));
+    }
+
+    /**
+     * 使用任务执行器时 Quartz 改用 LocalTaskExecutorThreadPool，去掉配置中的 SimpleThreadPool 相关属性
+     */
+    @Bean
+    public SchedulerFactoryBeanCustomizer virtualThreadSchedulerCustomizer(QuartzProperties quartzProperties) {
+        return schedulerFactoryBean -> {
+            Properties properties = new Properties();
+            for (Map.Entry<String, String> entry : quartzProperties.getProperties().entrySet()) {
+                if (!entry.getKey().startsWith(QUARTZ_THREAD_POOL_PREFIX)) {
+                    properties.setProperty(entry.getKey(), entry.getValue());
+                }
+            }
+            schedulerFactoryBean.setQuartzProperties(properties);
+            schedulerFactoryBean.setTaskExecutor(executor("quartz-vt-"));
+            log.info("Quartz 任务执行使用虚拟线程");
+        };
+    }
+
+    /**
+     * 监听器容器的消费者线程由容器工厂的任务执行器创建
+     */
+    @Bean
+    public static BeanPostProcessor virtualThreadRabbitListenerPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractRabbitListenerContainerFactory) {
+                    ((AbstractRabbitListenerContainerFactory<?>) bean).setTaskExecutor(executor("rabbit-vt-"));
+                    log.info("RabbitMQ 监听器 {} 使用虚拟线程", beanName);
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static SimpleAsyncTaskExecutor executor(String prefix) {
+        return new SimpleAsyncTaskExecutor(VirtualThreads.factory(prefix));
+    }
+
+    static class OnVirtualThreadsCondition extends SpringBootCondition {
+
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            if (!context.getEnvironment().getProperty("threads.virtual.enabled", Boolean.class, true)) {
+                return ConditionOutcome.noMatch("threads.virtual.enabled=false");
+            }
+            if (!VirtualThreads.isSupported()) {
+                return ConditionOutcome.noMatch("Java " + System.getProperty("java.version") + " 不支持虚拟线程");
+            }
+            return ConditionOutcome.match("Java " + System.getProperty("java.version") + " 支持虚拟线程");
+        }
+    }
+}
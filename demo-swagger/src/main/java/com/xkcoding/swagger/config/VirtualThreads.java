@@ -0,0 +1,56 @@
+package com.xkcoding.swagger.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * <p>
+ * 虚拟线程工具类
+ * </p>
+ *
+ * 项目按 Java 8 编译，通过反射调用 Java 21 的 Thread.ofVirtual()，在低版本 JDK 上运行时 {@link #isSupported()} 返回 false
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = findOfVirtual();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前 JDK 是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * 创建虚拟线程的线程工厂，线程名为 prefix 加递增序号
+     *
+     * @throws IllegalStateException 当前 JDK 不支持虚拟线程
+     */
+    public static ThreadFactory factory(String prefix) {
+        if (OF_VIRTUAL == null) {
+            throw new IllegalStateException("当前 JDK 不支持虚拟线程: " + System.getProperty("java.version"));
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderType = OF_VIRTUAL.getReturnType();
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("创建虚拟线程工厂失败", e);
+        }
+    }
+
+    private static Method findOfVirtual() {
+        try {
+            return Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
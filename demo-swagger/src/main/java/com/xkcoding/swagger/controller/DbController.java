@@ -1,38 +1,118 @@
 package com.xkcoding.swagger.controller;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.xkcoding.swagger.annotation.ReadFromReplica;
 import com.xkcoding.swagger.annotation.RequirePermission;
 import com.xkcoding.swagger.common.ApiResponse;
+import com.xkcoding.swagger.common.BulkResult;
+import com.xkcoding.swagger.common.PageCursor;
 import com.xkcoding.swagger.common.PageResponse;
+import com.xkcoding.swagger.config.PageCursorUtil;
 import com.xkcoding.swagger.entity.User;
+import com.xkcoding.swagger.jdbc.UserShards;
+import com.xkcoding.swagger.service.UserBulkService;
+import com.xkcoding.swagger.service.UserSearchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
 
 /**
  * <p>
  * MySQL 数据库连接与操作示例
  * </p>
  *
+ * t_user 的读写经过 {@link UserShards}：按 id 的操作只访问所在分片，列表、分页和统计在各分片上并行执行后归并；
+ * 未开启分片时只有主库一个分片，与直接访问相同
+ *
  * @author demo
  * @date Created in 2024-12-19
  */
+@Slf4j
 @RestController
 @RequestMapping("/db")
 @Tag(name = "数据库操作", description = "MySQL 数据库操作示例")
 public class DbController {
     private final JdbcTemplate jdbcTemplate;
+    private final UserShards userShards;
+    private final PageCursorUtil pageCursorUtil;
+    private final CacheManager cacheManager;
+    private final UserSearchService userSearchService;
+    private final UserBulkService userBulkService;
+
+    /**
+     * 分页总数缓存，按规范化后的关键字缓存 COUNT(*) 结果
+     */
+    private static final String COUNT_CACHE = "countCache";
+
+    private static final String EXPORT_SQL = "SELECT id, name, job FROM t_user ORDER BY id";
+
+    /**
+     * 导出时每写出多少行刷新一次响应，客户端尽早收到数据，断开连接也能尽早发现
+     */
+    private static final int EXPORT_FLUSH_ROWS = 1000;
+
+    private static final int EXPORT_BUFFER_SIZE = 16 * 1024;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson;charset=UTF-8");
+
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
 
-    public DbController(JdbcTemplate jdbcTemplate) {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private static final RowMapper<User> USER_ROW_MAPPER = (rs, rowNum) -> {
+        User user = new User();
+        user.setId(rs.getInt("id"));
+        user.setName(rs.getString("name"));
+        user.setJob(rs.getString("job"));
+        return user;
+    };
+
+    public DbController(JdbcTemplate jdbcTemplate, UserShards userShards, PageCursorUtil pageCursorUtil,
+                        CacheManager cacheManager, UserSearchService userSearchService, UserBulkService userBulkService) {
         this.jdbcTemplate = jdbcTemplate;
+        this.userShards = userShards;
+        this.pageCursorUtil = pageCursorUtil;
+        this.cacheManager = cacheManager;
+        this.userSearchService = userSearchService;
+        this.userBulkService = userBulkService;
     }
 
     @GetMapping("/ping")
@@ -41,6 +121,9 @@ public class DbController {
     public ApiResponse<String> ping() {
         try {
             Integer one = jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            if (userShards.isSharded()) {
+                userShards.scatter(userShards.getShards(), shard -> shard.getJdbcTemplate().queryForObject("SELECT 1", Integer.class));
+            }
             String result = (one != null && one == 1) ? "数据库连接正常" : "数据库连接异常";
             return ApiResponse.<String>builder().code(200).message("操作成功").data(result).build();
         } catch (Exception e) {
@@ -49,42 +132,69 @@ public class DbController {
     }
 
     @GetMapping("/users")
+    @ReadFromReplica
     @RequirePermission("db:read")
     @Operation(summary = "查询用户列表", description = "获取所有用户信息")
     public ApiResponse<List<User>> listUsers() {
         try {
-            List<User> users = jdbcTemplate.query(
-                    "SELECT id, name, job FROM t_user ORDER BY id DESC",
-                    (rs, rowNum) -> {
-                        User user = new User();
-                        user.setId(rs.getInt("id"));
-                        user.setName(rs.getString("name"));
-                        user.setJob(rs.getString("job"));
-                        return user;
-                    }
-            );
+            List<User> users = userShards.query(userShards.getShards(), "SELECT id, name, job FROM t_user ORDER BY id DESC",
+                    USER_ROW_MAPPER, new Object[0], userOrder("id", false), 0, Integer.MAX_VALUE);
             return ApiResponse.<List<User>>builder().code(200).message("查询成功").data(users).build();
         } catch (Exception e) {
             return ApiResponse.<List<User>>builder().code(500).message("查询失败: " + e.getMessage()).data(null).build();
         }
     }
 
+    @GetMapping("/users/export/ndjson")
+    @RequirePermission("db:read")
+    @Operation(summary = "导出用户（NDJSON）", description = "流式导出全部用户，每行一个 JSON 对象。" +
+            "边查询边输出，内存占用与用户数无关；客户端断开后停止查询。分片时逐个分片导出，只在分片内按 id 排序")
+    public ResponseEntity<StreamingResponseBody> exportUsersNdjson() {
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+            JsonGenerator json = JSON_FACTORY.createGenerator(writer);
+            json.setRootValueSeparator(null);
+            exportUsers("ndjson", json, rs -> {
+                json.writeStartObject();
+                json.writeNumberField("id", rs.getInt(1));
+                json.writeStringField("name", rs.getString(2));
+                json.writeStringField("job", rs.getString(3));
+                json.writeEndObject();
+                json.writeRaw('\n');
+            });
+        };
+        return exportResponse(NDJSON, "users.ndjson", body);
+    }
+
+    @GetMapping("/users/export/csv")
+    @RequirePermission("db:read")
+    @Operation(summary = "导出用户（CSV）", description = "流式导出全部用户为 CSV（UTF-8 带 BOM，Excel 可直接打开）。" +
+            "边查询边输出，内存占用与用户数无关；客户端断开后停止查询。分片时逐个分片导出，只在分片内按 id 排序")
+    public ResponseEntity<StreamingResponseBody> exportUsersCsv() {
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+            writer.write('\uFEFF');
+            writer.write("id,name,job\r\n");
+            exportUsers("csv", writer, rs -> {
+                writer.write(Integer.toString(rs.getInt(1)));
+                writer.write(',');
+                writer.write(csvField(rs.getString(2)));
+                writer.write(',');
+                writer.write(csvField(rs.getString(3)));
+                writer.write("\r\n");
+            });
+        };
+        return exportResponse(CSV, "users.csv", body);
+    }
+
     @GetMapping("/users/{id}")
+    @ReadFromReplica
     @RequirePermission("db:read")
     @Operation(summary = "根据ID查询用户", description = "根据用户ID查询单个用户信息")
     public ApiResponse<User> getUserById(@Parameter(description = "用户ID", example = "1") @PathVariable Integer id) {
         try {
-            User user = jdbcTemplate.queryForObject(
-                    "SELECT id, name, job FROM t_user WHERE id = ?",
-                    (rs, rowNum) -> {
-                        User u = new User();
-                        u.setId(rs.getInt("id"));
-                        u.setName(rs.getString("name"));
-                        u.setJob(rs.getString("job"));
-                        return u;
-                    },
-                    id
-            );
+            User user = userShards.forId(id).getJdbcTemplate().queryForObject(
+                    "SELECT id, name, job FROM t_user WHERE id = ?", USER_ROW_MAPPER, id);
             return ApiResponse.<User>builder().code(200).message("查询成功").data(user).build();
         } catch (Exception e) {
             return ApiResponse.<User>builder().code(404).message("用户不存在: " + e.getMessage()).data(null).build();
@@ -97,17 +207,32 @@ public class DbController {
     @Operation(summary = "新增用户", description = "添加新用户到数据库")
     public ApiResponse<User> addUser(@RequestBody User user) {
         try {
-            final String sql = "INSERT INTO t_user(name, job) VALUES(?, ?)";
-            KeyHolder keyHolder = new GeneratedKeyHolder();
-            jdbcTemplate.update(con -> {
-                PreparedStatement ps = con.prepareStatement(sql, new String[]{"id"});
-                ps.setString(1, user.getName());
-                ps.setString(2, user.getJob());
-                return ps;
-            }, keyHolder);
-
-            Number id = keyHolder.getKey();
-            user.setId(id == null ? null : id.intValue());
+            if (userShards.isSharded()) {
+                // 分片时 id 由查找表分配，写入分片失败时释放
+                int id = userShards.allocateId(null);
+                try {
+                    userShards.forId(id).getJdbcTemplate().update("INSERT INTO t_user(id, name, job) VALUES(?, ?, ?)",
+                            id, user.getName(), user.getJob());
+                } catch (RuntimeException e) {
+                    userShards.releaseIds(Collections.singletonList(id));
+                    throw e;
+                }
+                user.setId(id);
+            } else {
+                final String sql = "INSERT INTO t_user(name, job) VALUES(?, ?)";
+                KeyHolder keyHolder = new GeneratedKeyHolder();
+                jdbcTemplate.update(con -> {
+                    PreparedStatement ps = con.prepareStatement(sql, new String[]{"id"});
+                    ps.setString(1, user.getName());
+                    ps.setString(2, user.getJob());
+                    return ps;
+                }, keyHolder);
+
+                Number id = keyHolder.getKey();
+                user.setId(id == null ? null : id.intValue());
+            }
+            evictUserCounts();
+            userSearchService.onSaved(user.getId(), user.getName(), user.getJob());
             return ApiResponse.<User>builder().code(200).message("新增成功").data(user).build();
         } catch (Exception e) {
             return ApiResponse.<User>builder().code(500).message("新增失败: " + e.getMessage()).data(null).build();
@@ -118,12 +243,15 @@ public class DbController {
     @Operation(summary = "更新用户", description = "根据ID更新用户信息")
     public ApiResponse<User> updateUser(@Parameter(description = "用户ID", example = "1") @PathVariable Integer id, @RequestBody User user) {
         try {
-            int affected = jdbcTemplate.update(
+            int affected = userShards.forId(id).getJdbcTemplate().update(
                     "UPDATE t_user SET name = ?, job = ? WHERE id = ?",
                     user.getName(), user.getJob(), id
             );
 
             if (affected > 0) {
+                // name/job 变化会影响按关键字统计的总数
+                evictUserCounts();
+                userSearchService.onSaved(id, user.getName(), user.getJob());
                 user.setId(id);
                 return ApiResponse.<User>builder().code(200).message("更新成功").data(user).build();
             } else {
@@ -138,9 +266,14 @@ public class DbController {
     @Operation(summary = "删除用户", description = "根据ID删除用户")
     public ApiResponse<String> deleteUser(@Parameter(description = "用户ID", example = "1") @PathVariable Integer id) {
         try {
-            int affected = jdbcTemplate.update("DELETE FROM t_user WHERE id = ?", id);
+            int affected = userShards.forId(id).getJdbcTemplate().update("DELETE FROM t_user WHERE id = ?", id);
 
             if (affected > 0) {
+                if (userShards.isSharded()) {
+                    userShards.releaseIds(Collections.singletonList(id));
+                }
+                evictUserCounts();
+                userSearchService.onDeleted(id);
                 return ApiResponse.<String>builder().code(200).message("删除成功").data("用户ID: " + id).build();
             } else {
                 return ApiResponse.<String>builder().code(404).message("用户不存在").data(null).build();
@@ -150,32 +283,86 @@ public class DbController {
         }
     }
 
+    @PostMapping("/users/batch")
+    @RequirePermission("db:write")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    @Operation(summary = "批量新增用户", description = "分块在事务中批量插入，返回每一条的结果和生成的ID；" +
+            "某一块失败时逐条重试，只有出错的条目失败")
+    public ApiResponse<BulkResult> batchAddUsers(@RequestBody List<User> users) {
+        return bulk(users.size(), () -> userBulkService.insert(users), "新增");
+    }
+
+    @PostMapping("/users/batch/upsert")
+    @RequirePermission("db:write")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    @Operation(summary = "批量新增或覆盖用户", description = "按ID写入：ID不存在时新增，存在时覆盖姓名和岗位")
+    public ApiResponse<BulkResult> batchUpsertUsers(@RequestBody List<User> users) {
+        return bulk(users.size(), () -> userBulkService.upsert(users), "写入");
+    }
+
+    @PutMapping("/users/batch")
+    @RequirePermission("db:write")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('USER')")
+    @Operation(summary = "批量更新用户", description = "按ID更新姓名和岗位，不存在的ID返回 not_found")
+    public ApiResponse<BulkResult> batchUpdateUsers(@RequestBody List<User> users) {
+        return bulk(users.size(), () -> userBulkService.update(users), "更新");
+    }
+
+    @PostMapping("/users/batch/delete")
+    @RequirePermission("db:write")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "批量删除用户", description = "按ID删除，不存在的ID返回 not_found")
+    public ApiResponse<BulkResult> batchDeleteUsers(@RequestBody List<Integer> ids) {
+        return bulk(ids.size(), () -> userBulkService.delete(ids), "删除");
+    }
+
     @GetMapping("/count")
+    @ReadFromReplica
     @Operation(summary = "统计用户数量", description = "获取用户总数")
     public ApiResponse<Integer> countUsers() {
         try {
-            Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_user", Integer.class);
-            return ApiResponse.<Integer>builder().code(200).message("统计成功").data(count).build();
+            long count = userShards.sum(userShards.getShards(), "SELECT COUNT(*) FROM t_user");
+            return ApiResponse.<Integer>builder().code(200).message("统计成功").data((int) count).build();
         } catch (Exception e) {
             return ApiResponse.<Integer>builder().code(500).message("统计失败: " + e.getMessage()).data(null).build();
         }
     }
 
     @GetMapping("/users/page")
-    @Operation(summary = "分页查询用户", description = "支持分页、排序和关键字搜索的用户查询")
+    @ReadFromReplica
+    @Operation(summary = "分页查询用户", description = "支持分页、排序和关键字搜索的用户查询。" +
+            "传入上一页返回的 nextCursor 时从上一页最后一行之后读取（keyset 分页，深翻页不扫描前面的行），" +
+            "此时页码、关键字和排序沿用游标中的值。" +
+            "是否有下一页通过多读取一行判断，总数按 count 参数统计，翻页时传 none 可以省去统计。" +
+            "分片时各分片并行查询后按排序字段归并，页码分页每个分片要读取前面所有页，深翻页应使用游标")
     public ApiResponse<PageResponse<User>> getUsersWithPage(
             @Parameter(description = "页码（从1开始）", example = "1") @RequestParam(defaultValue = "1") Integer page,
             @Parameter(description = "每页大小", example = "10") @RequestParam(defaultValue = "10") Integer size,
             @Parameter(description = "搜索关键字（用户名或岗位）") @RequestParam(required = false) String keyword,
             @Parameter(description = "排序字段（id/name/job）", example = "id") @RequestParam(defaultValue = "id") String sortBy,
-            @Parameter(description = "排序方向（asc/desc）", example = "desc") @RequestParam(defaultValue = "desc") String sortDir) {
+            @Parameter(description = "排序方向（asc/desc）", example = "desc") @RequestParam(defaultValue = "desc") String sortDir,
+            @Parameter(description = "分页游标（上一页返回的 nextCursor）") @RequestParam(required = false) String cursor,
+            @Parameter(description = "总数统计方式（exact：精确，短时间缓存；approx：无关键字时取表统计信息的估计值；none：不统计）", example = "exact")
+            @RequestParam(defaultValue = "exact") String count) {
 
         try {
             // 参数校验
-            if (page < 1) page = 1;
             if (size < 1) size = 10;
             if (size > 100) size = 100; // 限制最大页面大小
 
+            PageCursor pageCursor = null;
+            if (StringUtils.hasText(cursor)) {
+                pageCursor = pageCursorUtil.decode(cursor);
+                if (pageCursor == null) {
+                    return ApiResponse.<PageResponse<User>>builder().code(400).message("无效的分页游标").data(null).build();
+                }
+                page = pageCursor.getPage();
+                keyword = pageCursor.getKeyword();
+                sortBy = pageCursor.getSortBy();
+                sortDir = pageCursor.getSortDir();
+            }
+            if (page < 1) page = 1;
+
             // 校验排序字段
             if (!"id".equals(sortBy) && !"name".equals(sortBy) && !"job".equals(sortBy)) {
                 sortBy = "id";
@@ -186,56 +373,103 @@ public class DbController {
                 sortDir = "desc";
             }
 
+            // 校验总数统计方式
+            if (!"approx".equals(count) && !"none".equals(count)) {
+                count = "exact";
+            }
+
             // 构建查询条件
+            String filter = keyword == null || keyword.trim().isEmpty() ? null : keyword.trim();
             StringBuilder whereClause = new StringBuilder();
-            Object[] params = new Object[0];
+            List<Object> params = new ArrayList<>();
 
-            if (keyword != null && !keyword.trim().isEmpty()) {
-                whereClause.append(" WHERE (name LIKE ? OR job LIKE ?)");
-                String likeKeyword = "%" + keyword.trim() + "%";
-                params = new Object[]{likeKeyword, likeKeyword};
+            Long matchedCount = null;
+            Collection<UserShards.Shard> targets = userShards.getShards();
+            if (filter != null) {
+                // LIKE '%kw%' 用不上索引，匹配的用户越少越接近全表扫描；搜索索引就绪且匹配数不多时改为按主键查询，
+                // 匹配很多时 LIKE 很快就能凑满一页，仍用 LIKE。索引可能还没包含其他节点或直接写库新增的用户，
+                // 索引没有匹配时也用 LIKE 确认，不直接返回空页
+                List<Integer> matchedIds = userSearchService.matchIds(filter);
+                if (matchedIds != null && !matchedIds.isEmpty()) {
+                    whereClause.append(" WHERE id IN (")
+                            .append(String.join(", ", Collections.nCopies(matchedIds.size(), "?"))).append(")");
+                    params.addAll(matchedIds);
+                    matchedCount = (long) matchedIds.size();
+                    // 只查询有匹配用户的分片
+                    targets = userShards.group(matchedIds, matched -> matched).keySet();
+                } else {
+                    whereClause.append(" WHERE (name LIKE ? OR job LIKE ?)");
+                    String likeKeyword = "%" + filter + "%";
+                    params.add(likeKeyword);
+                    params.add(likeKeyword);
+                }
             }
 
-            // 查询总数
-            String countSql = "SELECT COUNT(*) FROM t_user" + whereClause.toString();
-            Long totalCount = jdbcTemplate.queryForObject(countSql, Long.class, params);
+            String countWhere = whereClause.toString();
+            List<Object> countParams = new ArrayList<>(params);
 
-            if (totalCount == 0) {
-                PageResponse<User> pageResponse = PageResponse.build(page, size, 0L, new ArrayList<>());
-                return ApiResponse.<PageResponse<User>>builder().code(200).message("查询成功").data(pageResponse).build();
+            // 排序字段相同时按 id 排序，保证顺序确定，游标才能准确定位
+            boolean asc = "asc".equals(sortDir);
+            String direction = asc ? "ASC" : "DESC";
+            String orderBy = "id".equals(sortBy) ? "id " + direction : sortBy + " " + direction + ", id " + direction;
+
+            String dataSql;
+            int skip = 0;
+            if (pageCursor != null) {
+                // 游标分页：从上一页最后一行之后读取，走 (排序字段, id) 索引
+                whereClause.append(whereClause.length() == 0 ? " WHERE " : " AND ")
+                        .append(keysetCondition(sortBy, asc, pageCursor, params));
+                dataSql = "SELECT id, name, job FROM t_user" + whereClause + " ORDER BY " + orderBy + " LIMIT ?";
+                params.add(size + 1);
+            } else if (targets.size() == 1) {
+                // 页码分页：跳过前面 (page - 1) * size 行
+                dataSql = "SELECT id, name, job FROM t_user" + whereClause + " ORDER BY " + orderBy + " LIMIT ? OFFSET ?";
+                params.add(size + 1);
+                params.add((page - 1) * size);
+            } else {
+                // 多个分片的页码分页：不知道前面的行在哪些分片，每个分片都读到本页末尾，归并后再跳过
+                dataSql = "SELECT id, name, job FROM t_user" + whereClause + " ORDER BY " + orderBy + " LIMIT ?";
+                skip = (page - 1) * size;
+                params.add(skip + size + 1);
             }
-            // 分页查询数据
-            String dataSql = String.format(
-                    "SELECT id, name, job FROM t_user%s ORDER BY %s %s LIMIT ? OFFSET ?",
-                    whereClause.toString(), sortBy, sortDir.toUpperCase()
-            );
 
-            // 计算偏移量
-            int offset = (page - 1) * size;
+            List<User> users = userShards.query(targets, dataSql, USER_ROW_MAPPER, params.toArray(),
+                    userOrder(sortBy, asc), skip, size + 1);
 
-            // 组装参数
-            Object[] dataParams;
-            if (params.length > 0) {
-                dataParams = new Object[params.length + 2];
-                System.arraycopy(params, 0, dataParams, 0, params.length);
-                dataParams[params.length] = size;
-                dataParams[params.length + 1] = offset;
-            } else {
-                dataParams = new Object[]{size, offset};
+            // 多取的一行只用来判断是否还有下一页
+            boolean hasNext = users.size() > size;
+            if (hasNext) {
+                users = new ArrayList<>(users.subList(0, size));
             }
 
-            List<User> users = jdbcTemplate.query(dataSql,
-                    (rs, rowNum) -> {
-                        User user = new User();
-                        user.setId(rs.getInt("id"));
-                        user.setName(rs.getString("name"));
-                        user.setJob(rs.getString("job"));
-                        return user;
-                    },
-                    dataParams);
+            // 最后一页时总数就是已读取的行数，不需要再统计
+            long seen = (long) (page - 1) * size + users.size();
+            Long totalCount = null;
+            boolean approximate = false;
+            if (!hasNext && (!users.isEmpty() || page == 1)) {
+                totalCount = "none".equals(count) ? null : seen;
+            } else if ("approx".equals(count) && filter == null) {
+                totalCount = approximateUserCount();
+                approximate = totalCount != null;
+                if (totalCount != null) {
+                    totalCount = Math.max(totalCount, hasNext ? seen + 1 : seen);
+                }
+            }
+            if (totalCount == null && !"none".equals(count)) {
+                totalCount = matchedCount != null ? matchedCount : exactUserCount(filter, countWhere, countParams, targets);
+            }
 
-            // 构建分页响应
-            PageResponse<User> pageResponse = PageResponse.build(page, size, totalCount, users);
+            // 构建分页响应，还有下一页时附带下一页的游标
+            PageResponse<User> pageResponse = PageResponse.build(page, size, totalCount, users, hasNext);
+            if (approximate) {
+                pageResponse.setApproximateCount(true);
+            }
+            if (hasNext) {
+                User last = users.get(users.size() - 1);
+                String lastValue = "name".equals(sortBy) ? last.getName() : "job".equals(sortBy) ? last.getJob() : null;
+                pageResponse.setNextCursor(pageCursorUtil.encode(
+                        new PageCursor(sortBy, sortDir, filter, page + 1, lastValue, last.getId())));
+            }
 
             return ApiResponse.<PageResponse<User>>builder().code(200).message("查询成功").data(pageResponse).build();
 
@@ -243,4 +477,219 @@ public class DbController {
             return ApiResponse.<PageResponse<User>>builder().code(500).message("查询失败: " + e.getMessage()).data(null).build();
         }
     }
+
+    @GetMapping("/users/search")
+    @ReadFromReplica
+    @RequirePermission("db:read")
+    @Operation(summary = "搜索用户", description = "按姓名和岗位全文搜索（中文按相邻两字切分），结果按相关度排序：" +
+            "姓名权重高于岗位，完全相等、前缀命中优先于包含；多个词用空格分隔，可以只命中部分词")
+    public ApiResponse<List<User>> searchUsers(
+            @Parameter(description = "搜索内容", example = "张 开发") @RequestParam String q,
+            @Parameter(description = "最多返回条数", example = "20") @RequestParam(defaultValue = "20") Integer limit) {
+        List<User> users = userSearchService.search(q, Math.max(1, Math.min(limit, 100)));
+        if (users == null) {
+            return ApiResponse.<List<User>>builder().code(503).message("搜索索引尚未就绪，请稍后重试").data(null).build();
+        }
+        return ApiResponse.<List<User>>builder().code(200).message("查询成功").data(users).build();
+    }
+
+    @GetMapping("/users/suggest")
+    @ReadFromReplica
+    @RequirePermission("db:read")
+    @Operation(summary = "搜索补全", description = "返回以输入内容开头的姓名和岗位，按用户数从多到少排序")
+    public ApiResponse<List<String>> suggestUsers(
+            @Parameter(description = "已输入的前缀", example = "张") @RequestParam String prefix,
+            @Parameter(description = "最多返回条数", example = "10") @RequestParam(defaultValue = "10") Integer limit) {
+        List<String> suggestions = userSearchService.suggest(prefix, Math.max(1, Math.min(limit, 50)));
+        return ApiResponse.<List<String>>builder().code(200).message("查询成功").data(suggestions).build();
+    }
+
+    @PostMapping("/users/search/rebuild")
+    @RequirePermission("db:write")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "重建搜索索引", description = "从 t_user 全量重建用户搜索索引，重建期间继续使用旧索引")
+    public ApiResponse<String> rebuildSearchIndex() {
+        if (userSearchService.rebuild()) {
+            return ApiResponse.<String>builder().code(200).message("重建成功").data(null).build();
+        }
+        return ApiResponse.<String>builder().code(500).message("重建失败或已有重建在进行，详见日志").data(null).build();
+    }
+
+    private ApiResponse<BulkResult> bulk(int size, Supplier<BulkResult> operation, String action) {
+        if (size > userBulkService.getMaxItems()) {
+            return ApiResponse.<BulkResult>builder().code(400)
+                    .message("单次最多" + userBulkService.getMaxItems() + "条").data(null).build();
+        }
+        try {
+            BulkResult result = operation.get();
+            evictUserCounts();
+            return ApiResponse.<BulkResult>builder().code(200)
+                    .message("批量" + action + "完成: 成功 " + result.getSucceeded() + " 条, 失败 " + result.getFailed() + " 条")
+                    .data(result).build();
+        } catch (Exception e) {
+            return ApiResponse.<BulkResult>builder().code(500).message("批量" + action + "失败: " + e.getMessage()).data(null).build();
+        }
+    }
+
+    private static ResponseEntity<StreamingResponseBody> exportResponse(MediaType type, String fileName,
+                                                                        StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(type)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(body);
+    }
+
+    /**
+     * 流式查询 t_user 并逐行写出：只读、只能向前的结果集，驱动按 {@link #streamingFetchSize} 分批（MySQL 为逐行）
+     * 从服务端读取，不会把整张表读入内存。写出失败（客户端断开）时先取消查询再关闭结果集，
+     * MySQL 驱动关闭未读完的流式结果集时会读完剩余的行
+     */
+    private void exportUsers(String format, Flushable out, RowWriter rowWriter) throws IOException {
+        long start = System.currentTimeMillis();
+        long[] rows = {0};
+        PreparedStatementCreator creator = con -> {
+            PreparedStatement ps = con.prepareStatement(EXPORT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(streamingFetchSize(con));
+            return ps;
+        };
+        PreparedStatementCallback<Void> callback = ps -> {
+            ResultSet rs = ps.executeQuery();
+            try {
+                while (rs.next()) {
+                    rowWriter.write(rs);
+                    if (++rows[0] % EXPORT_FLUSH_ROWS == 0) {
+                        out.flush();
+                    }
+                }
+                out.flush();
+            } catch (IOException e) {
+                try {
+                    ps.cancel();
+                } catch (SQLException cancelFailure) {
+                    log.debug("取消导出查询失败: {}", cancelFailure.getMessage());
+                }
+                throw new UncheckedIOException(e);
+            } finally {
+                JdbcUtils.closeResultSet(rs);
+            }
+            return null;
+        };
+        try {
+            for (UserShards.Shard shard : userShards.getShards()) {
+                shard.getJdbcTemplate().execute(creator, callback);
+            }
+            log.info("导出用户完成: format={}, rows={}, 耗时 {}ms", format, rows[0], System.currentTimeMillis() - start);
+        } catch (UncheckedIOException e) {
+            log.warn("导出用户中断（客户端已断开）: format={}, 已写出 {} 行", format, rows[0]);
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * MySQL 驱动只有 fetchSize 为 Integer.MIN_VALUE 时才逐行流式读取，否则默认一次读完整个结果集；
+     * 其他驱动按正常的 fetchSize 分批读取
+     */
+    private static int streamingFetchSize(Connection con) throws SQLException {
+        return "MySQL".equalsIgnoreCase(con.getMetaData().getDatabaseProductName()) ? Integer.MIN_VALUE : EXPORT_FLUSH_ROWS;
+    }
+
+    /**
+     * CSV 字段：包含逗号、引号、换行时加引号并转义引号；以 = + - @ 开头时加单引号前缀，避免被表格软件当作公式执行
+     */
+    static String csvField(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        char first = value.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@') {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    /**
+     * 导出时写出一行
+     */
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+    /**
+     * 精确总数：按规范化后的关键字（去空格、转小写，与 LIKE 的大小写不敏感一致）缓存，
+     * 缓存过期前连续翻页只统计一次；本类中的新增、修改、删除会清空缓存，其他途径的修改等缓存过期
+     */
+    private Long exactUserCount(String filter, String where, List<Object> params, Collection<UserShards.Shard> targets) {
+        String sql = "SELECT COUNT(*) FROM t_user" + where;
+        Cache cache = cacheManager.getCache(COUNT_CACHE);
+        if (cache == null) {
+            return userShards.sum(targets, sql, params.toArray());
+        }
+        String key = "t_user:" + (filter == null ? "" : filter.toLowerCase(Locale.ROOT));
+        return cache.get(key, () -> userShards.sum(targets, sql, params.toArray()));
+    }
+
+    /**
+     * 估计总数：取各分片表统计信息中的行数之和（InnoDB 下为抽样估计值），不扫描表；取不到时返回 null
+     */
+    private Long approximateUserCount() {
+        try {
+            return userShards.sum(userShards.getShards(), "SELECT TABLE_ROWS FROM information_schema.TABLES " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 't_user'");
+        } catch (Exception e) {
+            log.warn("读取 t_user 表统计信息失败，改为精确统计: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void evictUserCounts() {
+        Cache cache = cacheManager.getCache(COUNT_CACHE);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * 与 SQL 排序一致的比较器，用于归并各分片的有序结果：排序字段相同时按 id，
+     * job 为空时升序排最前、降序排最后（与 MySQL 一致）。字符串按忽略大小写比较，对应 MySQL 的 _ci 排序规则
+     */
+    static Comparator<User> userOrder(String sortBy, boolean asc) {
+        Comparator<User> byId = Comparator.comparing(User::getId);
+        Comparator<User> order;
+        if ("name".equals(sortBy)) {
+            order = Comparator.comparing(User::getName, String.CASE_INSENSITIVE_ORDER).thenComparing(byId);
+        } else if ("job".equals(sortBy)) {
+            order = Comparator.comparing(User::getJob, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)).thenComparing(byId);
+        } else {
+            order = byId;
+        }
+        return asc ? order : order.reversed();
+    }
+
+    /**
+     * 游标位置之后的条件：(排序字段, id) 大于（升序）或小于（降序）上一页最后一行。
+     * job 可以为空，MySQL 中空值在升序时排最前、降序时排最后，需要单独处理
+     */
+    private static String keysetCondition(String sortBy, boolean asc, PageCursor cursor, List<Object> params) {
+        String op = asc ? ">" : "<";
+        if ("id".equals(sortBy)) {
+            params.add(cursor.getLastId());
+            return "id " + op + " ?";
+        }
+        if (cursor.getLastValue() == null) {
+            params.add(cursor.getLastId());
+            return asc ? "((" + sortBy + " IS NULL AND id > ?) OR " + sortBy + " IS NOT NULL)"
+                    : "(" + sortBy + " IS NULL AND id < ?)";
+        }
+        // 冗余的 sortBy >= ? 让优化器能直接在 (sortBy, id) 索引上做范围扫描，行值比较本身不一定能走索引
+        params.add(cursor.getLastValue());
+        params.add(cursor.getLastValue());
+        params.add(cursor.getLastId());
+        String condition = "(" + sortBy + " " + op + "= ? AND (" + sortBy + ", id) " + op + " (?, ?))";
+        return asc ? condition : "(" + condition + " OR " + sortBy + " IS NULL)";
+    }
 }
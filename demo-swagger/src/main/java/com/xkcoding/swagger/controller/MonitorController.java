@@ -1,11 +1,13 @@
 package com.xkcoding.swagger.controller;
 
 import com.xkcoding.swagger.common.ApiResponse;
+import com.xkcoding.swagger.config.HealthSnapshotConfig;
+import com.xkcoding.swagger.service.HealthSnapshotService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.boot.actuate.health.Status;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -26,34 +28,24 @@ import java.util.Map;
 @Tag(name = "应用监控", description = "应用监控相关接口")
 public class MonitorController implements HealthIndicator {
 
-    private final JdbcTemplate jdbcTemplate;
+    private final HealthSnapshotService healthSnapshotService;
 
-    public MonitorController(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public MonitorController(HealthSnapshotService healthSnapshotService) {
+        this.healthSnapshotService = healthSnapshotService;
     }
 
+    /**
+     * 探针频繁调用，只读取后台检查的快照，不访问数据库
+     */
     @Override
     public Health health() {
-        // 自定义健康检查逻辑
-        try {
-            // 检查数据库连接
-            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
-            
-            // 检查用户表是否存在数据
-            Integer userCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_user", Integer.class);
-            
-            return Health.up()
-                    .withDetail("database", "UP")
-                    .withDetail("userCount", userCount)
-                    .withDetail("timestamp", System.currentTimeMillis())
-                    .build();
-        } catch (Exception e) {
-            return Health.down()
-                    .withDetail("database", "DOWN")
-                    .withDetail("error", e.getMessage())
-                    .withDetail("timestamp", System.currentTimeMillis())
-                    .build();
-        }
+        Health database = healthSnapshotService.health(HealthSnapshotConfig.DB);
+        return Health.status(database.getStatus())
+                .withDetail("database", database.getStatus().getCode())
+                .withDetail("userCount", healthSnapshotService.detail(HealthSnapshotConfig.USER_COUNT, "count"))
+                .withDetail("checkedAt", database.getDetails().get("checkedAt"))
+                .withDetail("timestamp", System.currentTimeMillis())
+                .build();
     }
 
     @GetMapping("/status")
@@ -77,12 +69,12 @@ public class MonitorController implements HealthIndicator {
             jvm.put("processors", runtime.availableProcessors());
             status.put("jvm", jvm);
             
-            // 数据库状态
-            Integer dbStatus = jdbcTemplate.queryForObject("SELECT 1", Integer.class);
-            Integer userCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_user", Integer.class);
+            // 数据库状态（后台检查的快照）
+            Health db = healthSnapshotService.health(HealthSnapshotConfig.DB);
             Map<String, Object> database = new HashMap<>();
-            database.put("status", dbStatus != null && dbStatus == 1 ? "UP" : "DOWN");
-            database.put("userCount", userCount);
+            database.put("status", db.getStatus().getCode());
+            database.put("userCount", healthSnapshotService.detail(HealthSnapshotConfig.USER_COUNT, "count"));
+            database.put("checkedAt", db.getDetails().get("checkedAt"));
             status.put("database", database);
             
             // 系统信息
@@ -123,9 +115,8 @@ public class MonitorController implements HealthIndicator {
             Integer activeConnections = 1; // 简化示例
             metrics.put("database.connections.active", activeConnections);
             
-            // 用户数据统计
-            Integer totalUsers = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_user", Integer.class);
-            metrics.put("business.users.total", totalUsers);
+            // 用户数据统计（按 health.snapshot.user-count-interval 定期统计）
+            metrics.put("business.users.total", healthSnapshotService.detail(HealthSnapshotConfig.USER_COUNT, "count"));
             
             // JVM 指标
             Runtime runtime = Runtime.getRuntime();
@@ -151,4 +142,19 @@ public class MonitorController implements HealthIndicator {
                     .build();
         }
     }
+
+    @GetMapping("/health/deep")
+    @Operation(summary = "立即执行全部健康检查", description = "并行重新检查数据库、RabbitMQ、Redis、磁盘等并更新快照，用于排查问题")
+    public ApiResponse<Map<String, Health>> deepCheck() {
+        Map<String, Health> result = healthSnapshotService.deepCheck();
+        boolean up = true;
+        for (Health health : result.values()) {
+            up &= !Status.DOWN.equals(health.getStatus());
+        }
+        return ApiResponse.<Map<String, Health>>builder()
+                .code(up ? 200 : 503)
+                .message(up ? "检查完成" : "存在不可用的依赖")
+                .data(result)
+                .build();
+    }
 }
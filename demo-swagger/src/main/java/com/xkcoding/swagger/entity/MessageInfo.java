@@ -1,6 +1,7 @@
 package com.xkcoding.swagger.entity;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.xkcoding.swagger.common.IdGenerator;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -27,7 +28,7 @@ public class MessageInfo implements Serializable {
     /**
      * 消息ID
      */
-    @Schema(description = "消息ID", example = "MSG001")
+    @Schema(description = "消息ID", example = "MSG0CKQ4ZP8R0003")
     private String messageId;
 
     /**
@@ -85,7 +86,7 @@ public class MessageInfo implements Serializable {
     public MessageInfo(String content) {
         this.content = content;
         this.createTime = LocalDateTime.now();
-        this.messageId = "MSG" + System.currentTimeMillis();
+        this.messageId = "MSG" + IdGenerator.getDefault().nextCompactId();
     }
 
     /**
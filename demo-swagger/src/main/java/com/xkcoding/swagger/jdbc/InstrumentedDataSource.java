@@ -0,0 +1,232 @@
+package com.xkcoding.swagger.jdbc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * 记录语句执行情况的数据源包装
+ * </p>
+ *
+ * 在连接池之上包装一层：连接、语句和结果集都是 JDK 代理，语句的 execute* 调用计时后交给 {@link JdbcInstrumentation}，
+ * PreparedStatement 的 set* 调用只记录参数类型；查询的行数在结果集关闭时按 next() 的次数补充。
+ * JdbcTemplate、事务管理器和直接使用连接的代码（如批量导入、流式导出）都经过这一层
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class InstrumentedDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final JdbcInstrumentation instrumentation;
+
+    public InstrumentedDataSource(DataSource target, JdbcInstrumentation instrumentation) {
+        super(target);
+        this.instrumentation = instrumentation;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    /**
+     * 包装后容器推断不到连接池的 close 方法，关闭时转交给被包装的数据源
+     */
+    @Override
+    public void close() throws Exception {
+        DataSource target = obtainTargetDataSource();
+        if (target instanceof AutoCloseable) {
+            ((AutoCloseable) target).close();
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedDataSource.invoke(method, target, args);
+            Class<?> type;
+            String sql = null;
+            switch (method.getName()) {
+                case "prepareStatement":
+                    type = PreparedStatement.class;
+                    sql = (String) args[0];
+                    break;
+                case "prepareCall":
+                    type = CallableStatement.class;
+                    sql = (String) args[0];
+                    break;
+                case "createStatement":
+                    type = Statement.class;
+                    break;
+                default:
+                    return result;
+            }
+            return Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler((Statement) result, (Connection) proxy, sql));
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final Connection connection;
+        private final List<String> params = new ArrayList<>();
+        private String sql;
+
+        StatementHandler(Statement target, Connection connection, String sql) {
+            this.target = target;
+            this.connection = connection;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            if ("getConnection".equals(name)) {
+                return connection;
+            }
+            if ("getResultSet".equals(name)) {
+                return wrapResultSet((ResultSet) InstrumentedDataSource.invoke(method, target, args), null);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                int index = (Integer) args[0];
+                while (params.size() < index) {
+                    params.add("?");
+                }
+                params.set(index - 1, "setNull".equals(name) ? "null" : JdbcInstrumentation.paramShape(args[1]));
+            } else if ("clearParameters".equals(name)) {
+                params.clear();
+            } else if ("addBatch".equals(name) && args != null && args.length == 1) {
+                // Statement.addBatch(String)：批量中可能是不同的语句，按最后一条统计
+                sql = (String) args[0];
+            }
+            return InstrumentedDataSource.invoke(method, target, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                sql = (String) args[0];
+            }
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = InstrumentedDataSource.invoke(method, target, args);
+            } catch (Throwable e) {
+                instrumentation.record(sql, System.nanoTime() - start, -1, shapes(), true);
+                throw e;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (result instanceof ResultSet) {
+                String shape = instrumentation.record(sql, elapsed, -1, shapes(), false);
+                return wrapResultSet((ResultSet) result, shape);
+            }
+            instrumentation.record(sql, elapsed, affectedRows(result), shapes(), false);
+            return result;
+        }
+
+        private List<String> shapes() {
+            return params.isEmpty() ? Collections.<String>emptyList() : new ArrayList<>(params);
+        }
+
+        private ResultSet wrapResultSet(ResultSet resultSet, String shape) {
+            if (resultSet == null) {
+                return null;
+            }
+            String resolved = shape != null ? shape : SqlNormalizer.normalize(sql);
+            return (ResultSet) Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, new ResultSetHandler(resultSet, resolved));
+        }
+    }
+
+    /**
+     * execute 返回是否有结果集，executeUpdate 返回影响行数，executeBatch 返回每条的影响行数
+     * （驱动无法给出时为 SUCCESS_NO_INFO，按 1 行计）
+     */
+    private static long affectedRows(Object result) {
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof int[]) {
+            long rows = 0;
+            for (int count : (int[]) result) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+            return rows;
+        }
+        if (result instanceof long[]) {
+            long rows = 0;
+            for (long count : (long[]) result) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+            return rows;
+        }
+        return -1;
+    }
+
+    private class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final String shape;
+        private long rows;
+        private boolean reported;
+
+        ResultSetHandler(ResultSet target, String shape) {
+            this.target = target;
+            this.shape = shape;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedDataSource.invoke(method, target, args);
+            String name = method.getName();
+            if ("next".equals(name)) {
+                if (Boolean.TRUE.equals(result)) {
+                    rows++;
+                }
+            } else if ("close".equals(name) && !reported) {
+                reported = true;
+                instrumentation.recordRows(shape, rows);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.xkcoding.swagger.jdbc;
+
+import com.xkcoding.swagger.config.JdbcInstrumentationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * JDBC 语句统计
+ * </p>
+ *
+ * 由 {@link InstrumentedDataSource} 在每条语句执行后调用，按规范化后的 SQL 形状累计次数、错误、耗时分布和行数；
+ * 超过阈值的语句记录慢 SQL 日志（参数只记录类型和长度，不记录值）。
+ * 请求开始时 {@link #beginRequest} 在当前线程开启请求范围，结束时 {@link #endRequest} 统计本次请求执行的语句数，
+ * 同一形状执行次数达到阈值的记为疑似 N+1（通常是循环中逐条查询）。
+ * 绑定 MeterRegistry 后同时记录 jdbc.statements 等指标
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+public class JdbcInstrumentation {
+
+    /**
+     * 耗时分布的桶上界（毫秒），最后一个桶为无穷大
+     */
+    static final long[] BUCKET_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private static final String OTHER = "other";
+    private static final int MAX_SUSPECTS = 200;
+
+    private final JdbcInstrumentationProperties properties;
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final Map<String, RepeatedStatement> suspects = new ConcurrentHashMap<>();
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+    private final ThreadLocal<RequestScope> currentRequest = new ThreadLocal<>();
+
+    private volatile MeterRegistry registry;
+    private volatile DistributionSummary requestStatements;
+    private volatile Counter repeatedStatementCounter;
+
+    public JdbcInstrumentation(JdbcInstrumentationProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 绑定指标注册表，之后执行的语句同时记录到 Micrometer
+     */
+    public void bindTo(MeterRegistry registry) {
+        this.requestStatements = DistributionSummary.builder("jdbc.request.statements")
+                .description("每次请求执行的 SQL 语句数").serviceLevelObjectives(1, 5, 10, 50, 100).register(registry);
+        this.repeatedStatementCounter = Counter.builder("jdbc.request.repeated.statements")
+                .description("同一形状的语句在一次请求中重复执行（疑似 N+1）的次数").register(registry);
+        this.registry = registry;
+    }
+
+    /**
+     * 记录一条语句
+     *
+     * @param sql    原始 SQL
+     * @param nanos  执行耗时
+     * @param rows   影响行数，查询时为 -1（行数在结果集关闭时通过 {@link #recordRows} 补充）
+     * @param params 参数形状，如 [String(5), Integer]
+     * @param failed 是否抛出异常
+     * @return 语句形状，用于补充行数
+     */
+    String record(String sql, long nanos, long rows, List<String> params, boolean failed) {
+        String shape = SqlNormalizer.normalize(sql);
+        StatementStats stats = stats(shape);
+        stats.record(nanos, rows, failed);
+
+        RequestScope scope = currentRequest.get();
+        if (scope != null) {
+            scope.record(stats.shape);
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (millis >= properties.getSlowQueryThreshold().toMillis()) {
+            String request = scope == null ? null : scope.name;
+            log.warn("慢 SQL: {}ms, rows={}, request={}, sql={}, params={}", millis, rows < 0 ? "-" : rows,
+                    request, shape, params);
+            SlowQuery slow = new SlowQuery(Instant.now(), shape, millis, rows, String.valueOf(params), request, failed);
+            synchronized (slowQueries) {
+                slowQueries.addFirst(slow);
+                while (slowQueries.size() > properties.getRecentSlowQueries()) {
+                    slowQueries.removeLast();
+                }
+            }
+        }
+        return stats.shape;
+    }
+
+    /**
+     * 查询结果集关闭时补充读取的行数
+     */
+    void recordRows(String shape, long rows) {
+        StatementStats stats = statements.get(shape);
+        if (stats != null) {
+            stats.recordRows(rows);
+        }
+    }
+
+    /**
+     * 在当前线程开启请求范围
+     */
+    public void beginRequest(String name) {
+        currentRequest.set(new RequestScope(name));
+    }
+
+    /**
+     * 把当前线程的请求范围带到执行 task 的线程（如跨分片查询的线程池），其中执行的语句计入同一请求
+     */
+    public Runnable propagate(Runnable task) {
+        RequestScope scope = currentRequest.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            RequestScope previous = currentRequest.get();
+            currentRequest.set(scope);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    currentRequest.remove();
+                } else {
+                    currentRequest.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * 结束当前线程的请求范围
+     *
+     * @param name 请求名称，为 null 时沿用开始时的名称（如请求结束后才能拿到匹配的路径模板）
+     * @return 本次请求执行的语句数
+     */
+    public int endRequest(String name) {
+        RequestScope scope = currentRequest.get();
+        currentRequest.remove();
+        if (scope == null) {
+            return 0;
+        }
+        String request = name != null ? name : scope.name;
+        DistributionSummary summary = requestStatements;
+        int total;
+        Map<String, int[]> shapes;
+        synchronized (scope) {
+            total = scope.total;
+            shapes = new HashMap<>(scope.shapes);
+        }
+        if (summary != null) {
+            summary.record(total);
+        }
+        for (Map.Entry<String, int[]> entry : shapes.entrySet()) {
+            int count = entry.getValue()[0];
+            if (count >= properties.getRepeatedStatementThreshold()) {
+                log.warn("疑似 N+1: 请求 {} 中同一语句执行了 {} 次, sql={}", request, count, entry.getKey());
+                String key = request + " | " + entry.getKey();
+                RepeatedStatement suspect = suspects.get(key);
+                if (suspect == null && suspects.size() < MAX_SUSPECTS) {
+                    suspect = suspects.computeIfAbsent(key, k -> new RepeatedStatement(request, entry.getKey()));
+                }
+                if (suspect != null) {
+                    suspect.record(count);
+                }
+                Counter counter = repeatedStatementCounter;
+                if (counter != null) {
+                    counter.increment();
+                }
+            }
+        }
+        if (log.isDebugEnabled() && total > 0) {
+            log.debug("请求 {} 执行 SQL {} 条（{} 种）", request, total, shapes.size());
+        }
+        return total;
+    }
+
+    /**
+     * 各语句的统计，按总耗时从高到低排序
+     */
+    public List<Map<String, Object>> statementSummaries() {
+        List<StatementStats> sorted = new ArrayList<>(statements.values());
+        sorted.sort((a, b) -> Long.compare(b.totalNanos.sum(), a.totalNanos.sum()));
+        List<Map<String, Object>> result = new ArrayList<>(sorted.size());
+        for (StatementStats stats : sorted) {
+            result.add(stats.describe());
+        }
+        return result;
+    }
+
+    public List<SlowQuery> recentSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+
+    public List<RepeatedStatement> repeatedStatements() {
+        List<RepeatedStatement> result = new ArrayList<>(suspects.values());
+        result.sort((a, b) -> Long.compare(b.getOccurrences().sum(), a.getOccurrences().sum()));
+        return result;
+    }
+
+    /**
+     * 清空统计（已注册的指标不受影响）
+     */
+    public void reset() {
+        statements.clear();
+        suspects.clear();
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+    private StatementStats stats(String shape) {
+        StatementStats stats = statements.get(shape);
+        if (stats != null) {
+            return stats;
+        }
+        if (statements.size() >= properties.getMaxStatements()) {
+            shape = OTHER;
+        }
+        return statements.computeIfAbsent(shape, StatementStats::new);
+    }
+
+    /**
+     * 参数形状：类型名，字符串和字节数组附带长度
+     */
+    static String paramShape(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof CharSequence) {
+            return "String(" + ((CharSequence) value).length() + ")";
+        }
+        if (value instanceof byte[]) {
+            return "byte[" + ((byte[]) value).length + "]";
+        }
+        return value.getClass().getSimpleName();
+    }
+
+    /**
+     * 一种语句的累计统计
+     */
+    private class StatementStats {
+        private final String shape;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_MILLIS.length + 1);
+        private volatile Timer timer;
+        private volatile DistributionSummary rowSummary;
+
+        StatementStats(String shape) {
+            this.shape = shape;
+        }
+
+        void record(long nanos, long affected, boolean failed) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            buckets.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(nanos)));
+            if (failed) {
+                errors.increment();
+            }
+            Timer current = timer();
+            if (current != null) {
+                current.record(nanos, TimeUnit.NANOSECONDS);
+            }
+            if (affected >= 0) {
+                recordRows(affected);
+            }
+        }
+
+        void recordRows(long n) {
+            rows.add(n);
+            DistributionSummary summary = rowSummary;
+            if (summary == null && registry != null) {
+                summary = rowSummary = DistributionSummary.builder("jdbc.statement.rows")
+                        .description("每条语句读取或影响的行数").tag("sql", shape).register(registry);
+            }
+            if (summary != null) {
+                summary.record(n);
+            }
+        }
+
+        private Timer timer() {
+            Timer current = timer;
+            MeterRegistry meterRegistry = registry;
+            if (current == null && meterRegistry != null) {
+                current = timer = Timer.builder("jdbc.statements").description("SQL 语句执行耗时")
+                        .tag("sql", shape)
+                        .serviceLevelObjectives(Duration.ofMillis(10), Duration.ofMillis(100), Duration.ofSeconds(1))
+                        .register(meterRegistry);
+            }
+            return current;
+        }
+
+        Map<String, Object> describe() {
+            long n = count.sum();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("sql", shape);
+            result.put("count", n);
+            result.put("errors", errors.sum());
+            result.put("totalMs", TimeUnit.NANOSECONDS.toMillis(totalNanos.sum()));
+            result.put("avgMs", n == 0 ? 0 : Math.round(totalNanos.sum() / (double) n / 1000) / 1000.0);
+            result.put("maxMs", Math.round(maxNanos.get() / 1000) / 1000.0);
+            result.put("p50Ms", percentile(0.5));
+            result.put("p95Ms", percentile(0.95));
+            result.put("p99Ms", percentile(0.99));
+            result.put("rows", rows.sum());
+            result.put("avgRows", n == 0 ? 0 : Math.round(rows.sum() * 10.0 / n) / 10.0);
+            return result;
+        }
+
+        /**
+         * 百分位的上界估计：取累计次数首次达到该比例的桶的上界，落在最后一个桶时取最大值
+         */
+        private double percentile(double p) {
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                total += buckets.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(total * p);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_MILLIS.length; i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return Math.min(BUCKET_MILLIS[i], Math.round(maxNanos.get() / 1000) / 1000.0);
+                }
+            }
+            return Math.round(maxNanos.get() / 1000) / 1000.0;
+        }
+
+        private int bucket(long micros) {
+            for (int i = 0; i < BUCKET_MILLIS.length; i++) {
+                if (micros <= BUCKET_MILLIS[i] * 1000) {
+                    return i;
+                }
+            }
+            return BUCKET_MILLIS.length;
+        }
+    }
+
+    /**
+     * 一次请求中执行的语句，跨分片查询时由多个线程同时记录
+     */
+    private static class RequestScope {
+        private final String name;
+        private final Map<String, int[]> shapes = new HashMap<>();
+        private int total;
+
+        RequestScope(String name) {
+            this.name = name;
+        }
+
+        synchronized void record(String shape) {
+            total++;
+            shapes.computeIfAbsent(shape, k -> new int[1])[0]++;
+        }
+    }
+
+    /**
+     * 一条慢 SQL
+     */
+    @Getter
+    public static class SlowQuery {
+        private final Instant time;
+        private final String sql;
+        private final long millis;
+
+        /**
+         * 影响行数，查询为 -1
+         */
+        private final long rows;
+
+        private final String params;
+        private final String request;
+        private final boolean failed;
+
+        SlowQuery(Instant time, String sql, long millis, long rows, String params, String request, boolean failed) {
+            this.time = time;
+            this.sql = sql;
+            this.millis = millis;
+            this.rows = rows;
+            this.params = params;
+            this.request = request;
+            this.failed = failed;
+        }
+    }
+
+    /**
+     * 疑似 N+1：某个请求中重复执行的语句
+     */
+    @Getter
+    public static class RepeatedStatement {
+        private final String request;
+        private final String sql;
+
+        /**
+         * 出现的请求次数
+         */
+        private final LongAdder occurrences = new LongAdder();
+
+        /**
+         * 单次请求中的最多执行次数
+         */
+        private final AtomicLong maxPerRequest = new AtomicLong();
+
+        private volatile Instant lastSeen;
+
+        RepeatedStatement(String request, String sql) {
+            this.request = request;
+            this.sql = sql;
+        }
+
+        void record(int count) {
+            occurrences.increment();
+            maxPerRequest.accumulateAndGet(count, Math::max);
+            lastSeen = Instant.now();
+        }
+    }
+}
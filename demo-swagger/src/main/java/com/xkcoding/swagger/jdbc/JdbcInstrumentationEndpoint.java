@@ -0,0 +1,54 @@
+package com.xkcoding.swagger.jdbc;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * SQL 统计管理端点：/actuator/jdbc
+ * </p>
+ *
+ * GET /actuator/jdbc?top=20  按总耗时排序的语句统计（次数、耗时分位、行数）、最近的慢 SQL 和疑似 N+1 的请求
+ * DELETE /actuator/jdbc      清空统计
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+@Endpoint(id = "jdbc")
+public class JdbcInstrumentationEndpoint {
+
+    private static final int DEFAULT_TOP = 50;
+
+    private final JdbcInstrumentation instrumentation;
+
+    public JdbcInstrumentationEndpoint(JdbcInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    @ReadOperation
+    public Map<String, Object> summary(@Nullable Integer top) {
+        List<Map<String, Object>> statements = instrumentation.statementSummaries();
+        int limit = top == null || top <= 0 ? DEFAULT_TOP : top;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statementCount", statements.size());
+        result.put("statements", statements.size() > limit ? statements.subList(0, limit) : statements);
+        result.put("slowQueries", instrumentation.recentSlowQueries());
+        result.put("repeatedStatements", instrumentation.repeatedStatements());
+        return result;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        instrumentation.reset();
+        log.info("通过管理端点清空 SQL 统计");
+    }
+}
@@ -0,0 +1,42 @@
+package com.xkcoding.swagger.jdbc;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * <p>
+ * 按请求统计 SQL 语句数
+ * </p>
+ *
+ * 排在安全过滤器之前，JWT 认证时加载用户和权限的语句也计入本次请求。
+ * 请求名称使用匹配到的路径模板（如 GET /db/users/{id}），同一接口的不同参数归为一类
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class JdbcRequestFilter extends OncePerRequestFilter {
+
+    private final JdbcInstrumentation instrumentation;
+
+    public JdbcRequestFilter(JdbcInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        instrumentation.beginRequest(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            instrumentation.endRequest(pattern == null ? null : request.getMethod() + " " + pattern);
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package com.xkcoding.swagger.jdbc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * 读写分离数据源
+ * </p>
+ *
+ * 只读事务（@Transactional(readOnly = true)）和 {@link #beginRead} 标记的只读代码（见 {@link com.xkcoding.swagger.annotation.ReadFromReplica}）
+ * 按权重随机访问健康的副本，其余语句访问主库。继承 {@link LazyConnectionDataSourceProxy}：
+ * 事务开始时只拿到连接代理，执行第一条语句时事务的只读标记已经设置，再决定访问哪个库。
+ *
+ * 读己之写：主库连接执行了写语句后，同一请求的后续读取和同一用户在 readYourWritesWindow 内的读取都访问主库。
+ * 副本获取连接失败时改用其他副本或主库，连续失败 failureThreshold 次后摘除，由定时健康检查恢复
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    private static final ThreadLocal<Boolean> READ_ONLY = new ThreadLocal<>();
+    private static final String WROTE_ATTRIBUTE = ReadWriteRoutingDataSource.class.getName() + ".WROTE";
+
+    private final DataSource primary;
+    private final Replica[] replicas;
+    private final int failureThreshold;
+
+    /**
+     * 最近写入过的用户，过期时间为读己之写窗口
+     */
+    private final Cache<String, Boolean> recentWriters;
+
+    /**
+     * 因读己之写访问主库的只读连接数
+     */
+    private final LongAdder readYourWritesReads = new LongAdder();
+
+    /**
+     * 没有可用副本而访问主库的只读连接数
+     */
+    private final LongAdder fallbacks = new LongAdder();
+    private ScheduledThreadPoolExecutor healthChecker;
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<Replica> replicas, Duration readYourWritesWindow,
+                                      int failureThreshold) {
+        this.primary = primary;
+        this.replicas = replicas.toArray(new Replica[0]);
+        for (int i = 0; i < this.replicas.length; i++) {
+            this.replicas[i].index = i;
+        }
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.recentWriters = Caffeine.newBuilder().expireAfterWrite(readYourWritesWindow).maximumSize(100_000).build();
+        setTargetDataSource(new Router());
+    }
+
+    /**
+     * 默认的自动提交和隔离级别在第一次获取连接时确定，启动时不连接主库
+     */
+    @Override
+    public void afterPropertiesSet() {
+    }
+
+    /**
+     * 标记当前线程进入只读代码
+     *
+     * @return 之前的标记，交给 {@link #endRead} 恢复
+     */
+    public static boolean beginRead() {
+        boolean previous = READ_ONLY.get() != null;
+        READ_ONLY.set(Boolean.TRUE);
+        return previous;
+    }
+
+    public static void endRead(boolean previous) {
+        if (!previous) {
+            READ_ONLY.remove();
+        }
+    }
+
+    /**
+     * 把当前线程的只读标记（只读事务或 {@link #beginRead}）和读己之写依据的请求、登录用户带到执行 task 的线程，
+     * 如跨分片查询的线程池
+     */
+    public static Runnable propagate(Runnable task) {
+        boolean readOnly = isReadOnly();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        SecurityContext context = SecurityContextHolder.getContext();
+        return () -> {
+            Boolean previousReadOnly = READ_ONLY.get();
+            RequestAttributes previousAttributes = RequestContextHolder.getRequestAttributes();
+            SecurityContext previousContext = SecurityContextHolder.getContext();
+            if (readOnly) {
+                READ_ONLY.set(Boolean.TRUE);
+            } else {
+                READ_ONLY.remove();
+            }
+            RequestContextHolder.setRequestAttributes(attributes);
+            SecurityContextHolder.setContext(context);
+            try {
+                task.run();
+            } finally {
+                if (previousReadOnly == null) {
+                    READ_ONLY.remove();
+                } else {
+                    READ_ONLY.set(previousReadOnly);
+                }
+                RequestContextHolder.setRequestAttributes(previousAttributes);
+                SecurityContextHolder.setContext(previousContext);
+            }
+        };
+    }
+
+    /**
+     * 定时检查副本，恢复已摘除的副本
+     */
+    public void startHealthChecks(Duration interval) {
+        if (replicas.length == 0 || healthChecker != null) {
+            return;
+        }
+        healthChecker = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("replica-health-"));
+        healthChecker.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        long millis = interval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 逐个检查副本：能获取连接并通过 isValid 的副本恢复，失败的计入连续失败次数
+     */
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (!connection.isValid(2)) {
+                    throw new SQLException("连接校验失败");
+                }
+                replica.succeeded();
+            } catch (Exception e) {
+                replica.failed(e, failureThreshold);
+            }
+        }
+    }
+
+    /**
+     * 各副本的状态，用于健康检查端点
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("readYourWritesReads", readYourWritesReads.sum());
+        result.put("fallbacks", fallbacks.sum());
+        List<Map<String, Object>> list = new ArrayList<>(replicas.length);
+        for (Replica replica : replicas) {
+            list.add(replica.describe());
+        }
+        result.put("replicas", list);
+        return result;
+    }
+
+    public List<Replica> getReplicas() {
+        List<Replica> list = new ArrayList<>(replicas.length);
+        for (Replica replica : replicas) {
+            list.add(replica);
+        }
+        return list;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            closeQuietly(replica.dataSource);
+        }
+        closeQuietly(primary);
+    }
+
+    /**
+     * 只读事务，或不在读写事务中的只读代码
+     */
+    private static boolean isReadOnly() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || (READ_ONLY.get() != null && !TransactionSynchronizationManager.isActualTransactionActive());
+    }
+
+    private boolean recentlyWrote() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null && attributes.getAttribute(WROTE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+            return true;
+        }
+        String user = currentUser();
+        return user != null && recentWriters.getIfPresent(user) != null;
+    }
+
+    private void markWrite() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(WROTE_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+        String user = currentUser();
+        if (user != null) {
+            recentWriters.put(user, Boolean.TRUE);
+        }
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * 按权重随机选择健康的副本，获取连接失败时换下一个，都不可用时返回 null
+     */
+    private Connection replicaConnection() {
+        boolean[] tried = new boolean[replicas.length];
+        for (int attempt = 0; attempt < replicas.length; attempt++) {
+            Replica replica = pick(tried);
+            if (replica == null) {
+                return null;
+            }
+            tried[replica.index] = true;
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replica.reads.increment();
+                return connection;
+            } catch (SQLException e) {
+                replica.failed(e, failureThreshold);
+            }
+        }
+        return null;
+    }
+
+    private Replica pick(boolean[] tried) {
+        int total = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy && !tried[replica.index]) {
+                total += replica.weight;
+            }
+        }
+        if (total <= 0) {
+            return null;
+        }
+        int point = ThreadLocalRandom.current().nextInt(total);
+        for (Replica replica : replicas) {
+            if (replica.healthy && !tried[replica.index]) {
+                point -= replica.weight;
+                if (point < 0) {
+                    return replica;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Connection primaryConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(ReadWriteRoutingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new WriteTrackingHandler(connection, Connection.class));
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (Exception e) {
+                log.warn("关闭数据源失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 按当前线程的状态选择主库或副本
+     */
+    private class Router extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (replicas.length > 0 && isReadOnly()) {
+                if (recentlyWrote()) {
+                    readYourWritesReads.increment();
+                } else {
+                    Connection connection = replicaConnection();
+                    if (connection != null) {
+                        return connection;
+                    }
+                    fallbacks.increment();
+                }
+            }
+            return primaryConnection(primary.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return primaryConnection(primary.getConnection(username, password));
+        }
+    }
+
+    /**
+     * 主库连接和语句的代理：执行写语句时标记读己之写
+     */
+    private class WriteTrackingHandler implements InvocationHandler {
+        private final Object target;
+        private final Class<?> type;
+
+        WriteTrackingHandler(Object target, Class<?> type) {
+            this.target = target;
+            this.type = type;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+            String name = method.getName();
+            if (type == Connection.class) {
+                Class<?> statementType = "prepareStatement".equals(name) ? PreparedStatement.class
+                        : "prepareCall".equals(name) ? CallableStatement.class
+                        : "createStatement".equals(name) ? Statement.class : null;
+                if (statementType != null) {
+                    return Proxy.newProxyInstance(ReadWriteRoutingDataSource.class.getClassLoader(),
+                            new Class<?>[]{statementType}, new WriteTrackingHandler(result, statementType));
+                }
+            } else if (name.startsWith("executeUpdate") || name.startsWith("executeLargeUpdate")
+                    || name.startsWith("executeBatch") || name.startsWith("executeLargeBatch")
+                    || ("execute".equals(name) && Boolean.FALSE.equals(result))) {
+                markWrite();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 只读副本
+     */
+    public static class Replica {
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+        private final String name;
+        private final DataSource dataSource;
+        private final int weight;
+        private final LongAdder reads = new LongAdder();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private int index;
+        private volatile boolean healthy = true;
+        private volatile Instant ejectedAt;
+        private volatile String lastError;
+
+        public Replica(String name, DataSource dataSource, int weight) {
+            this.name = name != null ? name : "replica-" + SEQUENCE.incrementAndGet();
+            this.dataSource = dataSource;
+            this.weight = Math.max(0, weight);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public long getReads() {
+            return reads.sum();
+        }
+
+        void succeeded() {
+            consecutiveFailures.set(0);
+            if (!healthy) {
+                healthy = true;
+                ejectedAt = null;
+                log.info("只读副本 {} 已恢复", name);
+            }
+        }
+
+        void failed(Exception e, int threshold) {
+            lastError = e.getMessage();
+            if (consecutiveFailures.incrementAndGet() >= threshold && healthy) {
+                healthy = false;
+                ejectedAt = Instant.now();
+                log.warn("只读副本 {} 连续 {} 次失败，暂时摘除: {}", name, threshold, e.getMessage());
+            }
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("name", name);
+            result.put("status", healthy ? "UP" : "EJECTED");
+            result.put("weight", weight);
+            result.put("reads", reads.sum());
+            result.put("consecutiveFailures", consecutiveFailures.get());
+            if (ejectedAt != null) {
+                result.put("ejectedAt", ejectedAt.toString());
+            }
+            if (lastError != null) {
+                result.put("lastError", lastError);
+            }
+            return result;
+        }
+    }
+}
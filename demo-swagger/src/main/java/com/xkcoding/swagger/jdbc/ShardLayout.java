@@ -0,0 +1,101 @@
+package com.xkcoding.swagger.jdbc;
+
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * 分片布局：id 到分片的映射
+ * </p>
+ *
+ * id 先经过哈希打散（连续的 id 均匀分布），再对槽数量取模得到逻辑槽，每个槽属于一个分片。
+ * 槽数量固定不变，扩容或迁移时只需把部分槽连同数据移到新分片，其余 id 的位置不受影响
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class ShardLayout {
+
+    private final int[] owners;
+    private final int shardCount;
+
+    /**
+     * @param slotCount 槽数量
+     * @param slotSpecs 每个分片的槽，如 "0-511,768-1023"；全部为空时按顺序平均分配
+     * @throws IllegalArgumentException 格式错误、槽越界、重复分配或有槽未分配
+     */
+    public ShardLayout(int slotCount, List<String> slotSpecs) {
+        if (slotCount < 1 || slotSpecs.isEmpty()) {
+            throw new IllegalArgumentException("槽数量和分片数都必须大于 0");
+        }
+        this.owners = new int[slotCount];
+        this.shardCount = slotSpecs.size();
+        if (slotSpecs.stream().noneMatch(StringUtils::hasText)) {
+            for (int slot = 0; slot < slotCount; slot++) {
+                owners[slot] = (int) ((long) slot * shardCount / slotCount);
+            }
+            return;
+        }
+        Arrays.fill(owners, -1);
+        for (int shard = 0; shard < shardCount; shard++) {
+            String spec = slotSpecs.get(shard);
+            if (!StringUtils.hasText(spec)) {
+                continue;
+            }
+            for (String range : spec.split(",")) {
+                String[] bounds = range.trim().split("-");
+                int from;
+                int to;
+                try {
+                    from = Integer.parseInt(bounds[0].trim());
+                    to = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : from;
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("无效的槽范围: " + range);
+                }
+                if (bounds.length > 2 || from < 0 || to >= slotCount || from > to) {
+                    throw new IllegalArgumentException("无效的槽范围: " + range + "（槽数量 " + slotCount + "）");
+                }
+                for (int slot = from; slot <= to; slot++) {
+                    if (owners[slot] >= 0) {
+                        throw new IllegalArgumentException("槽 " + slot + " 同时分配给了分片 " + owners[slot] + " 和 " + shard);
+                    }
+                    owners[slot] = shard;
+                }
+            }
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (owners[slot] < 0) {
+                throw new IllegalArgumentException("槽 " + slot + " 没有分配给任何分片");
+            }
+        }
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int slotOf(int id) {
+        return Math.floorMod(mix(id), owners.length);
+    }
+
+    /**
+     * id 所在分片的序号
+     */
+    public int shardOf(int id) {
+        return owners[slotOf(id)];
+    }
+
+    /**
+     * MurmurHash3 的 fmix32，自增 id 的低位变化扩散到全部位
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
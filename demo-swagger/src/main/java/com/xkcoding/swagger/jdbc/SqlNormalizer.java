@@ -0,0 +1,55 @@
+package com.xkcoding.swagger.jdbc;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * SQL 规范化：把同一条语句的不同写法归为同一个形状，用于按语句统计
+ * </p>
+ *
+ * 字符串和数字字面量替换为 ?，IN (?, ?, ...) 和多值 VALUES 折叠为一组，空白合并为一个空格。
+ * 代码中的 SQL 基本是固定字符串，规范化结果按原文缓存
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public final class SqlNormalizer {
+
+    private static final int MAX_LENGTH = 500;
+    private static final int MAX_CACHED = 2000;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern MULTI_VALUES = Pattern.compile("(?i)\\bVALUES\\s*(\\([^()]*\\))(?:\\s*,\\s*\\([^()]*\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Map<String, String> CACHE = new ConcurrentHashMap<>();
+
+    private SqlNormalizer() {
+    }
+
+    public static String normalize(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String cached = CACHE.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        shape = IN_LIST.matcher(shape).replaceAll("IN (?)");
+        shape = MULTI_VALUES.matcher(shape).replaceAll("VALUES $1");
+        if (shape.length() > MAX_LENGTH) {
+            shape = shape.substring(0, MAX_LENGTH) + "...";
+        }
+        if (CACHE.size() < MAX_CACHED) {
+            CACHE.put(sql, shape);
+        }
+        return shape;
+    }
+}
@@ -0,0 +1,443 @@
+package com.xkcoding.swagger.jdbc;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * t_user 分片访问
+ * </p>
+ *
+ * 按 id 路由：{@link ShardLayout} 把 id 映射到分片。按用户名登录时先查主库的用户名查找表 t_user_lookup 得到 id，
+ * 查找表同时负责分配全局唯一的 id（自增主键）并保证用户名全局唯一。
+ * 不带 id 的查询（分页、关键字、统计）在各分片上并行执行，有序结果按排序键做 k 路归并。
+ * 未开启分片时只有一个分片即 spring.datasource，所有方法退化为直接访问，不经过线程池
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+public class UserShards implements DisposableBean {
+
+    private final List<Shard> shards;
+    private final ShardLayout layout;
+    private final JdbcTemplate directory;
+    private final ExecutorService executor;
+    private final long queryTimeoutNanos;
+    private final List<AutoCloseable> resources;
+    private volatile TaskDecorator taskDecorator = task -> task;
+
+    /**
+     * @param shards       分片，顺序与 layout 中的序号对应
+     * @param directory    存放用户名查找表的主库
+     * @param executor     并行查询各分片的线程池，关闭时一并关闭
+     * @param queryTimeout 跨分片查询等待各分片结果的最长时间
+     * @param resources    分片专用的连接池等，关闭时一并关闭
+     */
+    public UserShards(List<Shard> shards, ShardLayout layout, JdbcTemplate directory, ExecutorService executor,
+                      Duration queryTimeout, List<AutoCloseable> resources) {
+        if (shards.size() != layout.getShardCount()) {
+            throw new IllegalArgumentException("分片数 " + shards.size() + " 与布局中的分片数 " + layout.getShardCount() + " 不一致");
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        this.layout = layout;
+        this.directory = directory;
+        this.executor = executor;
+        this.queryTimeoutNanos = queryTimeout.toNanos();
+        this.resources = resources;
+    }
+
+    private UserShards(Shard shard) {
+        this.shards = Collections.singletonList(shard);
+        this.layout = null;
+        this.directory = null;
+        this.executor = null;
+        this.queryTimeoutNanos = 0;
+        this.resources = Collections.emptyList();
+    }
+
+    /**
+     * 未开启分片：唯一的分片就是 spring.datasource
+     */
+    public static UserShards single(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        return new UserShards(new Shard("default", jdbcTemplate, transactionTemplate));
+    }
+
+    /**
+     * 包装提交到线程池的分片查询，把调用线程上的上下文（请求范围的 SQL 统计、只读标记等）带到执行线程
+     */
+    public void setTaskDecorator(TaskDecorator taskDecorator) {
+        this.taskDecorator = taskDecorator;
+    }
+
+    public boolean isSharded() {
+        return layout != null;
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    public Shard forId(int id) {
+        return layout == null ? shards.get(0) : shards.get(layout.shardOf(id));
+    }
+
+    /**
+     * 用户名所在的分片，用户名不存在时返回 null（未开启分片时总是返回唯一的分片）
+     */
+    public Shard forUsername(String username) {
+        if (layout == null) {
+            return shards.get(0);
+        }
+        List<Integer> ids = directory.queryForList("SELECT id FROM t_user_lookup WHERE username = ?", Integer.class, username);
+        return ids.isEmpty() ? null : forId(ids.get(0));
+    }
+
+    /**
+     * 按所在分片分组，分组顺序与分片顺序一致
+     */
+    public <T> Map<Shard, List<T>> group(Collection<T> items, Function<? super T, Integer> idOf) {
+        Map<Shard, List<T>> groups = new LinkedHashMap<>();
+        if (layout == null) {
+            groups.put(shards.get(0), new ArrayList<>(items));
+            return groups;
+        }
+        for (T item : items) {
+            groups.computeIfAbsent(forId(idOf.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * 分配一个新 id 并登记用户名（可以为 null），用户名已存在时抛出 DuplicateKeyException。
+     * 在 spring.datasource 的事务中调用时随事务回滚
+     */
+    public int allocateId(String username) {
+        return allocateIds(Collections.singletonList(username)).get(0);
+    }
+
+    /**
+     * 批量分配 id：一次 JDBC 批量插入查找表，按顺序返回生成的 id
+     */
+    public List<Integer> allocateIds(List<String> usernames) {
+        requireSharded();
+        return directory.execute((ConnectionCallback<List<Integer>>) con -> {
+            List<Integer> ids = new ArrayList<>(usernames.size());
+            try (PreparedStatement ps = con.prepareStatement("INSERT INTO t_user_lookup (username) VALUES (?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (String username : usernames) {
+                    ps.setString(1, username);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getInt(1));
+                    }
+                }
+            }
+            if (ids.size() != usernames.size()) {
+                throw new IllegalStateException("查找表返回的 id 数量 " + ids.size() + " 与插入数量 " + usernames.size() + " 不一致");
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * 登记调用方指定的 id（按 id 新增或覆盖时），之后自增分配的 id 不会与之重复
+     */
+    public void reserveIds(Collection<Integer> ids) {
+        requireSharded();
+        List<Object[]> args = new ArrayList<>(ids.size());
+        ids.forEach(id -> args.add(new Object[]{id}));
+        directory.batchUpdate("INSERT INTO t_user_lookup (id) VALUES (?) ON DUPLICATE KEY UPDATE id = id", args);
+    }
+
+    /**
+     * 删除用户后释放查找表中的记录
+     */
+    public void releaseIds(Collection<Integer> ids) {
+        requireSharded();
+        List<Object[]> args = new ArrayList<>(ids.size());
+        ids.forEach(id -> args.add(new Object[]{id}));
+        directory.batchUpdate("DELETE FROM t_user_lookup WHERE id = ?", args);
+    }
+
+    /**
+     * 把主库 t_user 中尚未登记的用户（开启分片前已有的用户）补登记到查找表，并确保查找表的自增值在最大 id 之后，
+     * 之后分配的 id 不会与已有用户（及其 t_user_role 中的角色）重复。可重复执行，返回补登记的数量。
+     * 用户名已被其他 id 登记时抛出 DuplicateKeyException，需要先人工处理
+     */
+    public int syncLookup() {
+        requireSharded();
+        int seeded = directory.update("INSERT INTO t_user_lookup (id, username) SELECT u.id, u.username FROM t_user u "
+                + "WHERE NOT EXISTS (SELECT 1 FROM t_user_lookup l WHERE l.id = u.id)");
+        // MySQL/MariaDB 插入显式 id 时会自动推进自增值；只有其他数据库在确实补登记了用户时才需要 ALTER（要求 DDL 权限）
+        if (seeded > 0 && !advancesAutoIncrement()) {
+            Long maxId = directory.queryForObject("SELECT MAX(id) FROM t_user_lookup", Long.class);
+            directory.execute("ALTER TABLE t_user_lookup AUTO_INCREMENT = " + (maxId + 1));
+        }
+        return seeded;
+    }
+
+    private boolean advancesAutoIncrement() {
+        String product = directory.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+        return product != null && (product.equalsIgnoreCase("MySQL") || product.equalsIgnoreCase("MariaDB"));
+    }
+
+    /**
+     * 把不属于所在分片的用户（开启分片前留在主库的用户、调整 slots 后需要迁移的用户）移到 id 对应的分片，返回移动的数量。
+     * 每批先在目标分片删除同 id 的记录再插入，最后从原分片删除，中途失败可以重新执行。
+     * 迁移期间被移动的用户可能短暂查询不到，应在停写或低峰期执行。
+     * 任一库中仍有外键 fk_user_role_user_id 时抛出 IllegalStateException：从原分片删除用户会级联删除其角色
+     */
+    public int rebalance(int batchSize) {
+        requireSharded();
+        List<JdbcTemplate> sources = new ArrayList<>();
+        shards.forEach(shard -> sources.add(shard.getJdbcTemplate()));
+        if (!sources.contains(directory)) {
+            sources.add(directory);
+        }
+        for (JdbcTemplate source : sources) {
+            Integer foreignKeys = source.queryForObject("SELECT COUNT(*) FROM information_schema.REFERENTIAL_CONSTRAINTS "
+                    + "WHERE CONSTRAINT_SCHEMA = SCHEMA() AND UPPER(CONSTRAINT_NAME) = 'FK_USER_ROLE_USER_ID'", Integer.class);
+            if (foreignKeys != null && foreignKeys > 0) {
+                throw new IllegalStateException("t_user_role 的外键 fk_user_role_user_id 仍然存在，移动用户会级联删除其角色，"
+                        + "请先执行 rbac_security_schema.sql 中的迁移语句删除该外键");
+            }
+        }
+        int moved = 0;
+        for (JdbcTemplate source : sources) {
+            Map<Shard, List<Integer>> misplaced = new LinkedHashMap<>();
+            for (Integer id : source.queryForList("SELECT id FROM t_user ORDER BY id", Integer.class)) {
+                Shard target = forId(id);
+                if (target.getJdbcTemplate() != source) {
+                    misplaced.computeIfAbsent(target, shard -> new ArrayList<>()).add(id);
+                }
+            }
+            for (Map.Entry<Shard, List<Integer>> entry : misplaced.entrySet()) {
+                List<Integer> ids = entry.getValue();
+                for (int from = 0; from < ids.size(); from += batchSize) {
+                    List<Integer> batch = ids.subList(from, Math.min(ids.size(), from + batchSize));
+                    moveUsers(source, entry.getKey(), batch);
+                    moved += batch.size();
+                }
+                log.info("已将 {} 个用户移到分片 {}", ids.size(), entry.getKey().getName());
+            }
+        }
+        return moved;
+    }
+
+    private void moveUsers(JdbcTemplate source, Shard target, List<Integer> ids) {
+        String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Object[] args = ids.toArray();
+        List<Map<String, Object>> rows = source.queryForList("SELECT * FROM t_user WHERE id IN (" + in + ")", args);
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        String insert = "INSERT INTO t_user (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        List<Object[]> values = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            values.add(columns.stream().map(row::get).toArray());
+        }
+        target.getTransactionTemplate().executeWithoutResult(status -> {
+            target.getJdbcTemplate().update("DELETE FROM t_user WHERE id IN (" + in + ")", args);
+            target.getJdbcTemplate().batchUpdate(insert, values);
+        });
+        source.update("DELETE FROM t_user WHERE id IN (" + in + ")", args);
+    }
+
+    /**
+     * 在各分片上并行执行，按分片顺序返回结果。只有一个分片时在当前线程执行，否则经 taskDecorator 包装后提交到线程池；
+     * 任一分片失败时抛出其异常，超过 queryTimeout 时取消其余查询并抛出 QueryTimeoutException
+     */
+    public <T> List<T> scatter(Collection<Shard> targets, Function<Shard, T> task) {
+        if (targets.size() == 1) {
+            return Collections.singletonList(task.apply(targets.iterator().next()));
+        }
+        List<Future<T>> futures = new ArrayList<>(targets.size());
+        TaskDecorator decorator = taskDecorator;
+        for (Shard shard : targets) {
+            FutureTask<T> future = new FutureTask<>(() -> task.apply(shard));
+            executor.execute(decorator.decorate(future));
+            futures.add(future);
+        }
+        long deadline = System.nanoTime() + queryTimeoutNanos;
+        List<T> results = new ArrayList<>(targets.size());
+        try {
+            int i = 0;
+            for (Shard shard : targets) {
+                try {
+                    results.add(futures.get(i++).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+                } catch (TimeoutException e) {
+                    throw new QueryTimeoutException("分片 " + shard.getName() + " 查询超时（"
+                            + TimeUnit.NANOSECONDS.toMillis(queryTimeoutNanos) + "ms）");
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    log.warn("分片 {} 查询失败: {}", shard.getName(), cause.getMessage());
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException("跨分片查询被中断");
+        } finally {
+            if (results.size() < futures.size()) {
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 有序查询：各分片执行同一条带 ORDER BY 的语句，按 order 归并后跳过 skip 条、最多返回 limit 条。
+     * order 必须与语句的排序一致，语句的 LIMIT 至少要覆盖 skip + limit 条
+     */
+    public <T> List<T> query(Collection<Shard> targets, String sql, RowMapper<T> rowMapper, Object[] args,
+                             Comparator<? super T> order, int skip, int limit) {
+        List<List<T>> results = scatter(targets, shard -> shard.getJdbcTemplate().query(sql, rowMapper, args));
+        return merge(results, order, skip, limit);
+    }
+
+    /**
+     * 各分片上 COUNT 等数值查询的和
+     */
+    public long sum(Collection<Shard> targets, String sql, Object... args) {
+        long total = 0;
+        for (Long value : scatter(targets, shard -> shard.getJdbcTemplate().queryForObject(sql, Long.class, args))) {
+            total += value == null ? 0 : value;
+        }
+        return total;
+    }
+
+    /**
+     * k 路归并：每个列表已按 order 排好序，用小顶堆每次取出各列表当前最小的一个，
+     * 只处理 skip + limit 条，与列表总长度无关
+     */
+    public static <T> List<T> merge(List<? extends List<? extends T>> sorted, Comparator<? super T> order, int skip, int limit) {
+        if (sorted.size() == 1) {
+            List<? extends T> only = sorted.get(0);
+            int from = Math.min(skip, only.size());
+            return new ArrayList<>(only.subList(from, (int) Math.min(only.size(), (long) from + limit)));
+        }
+        PriorityQueue<Cursor<T>> heap = new PriorityQueue<>(Math.max(1, sorted.size()),
+                (a, b) -> order.compare(a.current(), b.current()));
+        for (List<? extends T> list : sorted) {
+            if (!list.isEmpty()) {
+                heap.add(new Cursor<>(list));
+            }
+        }
+        List<T> merged = new ArrayList<>(Math.min(limit, 1024));
+        int skipped = 0;
+        while (!heap.isEmpty() && merged.size() < limit) {
+            Cursor<T> cursor = heap.poll();
+            if (skipped < skip) {
+                skipped++;
+            } else {
+                merged.add(cursor.current());
+            }
+            if (cursor.advance()) {
+                heap.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        for (AutoCloseable resource : resources) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                log.warn("关闭分片连接池失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void requireSharded() {
+        if (layout == null) {
+            throw new IllegalStateException("未开启分片，id 由 t_user 自增生成");
+        }
+    }
+
+    /**
+     * 一个分片：JdbcTemplate 和同一数据源上的事务模板
+     */
+    public static class Shard {
+        private final String name;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transactionTemplate;
+
+        public Shard(String name, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+            this.name = name;
+            this.jdbcTemplate = jdbcTemplate;
+            this.transactionTemplate = transactionTemplate;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public JdbcTemplate getJdbcTemplate() {
+            return jdbcTemplate;
+        }
+
+        public TransactionTemplate getTransactionTemplate() {
+            return transactionTemplate;
+        }
+    }
+
+    private static class Cursor<T> {
+        private final List<? extends T> list;
+        private int position;
+
+        Cursor(List<? extends T> list) {
+            this.list = list;
+        }
+
+        T current() {
+            return list.get(position);
+        }
+
+        boolean advance() {
+            return ++position < list.size();
+        }
+    }
+}
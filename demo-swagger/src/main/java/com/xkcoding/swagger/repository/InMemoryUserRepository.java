@@ -0,0 +1,293 @@
+package com.xkcoding.swagger.repository;
+
+import com.xkcoding.swagger.entity.User;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * 线程安全的内存用户仓库（模拟数据库）
+ * </p>
+ *
+ * 主存储为按ID排序的并发Map，ID由原子序列生成；岗位建立 n-gram（单字 + 双字）倒排索引，
+ * 支持子串查询。索引采用写时复制：写操作串行执行并发布新的不可变快照，读操作无锁。
+ * 存入的用户对象不会再被修改，更新时整体替换为新对象
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Repository
+public class InMemoryUserRepository {
+
+    /**
+     * 主存储：ID -> 用户
+     */
+    private final ConcurrentNavigableMap<Integer, User> users = new ConcurrentSkipListMap<>();
+
+    /**
+     * ID序列
+     */
+    private final AtomicInteger idSequence = new AtomicInteger();
+
+    /**
+     * 岗位 n-gram 倒排索引快照（不可变，写时复制）
+     */
+    private volatile Map<String, Set<Integer>> jobIndex = Collections.emptyMap();
+
+    /**
+     * 写锁，保证主存储与索引的更新顺序一致
+     */
+    private final Object writeLock = new Object();
+
+    public InMemoryUserRepository() {
+        save(newUser("张三", "前端开发"));
+        save(newUser("李四", "后端开发"));
+        save(newUser("王五", "全栈开发"));
+        save(newUser("赵六", "产品经理"));
+        save(newUser("钱七", "UI设计师"));
+    }
+
+    /**
+     * 根据ID查询
+     */
+    public User findById(Integer id) {
+        return id == null ? null : users.get(id);
+    }
+
+    /**
+     * 查询所有用户（按ID升序）
+     */
+    public List<User> findAll() {
+        return new ArrayList<>(users.values());
+    }
+
+    /**
+     * 根据ID集合查询
+     */
+    public Map<Integer, User> findByIds(Collection<Integer> ids) {
+        Map<Integer, User> result = new HashMap<>(ids.size());
+        for (Integer id : ids) {
+            User user = findById(id);
+            if (user != null) {
+                result.put(id, user);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 查询岗位包含指定子串的用户（按ID升序）
+     * 先用子串的 n-gram 在倒排索引中求交得到候选，再逐个确认是否包含
+     */
+    public List<User> findByJobContaining(String keyword) {
+        if (keyword == null || keyword.isEmpty()) {
+            return findAll();
+        }
+
+        Map<String, Set<Integer>> index = jobIndex;
+        Set<Integer> candidates = null;
+        for (String gram : queryGrams(keyword)) {
+            Set<Integer> postings = index.get(gram);
+            if (postings == null) {
+                return new ArrayList<>();
+            }
+            if (candidates == null || postings.size() < candidates.size()) {
+                candidates = intersect(postings, candidates);
+            } else {
+                candidates = intersect(candidates, postings);
+            }
+            if (candidates.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+
+        List<User> result = new ArrayList<>();
+        for (Integer id : new TreeSet<>(candidates)) {
+            User user = users.get(id);
+            if (user != null && user.getJob() != null && user.getJob().contains(keyword)) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 统计岗位包含指定子串的用户数量
+     */
+    public long countByJobContaining(String keyword) {
+        return findByJobContaining(keyword).size();
+    }
+
+    /**
+     * 用户总数
+     */
+    public int count() {
+        return users.size();
+    }
+
+    /**
+     * 保存新用户：分配ID并存入副本
+     *
+     * @param user 用户信息，分配的ID会回写到该对象
+     * @return 存储的用户
+     */
+    public User save(User user) {
+        synchronized (writeLock) {
+            user.setId(idSequence.incrementAndGet());
+            User stored = copyOf(user);
+            users.put(stored.getId(), stored);
+            indexJob(stored.getId(), null, stored.getJob());
+            return stored;
+        }
+    }
+
+    /**
+     * 更新用户姓名和岗位
+     *
+     * @return 更新后的用户，不存在时返回 null
+     */
+    public User update(Integer id, String name, String job) {
+        synchronized (writeLock) {
+            User existing = users.get(id);
+            if (existing == null) {
+                return null;
+            }
+            User updated = copyOf(existing);
+            updated.setName(name);
+            updated.setJob(job);
+            users.put(id, updated);
+            indexJob(id, existing.getJob(), job);
+            return updated;
+        }
+    }
+
+    /**
+     * 删除用户
+     *
+     * @return 是否删除成功
+     */
+    public boolean deleteById(Integer id) {
+        synchronized (writeLock) {
+            User removed = users.remove(id);
+            if (removed == null) {
+                return false;
+            }
+            indexJob(id, removed.getJob(), null);
+            return true;
+        }
+    }
+
+    /**
+     * 更新岗位索引：复制外层Map，只替换受影响的倒排列表，然后发布新快照
+     */
+    private void indexJob(Integer id, String oldJob, String newJob) {
+        Set<String> oldGrams = indexGrams(oldJob);
+        Set<String> newGrams = indexGrams(newJob);
+        if (oldGrams.equals(newGrams)) {
+            return;
+        }
+
+        Map<String, Set<Integer>> next = new HashMap<>(jobIndex);
+        for (String gram : oldGrams) {
+            if (!newGrams.contains(gram)) {
+                Set<Integer> postings = new HashSet<>(next.getOrDefault(gram, Collections.emptySet()));
+                postings.remove(id);
+                if (postings.isEmpty()) {
+                    next.remove(gram);
+                } else {
+                    next.put(gram, Collections.unmodifiableSet(postings));
+                }
+            }
+        }
+        for (String gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                Set<Integer> postings = new HashSet<>(next.getOrDefault(gram, Collections.emptySet()));
+                postings.add(id);
+                next.put(gram, Collections.unmodifiableSet(postings));
+            }
+        }
+        jobIndex = Collections.unmodifiableMap(next);
+    }
+
+    /**
+     * 建索引用的 n-gram：所有单字和相邻双字
+     */
+    private static Set<String> indexGrams(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i < text.length(); i++) {
+            grams.add(text.substring(i, i + 1));
+            if (i + 1 < text.length()) {
+                grams.add(text.substring(i, i + 2));
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * 查询用的 n-gram：单字查询用单字，否则用所有相邻双字
+     */
+    private static Set<String> queryGrams(String keyword) {
+        Set<String> grams = new LinkedHashSet<>();
+        if (keyword.length() == 1) {
+            grams.add(keyword);
+            return grams;
+        }
+        for (int i = 0; i + 1 < keyword.length(); i++) {
+            grams.add(keyword.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    private static Set<Integer> intersect(Set<Integer> smaller, Set<Integer> larger) {
+        if (larger == null) {
+            return smaller;
+        }
+        Set<Integer> result = new HashSet<>();
+        for (Integer id : smaller) {
+            if (larger.contains(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static User newUser(String name, String job) {
+        User user = new User();
+        user.setName(name);
+        user.setJob(job);
+        return user;
+    }
+
+    private static User copyOf(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setName(user.getName());
+        copy.setJob(user.getJob());
+        copy.setUsername(user.getUsername());
+        copy.setPassword(user.getPassword());
+        copy.setEmail(user.getEmail());
+        copy.setPhone(user.getPhone());
+        copy.setStatus(user.getStatus());
+        copy.setCreateTime(user.getCreateTime());
+        copy.setUpdateTime(user.getUpdateTime());
+        copy.setRoles(user.getRoles());
+        copy.setPermissions(user.getPermissions());
+        return copy;
+    }
+}
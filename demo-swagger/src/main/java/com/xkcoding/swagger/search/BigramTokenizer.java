@@ -0,0 +1,60 @@
+package com.xkcoding.swagger.search;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * <p>
+ * 二元分词（bigram）
+ * </p>
+ *
+ * 中文姓名、岗位没有空格分词，按相邻两个字切分即可覆盖任意长度的子串查询：
+ * "高级开发" 切分为 "高级"、"级开"、"开发"，包含 "开发" 的文本一定包含这个 bigram。
+ * 英文等其他文字同样按字符切分，与 LIKE '%kw%' 的子串语义一致；单个字符单独建索引，支持一个字的查询
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public final class BigramTokenizer {
+
+    private BigramTokenizer() {
+    }
+
+    /**
+     * 规范化：去掉首尾空白并转小写（与 MySQL 默认排序规则下 LIKE 的大小写不敏感一致）
+     */
+    public static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 建索引用的词元：所有单字和相邻两字
+     */
+    public static Set<String> indexTokens(String normalized) {
+        Set<String> tokens = new LinkedHashSet<>();
+        int[] codePoints = normalized.codePoints().toArray();
+        for (int i = 0; i < codePoints.length; i++) {
+            tokens.add(new String(codePoints, i, 1));
+            if (i + 1 < codePoints.length) {
+                tokens.add(new String(codePoints, i, 2));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 查询用的词元：一个字时为单字，否则为所有相邻两字
+     */
+    public static Set<String> queryTokens(String normalized) {
+        Set<String> tokens = new LinkedHashSet<>();
+        int[] codePoints = normalized.codePoints().toArray();
+        if (codePoints.length == 1) {
+            tokens.add(normalized);
+        }
+        for (int i = 0; i + 1 < codePoints.length; i++) {
+            tokens.add(new String(codePoints, i, 2));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,308 @@
+package com.xkcoding.swagger.search;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <p>
+ * 内存 n-gram 倒排索引：多字段文档，支持子串匹配、相关度排序和前缀补全
+ * </p>
+ *
+ * 每个字段按 {@link BigramTokenizer} 切分，词元到文档 id 的倒排表对所有字段共用。
+ * 子串匹配取查询词元倒排表的交集，再用原文校验（相邻两字都出现不代表整个查询词连续出现）；
+ * 相关度排序按词元的 IDF 累加，并对整词命中、前缀命中、完全相等的字段加分，字段按权重累加。
+ * 前缀补全基于按规范化字段值排序的 TreeMap，按包含该值的文档数排序。
+ * 读写由读写锁保护，写入是按文档 id 的覆盖和删除，重复执行结果相同
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+public class NgramIndex {
+
+    /**
+     * 参与精排的文档至少命中查询词元 IDF 总和的比例，过滤只命中个别常见词元的文档
+     */
+    private static final double MIN_SHOULD_MATCH = 0.5;
+
+    private final double[] weights;
+    private final Map<Integer, Doc> docs = new HashMap<>();
+    private final Map<String, Set<Integer>> postings = new HashMap<>();
+    private final TreeMap<String, Term> terms = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param weights 各字段在相关度中的权重，字段顺序与 {@link #put} 的参数一致
+     */
+    public NgramIndex(double... weights) {
+        this.weights = weights;
+    }
+
+    /**
+     * 新增或覆盖文档
+     */
+    public void put(int id, String... fields) {
+        Doc doc = new Doc(fields);
+        lock.writeLock().lock();
+        try {
+            Doc old = docs.put(id, doc);
+            if (old != null) {
+                unindex(id, old);
+            }
+            for (String token : doc.tokens()) {
+                postings.computeIfAbsent(token, t -> new HashSet<>()).add(id);
+            }
+            for (int i = 0; i < fields.length; i++) {
+                if (!doc.normalized[i].isEmpty()) {
+                    terms.computeIfAbsent(doc.normalized[i], t -> new Term()).add(doc.fields[i].trim());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            Doc old = docs.remove(id);
+            if (old != null) {
+                unindex(id, old);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 任一字段包含 keyword（不区分大小写）的文档 id，语义与 LIKE '%keyword%' 相同
+     *
+     * @param limit 最多返回的数量
+     * @return 匹配的文档 id；超过 limit 或 keyword 为空时返回 null，由调用方改用其他方式查询
+     */
+    public List<Integer> matchIds(String keyword, int limit) {
+        String normalized = BigramTokenizer.normalize(keyword);
+        Set<String> tokens = BigramTokenizer.queryTokens(normalized);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            List<Set<Integer>> lists = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                Set<Integer> ids = postings.get(token);
+                if (ids == null) {
+                    return Collections.emptyList();
+                }
+                lists.add(ids);
+            }
+            // 从最短的倒排表开始求交集
+            lists.sort(Comparator.comparingInt(Set::size));
+            List<Integer> result = new ArrayList<>();
+            for (Integer id : lists.get(0)) {
+                if (containsAll(lists, id) && docs.get(id).contains(normalized)) {
+                    if (result.size() == limit) {
+                        return null;
+                    }
+                    result.add(id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按相关度搜索，查询按空白拆分为多个词，文档可以只命中部分词
+     */
+    public List<Hit> search(String query, int limit) {
+        String[] words = BigramTokenizer.normalize(query).split("\\s+");
+        lock.readLock().lock();
+        try {
+            // 粗排：按命中词元的 IDF 累加
+            Map<Integer, double[]> matched = new HashMap<>();
+            double total = 0;
+            for (String word : words) {
+                for (String token : BigramTokenizer.queryTokens(word)) {
+                    Set<Integer> ids = postings.get(token);
+                    double idf = Math.log(1 + (docs.size() + 1.0) / (ids == null ? 1 : ids.size() + 1));
+                    total += idf;
+                    if (ids != null) {
+                        for (Integer id : ids) {
+                            matched.computeIfAbsent(id, k -> new double[1])[0] += idf;
+                        }
+                    }
+                }
+            }
+
+            // 精排：达到最低命中比例的文档按字段计算得分，保留得分最高的 limit 个
+            Comparator<Hit> order = Comparator.comparingDouble(Hit::getScore)
+                    .thenComparing(hit -> -hit.getFields()[0].length())
+                    .thenComparing(hit -> -hit.getId());
+            PriorityQueue<Hit> top = new PriorityQueue<>(order);
+            for (Map.Entry<Integer, double[]> entry : matched.entrySet()) {
+                double coarse = entry.getValue()[0];
+                if (coarse < total * MIN_SHOULD_MATCH) {
+                    continue;
+                }
+                Doc doc = docs.get(entry.getKey());
+                top.add(new Hit(entry.getKey(), doc.fields, coarse / total + doc.score(words, weights)));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<Hit> result = new ArrayList<>(top);
+            result.sort(order.reversed());
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 前缀补全：以 prefix 开头的字段值，按包含该值的文档数从多到少排序
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String normalized = BigramTokenizer.normalize(prefix);
+        if (normalized.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            NavigableMap<String, Term> range = terms.subMap(normalized, true, normalized + Character.MAX_VALUE, true);
+            List<Term> candidates = new ArrayList<>(range.values());
+            candidates.sort(Comparator.comparingInt((Term term) -> term.docs).reversed()
+                    .thenComparing(term -> term.display));
+            List<String> result = new ArrayList<>(Math.min(limit, candidates.size()));
+            for (int i = 0; i < candidates.size() && i < limit; i++) {
+                result.add(candidates.get(i).display);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void unindex(int id, Doc doc) {
+        for (String token : doc.tokens()) {
+            Set<Integer> ids = postings.get(token);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                postings.remove(token);
+            }
+        }
+        for (String value : doc.normalized) {
+            Term term = value.isEmpty() ? null : terms.get(value);
+            if (term != null && --term.docs == 0) {
+                terms.remove(value);
+            }
+        }
+    }
+
+    private static boolean containsAll(List<Set<Integer>> lists, Integer id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 一条搜索结果，fields 为建索引时的原始字段值
+     */
+    @Getter
+    public static class Hit {
+        private final int id;
+        private final String[] fields;
+        private final double score;
+
+        Hit(int id, String[] fields, double score) {
+            this.id = id;
+            this.fields = fields;
+            this.score = score;
+        }
+    }
+
+    private static class Doc {
+        private final String[] fields;
+        private final String[] normalized;
+
+        Doc(String[] fields) {
+            this.fields = new String[fields.length];
+            this.normalized = new String[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                this.fields[i] = fields[i] == null ? "" : fields[i];
+                this.normalized[i] = BigramTokenizer.normalize(fields[i]);
+            }
+        }
+
+        Set<String> tokens() {
+            Set<String> tokens = new HashSet<>();
+            for (String value : normalized) {
+                tokens.addAll(BigramTokenizer.indexTokens(value));
+            }
+            return tokens;
+        }
+
+        boolean contains(String keyword) {
+            for (String value : normalized) {
+                if (value.contains(keyword)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 字段得分：完全相等 3 分，前缀命中 2 分，包含 1 分，乘以字段权重
+         */
+        double score(String[] words, double[] weights) {
+            double score = 0;
+            for (String word : words) {
+                if (word.isEmpty()) {
+                    continue;
+                }
+                for (int i = 0; i < normalized.length && i < weights.length; i++) {
+                    String value = normalized[i];
+                    int points = value.equals(word) ? 3 : value.startsWith(word) ? 2 : value.contains(word) ? 1 : 0;
+                    score += points * weights[i];
+                }
+            }
+            return score;
+        }
+    }
+
+    private static class Term {
+        private String display;
+        private int docs;
+
+        void add(String value) {
+            if (display == null) {
+                display = value;
+            }
+            docs++;
+        }
+    }
+}
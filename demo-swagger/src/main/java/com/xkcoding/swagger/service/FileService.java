@@ -1,5 +1,6 @@
 package com.xkcoding.swagger.service;
 
+import com.xkcoding.swagger.common.IdGenerator;
 import com.xkcoding.swagger.config.FileProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,6 +34,9 @@ public class FileService {
     @Autowired
     private FileProperties fileProperties;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
     // 允许的文件类型和对应的MIME类型
     private static final Map<String, String> ALLOWED_FILE_TYPES = new HashMap<>();
 
@@ -141,13 +145,19 @@ public class FileService {
         return fileProperties.getDownload().getLargeBufferSize() * 1024; // 转换为字节
     }
 
+    /**
+     * 报表文件名后缀：秒级时间便于辨认，加上 id 保证同一秒内的多次生成不会覆盖
+     */
+    private String reportSuffix() {
+        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + "_" + idGenerator.nextCompactId();
+    }
+
     /**
      * 生成报表文件
      */
     public Path generateReport(String reportType, String startDate, String endDate) throws IOException {
         // 生成报表文件名
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String fileName = String.format("%s_report_%s.csv", reportType, timestamp);
+        String fileName = String.format("%s_report_%s.csv", reportType, reportSuffix());
 
         // 确保报表目录存在
         String reportPath = getReportPath();
@@ -184,8 +194,7 @@ public class FileService {
      */
     public Path generateStudentStatusReport(String buId, Map<String, Object> searchForm) throws IOException {
         // 生成报表文件名
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String fileName = String.format("student_status_report_%s.csv", timestamp);
+        String fileName = String.format("student_status_report_%s.csv", reportSuffix());
 
         // 确保临时目录存在
         String tempPath = getTempPath();
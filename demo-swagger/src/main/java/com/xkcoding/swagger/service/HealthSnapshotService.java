@@ -0,0 +1,273 @@
+package com.xkcoding.swagger.service;
+
+import com.xkcoding.swagger.config.HealthSnapshotProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * 健康检查快照服务
+ * </p>
+ *
+ * 后台按各项检查自己的间隔并行执行（数据库、RabbitMQ、Redis、磁盘、用户总数等），每项有独立的超时，
+ * 结果保存为快照；actuator 探针和 /monitor 接口只读取快照，不再每次探测都访问数据库和中间件。
+ * 每项检查同时最多有一个线程在执行：上一次检查仍未结束（如卡在建立连接，超时中断后线程仍未退出）时跳过本轮，
+ * 检查线程数不超过检查项数，不会堆积线程；快照超过 maxStaleness 未更新时报告 DOWN（UNKNOWN 在汇总中低于 UP，会掩盖卡住的检查）。
+ * {@link #deepCheck()} 立即执行全部检查，用于按需排查
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+public class HealthSnapshotService implements SmartInitializingSingleton, DisposableBean {
+
+    private final HealthSnapshotProperties properties;
+    private final Map<String, Check> checks = new LinkedHashMap<>();
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ExecutorService workers;
+
+    public HealthSnapshotService(HealthSnapshotProperties properties, List<Check> checks) {
+        this.properties = properties;
+        for (Check check : checks) {
+            this.checks.put(check.name, check);
+        }
+        CustomizableThreadFactory schedulerThreads = new CustomizableThreadFactory("health-snapshot-");
+        schedulerThreads.setDaemon(true);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, schedulerThreads);
+        this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        CustomizableThreadFactory workerThreads = new CustomizableThreadFactory("health-check-");
+        workerThreads.setDaemon(true);
+        this.workers = new ThreadPoolExecutor(0, Math.max(1, this.checks.size()), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), workerThreads);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (Check check : checks.values()) {
+            long interval = (check.interval != null ? check.interval : properties.getInterval()).toMillis();
+            scheduler.scheduleWithFixedDelay(() -> refresh(check), 0, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 某项检查的最近结果，附带检查时间和耗时；尚未完成首次检查时为 UNKNOWN，结果过期时为 DOWN
+     */
+    public Health health(String name) {
+        Snapshot snapshot = snapshots.get(name);
+        if (snapshot == null) {
+            return Health.unknown().withDetail("reason", "尚未完成首次检查").build();
+        }
+        long age = System.currentTimeMillis() - snapshot.checkedAt;
+        if (age > properties.getMaxStaleness().toMillis()) {
+            return Health.down().withDetail("reason", "快照已过期，后台检查可能卡住")
+                    .withDetail("lastStatus", snapshot.health.getStatus().getCode())
+                    .withDetail("checkedAt", Instant.ofEpochMilli(snapshot.checkedAt).toString())
+                    .build();
+        }
+        return Health.status(snapshot.health.getStatus())
+                .withDetails(snapshot.health.getDetails())
+                .withDetail("checkedAt", Instant.ofEpochMilli(snapshot.checkedAt).toString())
+                .withDetail("durationMs", snapshot.durationMillis)
+                .build();
+    }
+
+    /**
+     * 某项检查最近一次结果中的详情，没有时返回 null（不判断是否过期）
+     */
+    public Object detail(String name, String key) {
+        Snapshot snapshot = snapshots.get(name);
+        return snapshot == null ? null : snapshot.health.getDetails().get(key);
+    }
+
+    /**
+     * 立即并行执行全部检查，更新快照并返回结果。某项检查正在进行时等待其结果而不重复执行；
+     * 上一次已超时但线程仍未退出时直接返回当前快照（DOWN）
+     */
+    public Map<String, Health> deepCheck() {
+        long start = System.nanoTime();
+        Map<String, Run> runs = new LinkedHashMap<>();
+        for (Check check : checks.values()) {
+            Run run = launch(check);
+            runs.put(check.name, run != null ? run : check.current);
+        }
+        long deadline = start + properties.getTimeout().toNanos();
+        Map<String, Health> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Run> entry : runs.entrySet()) {
+            Run run = entry.getValue();
+            if (run != null) {
+                try {
+                    run.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    run.expire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException | CancellationException e) {
+                    // probe 自己捕获异常；已被取消的检查在超时时已记为 DOWN
+                }
+            }
+            result.put(entry.getKey(), health(entry.getKey()));
+        }
+        return result;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * 后台执行一项检查：上一次还没有结束时跳过
+     */
+    private void refresh(Check check) {
+        if (launch(check) == null) {
+            log.warn("健康检查 {} 上一次仍未结束，跳过本轮", check.name);
+        }
+    }
+
+    /**
+     * 开始执行一项检查，结束时更新快照；超时后记为 DOWN 并中断检查线程。
+     * 上一次检查的线程还没有退出时返回 null
+     */
+    private Run launch(Check check) {
+        if (!check.running.compareAndSet(false, true)) {
+            return null;
+        }
+        Run run = new Run(check);
+        check.current = run;
+        try {
+            workers.execute(run::run);
+        } catch (RuntimeException e) {
+            check.running.set(false);
+            return null;
+        }
+        scheduler.schedule(run::expire, properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        return run;
+    }
+
+    private Health probe(Check check) {
+        try {
+            return check.probe.call();
+        } catch (Exception e) {
+            return Health.down().withDetail("error", e.getClass().getSimpleName() + ": " + e.getMessage()).build();
+        }
+    }
+
+    private Health timeout() {
+        return Health.down().withDetail("error", "检查超时（" + properties.getTimeout().toMillis() + "ms）").build();
+    }
+
+    private void record(Check check, Health health, long startNanos) {
+        Snapshot previous = snapshots.put(check.name,
+                new Snapshot(health, System.currentTimeMillis(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+        Status before = previous == null ? null : previous.health.getStatus();
+        if (before != null && !before.equals(health.getStatus())) {
+            log.warn("健康检查 {} 状态变化: {} -> {} {}", check.name, before, health.getStatus(), health.getDetails());
+        }
+    }
+
+    /**
+     * 已注册的检查名称
+     */
+    public List<String> getCheckNames() {
+        return new ArrayList<>(checks.keySet());
+    }
+
+    /**
+     * 一项检查
+     */
+    public static class Check {
+        private final String name;
+        private final Duration interval;
+        private final Callable<Health> probe;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private volatile Run current;
+
+        /**
+         * @param interval 检查间隔，为 null 时使用 health.snapshot.interval
+         * @param probe    返回检查结果，抛出异常时记为 DOWN
+         */
+        public Check(String name, Duration interval, Callable<Health> probe) {
+            this.name = name;
+            this.interval = interval;
+            this.probe = probe;
+        }
+    }
+
+    /**
+     * 一次检查的执行
+     */
+    private class Run {
+        private final Check check;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean timedOut = new AtomicBoolean();
+        private final FutureTask<Health> future;
+
+        Run(Check check) {
+            this.check = check;
+            this.future = new FutureTask<>(() -> {
+                Health health = probe(check);
+                if (!timedOut.get()) {
+                    record(check, health, start);
+                }
+                return health;
+            });
+        }
+
+        /**
+         * 在检查线程中执行；开始前已被取消时 future 不会调用 probe，同样要释放 running
+         */
+        void run() {
+            try {
+                future.run();
+            } finally {
+                check.running.set(false);
+            }
+        }
+
+        void expire() {
+            if (!future.isDone() && timedOut.compareAndSet(false, true)) {
+                record(check, timeout(), start);
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static class Snapshot {
+        private final Health health;
+        private final long checkedAt;
+        private final long durationMillis;
+
+        Snapshot(Health health, long checkedAt, long durationMillis) {
+            this.health = health;
+            this.checkedAt = checkedAt;
+            this.durationMillis = durationMillis;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.xkcoding.swagger.service;
+
+import com.xkcoding.swagger.common.BulkResult;
+import com.xkcoding.swagger.entity.User;
+import com.xkcoding.swagger.jdbc.UserShards;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * <p>
+ * t_user 批量写入服务
+ * </p>
+ *
+ * 校验通过的条目按 bulk.chunk-size 分块，每块在一个事务中用一次 JDBC 批量执行写入
+ * （MySQL 连接开启 rewriteBatchedStatements 后驱动会把一批 INSERT 改写为多值 INSERT）。
+ * 某一块失败时整块回滚，再逐条各自在事务中重试，找出失败的条目，其余条目照常写入。
+ * 写入成功的用户在事务提交后同步到搜索索引。
+ * 开启分片时条目先按 id 所在分片分组，每个分片各自分块写入；新增的 id 由查找表批量分配
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+@Service
+public class UserBulkService {
+
+    private static final String INSERT_SQL = "INSERT INTO t_user (name, job) VALUES (?, ?)";
+    private static final String INSERT_WITH_ID_SQL = "INSERT INTO t_user (id, name, job) VALUES (?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE t_user SET name = ?, job = ? WHERE id = ?";
+    private static final String UPSERT_SQL = "INSERT INTO t_user (id, name, job) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE name = VALUES(name), job = VALUES(job)";
+    private static final String DELETE_SQL = "DELETE FROM t_user WHERE id = ?";
+
+    private final UserShards userShards;
+    private final UserSearchService userSearchService;
+
+    /**
+     * 每个事务写入的条数
+     */
+    @Value("${bulk.chunk-size:500}")
+    private int chunkSize = 500;
+
+    /**
+     * 单次请求最多的条数
+     */
+    @Value("${bulk.max-items:50000}")
+    private int maxItems = 50000;
+
+    public UserBulkService(UserShards userShards, UserSearchService userSearchService) {
+        this.userShards = userShards;
+        this.userSearchService = userSearchService;
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    /**
+     * 批量新增，返回生成的ID
+     */
+    public BulkResult insert(List<User> users) {
+        BulkResult.Item[] items = new BulkResult.Item[users.size()];
+        List<Integer> valid = validate(users, items, false);
+        if (userShards.isSharded()) {
+            insertSharded(users, valid, items);
+            return BulkResult.of(items);
+        }
+        UserShards.Shard shard = userShards.getShards().get(0);
+        inChunks(shard, valid, items, index -> users.get(index).getId(), chunk -> shard.getJdbcTemplate().execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Integer index : chunk) {
+                    ps.setString(1, users.get(index).getName());
+                    ps.setString(2, users.get(index).getJob());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                // 生成的ID按批量中的顺序返回
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (Integer index : chunk) {
+                        User user = users.get(index);
+                        Integer id = keys.next() ? keys.getInt(1) : null;
+                        items[index] = new BulkResult.Item(index, id, BulkResult.CREATED, null);
+                        userSearchService.onSaved(id, user.getName(), user.getJob());
+                    }
+                }
+            }
+            return null;
+        }));
+        return BulkResult.of(items);
+    }
+
+    /**
+     * 分片时的批量新增：先在查找表中分配全部 id，按 id 分组写入各分片，写入失败的条目释放已分配的 id
+     */
+    private void insertSharded(List<User> users, List<Integer> valid, BulkResult.Item[] items) {
+        if (valid.isEmpty()) {
+            return;
+        }
+        List<Integer> allocated = userShards.allocateIds(Collections.<String>nCopies(valid.size(), null));
+        Integer[] ids = new Integer[users.size()];
+        for (int i = 0; i < valid.size(); i++) {
+            ids[valid.get(i)] = allocated.get(i);
+        }
+        inShards(valid, items, index -> ids[index], (shard, chunk) -> {
+            List<Object[]> args = new ArrayList<>(chunk.size());
+            for (Integer index : chunk) {
+                args.add(new Object[]{ids[index], users.get(index).getName(), users.get(index).getJob()});
+            }
+            shard.getJdbcTemplate().batchUpdate(INSERT_WITH_ID_SQL, args);
+            for (Integer index : chunk) {
+                User user = users.get(index);
+                items[index] = new BulkResult.Item(index, ids[index], BulkResult.CREATED, null);
+                userSearchService.onSaved(ids[index], user.getName(), user.getJob());
+            }
+        });
+        List<Integer> unused = new ArrayList<>();
+        for (Integer index : valid) {
+            if (BulkResult.FAILED.equals(items[index].getStatus())) {
+                unused.add(ids[index]);
+            }
+        }
+        if (!unused.isEmpty()) {
+            userShards.releaseIds(unused);
+        }
+    }
+
+    /**
+     * 按ID批量新增或覆盖（INSERT ... ON DUPLICATE KEY UPDATE）。
+     * 影响行数不能可靠区分新增和更新（MySQL 驱动默认返回匹配行数，内容未变与新增同为 1，
+     * 改写为多值语句后也没有逐条结果），因此每块先查出已存在的ID
+     */
+    public BulkResult upsert(List<User> users) {
+        BulkResult.Item[] items = new BulkResult.Item[users.size()];
+        List<Integer> valid = validate(users, items, true);
+        if (userShards.isSharded() && !valid.isEmpty()) {
+            // 调用方指定的 id 也要登记到查找表，之后分配的 id 才不会重复
+            Set<Integer> ids = new HashSet<>();
+            valid.forEach(index -> ids.add(users.get(index).getId()));
+            userShards.reserveIds(ids);
+        }
+        inShards(valid, items, index -> users.get(index).getId(), (shard, chunk) -> {
+            List<Object[]> args = new ArrayList<>(chunk.size());
+            List<Integer> ids = new ArrayList<>(chunk.size());
+            for (Integer index : chunk) {
+                User user = users.get(index);
+                args.add(new Object[]{user.getId(), user.getName(), user.getJob()});
+                ids.add(user.getId());
+            }
+            Set<Integer> existing = new HashSet<>(shard.getJdbcTemplate().queryForList("SELECT id FROM t_user WHERE id IN (" +
+                    String.join(", ", Collections.nCopies(ids.size(), "?")) + ")", Integer.class, ids.toArray()));
+            shard.getJdbcTemplate().batchUpdate(UPSERT_SQL, args);
+            for (Integer index : chunk) {
+                User user = users.get(index);
+                // 同一个ID在请求中出现多次时，第一次之后都是更新
+                String status = existing.add(user.getId()) ? BulkResult.CREATED : BulkResult.UPDATED;
+                items[index] = new BulkResult.Item(index, user.getId(), status, null);
+                userSearchService.onSaved(user.getId(), user.getName(), user.getJob());
+            }
+        });
+        return BulkResult.of(items);
+    }
+
+    /**
+     * 按ID批量更新姓名和岗位
+     */
+    public BulkResult update(List<User> users) {
+        BulkResult.Item[] items = new BulkResult.Item[users.size()];
+        List<Integer> valid = validate(users, items, true);
+        inShards(valid, items, index -> users.get(index).getId(), (shard, chunk) -> {
+            List<Object[]> args = new ArrayList<>(chunk.size());
+            for (Integer index : chunk) {
+                User user = users.get(index);
+                args.add(new Object[]{user.getName(), user.getJob(), user.getId()});
+            }
+            int[] counts = shard.getJdbcTemplate().batchUpdate(UPDATE_SQL, args);
+            for (int i = 0; i < chunk.size(); i++) {
+                Integer index = chunk.get(i);
+                User user = users.get(index);
+                if (counts[i] == 0) {
+                    items[index] = new BulkResult.Item(index, user.getId(), BulkResult.NOT_FOUND, "用户不存在");
+                } else {
+                    items[index] = new BulkResult.Item(index, user.getId(), BulkResult.UPDATED, null);
+                    userSearchService.onSaved(user.getId(), user.getName(), user.getJob());
+                }
+            }
+        });
+        return BulkResult.of(items);
+    }
+
+    /**
+     * 按ID批量删除
+     */
+    public BulkResult delete(List<Integer> ids) {
+        BulkResult.Item[] items = new BulkResult.Item[ids.size()];
+        List<Integer> valid = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) == null) {
+                items[i] = new BulkResult.Item(i, null, BulkResult.FAILED, "ID不能为空");
+            } else {
+                valid.add(i);
+            }
+        }
+        inShards(valid, items, ids::get, (shard, chunk) -> {
+            List<Object[]> args = new ArrayList<>(chunk.size());
+            for (Integer index : chunk) {
+                args.add(new Object[]{ids.get(index)});
+            }
+            int[] counts = shard.getJdbcTemplate().batchUpdate(DELETE_SQL, args);
+            for (int i = 0; i < chunk.size(); i++) {
+                Integer index = chunk.get(i);
+                if (counts[i] == 0) {
+                    items[index] = new BulkResult.Item(index, ids.get(index), BulkResult.NOT_FOUND, "用户不存在");
+                } else {
+                    items[index] = new BulkResult.Item(index, ids.get(index), BulkResult.DELETED, null);
+                    userSearchService.onDeleted(ids.get(index));
+                }
+            }
+        });
+        if (userShards.isSharded()) {
+            List<Integer> deleted = new ArrayList<>();
+            for (Integer index : valid) {
+                if (BulkResult.DELETED.equals(items[index].getStatus())) {
+                    deleted.add(ids.get(index));
+                }
+            }
+            if (!deleted.isEmpty()) {
+                userShards.releaseIds(deleted);
+            }
+        }
+        return BulkResult.of(items);
+    }
+
+    /**
+     * 校验姓名（t_user.name 不能为空），requireId 时还要求有ID
+     *
+     * @return 校验通过的条目位置
+     */
+    private static List<Integer> validate(List<User> users, BulkResult.Item[] items, boolean requireId) {
+        List<Integer> valid = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (user == null || requireId && user.getId() == null) {
+                items[i] = new BulkResult.Item(i, user == null ? null : user.getId(), BulkResult.FAILED, "ID不能为空");
+            } else if (!StringUtils.hasText(user.getName())) {
+                items[i] = new BulkResult.Item(i, user.getId(), BulkResult.FAILED, "姓名不能为空");
+            } else {
+                valid.add(i);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * 按ID所在分片分组后在各分片上分块执行
+     */
+    private void inShards(List<Integer> indexes, BulkResult.Item[] items, IntFunction<Integer> idOf,
+                          BiConsumer<UserShards.Shard, List<Integer>> writer) {
+        for (Map.Entry<UserShards.Shard, List<Integer>> group : userShards.group(indexes, idOf::apply).entrySet()) {
+            UserShards.Shard shard = group.getKey();
+            inChunks(shard, group.getValue(), items, idOf, chunk -> writer.accept(shard, chunk));
+        }
+    }
+
+    /**
+     * 分块执行：每块在分片上一个事务，失败时逐条重试
+     *
+     * @param idOf   条目位置对应的ID，用于失败结果
+     * @param writer 写入一块并填写其中每条的结果
+     */
+    private void inChunks(UserShards.Shard shard, List<Integer> indexes, BulkResult.Item[] items, IntFunction<Integer> idOf,
+                          Consumer<List<Integer>> writer) {
+        TransactionTemplate transactionTemplate = shard.getTransactionTemplate();
+        for (int from = 0; from < indexes.size(); from += chunkSize) {
+            List<Integer> chunk = indexes.subList(from, Math.min(from + chunkSize, indexes.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> writer.accept(chunk));
+            } catch (DataAccessException | TransactionException e) {
+                log.warn("批量写入失败，逐条重试: size={}, error={}", chunk.size(), e.getMessage());
+                for (Integer index : chunk) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> writer.accept(Collections.singletonList(index)));
+                    } catch (DataAccessException | TransactionException rowFailure) {
+                        String message = rowFailure.getMostSpecificCause().getMessage();
+                        items[index] = new BulkResult.Item(index, idOf.apply(index), BulkResult.FAILED, message);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,67 +1,91 @@
 package com.xkcoding.swagger.service;
 
+import com.xkcoding.swagger.cache.CacheTags;
+import com.xkcoding.swagger.cache.TieredCache;
+import com.xkcoding.swagger.cache.TieredCacheManager;
+import com.xkcoding.swagger.cache.WriteAheadLog;
+import com.xkcoding.swagger.cache.WriteBehindBuffer;
+import com.xkcoding.swagger.config.TieredCacheProperties;
 import com.xkcoding.swagger.entity.User;
+import com.xkcoding.swagger.repository.InMemoryUserRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 
+/**
+ * <p>
+ * 用户缓存服务
+ * </p>
+ *
+ * 开启 cache.write-behind 后，{@link #updateUser(User)} 只更新缓存并登记到延迟写入缓冲区，
+ * 同一用户在合并窗口内的多次更新只写一次仓库；写入后再按标签失效包含该用户的列表缓存，
+ * 在此之前列表缓存可能是旧值。写入之前从仓库加载用户时会叠加尚未写入的更新
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
 @Slf4j
 @Service
-public class UserCacheService {
+public class UserCacheService implements DisposableBean {
 
-    // 模拟数据库数据
-    private static final List<User> MOCK_USERS = new ArrayList<>();
+    /**
+     * 依赖用户集合成员的缓存标签（新增、删除用户时失效）
+     */
+    private static final String TAG_USER_LIST = "user:list";
 
-    static {
-        User user1 = new User();
-        user1.setId(1);
-        user1.setName("张三");
-        user1.setJob("前端开发");
-        MOCK_USERS.add(user1);
-        
-        User user2 = new User();
-        user2.setId(2);
-        user2.setName("李四");
-        user2.setJob("后端开发");
-        MOCK_USERS.add(user2);
-        
-        User user3 = new User();
-        user3.setId(3);
-        user3.setName("王五");
-        user3.setJob("全栈开发");
-        MOCK_USERS.add(user3);
-        
-        User user4 = new User();
-        user4.setId(4);
-        user4.setName("赵六");
-        user4.setJob("产品经理");
-        MOCK_USERS.add(user4);
-        
-        User user5 = new User();
-        user5.setId(5);
-        user5.setName("钱七");
-        user5.setJob("UI设计师");
-        MOCK_USERS.add(user5);
+    /**
+     * 依赖用户岗位的缓存标签（用户岗位变化时失效）
+     */
+    private static final String TAG_USER_JOB = "user:job";
+
+    private final TieredCacheManager cacheManager;
+
+    /**
+     * 模拟数据库
+     */
+    private final InMemoryUserRepository userRepository;
+
+    /**
+     * 延迟写入缓冲区，未开启时为 null
+     */
+    private final WriteBehindBuffer<Integer, User> writeBehind;
+
+    public UserCacheService(TieredCacheManager cacheManager, InMemoryUserRepository userRepository,
+                            TieredCacheProperties tieredCacheProperties) {
+        this.cacheManager = cacheManager;
+        this.userRepository = userRepository;
+        TieredCacheProperties.WriteBehind config = tieredCacheProperties.getWriteBehind();
+        this.writeBehind = config.isEnabled()
+                ? new WriteBehindBuffer<>("user-cache", User::getId, (older, newer) -> newer, this::writeUpdates,
+                        config.getWindow(), config.getMaxBatchSize(), WriteAheadLog.open(config.getWalDir(), "user-cache", config.isFsync()))
+                : null;
     }
 
     /**
      * 根据ID查询用户（带缓存）
      * @Cacheable: 如果缓存中有数据，直接返回缓存数据；如果没有，执行方法并将结果放入缓存
+     * sync = true: 并发未命中时同一个key只执行一次查询，其余请求等待结果（不支持 unless，不存在的用户按 userCache 策略的 null-value-time-to-live 短暂缓存）
      *
      * @param id 用户ID
      * @return 用户信息
      */
-    @Cacheable(value = "userCache", key = "#id", unless = "#result == null")
+    @Cacheable(value = "userCache", key = "#id", sync = true)
     public User findById(Integer id) {
         log.info("执行数据库查询，用户ID: {}", id);
+        CacheTags.tag(userTag(id));
         
         // 模拟数据库查询延迟
         try {
@@ -70,13 +94,11 @@ public class UserCacheService {
             Thread.currentThread().interrupt();
         }
 
-        Optional<User> user = MOCK_USERS.stream()
-                .filter(u -> u.getId().equals(id))
-                .findFirst();
+        User user = withPending(id, userRepository.findById(id));
 
-        if (user.isPresent()) {
-            log.info("找到用户: {}", user.get());
-            return user.get();
+        if (user != null) {
+            log.info("找到用户: {}", user);
+            return user;
         } else {
             log.info("用户不存在，ID: {}", id);
             return null;
@@ -89,7 +111,7 @@ public class UserCacheService {
      *
      * @return 所有用户列表
      */
-    @Cacheable(value = "userCache", key = "'all_users'")
+    @Cacheable(value = "userCache", key = "'all_users'", sync = true)
     public List<User> findAll() {
         log.info("执行数据库查询，获取所有用户");
         
@@ -100,8 +122,12 @@ public class UserCacheService {
             Thread.currentThread().interrupt();
         }
 
-        log.info("返回 {} 个用户", MOCK_USERS.size());
-        return new ArrayList<>(MOCK_USERS);
+        List<User> result = userRepository.findAll();
+        tagUsers(result);
+        CacheTags.tag(TAG_USER_LIST);
+
+        log.info("返回 {} 个用户", result.size());
+        return result;
     }
 
     /**
@@ -111,7 +137,7 @@ public class UserCacheService {
      * @param job 工作岗位
      * @return 用户列表
      */
-    @Cacheable(value = "userCache", key = "'job:' + #job")
+    @Cacheable(value = "userCache", key = "'job:' + #job", sync = true)
     public List<User> findByJob(String job) {
         log.info("执行数据库查询，根据工作岗位查询: {}", job);
         
@@ -122,9 +148,9 @@ public class UserCacheService {
             Thread.currentThread().interrupt();
         }
 
-        List<User> result = MOCK_USERS.stream()
-                .filter(user -> user.getJob().contains(job))
-                .collect(Collectors.toList());
+        List<User> result = userRepository.findByJobContaining(job);
+        tagUsers(result);
+        CacheTags.tag(TAG_USER_LIST, TAG_USER_JOB);
 
         log.info("找到 {} 个用户，工作岗位包含: {}", result.size(), job);
         return result;
@@ -140,22 +166,43 @@ public class UserCacheService {
     @CachePut(value = "userCache", key = "#user.id")
     public User updateUser(User user) {
         log.info("更新用户信息: {}", user);
+
+        if (writeBehind != null) {
+            User current = withPending(user.getId(), userRepository.findById(user.getId()));
+            if (current == null) {
+                log.warn("用户不存在，无法更新，ID: {}", user.getId());
+                return null;
+            }
+            User updated = new User();
+            BeanUtils.copyProperties(current, updated);
+            updated.setName(user.getName());
+            updated.setJob(user.getJob());
+            if (writeBehind.submit(updated)) {
+                log.info("用户信息已更新到缓存，等待写入: {}", updated);
+                return updated;
+            }
+        }
         
         // 模拟数据库更新
-        Optional<User> existingUser = MOCK_USERS.stream()
-                .filter(u -> u.getId().equals(user.getId()))
-                .findFirst();
-
-        if (existingUser.isPresent()) {
-            User existing = existingUser.get();
-            existing.setName(user.getName());
-            existing.setJob(user.getJob());
-            log.info("用户信息更新成功: {}", existing);
+        User existing = userRepository.findById(user.getId());
+
+        if (existing != null) {
+            boolean jobChanged = !Objects.equals(existing.getJob(), user.getJob());
+            User updated = userRepository.update(user.getId(), user.getName(), user.getJob());
+            if (updated == null) {
+                log.warn("用户不存在，无法更新，ID: {}", user.getId());
+                return null;
+            }
+            log.info("用户信息更新成功: {}", updated);
             
-            // 清除相关缓存
-            clearRelatedCache();
+            // 清除包含该用户的缓存；岗位变化时按岗位统计/查询的结果也要失效
+            if (jobChanged) {
+                clearRelatedCache(userTag(updated.getId()), TAG_USER_JOB);
+            } else {
+                clearRelatedCache(userTag(updated.getId()));
+            }
             
-            return existing;
+            return updated;
         } else {
             log.warn("用户不存在，无法更新，ID: {}", user.getId());
             return null;
@@ -173,19 +220,14 @@ public class UserCacheService {
     public User saveUser(User user) {
         log.info("保存新用户: {}", user);
         
-        // 生成新ID
-        int newId = MOCK_USERS.stream()
-                .mapToInt(User::getId)
-                .max()
-                .orElse(0) + 1;
-        
-        user.setId(newId);
-        MOCK_USERS.add(user);
+        // 由仓库的ID序列分配新ID
+        userRepository.save(user);
+        int newId = user.getId();
         
         log.info("用户保存成功: {}", user);
         
-        // 清除相关缓存
-        clearRelatedCache();
+        // 清除依赖用户集合的缓存，以及该ID此前缓存的空结果
+        clearRelatedCache(userTag(newId), TAG_USER_LIST);
         
         return user;
     }
@@ -200,13 +242,17 @@ public class UserCacheService {
     @CacheEvict(value = "userCache", key = "#id")
     public boolean deleteUser(Integer id) {
         log.info("删除用户，ID: {}", id);
+        // 先写入待更新的数据，避免删除后又被写回
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
         
-        boolean removed = MOCK_USERS.removeIf(user -> user.getId().equals(id));
+        boolean removed = userRepository.deleteById(id);
         
         if (removed) {
             log.info("用户删除成功，ID: {}", id);
-            // 清除相关缓存
-            clearRelatedCache();
+            // 清除包含该用户以及依赖用户集合的缓存
+            clearRelatedCache(userTag(id), TAG_USER_LIST);
         } else {
             log.warn("用户不存在，删除失败，ID: {}", id);
         }
@@ -233,24 +279,50 @@ public class UserCacheService {
     }
 
     /**
-     * 清除相关缓存（私有方法）
+     * 清除相关缓存
+     * 按标签失效：只清除声明依赖这些标签的条目（如包含该用户的 all_users、job:*、user_stats）
      */
-    private void clearRelatedCache() {
-        // 注意：由于是私有方法，@CacheEvict注解不会生效
-        // 这里只是演示，实际应该通过其他方式清除缓存
-        log.info("需要清除相关缓存：all_users 和 job 相关缓存");
+    private void clearRelatedCache(String... tags) {
+        cacheManager.evictTags(tags);
+        log.info("按标签清除相关缓存: {}", (Object) tags);
+    }
+
+    private static String userTag(Integer id) {
+        return CacheTags.entity("user", id);
+    }
+
+    private static void tagUsers(List<User> users) {
+        for (User user : users) {
+            CacheTags.tag(userTag(user.getId()));
+        }
     }
 
     /**
-     * 批量查询用户（演示条件缓存）
+     * 批量查询用户（按ID逐个缓存）
+     * 每个ID单独读写 userCache（与 findById 共用缓存条目），L2 未命中的ID通过一次批量读取（MGET）获取，
+     * 仍未命中的ID只做一次数据库查询，结果按请求的ID顺序返回
      *
      * @param ids 用户ID列表
      * @return 用户列表
      */
-    @Cacheable(value = "userCache", key = "'batch:' + #ids.toString()", condition = "#ids.size() <= 10")
     public List<User> findByIds(List<Integer> ids) {
         log.info("批量查询用户，IDs: {}", ids);
-        
+
+        TieredCache cache = (TieredCache) cacheManager.getCache("userCache");
+        // 每个条目带上对应用户的标签，按标签失效（包括其他节点广播的）时才能清除
+        Map<Integer, User> users = cache.getAll(ids, this::loadByIds, id -> Collections.singleton(userTag(id)));
+
+        List<User> result = new ArrayList<>(users.values());
+        log.info("批量查询结果：{} 个用户", result.size());
+        return result;
+    }
+
+    /**
+     * 批量加载缓存未命中的用户
+     */
+    private Map<Integer, User> loadByIds(Set<Integer> ids) {
+        log.info("执行数据库批量查询，IDs: {}", ids);
+
         // 模拟数据库查询延迟
         try {
             Thread.sleep(1000);
@@ -258,12 +330,54 @@ public class UserCacheService {
             Thread.currentThread().interrupt();
         }
 
-        List<User> result = MOCK_USERS.stream()
-                .filter(user -> ids.contains(user.getId()))
-                .collect(Collectors.toList());
+        Map<Integer, User> users = userRepository.findByIds(ids);
+        if (writeBehind != null) {
+            users.replaceAll(this::withPending);
+        }
+        return users;
+    }
 
-        log.info("批量查询结果：{} 个用户", result.size());
-        return result;
+    /**
+     * 关闭时写入缓冲区中剩余的更新
+     */
+    @Override
+    public void destroy() {
+        if (writeBehind != null) {
+            writeBehind.destroy();
+        }
+    }
+
+    /**
+     * 批量写入合并后的更新，然后按标签失效包含这些用户的缓存
+     */
+    private void writeUpdates(List<User> updates) {
+        Set<String> tags = new LinkedHashSet<>();
+        for (User update : updates) {
+            User existing = userRepository.findById(update.getId());
+            if (existing == null) {
+                continue;
+            }
+            userRepository.update(update.getId(), update.getName(), update.getJob());
+            tags.add(userTag(update.getId()));
+            if (!Objects.equals(existing.getJob(), update.getJob())) {
+                tags.add(TAG_USER_JOB);
+            }
+        }
+        log.info("批量写入用户更新: {} 条", updates.size());
+        if (!tags.isEmpty()) {
+            clearRelatedCache(tags.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * 有尚未写入的更新时以其为准
+     */
+    private User withPending(Integer id, User stored) {
+        if (writeBehind == null || stored == null) {
+            return stored;
+        }
+        User pending = writeBehind.pending(id);
+        return pending != null ? pending : stored;
     }
 
     /**
@@ -271,7 +385,7 @@ public class UserCacheService {
      *
      * @return 统计信息
      */
-    @Cacheable(value = "dataCache", key = "'user_stats'")
+    @Cacheable(value = "dataCache", key = "'user_stats'", sync = true)
     public String getUserStats() {
         log.info("计算用户统计信息");
         
@@ -282,12 +396,11 @@ public class UserCacheService {
             Thread.currentThread().interrupt();
         }
 
-        long total = MOCK_USERS.size();
-        long devCount = MOCK_USERS.stream()
-                .filter(user -> user.getJob().contains("开发"))
-                .count();
+        long total = userRepository.count();
+        long devCount = userRepository.countByJobContaining("开发");
 
         String stats = String.format("总用户数: %d, 开发人员: %d", total, devCount);
+        CacheTags.tag(TAG_USER_LIST, TAG_USER_JOB);
         log.info("统计信息: {}", stats);
         
         return stats;
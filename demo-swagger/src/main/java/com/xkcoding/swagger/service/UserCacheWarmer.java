@@ -0,0 +1,67 @@
+package com.xkcoding.swagger.service;
+
+import com.xkcoding.swagger.cache.CacheWarmer;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ * 用户缓存预热
+ * </p>
+ *
+ * 通过 {@link UserCacheService} 的缓存方法加载，key与注解中的key表达式对应：
+ * userCache 的 "all_users"、"job:岗位" 和用户ID，dataCache 的 "user_stats"
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Component
+public class UserCacheWarmer implements CacheWarmer {
+
+    private static final String USER_CACHE = "userCache";
+    private static final String DATA_CACHE = "dataCache";
+    private static final String JOB_PREFIX = "job:";
+
+    private final UserCacheService userCacheService;
+
+    public UserCacheWarmer(UserCacheService userCacheService) {
+        this.userCacheService = userCacheService;
+    }
+
+    @Override
+    public boolean supports(String cacheName) {
+        return USER_CACHE.equals(cacheName) || DATA_CACHE.equals(cacheName);
+    }
+
+    @Override
+    public boolean warm(String cacheName, String key) {
+        if (DATA_CACHE.equals(cacheName)) {
+            if ("user_stats".equals(key)) {
+                userCacheService.getUserStats();
+                return true;
+            }
+            return false;
+        }
+        if ("all_users".equals(key)) {
+            userCacheService.findAll();
+        } else if (key.startsWith(JOB_PREFIX)) {
+            userCacheService.findByJob(key.substring(JOB_PREFIX.length()));
+        } else if (isUserId(key)) {
+            userCacheService.findById(Integer.valueOf(key));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isUserId(String key) {
+        if (key.isEmpty() || key.length() > 9) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (!Character.isDigit(key.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,209 @@
+package com.xkcoding.swagger.service;
+
+import com.xkcoding.swagger.config.SearchProperties;
+import com.xkcoding.swagger.entity.User;
+import com.xkcoding.swagger.jdbc.UserShards;
+import com.xkcoding.swagger.search.NgramIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * 用户搜索服务：t_user 姓名和岗位的内存 bigram 倒排索引
+ * </p>
+ *
+ * 启动后在后台全量构建索引，之后按 search.user-index.rebuild-interval 定期重建，
+ * 同步其他节点和其他途径对 t_user 的修改；本节点通过 {@link #onSaved}、{@link #onDeleted} 增量更新，
+ * 在事务中调用时等事务提交后再更新。重建期间的增量更新同时记录下来，新索引加载完后重放一遍再替换旧索引。
+ * 首次构建完成前 {@link #isReady()} 为 false，调用方应退回 LIKE 查询。
+ * 分页查询只使用 search.user-index.max-index-age 内重建过的索引，其他节点的修改最多延迟这么久
+ *
+ * @author demo
+ * @date Created in 2024-12-19
+ */
+@Slf4j
+@Service
+public class UserSearchService implements SmartInitializingSingleton, DisposableBean {
+
+    private final UserShards userShards;
+    private final SearchProperties properties;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Object lock = new Object();
+
+    /**
+     * 当前索引，首次构建完成前为 null
+     */
+    private volatile NgramIndex index;
+
+    /**
+     * 当前索引开始加载的时间，之后的修改只有本节点的已同步
+     */
+    private volatile long indexedAt;
+
+    /**
+     * 重建期间的增量更新，不在重建时为 null
+     */
+    private List<Consumer<NgramIndex>> changesDuringRebuild;
+
+    public UserSearchService(UserShards userShards, SearchProperties properties) {
+        this.userShards = userShards;
+        this.properties = properties;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("user-search-index-"));
+        this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (properties.isEnabled()) {
+            long interval = properties.getRebuildInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::rebuild, 0, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * 全量重建：从 t_user（各分片）加载到新索引，重放加载期间的增量更新后替换旧索引
+     *
+     * @return 是否重建成功，已有重建在进行时返回 false
+     */
+    public boolean rebuild() {
+        synchronized (lock) {
+            if (changesDuringRebuild != null) {
+                return false;
+            }
+            changesDuringRebuild = new ArrayList<>();
+        }
+        long start = System.currentTimeMillis();
+        try {
+            NgramIndex fresh = new NgramIndex(properties.getNameWeight(), properties.getJobWeight());
+            // 写入索引要加写锁，并行加载没有收益，各分片依次加载
+            for (UserShards.Shard shard : userShards.getShards()) {
+                shard.getJdbcTemplate().query("SELECT id, name, job FROM t_user",
+                        (RowCallbackHandler) rs -> fresh.put(rs.getInt("id"), rs.getString("name"), rs.getString("job")));
+            }
+            synchronized (lock) {
+                changesDuringRebuild.forEach(change -> change.accept(fresh));
+                index = fresh;
+                indexedAt = start;
+            }
+            log.info("用户搜索索引重建完成: {} 个用户, 耗时 {}ms", fresh.size(), System.currentTimeMillis() - start);
+            return true;
+        } catch (Exception e) {
+            log.warn("用户搜索索引重建失败{}: {}", index == null ? "，关键字查询使用 LIKE" : "，继续使用旧索引", e.getMessage());
+            return false;
+        } finally {
+            synchronized (lock) {
+                changesDuringRebuild = null;
+            }
+        }
+    }
+
+    /**
+     * 用户新增或姓名、岗位修改后调用
+     */
+    public void onSaved(Integer id, String name, String job) {
+        if (id != null) {
+            apply(index -> index.put(id, name, job));
+        }
+    }
+
+    /**
+     * 用户删除后调用
+     */
+    public void onDeleted(Integer id) {
+        if (id != null) {
+            apply(index -> index.remove(id));
+        }
+    }
+
+    /**
+     * 姓名或岗位包含 keyword 的用户 id
+     *
+     * @return 匹配的用户 id；索引未就绪、超过 search.user-index.max-index-age 未重建
+     * 或匹配数超过 search.user-index.max-in-list-size 时返回 null
+     */
+    public List<Integer> matchIds(String keyword) {
+        NgramIndex current = index;
+        if (current == null || System.currentTimeMillis() - indexedAt > properties.getMaxIndexAge().toMillis()) {
+            return null;
+        }
+        return current.matchIds(keyword, properties.getMaxInListSize());
+    }
+
+    /**
+     * 按相关度搜索用户，结果只包含 id、姓名、岗位
+     *
+     * @return 搜索结果；索引未就绪时返回 null
+     */
+    public List<User> search(String query, int limit) {
+        NgramIndex current = index;
+        if (current == null) {
+            return null;
+        }
+        List<User> users = new ArrayList<>();
+        for (NgramIndex.Hit hit : current.search(query, limit)) {
+            User user = new User();
+            user.setId(hit.getId());
+            user.setName(hit.getFields()[0]);
+            user.setJob(hit.getFields()[1].isEmpty() ? null : hit.getFields()[1]);
+            users.add(user);
+        }
+        return users;
+    }
+
+    /**
+     * 姓名、岗位的前缀补全
+     */
+    public List<String> suggest(String prefix, int limit) {
+        NgramIndex current = index;
+        return current == null ? Collections.emptyList() : current.suggest(prefix, limit);
+    }
+
+    private void apply(Consumer<NgramIndex> change) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Runnable task = () -> {
+            synchronized (lock) {
+                NgramIndex current = index;
+                if (current != null) {
+                    change.accept(current);
+                }
+                if (changesDuringRebuild != null) {
+                    changesDuringRebuild.add(change);
+                }
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
@@ -1,10 +1,17 @@
 package com.xkcoding.swagger.service.impl;
 
+import com.xkcoding.swagger.annotation.ReadFromReplica;
+import com.xkcoding.swagger.cache.WriteAheadLog;
+import com.xkcoding.swagger.cache.WriteBehindBuffer;
+import com.xkcoding.swagger.config.TieredCacheProperties;
 import com.xkcoding.swagger.entity.Permission;
 import com.xkcoding.swagger.entity.Role;
 import com.xkcoding.swagger.entity.User;
+import com.xkcoding.swagger.jdbc.UserShards;
 import com.xkcoding.swagger.service.SecurityUserService;
+import com.xkcoding.swagger.service.UserSearchService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
@@ -17,29 +24,58 @@ import org.springframework.util.StringUtils;
 
 import java.sql.PreparedStatement;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * <p>
  * Spring Security 用户服务实现类
  * </p>
  *
+ * 开启 cache.write-behind 后，{@link #updateUser(User)} 不再同步执行 UPDATE，而是登记到延迟写入缓冲区：
+ * 同一用户在合并窗口内的多次更新合并为一条，由后台线程用 JDBC 批量更新在一个事务中写入；
+ * 写入之前的查询会叠加尚未写入的更新。直接修改状态或删除用户前先写入缓冲区中的更新，保证写入顺序。
+ * t_user 经过 {@link UserShards} 按 id 访问所在分片，登录时按用户名查找表定位分片；角色和权限表留在主库
+ *
  * @author demo
  * @date Created in 2024-12-19
  */
 @Slf4j
 @Service
-public class SecurityUserServiceImpl implements SecurityUserService {
+public class SecurityUserServiceImpl implements SecurityUserService, DisposableBean {
+
+    /**
+     * 延迟写入的批量更新：未修改的密码和状态保持原值
+     */
+    private static final String BATCH_UPDATE_SQL = "UPDATE t_user SET name = ?, job = ?, email = ?, phone = ?, " +
+            "password = COALESCE(?, password), status = COALESCE(?, status), update_time = CURRENT_TIMESTAMP WHERE id = ?";
 
     private final JdbcTemplate jdbcTemplate;
+    private final UserShards userShards;
     private final PasswordEncoder passwordEncoder;
+    private final UserSearchService userSearchService;
 
-    public SecurityUserServiceImpl(JdbcTemplate jdbcTemplate, PasswordEncoder passwordEncoder) {
+    /**
+     * 延迟写入缓冲区，未开启时为 null
+     */
+    private final WriteBehindBuffer<Integer, User> writeBehind;
+
+    public SecurityUserServiceImpl(JdbcTemplate jdbcTemplate, UserShards userShards, PasswordEncoder passwordEncoder,
+                                   TieredCacheProperties tieredCacheProperties, UserSearchService userSearchService) {
         this.jdbcTemplate = jdbcTemplate;
+        this.userShards = userShards;
         this.passwordEncoder = passwordEncoder;
+        this.userSearchService = userSearchService;
+        TieredCacheProperties.WriteBehind config = tieredCacheProperties.getWriteBehind();
+        this.writeBehind = config.isEnabled()
+                ? new WriteBehindBuffer<>("t_user", User::getId, SecurityUserServiceImpl::mergeUpdate, this::batchUpdate,
+                        config.getWindow(), config.getMaxBatchSize(), WriteAheadLog.open(config.getWalDir(), "t_user", config.isFsync()))
+                : null;
     }
 
     @Override
+    @ReadFromReplica
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = findByUsername(username);
         if (user == null) {
@@ -49,17 +85,24 @@ public class SecurityUserServiceImpl implements SecurityUserService {
     }
 
     @Override
+    @ReadFromReplica
     public User findByUsername(String username) {
         if (!StringUtils.hasText(username)) {
             return null;
         }
 
         try {
+            // 分片时先按用户名查找表定位分片
+            UserShards.Shard shard = userShards.forUsername(username);
+            if (shard == null) {
+                return null;
+            }
+
             // 查询用户基本信息
             String userSql = "SELECT id, name, job, username, password, email, phone, status, create_time, update_time " +
                            "FROM t_user WHERE username = ? AND status = 1";
             
-            List<User> users = jdbcTemplate.query(userSql, (rs, rowNum) -> {
+            List<User> users = shard.getJdbcTemplate().query(userSql, (rs, rowNum) -> {
                 User user = new User();
                 user.setId(rs.getInt("id"));
                 user.setName(rs.getString("name"));
@@ -78,7 +121,10 @@ public class SecurityUserServiceImpl implements SecurityUserService {
                 return null;
             }
 
-            User user = users.get(0);
+            User user = applyPending(users.get(0));
+            if (user.getStatus() == null || user.getStatus() != 1) {
+                return null;
+            }
             
             // 查询用户角色
             List<Role> roles = getUserRoles(user.getId());
@@ -96,6 +142,7 @@ public class SecurityUserServiceImpl implements SecurityUserService {
     }
 
     @Override
+    @ReadFromReplica
     public User findByUserId(Integer userId) {
         if (userId == null) {
             return null;
@@ -106,7 +153,7 @@ public class SecurityUserServiceImpl implements SecurityUserService {
             String userSql = "SELECT id, name, job, username, password, email, phone, status, create_time, update_time " +
                            "FROM t_user WHERE id = ?";
             
-            List<User> users = jdbcTemplate.query(userSql, (rs, rowNum) -> {
+            List<User> users = userShards.forId(userId).getJdbcTemplate().query(userSql, (rs, rowNum) -> {
                 User user = new User();
                 user.setId(rs.getInt("id"));
                 user.setName(rs.getString("name"));
@@ -125,7 +172,7 @@ public class SecurityUserServiceImpl implements SecurityUserService {
                 return null;
             }
 
-            User user = users.get(0);
+            User user = applyPending(users.get(0));
             
             // 查询用户角色
             List<Role> roles = getUserRoles(user.getId());
@@ -151,24 +198,34 @@ public class SecurityUserServiceImpl implements SecurityUserService {
                 user.setPassword(passwordEncoder.encode(user.getPassword()));
             }
 
-            String sql = "INSERT INTO t_user (name, job, username, password, email, phone, status) VALUES (?, ?, ?, ?, ?, ?, ?)";
-            KeyHolder keyHolder = new GeneratedKeyHolder();
-            
-            jdbcTemplate.update(connection -> {
-                PreparedStatement ps = connection.prepareStatement(sql, new String[]{"id"});
-                ps.setString(1, user.getName());
-                ps.setString(2, user.getJob());
-                ps.setString(3, user.getUsername());
-                ps.setString(4, user.getPassword());
-                ps.setString(5, user.getEmail());
-                ps.setString(6, user.getPhone());
-                ps.setInt(7, user.getStatus() != null ? user.getStatus() : 1);
-                return ps;
-            }, keyHolder);
-
-            Number key = keyHolder.getKey();
+            Number key;
+            if (userShards.isSharded()) {
+                // 查找表分配 id 并保证用户名全局唯一；与主库事务一起提交，写入分片失败时随事务回滚
+                int id = userShards.allocateId(user.getUsername());
+                userShards.forId(id).getJdbcTemplate().update("INSERT INTO t_user (id, name, job, username, password, email, phone, status) " +
+                                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", id, user.getName(), user.getJob(), user.getUsername(),
+                        user.getPassword(), user.getEmail(), user.getPhone(), user.getStatus() != null ? user.getStatus() : 1);
+                key = id;
+            } else {
+                String sql = "INSERT INTO t_user (name, job, username, password, email, phone, status) VALUES (?, ?, ?, ?, ?, ?, ?)";
+                KeyHolder keyHolder = new GeneratedKeyHolder();
+
+                jdbcTemplate.update(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(sql, new String[]{"id"});
+                    ps.setString(1, user.getName());
+                    ps.setString(2, user.getJob());
+                    ps.setString(3, user.getUsername());
+                    ps.setString(4, user.getPassword());
+                    ps.setString(5, user.getEmail());
+                    ps.setString(6, user.getPhone());
+                    ps.setInt(7, user.getStatus() != null ? user.getStatus() : 1);
+                    return ps;
+                }, keyHolder);
+                key = keyHolder.getKey();
+            }
             if (key != null) {
                 user.setId(key.intValue());
+                userSearchService.onSaved(user.getId(), user.getName(), user.getJob());
                 return findByUserId(user.getId());
             }
             return null;
@@ -181,6 +238,16 @@ public class SecurityUserServiceImpl implements SecurityUserService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public User updateUser(User user) {
+        if (writeBehind != null) {
+            // 只读一次当前数据：既确认用户存在，又叠加本次更新作为返回值
+            User existing = findByUserId(user.getId());
+            if (existing == null) {
+                return null;
+            }
+            if (submitUpdate(user)) {
+                return applyPending(existing);
+            }
+        }
         try {
             StringBuilder sql = new StringBuilder("UPDATE t_user SET ");
             Object[] params = new Object[6];
@@ -210,8 +277,9 @@ public class SecurityUserServiceImpl implements SecurityUserService {
             Object[] finalParams = new Object[paramIndex + 1];
             System.arraycopy(params, 0, finalParams, 0, paramIndex + 1);
 
-            int affected = jdbcTemplate.update(sql.toString(), finalParams);
+            int affected = userShards.forId(user.getId()).getJdbcTemplate().update(sql.toString(), finalParams);
             if (affected > 0) {
+                userSearchService.onSaved(user.getId(), user.getName(), user.getJob());
                 return findByUserId(user.getId());
             }
             return null;
@@ -224,12 +292,19 @@ public class SecurityUserServiceImpl implements SecurityUserService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean deleteUser(Integer userId) {
+        flushPendingUpdates();
         try {
             // 删除用户角色关联
             jdbcTemplate.update("DELETE FROM t_user_role WHERE user_id = ?", userId);
             
             // 删除用户
-            int affected = jdbcTemplate.update("DELETE FROM t_user WHERE id = ?", userId);
+            int affected = userShards.forId(userId).getJdbcTemplate().update("DELETE FROM t_user WHERE id = ?", userId);
+            if (affected > 0) {
+                if (userShards.isSharded()) {
+                    userShards.releaseIds(Collections.singletonList(userId));
+                }
+                userSearchService.onDeleted(userId);
+            }
             return affected > 0;
         } catch (Exception e) {
             log.error("删除用户失败: userId={}", userId, e);
@@ -259,8 +334,12 @@ public class SecurityUserServiceImpl implements SecurityUserService {
     }
 
     @Override
+    @ReadFromReplica
     public boolean hasPermission(Integer userId, String permissionCode) {
         try {
+            if (userShards.isSharded()) {
+                return hasPermissionSharded(userId, permissionCode);
+            }
             String sql = "SELECT COUNT(1) FROM t_user u " +
                         "JOIN t_user_role ur ON u.id = ur.user_id " +
                         "JOIN t_role_permission rp ON ur.role_id = rp.role_id " +
@@ -278,9 +357,10 @@ public class SecurityUserServiceImpl implements SecurityUserService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean changeUserStatus(Integer userId, Integer status) {
+        flushPendingUpdates();
         try {
             String sql = "UPDATE t_user SET status = ?, update_time = CURRENT_TIMESTAMP WHERE id = ?";
-            int affected = jdbcTemplate.update(sql, status, userId);
+            int affected = userShards.forId(userId).getJdbcTemplate().update(sql, status, userId);
             return affected > 0;
         } catch (Exception e) {
             log.error("修改用户状态失败: userId={}, status={}", userId, status, e);
@@ -288,6 +368,119 @@ public class SecurityUserServiceImpl implements SecurityUserService {
         }
     }
 
+    /**
+     * 分片时 t_user 与角色权限表不在同一个库，不能连接查询：先在分片上确认用户状态，再在主库查询权限
+     */
+    private boolean hasPermissionSharded(Integer userId, String permissionCode) {
+        Integer enabled = userShards.forId(userId).getJdbcTemplate().queryForObject(
+                "SELECT COUNT(1) FROM t_user WHERE id = ? AND status = 1", Integer.class, userId);
+        if (enabled == null || enabled == 0) {
+            return false;
+        }
+        String sql = "SELECT COUNT(1) FROM t_user_role ur " +
+                    "JOIN t_role_permission rp ON ur.role_id = rp.role_id " +
+                    "JOIN t_permission p ON rp.permission_id = p.id " +
+                    "WHERE ur.user_id = ? AND p.permission_code = ? AND p.status = 1";
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, userId, permissionCode);
+        return count != null && count > 0;
+    }
+
+    /**
+     * 关闭时写入缓冲区中剩余的更新
+     */
+    @Override
+    public void destroy() {
+        if (writeBehind != null) {
+            writeBehind.destroy();
+        }
+    }
+
+    /**
+     * 登记延迟写入：只保存要修改的字段（密码加密后保存），合并和落盘由缓冲区负责
+     *
+     * @return 是否已登记，写预写日志失败时返回 false，由调用方同步更新
+     */
+    private boolean submitUpdate(User user) {
+        User update = new User();
+        update.setId(user.getId());
+        update.setName(user.getName());
+        update.setJob(user.getJob());
+        update.setEmail(user.getEmail());
+        update.setPhone(user.getPhone());
+        if (StringUtils.hasText(user.getPassword())) {
+            update.setPassword(passwordEncoder.encode(user.getPassword()));
+        }
+        update.setStatus(user.getStatus());
+        return writeBehind.submit(update);
+    }
+
+    /**
+     * 合并同一用户的两次更新：姓名、岗位、邮箱、电话以新的为准，密码和状态未修改时沿用旧的
+     */
+    private static User mergeUpdate(User older, User newer) {
+        User merged = new User();
+        merged.setId(newer.getId());
+        merged.setName(newer.getName());
+        merged.setJob(newer.getJob());
+        merged.setEmail(newer.getEmail());
+        merged.setPhone(newer.getPhone());
+        merged.setPassword(newer.getPassword() != null ? newer.getPassword() : older.getPassword());
+        merged.setStatus(newer.getStatus() != null ? newer.getStatus() : older.getStatus());
+        return merged;
+    }
+
+    /**
+     * 把合并后的更新在一个事务中批量写入，分片时每个分片一个事务
+     */
+    private void batchUpdate(List<User> updates) {
+        for (Map.Entry<UserShards.Shard, List<User>> group : userShards.group(updates, User::getId).entrySet()) {
+            JdbcTemplate shardTemplate = group.getKey().getJdbcTemplate();
+            List<User> shardUpdates = group.getValue();
+            group.getKey().getTransactionTemplate().executeWithoutResult(status -> shardTemplate.batchUpdate(BATCH_UPDATE_SQL,
+                    shardUpdates, shardUpdates.size(), (ps, update) -> {
+                        ps.setString(1, update.getName());
+                        ps.setString(2, update.getJob());
+                        ps.setString(3, update.getEmail());
+                        ps.setString(4, update.getPhone());
+                        ps.setString(5, update.getPassword());
+                        ps.setObject(6, update.getStatus());
+                        ps.setInt(7, update.getId());
+                    }));
+        }
+        updates.forEach(update -> userSearchService.onSaved(update.getId(), update.getName(), update.getJob()));
+        log.info("批量写入用户更新: {} 条", updates.size());
+    }
+
+    /**
+     * 叠加尚未写入数据库的更新
+     */
+    private User applyPending(User user) {
+        User update = writeBehind == null ? null : writeBehind.pending(user.getId());
+        if (update == null) {
+            return user;
+        }
+        user.setName(update.getName());
+        user.setJob(update.getJob());
+        user.setEmail(update.getEmail());
+        user.setPhone(update.getPhone());
+        if (update.getPassword() != null) {
+            user.setPassword(update.getPassword());
+        }
+        if (update.getStatus() != null) {
+            user.setStatus(update.getStatus());
+        }
+        return user;
+    }
+
+    /**
+     * 直接写入前先写入缓冲区中的更新，避免之后写入的旧更新覆盖本次修改
+     */
+    private void flushPendingUpdates() {
+        if (writeBehind != null && !writeBehind.flush()) {
+            throw new RuntimeException("写入待更新的用户数据失败");
+        }
+    }
+
     /**
      * 获取用户角色列表
      */
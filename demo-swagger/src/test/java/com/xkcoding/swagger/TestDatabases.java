@@ -0,0 +1,87 @@
+package com.xkcoding.swagger;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 测试用 H2 内存库（MySQL 兼容模式），表结构取自 rbac_security_schema.sql 中的建表语句，与线上一致
+ */
+public final class TestDatabases {
+
+    private static final String SCHEMA = "rbac_security_schema.sql";
+    private static Map<String, String> createStatements;
+
+    private TestDatabases() {
+    }
+
+    /**
+     * 名为 name 的内存库，连接关闭后数据保留到 {@link #drop} 为止
+     */
+    public static DriverManagerDataSource dataSource(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    /**
+     * 新建内存库并按真实表结构建表，默认只建 t_user
+     */
+    public static JdbcTemplate create(String name, String... tables) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource(name));
+        createTables(jdbcTemplate, tables.length == 0 ? new String[]{"t_user"} : tables);
+        return jdbcTemplate;
+    }
+
+    public static void createTables(JdbcTemplate jdbcTemplate, String... tables) {
+        for (String table : tables) {
+            String sql = statements().get(table);
+            if (sql == null) {
+                throw new IllegalArgumentException(SCHEMA + " 中没有表 " + table);
+            }
+            jdbcTemplate.execute(sql);
+        }
+    }
+
+    /**
+     * 删除库中的全部表
+     */
+    public static void drop(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private static synchronized Map<String, String> statements() {
+        if (createStatements == null) {
+            String script;
+            try {
+                script = new String(Files.readAllBytes(Paths.get(SCHEMA)), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Map<String, String> statements = new LinkedHashMap<>();
+            for (String statement : script.split(";")) {
+                StringBuilder sql = new StringBuilder();
+                for (String line : statement.split("\n")) {
+                    if (!line.trim().startsWith("--")) {
+                        sql.append(line).append('\n');
+                    }
+                }
+                // H2 不支持索引上的 COMMENT；索引名在 H2 中全库唯一（MySQL 中按表），不同表的同名索引改为匿名
+                String trimmed = sql.toString().trim()
+                        .replaceAll("(KEY [^\\n]*\\)) COMMENT '[^']*'", "$1")
+                        .replaceAll("KEY `\\w+` \\(", "KEY (");
+                if (trimmed.startsWith("CREATE TABLE `")) {
+                    int start = "CREATE TABLE `".length();
+                    statements.put(trimmed.substring(start, trimmed.indexOf('`', start)), trimmed);
+                }
+            }
+            createStatements = statements;
+        }
+        return createStatements;
+    }
+}
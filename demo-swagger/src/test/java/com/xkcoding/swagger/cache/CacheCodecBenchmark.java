@@ -0,0 +1,75 @@
+package com.xkcoding.swagger.cache;
+
+import com.xkcoding.swagger.common.PageResponse;
+import com.xkcoding.swagger.entity.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 缓存编码基准：对比 JDK 序列化与紧凑二进制格式的大小和编解码耗时（按缓存实际写入的 CacheEntry 计算）
+ *
+ * mvn test -Dtest=CacheCodecBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class CacheCodecBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURE_ROUNDS = 50_000;
+
+    @Test
+    public void compareCodecs() {
+        RedisSerializer<Object> jdk = new JdkSerializationRedisSerializer(getClass().getClassLoader());
+        RedisSerializer<Object> compact = CacheValueSchemas.registerDefaults(new CompactCacheSerializer(getClass().getClassLoader()));
+
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            users.add(CompactCacheSerializerTests.user(i, "用户" + i));
+        }
+        PageResponse<User> page = PageResponse.build(1, 20, 1000L, new ArrayList<>(users.subList(0, 20)));
+
+        System.out.printf("%-22s %-8s %10s %14s %14s%n", "value", "codec", "bytes", "encode(ns/op)", "decode(ns/op)");
+        run("User", entry(CompactCacheSerializerTests.user(1, "张三")), jdk, compact);
+        run("List<User>(100)", entry(users), jdk, compact);
+        run("PageResponse<User>(20)", entry(page), jdk, compact);
+    }
+
+    private CacheEntry entry(Object value) {
+        long now = System.currentTimeMillis();
+        return new CacheEntry(value, now, now + 600_000, 15, Collections.singleton("user:list"));
+    }
+
+    private void run(String name, CacheEntry entry, RedisSerializer<Object> jdk, RedisSerializer<Object> compact) {
+        measure(name, "jdk", entry, jdk);
+        measure(name, "compact", entry, compact);
+    }
+
+    private void measure(String name, String codec, CacheEntry entry, RedisSerializer<Object> serializer) {
+        int rounds = entry.getValue() instanceof List ? MEASURE_ROUNDS / 20 : MEASURE_ROUNDS;
+        byte[] bytes = serializer.serialize(entry);
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS / 10; i++) {
+            sink += serializer.serialize(entry).length;
+            sink += serializer.deserialize(bytes).hashCode();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += serializer.serialize(entry).length;
+        }
+        long encodeNanos = (System.nanoTime() - start) / rounds;
+
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += serializer.deserialize(bytes).hashCode();
+        }
+        long decodeNanos = (System.nanoTime() - start) / rounds;
+
+        System.out.printf("%-22s %-8s %10d %14d %14d   (%d)%n", name, codec, bytes.length, encodeNanos, decodeNanos, sink & 1);
+    }
+}
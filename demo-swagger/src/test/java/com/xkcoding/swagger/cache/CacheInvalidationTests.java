@@ -0,0 +1,151 @@
+package com.xkcoding.swagger.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheInvalidationTests {
+
+    private final CompactCacheSerializer serializer =
+            CacheValueSchemas.registerDefaults(new CompactCacheSerializer(getClass().getClassLoader()));
+
+    private TieredCacheManager nodeA;
+    private TieredCacheManager nodeB;
+    private CacheInvalidationPublisher publisherA;
+    private CacheInvalidationReceiver receiverB;
+    private final List<byte[]> sent = new ArrayList<>();
+    private final AtomicBoolean dropMessages = new AtomicBoolean();
+
+    @BeforeEach
+    public void setUp() {
+        InMemoryCacheStore sharedStore = new InMemoryCacheStore();
+        nodeA = manager(sharedStore);
+        nodeB = manager(sharedStore);
+        receiverB = new CacheInvalidationReceiver("node-b", nodeB, serializer);
+        // 合并窗口足够长，由测试手动 flush
+        publisherA = new CacheInvalidationPublisher("node-a", serializer, body -> {
+            sent.add(body);
+            if (!dropMessages.get()) {
+                receiverB.onMessage(body);
+            }
+        }, Duration.ofMinutes(1), 2000, 20, Duration.ofMinutes(1));
+        nodeA.setInvalidationPublisher(publisherA);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        publisherA.destroy();
+    }
+
+    @Test
+    public void evictOnOneNodeClearsOtherNodesLocalCache() {
+        TieredCache cacheA = (TieredCache) nodeA.getCache("userCache");
+        TieredCache cacheB = (TieredCache) nodeB.getCache("userCache");
+        cacheA.put(1, "张三");
+        assertEquals("张三", cacheB.get(1).get());
+        assertNotNull(cacheB.peekLocal(1));
+
+        cacheA.put(1, "张三丰");
+        publisherA.flush();
+        assertNull(cacheB.peekLocal(1));
+        assertEquals("张三丰", cacheB.get(1).get());
+
+        cacheB.get(1);
+        cacheA.evict(1);
+        publisherA.flush();
+        assertNull(cacheB.peekLocal(1));
+        assertNull(cacheB.get(1));
+    }
+
+    @Test
+    public void evictByKeyStringReachesTypedKeysOnOtherNodes() {
+        TieredCache cacheA = (TieredCache) nodeA.getCache("userCache");
+        TieredCache cacheB = (TieredCache) nodeB.getCache("userCache");
+        cacheB.put(1, "张三");
+        assertNotNull(cacheB.peekLocal(1));
+
+        // 管理端点只拿到字符串 "1"，A 的 L1 中没有这个key，无法还原为 Integer
+        assertEquals(0, cacheA.evictByKeyString("1"));
+        publisherA.flush();
+        assertNull(cacheB.peekLocal(1));
+        assertNull(cacheB.get(1));
+    }
+
+    @Test
+    public void failingInvalidationDoesNotSkipTheRestOfTheBatch() {
+        TieredCache cacheB = (TieredCache) nodeB.getCache("userCache");
+        cacheB.put(1, "张三");
+        cacheB.put(2, "李四");
+        // 标签不是字符串，执行时抛出异常
+        CacheInvalidation broken = new CacheInvalidation(CacheInvalidation.Type.TAG, "userCache", 42);
+        receiverB.onMessage(new CacheInvalidationBatch("node-a", 1, false, Arrays.asList(
+                broken, CacheInvalidation.key("userCache", 1))).encode(serializer));
+        assertEquals(1, receiverB.getApplied());
+        assertNull(cacheB.peekLocal(1));
+        // 失败的事件无法确定影响范围，该缓存的 L1 被清空
+        assertNull(cacheB.peekLocal(2));
+        assertEquals("李四", cacheB.get(2).get());
+    }
+
+    @Test
+    public void evictionStormIsCollapsedIntoClear() {
+        TieredCache cacheB = (TieredCache) nodeB.getCache("userCache");
+        for (int i = 0; i < 10; i++) {
+            cacheB.put(i, "v" + i);
+        }
+        TieredCache cacheA = (TieredCache) nodeA.getCache("userCache");
+        for (int i = 0; i < 1000; i++) {
+            cacheA.evict(i + 100);
+        }
+        publisherA.flush();
+
+        assertEquals(0, cacheB.localSize());
+        assertEquals(999, publisherA.getCollapsed());
+        CacheInvalidationBatch last = CacheInvalidationBatch.decode(sent.get(sent.size() - 1), serializer);
+        assertEquals(Collections.singletonList(CacheInvalidation.clear("userCache")), last.getInvalidations());
+    }
+
+    @Test
+    public void missedMessageTriggersLocalFlush() {
+        TieredCache cacheA = (TieredCache) nodeA.getCache("userCache");
+        TieredCache cacheB = (TieredCache) nodeB.getCache("userCache");
+        cacheA.evict(1);
+        publisherA.flush();
+
+        cacheB.put(2, "李四");
+        dropMessages.set(true);
+        cacheA.evict(1);
+        publisherA.flush();
+        dropMessages.set(false);
+        assertNotNull(cacheB.peekLocal(2));
+
+        // 后续消息（或心跳）的序号不连续，B 无法确定丢了什么，清空 L1
+        receiverB.onMessage(CacheInvalidationBatch.heartbeat("node-a", 2).encode(serializer));
+        assertEquals(1, receiverB.getGaps());
+        assertNull(cacheB.peekLocal(2));
+        assertEquals("李四", cacheB.get(2).get());
+
+        // 重复投递的消息被忽略
+        receiverB.onMessage(sent.get(1));
+        assertEquals(1, receiverB.getGaps());
+        assertNotNull(cacheB.peekLocal(2));
+    }
+
+    private TieredCacheManager manager(RemoteCacheStore store) {
+        TieredCacheManager manager = new TieredCacheManager(store, new JdkSerializationRedisSerializer(),
+                Collections.singletonList("userCache"), "demo:cache:",
+                Duration.ofMinutes(10), true, 1024 * 1024, Duration.ofSeconds(60));
+        manager.afterPropertiesSet();
+        return manager;
+    }
+}
@@ -0,0 +1,104 @@
+package com.xkcoding.swagger.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachePolicyTests {
+
+    private InMemoryCacheStore remoteStore;
+    private TieredCacheManager cacheManager;
+
+    @BeforeEach
+    public void setUp() {
+        remoteStore = new InMemoryCacheStore();
+        cacheManager = new TieredCacheManager(remoteStore, new JdkSerializationRedisSerializer(),
+                Collections.singletonList("userCache"), "demo:cache:",
+                Duration.ofMinutes(10), true, 1024 * 1024, Duration.ofSeconds(60));
+
+        CachePolicy defaults = cacheManager.getDefaultPolicy();
+        Map<String, CachePolicy> policies = new HashMap<>();
+        policies.put("userCache", defaults.toBuilder()
+                .nullValueTimeToLive(Duration.ofMillis(200))
+                .ttlJitter(0.5)
+                .build());
+        policies.put("tempCache", defaults.toBuilder()
+                .nullValueTimeToLive(Duration.ZERO)
+                .localMaximumSize(2)
+                .build());
+        cacheManager.setCachePolicies(policies);
+        cacheManager.afterPropertiesSet();
+    }
+
+    @Test
+    public void nullResultsUseTheShorterTimeToLive() throws Exception {
+        TieredCache cache = (TieredCache) cacheManager.getCache("userCache");
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(cache.get(99, () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.get(99, () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertEquals(1, loads.get());
+
+        Thread.sleep(300);
+        assertNull(cache.get(99, () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void nullResultsAreNotCachedWhenDisabled() {
+        TieredCache cache = (TieredCache) cacheManager.getCache("tempCache");
+        cache.put("k", "v");
+        cache.put("k", null);
+
+        assertNull(cache.get("k"));
+        assertNull(remoteStore.get("demo:cache:tempCache::k"));
+        assertNull(cache.get("missing", () -> null));
+        assertNull(cache.get("missing"));
+    }
+
+    @Test
+    public void jitterShortensTimeToLiveWithinBounds() {
+        CachePolicy policy = ((TieredCache) cacheManager.getCache("userCache")).getPolicy();
+        long ttl = Duration.ofMinutes(10).toMillis();
+        for (int i = 0; i < 1000; i++) {
+            long expiresIn = policy.expiresAt(0, false);
+            assertTrue(expiresIn <= ttl && expiresIn >= ttl / 2, "expiresIn=" + expiresIn);
+        }
+    }
+
+    @Test
+    public void policiesAreAppliedPerCache() {
+        Cache userCache = cacheManager.getCache("userCache");
+        assertTrue(cacheManager.getCacheNames().contains("tempCache"));
+
+        TieredCache tempCache = (TieredCache) cacheManager.getCache("tempCache");
+        for (int i = 0; i < 10; i++) {
+            tempCache.put(i, "v" + i);
+        }
+        assertTrue(tempCache.localSize() <= 2);
+
+        // 未单独限制条目数的缓存按字节限制
+        for (int i = 0; i < 10; i++) {
+            userCache.put(i, "v" + i);
+        }
+        assertEquals(10, ((TieredCache) userCache).localSize());
+    }
+}
@@ -0,0 +1,84 @@
+package com.xkcoding.swagger.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheWarmupTests {
+
+    @TempDir
+    Path tempDir;
+
+    private TieredCacheManager cacheManager;
+    private final Set<String> warmed = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager = new TieredCacheManager(new InMemoryCacheStore(), new JdkSerializationRedisSerializer(),
+                Collections.singletonList("userCache"), "demo:cache:",
+                Duration.ofMinutes(10), true, 1024 * 1024, Duration.ofSeconds(60));
+        cacheManager.afterPropertiesSet();
+    }
+
+    @Test
+    public void snapshotKeysAreWarmedOnNextStart() throws Exception {
+        Path snapshot = tempDir.resolve("warmup-keys.txt");
+        TieredCache cache = (TieredCache) cacheManager.getCache("userCache");
+        cache.put(1, "张三");
+        cache.put("job:开发", "list");
+        cache.put(2, "李四");
+        for (int i = 0; i < 5; i++) {
+            cache.get(1);
+        }
+        warmup(snapshot, Duration.ofSeconds(5), 0).saveSnapshot();
+        List<String> lines = Files.readAllLines(snapshot, StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertEquals("userCache\t1", lines.get(0));
+
+        CacheWarmup next = warmup(snapshot, Duration.ofSeconds(5), 0);
+        next.setConfiguredKeys(Collections.singletonMap("userCache", Arrays.asList("all_users", "1")));
+        assertEquals(4, next.run());
+        assertEquals(4, warmed.size());
+        assertTrue(warmed.containsAll(Arrays.asList("all_users", "1", "2", "job:开发")));
+    }
+
+    @Test
+    public void slowLoadsAreCancelledAfterTimeout() {
+        CacheWarmup warmup = warmup(null, Duration.ofMillis(300), 5000);
+        warmup.setConfiguredKeys(Collections.singletonMap("userCache", Arrays.asList("1", "2", "3")));
+
+        long start = System.currentTimeMillis();
+        assertEquals(0, warmup.run());
+        assertTrue(System.currentTimeMillis() - start < 3000);
+    }
+
+    private CacheWarmup warmup(Path snapshot, Duration timeout, long loadMillis) {
+        CacheWarmer warmer = new CacheWarmer() {
+            @Override
+            public boolean supports(String cacheName) {
+                return "userCache".equals(cacheName);
+            }
+
+            @Override
+            public boolean warm(String cacheName, String key) throws Exception {
+                Thread.sleep(loadMillis);
+                warmed.add(key);
+                return true;
+            }
+        };
+        return new CacheWarmup(cacheManager, Collections.singletonList(warmer), 2, timeout, snapshot, 10);
+    }
+}
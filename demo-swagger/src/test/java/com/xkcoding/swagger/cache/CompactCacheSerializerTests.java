@@ -0,0 +1,112 @@
+package com.xkcoding.swagger.cache;
+
+import com.xkcoding.swagger.common.PageResponse;
+import com.xkcoding.swagger.entity.Role;
+import com.xkcoding.swagger.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactCacheSerializerTests {
+
+    private final CompactCacheSerializer serializer =
+            CacheValueSchemas.registerDefaults(new CompactCacheSerializer(getClass().getClassLoader()));
+
+    @Test
+    public void entryRoundTripSkipsPassword() {
+        User user = user(1, "张三");
+        CacheEntry entry = new CacheEntry(user, 1000L, 61000L, 12L, new LinkedHashSet<>(Arrays.asList("user:1", "user:list")));
+
+        CacheEntry decoded = (CacheEntry) serializer.deserialize(serializer.serialize(entry));
+
+        assertEquals(1000L, decoded.getCreatedAt());
+        assertEquals(61000L, decoded.getExpiresAt());
+        assertEquals(12L, decoded.getLoadMillis());
+        assertEquals(entry.getTags(), decoded.getTags());
+        User decodedUser = (User) decoded.getValue();
+        assertNull(decodedUser.getPassword());
+        decodedUser.setPassword(user.getPassword());
+        assertEquals(user, decodedUser);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void nestedValuesRoundTrip() {
+        PageResponse<User> page = PageResponse.build(2, 10, 25L, Arrays.asList(user(11, "李四"), user(12, "王五")));
+        PageResponse<User> decoded = (PageResponse<User>) serializer.deserialize(serializer.serialize(page));
+        assertEquals(page.getTotalPages(), decoded.getTotalPages());
+        assertEquals(2, decoded.getData().size());
+        assertEquals("王五", decoded.getData().get(1).getName());
+
+        Map<String, Integer> map = new HashMap<>();
+        map.put("a", 1);
+        List<Object> mixed = Arrays.asList(null, NullValue.INSTANCE, "s", -3, Long.MIN_VALUE, true, map);
+        assertEquals(mixed, serializer.deserialize(serializer.serialize(mixed)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void pageResponseVersionTwoAddsCursorFieldsAndStillReadsVersionOne() {
+        PageResponse<User> page = PageResponse.build(1, 10, null, Collections.singletonList(user(1, "张三")), true);
+        page.setNextCursor("cursor");
+        page.setApproximateCount(true);
+        byte[] bytes = serializer.serialize(page);
+        // 魔数、格式版本、内容类型、类型标识之后是分页结构版本
+        assertEquals(2, bytes[4]);
+        PageResponse<User> decoded = (PageResponse<User>) serializer.deserialize(bytes);
+        assertEquals("cursor", decoded.getNextCursor());
+        assertTrue(decoded.getApproximateCount());
+
+        // 旧节点写入的版本 1 数据：只有前 7 个字段
+        PageResponse<User> old = PageResponse.build(2, 10, 25L, Collections.singletonList(user(11, "李四")));
+        byte[] v1 = serializer.serialize(old);
+        v1[4] = 1;
+        PageResponse<User> decodedOld = (PageResponse<User>) serializer.deserialize(v1);
+        assertEquals(25L, decodedOld.getTotalCount());
+        assertEquals("李四", decodedOld.getData().get(0).getName());
+        assertNull(decodedOld.getNextCursor());
+        assertNull(decodedOld.getApproximateCount());
+    }
+
+    @Test
+    public void unknownFormatOrVersionIsRejected() {
+        byte[] jdkBytes = new JdkSerializationRedisSerializer().serialize("旧格式");
+        assertThrows(SerializationException.class, () -> serializer.deserialize(jdkBytes));
+
+        byte[] bytes = serializer.serialize(user(1, "张三"));
+        // 魔数、格式版本、内容类型、类型标识之后是用户结构版本
+        bytes[4] = 9;
+        assertThrows(SerializationException.class, () -> serializer.deserialize(bytes));
+    }
+
+    static User user(Integer id, String name) {
+        User user = new User();
+        user.setId(id);
+        user.setName(name);
+        user.setJob("后端开发");
+        user.setUsername("user" + id);
+        user.setPassword("$2a$10$abcdefghijklmnopqrstuvwxyz0123456789ABCDEFGHIJKLMNOPQ");
+        user.setEmail("user" + id + "@example.com");
+        user.setPhone("13800000000");
+        user.setStatus(1);
+        user.setCreateTime(LocalDateTime.of(2024, 12, 19, 10, 30, 15));
+        user.setUpdateTime(LocalDateTime.of(2024, 12, 20, 8, 0, 0, 123000000));
+        Role role = new Role();
+        role.setId(1);
+        role.setRoleCode("ADMIN");
+        role.setRoleName("管理员");
+        user.setRoles(Collections.singletonList(role));
+        return user;
+    }
+}
@@ -0,0 +1,77 @@
+package com.xkcoding.swagger.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HotKeyDetectorTests {
+
+    @Test
+    public void frequentlyReadKeysLeadTheTopK() {
+        HotKeyDetector detector = new HotKeyDetector(5, 8, 1024);
+        for (int i = 0; i < 20; i++) {
+            detector.record("all_users");
+            if (i % 2 == 0) {
+                detector.record(7);
+            }
+        }
+        for (int i = 100; i < 130; i++) {
+            detector.record(i);
+        }
+
+        List<HotKeyDetector.HotKey> top = detector.topKeys();
+        assertEquals(5, top.size());
+        assertEquals("all_users", top.get(0).getKey());
+        assertEquals(20, top.get(0).getReads());
+        assertEquals("7", top.get(1).getKey());
+        assertTrue(detector.isHot("all_users"));
+        assertFalse(detector.isHot(100));
+    }
+
+    @Test
+    public void hotKeysArePromotedIntoLocalOnlyCache() {
+        TieredCacheManager cacheManager = new TieredCacheManager(new InMemoryCacheStore(), new JdkSerializationRedisSerializer(),
+                Collections.singletonList("userCache"), "demo:cache:",
+                Duration.ofMinutes(10), true, 1024 * 1024, Duration.ofSeconds(60));
+        cacheManager.setCachePolicies(Collections.singletonMap("userCache",
+                cacheManager.getDefaultPolicy().toBuilder().localHotOnly(true).build()));
+        cacheManager.setHotKeyDetection(5, 4, Duration.ofMillis(200));
+        cacheManager.afterPropertiesSet();
+        TieredCache cache = (TieredCache) cacheManager.getCache("userCache");
+
+        cache.put(1, "张三");
+        cache.put(2, "李四");
+        assertNull(cache.peekLocal(1));
+        for (int i = 0; i < 4; i++) {
+            assertEquals("张三", cache.get(1).get());
+        }
+        assertEquals("李四", cache.get(2).get());
+
+        assertNotNull(cache.peekLocal(1));
+        assertNull(cache.peekLocal(2));
+        assertEquals(1, cache.getStats().promotionCount());
+        assertEquals(5, cache.getStats().remoteHitCount());
+
+        // 提升的条目按较短的 TTL 过期
+        await(() -> cache.peekLocal(1) == null);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 3000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
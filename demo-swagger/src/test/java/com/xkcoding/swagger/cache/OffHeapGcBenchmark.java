@@ -0,0 +1,79 @@
+package com.xkcoding.swagger.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 堆外存储基准：同样的大值工作集分别放在堆上（Caffeine）和堆外（OffHeapStore），
+ * 在读写和临时对象分配的混合负载下对比 GC 次数和累计停顿时间
+ *
+ * mvn test -Dtest=OffHeapGcBenchmark -Dbenchmark=true -DargLine="-Xmx1g -XX:MaxDirectMemorySize=1g"
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class OffHeapGcBenchmark {
+
+    private static final int KEYS = 20_000;
+    private static final int VALUE_BYTES = 16 * 1024;
+    private static final int OPERATIONS = 2_000_000;
+
+    @Test
+    public void compareGcPauses() {
+        System.out.printf("%-10s %10s %10s %14s %12s%n", "store", "ops/s", "gc count", "gc pause(ms)", "heap(MB)");
+
+        Cache<String, byte[]> onHeap = Caffeine.newBuilder().maximumSize(KEYS).build();
+        run("on-heap", onHeap::put, onHeap::getIfPresent);
+        onHeap.invalidateAll();
+        onHeap.cleanUp();
+
+        OffHeapStore offHeap = new OffHeapStore((long) KEYS * VALUE_BYTES * 2, 4 * 1024 * 1024, 4096, VALUE_BYTES);
+        run("off-heap", (key, value) -> offHeap.put(key, value, Long.MAX_VALUE),
+                key -> offHeap.get(key, System.currentTimeMillis()));
+    }
+
+    private void run(String name, BiConsumer<String, byte[]> put, Function<String, byte[]> get) {
+        for (int i = 0; i < KEYS; i++) {
+            put.accept("key:" + i, new byte[VALUE_BYTES]);
+        }
+        System.gc();
+
+        long[] before = gcTotals();
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            String key = "key:" + ThreadLocalRandom.current().nextInt(KEYS);
+            if (i % 10 == 0) {
+                put.accept(key, new byte[VALUE_BYTES]);
+            } else {
+                byte[] value = get.apply(key);
+                sink += value == null ? 0 : value.length;
+            }
+            // 模拟请求处理中的短命对象
+            sink += new byte[256].length;
+        }
+        long elapsed = System.nanoTime() - start;
+        long[] after = gcTotals();
+
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("%-10s %10d %10d %14d %12d   (%d)%n", name, OPERATIONS * 1_000_000_000L / elapsed,
+                after[0] - before[0], after[1] - before[1],
+                (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024), sink & 1);
+    }
+
+    private long[] gcTotals() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());
+            time += Math.max(0, bean.getCollectionTime());
+        }
+        return new long[]{count, time};
+    }
+}
@@ -0,0 +1,123 @@
+package com.xkcoding.swagger.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapStoreTests {
+
+    @Test
+    public void valuesSpanningSeveralBlocksRoundTrip() {
+        OffHeapStore store = new OffHeapStore(64 * 1024, 16 * 1024, 1024, 32 * 1024);
+        byte[] value = bytes(2500, 7);
+        assertTrue(store.put("a", value, Long.MAX_VALUE));
+        assertTrue(store.put("b", bytes(100, 1), Long.MAX_VALUE));
+
+        assertArrayEquals(value, store.get("a", System.currentTimeMillis()));
+        assertEquals(2600, store.usedBytes());
+        assertEquals(16 * 1024, store.allocatedBytes());
+        assertFalse(store.accepts(64 * 1024 + 1));
+
+        assertTrue(store.remove("a"));
+        assertNull(store.get("a", System.currentTimeMillis()));
+        assertEquals(100, store.usedBytes());
+    }
+
+    @Test
+    public void blocksFromManySlabsCanAllBeReleased() {
+        // 每个 slab 4 个块，写满 6 个 slab 后全部删除，空闲列表要能容纳所有块
+        OffHeapStore store = new OffHeapStore(24 * 1024, 4096, 1024, 4096);
+        for (int i = 0; i < 24; i++) {
+            assertTrue(store.put("k" + i, bytes(1000, i), Long.MAX_VALUE));
+        }
+        assertEquals(24 * 1024, store.allocatedBytes());
+
+        assertEquals(24, store.removeIf(key -> true));
+        assertEquals(0, store.size());
+        assertEquals(0, store.usedBytes());
+        for (int i = 0; i < 24; i++) {
+            assertTrue(store.put("n" + i, bytes(1000, i), Long.MAX_VALUE));
+        }
+        assertEquals(0, store.evictionCount());
+        assertEquals(24 * 1024, store.allocatedBytes());
+    }
+
+    @Test
+    public void fullStoreEvictsLeastRecentlyUsedOnlyForMoreFrequentKeys() {
+        OffHeapStore store = new OffHeapStore(4096, 4096, 1024, 4096);
+        long now = System.currentTimeMillis();
+        for (String key : Arrays.asList("a", "b", "c", "d")) {
+            assertTrue(store.put(key, bytes(1000, 1), Long.MAX_VALUE));
+        }
+        store.get("a", now);
+        store.get("a", now);
+
+        // 只访问过一次的新key不如最久未访问的 b 热门，不能挤掉它
+        assertFalse(store.put("e", bytes(1000, 2), Long.MAX_VALUE));
+        assertEquals(1, store.rejectionCount());
+        assertNull(store.get("e", now));
+
+        // 再次访问后频率超过 b，淘汰 b 写入
+        assertTrue(store.put("e", bytes(1000, 2), Long.MAX_VALUE));
+        assertEquals(1, store.evictionCount());
+        assertNull(store.get("b", now));
+        assertNotNull(store.get("a", now));
+        assertEquals(4, store.size());
+    }
+
+    @Test
+    public void expiredEntriesAreDroppedAndEvictedFirst() {
+        OffHeapStore store = new OffHeapStore(2048, 2048, 1024, 2048);
+        long now = System.currentTimeMillis();
+        store.put("old", bytes(1000, 1), now - 1);
+        store.put("hot", bytes(1000, 1), Long.MAX_VALUE);
+        for (int i = 0; i < 5; i++) {
+            store.get("hot", now);
+        }
+
+        assertNull(store.get("old", now));
+        assertEquals(1, store.size());
+        assertTrue(store.put("new", bytes(1000, 3), now + 60_000));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void largeValuesOfTieredCacheGoOffHeap() {
+        TieredCacheManager cacheManager = new TieredCacheManager(new InMemoryCacheStore(), new JdkSerializationRedisSerializer(),
+                Collections.singletonList("userCache"), "demo:cache:",
+                Duration.ofMinutes(10), true, 1024 * 1024, Duration.ofSeconds(60));
+        cacheManager.setCachePolicies(Collections.singletonMap("userCache",
+                cacheManager.getDefaultPolicy().toBuilder().offHeap(true).build()));
+        OffHeapStore store = new OffHeapStore(1024 * 1024, 64 * 1024, 1024, 64 * 1024);
+        cacheManager.setOffHeapStore(store, 2048);
+        cacheManager.afterPropertiesSet();
+
+        TieredCache cache = (TieredCache) cacheManager.getCache("userCache");
+        assertTrue(cache.usesOffHeap());
+        char[] large = new char[4000];
+        Arrays.fill(large, 'x');
+        cache.put("large", new String(large));
+        cache.put("small", "y");
+        assertEquals(1, store.size());
+
+        assertEquals(4000, ((String) cache.get("large").get()).length());
+        assertEquals("y", cache.get("small").get());
+        assertEquals(1, cache.getStats().offHeapHitCount());
+
+        cache.evict("large");
+        assertEquals(0, store.size());
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] value = new byte[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = (byte) (i * 31 + seed);
+        }
+        return value;
+    }
+}
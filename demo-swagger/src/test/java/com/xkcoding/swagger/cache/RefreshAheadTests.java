@@ -0,0 +1,101 @@
+package com.xkcoding.swagger.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RefreshAheadTests {
+
+    private TieredCacheManager cacheManager;
+    private TieredCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager = new TieredCacheManager(new InMemoryCacheStore(), new JdkSerializationRedisSerializer(),
+                Collections.singletonList("dataCache"), "demo:cache:",
+                Duration.ofMillis(300), true, 1024 * 1024, Duration.ofSeconds(60));
+        cacheManager.setCachePolicies(Collections.singletonMap("dataCache", cacheManager.getDefaultPolicy().toBuilder()
+                .refreshPolicy(new RefreshAheadPolicy(Duration.ofMillis(500), 1.0))
+                .build()));
+        cacheManager.setRefreshExecutor(Executors.newFixedThreadPool(1));
+        cacheManager.afterPropertiesSet();
+        cache = (TieredCache) cacheManager.getCache("dataCache");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        cacheManager.destroy();
+    }
+
+    @Test
+    public void staleValueIsServedWhileRefreshing() throws Exception {
+        AtomicInteger version = new AtomicInteger();
+        CountDownLatch refreshed = new CountDownLatch(2);
+        assertEquals("v1", cache.get("user_stats", () -> {
+            refreshed.countDown();
+            return "v" + version.incrementAndGet();
+        }));
+
+        // 过期后、maxStale 内：立即返回旧值，后台刷新
+        Thread.sleep(350);
+        long start = System.nanoTime();
+        String value = cache.get("user_stats", () -> {
+            Thread.sleep(100);
+            refreshed.countDown();
+            return "v" + version.incrementAndGet();
+        });
+        assertEquals("v1", value);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+
+        assertTrue(refreshed.await(2, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals("v2", cache.get("user_stats", () -> "unexpected"));
+    }
+
+    @Test
+    public void entryBeyondMaxStaleIsLoadedSynchronously() throws Exception {
+        cache.get("user_stats", () -> "v1");
+
+        Thread.sleep(900);
+        assertEquals("v2", cache.get("user_stats", () -> "v2"));
+    }
+
+    @Test
+    public void plainGetDoesNotReturnStaleValue() throws Exception {
+        cache.get("user_stats", () -> "v1");
+
+        Thread.sleep(350);
+        assertNull(cache.get("user_stats"));
+    }
+
+    @Test
+    public void slowLoadsAreRefreshedBeforeExpiry() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        // 加载耗时接近TTL，概率提前刷新几乎必然在过期前触发
+        cache.get("all_users", () -> {
+            Thread.sleep(250);
+            loads.incrementAndGet();
+            return "users";
+        });
+
+        for (int i = 0; i < 20 && loads.get() < 2; i++) {
+            cache.get("all_users", () -> {
+                loads.incrementAndGet();
+                return "users";
+            });
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        assertTrue(loads.get() >= 2);
+    }
+}
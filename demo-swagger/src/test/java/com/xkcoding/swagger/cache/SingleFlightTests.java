@@ -0,0 +1,110 @@
+package com.xkcoding.swagger.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTests {
+
+    private static final int CONCURRENCY = 32;
+
+    private TieredCache cache;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        TieredCacheManager cacheManager = new TieredCacheManager(new InMemoryCacheStore(),
+                new JdkSerializationRedisSerializer(), Collections.singletonList("userCache"), "demo:cache:",
+                Duration.ofMinutes(10), true, 1024 * 1024, Duration.ofSeconds(60));
+        cacheManager.afterPropertiesSet();
+        cache = (TieredCache) cacheManager.getCache("userCache");
+        executor = Executors.newFixedThreadPool(CONCURRENCY);
+    }
+
+    @Test
+    public void concurrentMissesTriggerExactlyOneLoad() throws Exception {
+        AtomicInteger backendCalls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CONCURRENCY; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return cache.get("all_users", () -> {
+                    backendCalls.incrementAndGet();
+                    Thread.sleep(300);
+                    return "users";
+                });
+            }));
+        }
+        start.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("users", result.get());
+        }
+        assertEquals(1, backendCalls.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void loaderExceptionIsPropagatedToAllWaiters() throws Exception {
+        AtomicInteger backendCalls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < CONCURRENCY; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return cache.get("user_stats", () -> {
+                    backendCalls.incrementAndGet();
+                    Thread.sleep(300);
+                    throw new IllegalStateException("backend down");
+                });
+            }));
+        }
+        start.countDown();
+
+        for (Future<Object> result : results) {
+            Exception e = assertThrows(Exception.class, result::get);
+            Throwable cause = e.getCause();
+            assertTrue(cause instanceof Cache.ValueRetrievalException);
+            assertTrue(cause.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, backendCalls.get());
+        assertNull(cache.get("user_stats"));
+        executor.shutdown();
+    }
+
+    @Test
+    public void waitersGiveUpAfterTimeout() throws Exception {
+        cache.setLoadWaitTimeout(Duration.ofMillis(100));
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> cache.get("slow", () -> {
+            leaderStarted.countDown();
+            Thread.sleep(1000);
+            return "value";
+        }));
+        leaderStarted.await();
+
+        Cache.ValueRetrievalException e = assertThrows(Cache.ValueRetrievalException.class,
+                () -> cache.get("slow", () -> "should not load"));
+        assertTrue(e.getCause() instanceof TimeoutException);
+        assertEquals("value", leader.get());
+        executor.shutdown();
+    }
+}
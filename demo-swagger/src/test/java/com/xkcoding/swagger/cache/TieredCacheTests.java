@@ -0,0 +1,226 @@
+package com.xkcoding.swagger.cache;
+
+import com.xkcoding.swagger.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredCacheTests {
+
+    private InMemoryCacheStore remoteStore;
+    private TieredCacheManager cacheManager;
+
+    @BeforeEach
+    public void setUp() {
+        remoteStore = new InMemoryCacheStore();
+        cacheManager = new TieredCacheManager(remoteStore, new JdkSerializationRedisSerializer(),
+                Collections.singletonList("userCache"), "demo:cache:",
+                Duration.ofMinutes(10), true, 1024 * 1024, Duration.ofSeconds(60));
+        cacheManager.afterPropertiesSet();
+    }
+
+    @Test
+    public void putWritesBothTiers() {
+        TieredCache cache = (TieredCache) cacheManager.getCache("userCache");
+        cache.put(1, user(1, "张三"));
+
+        assertNotNull(remoteStore.get("demo:cache:userCache::1"));
+        assertEquals("张三", ((User) cache.get(1).get()).getName());
+    }
+
+    @Test
+    public void localMissIsServedFromRemoteAndRefillsLocal() {
+        TieredCache cache = (TieredCache) cacheManager.getCache("userCache");
+        cache.put(1, user(1, "张三"));
+        cache.evictLocal(1);
+
+        Cache.ValueWrapper wrapper = cache.get(1);
+        assertNotNull(wrapper);
+        assertEquals("张三", ((User) wrapper.get()).getName());
+
+        // 删除 L2 后仍能从回填的 L1 读到
+        remoteStore.delete("demo:cache:userCache::1");
+        assertNotNull(cache.get(1));
+    }
+
+    @Test
+    public void evictAndClearRemoveBothTiers() {
+        TieredCache cache = (TieredCache) cacheManager.getCache("userCache");
+        cache.put(1, user(1, "张三"));
+        cache.put(2, user(2, "李四"));
+
+        cache.evict(1);
+        assertNull(cache.get(1));
+        assertNull(remoteStore.get("demo:cache:userCache::1"));
+
+        cache.clear();
+        assertNull(cache.get(2));
+        assertEquals(0, remoteStore.size());
+    }
+
+    @Test
+    public void nullValuesAreCachedWhenAllowed() {
+        Cache cache = cacheManager.getCache("userCache");
+        cache.put(99, null);
+
+        Cache.ValueWrapper wrapper = cache.get(99);
+        assertNotNull(wrapper);
+        assertNull(wrapper.get());
+    }
+
+    @Test
+    public void missingCacheIsCreatedOnDemand() {
+        Cache cache = cacheManager.getCache("otherCache");
+        assertNotNull(cache);
+        cache.put("k", "v");
+        assertNotNull(remoteStore.get("demo:cache:otherCache::k"));
+    }
+
+    @Test
+    public void evictTagsRemovesExactlyTaggedEntries() {
+        TieredCache cache = (TieredCache) cacheManager.getCache("userCache");
+        cache.get(3, () -> {
+            CacheTags.tag("user:3");
+            return user(3, "王五");
+        });
+        cache.get("all_users", () -> {
+            CacheTags.tag("user:1", "user:3", "user:list");
+            return "all";
+        });
+        cache.get("job:产品", () -> {
+            CacheTags.tag("user:4", "user:list");
+            return "job";
+        });
+        // L1 中没有、只在 L2 中的条目也要失效
+        cache.evictLocal("all_users");
+
+        cacheManager.evictTags("user:3");
+
+        assertNull(cache.get(3));
+        assertNull(cache.get("all_users"));
+        assertNull(remoteStore.get("demo:cache:userCache::all_users"));
+        assertNotNull(cache.get("job:产品"));
+    }
+
+    @Test
+    public void nestedLoadsPropagateTagsToOuterEntry() {
+        TieredCache cache = (TieredCache) cacheManager.getCache("userCache");
+        cache.get("batch:[1]", () -> cache.get(1, () -> {
+            CacheTags.tag("user:1");
+            return user(1, "张三");
+        }));
+
+        // 内层命中缓存时，标签同样并入外层
+        cache.get("batch:[1,2]", () -> cache.get(1, () -> user(1, "不会加载")));
+
+        cacheManager.evictTags("user:1");
+
+        assertNull(cache.get(1));
+        assertNull(cache.get("batch:[1]"));
+        assertNull(cache.get("batch:[1,2]"));
+    }
+
+    @Test
+    public void getAllLoadsOnlyMissingKeysAndKeepsRequestOrder() {
+        TieredCache cache = (TieredCache) cacheManager.getCache("userCache");
+        cache.put(1, user(1, "张三"));
+        cache.put(2, user(2, "李四"));
+        // 2 只在 L2 中
+        cache.evictLocal(2);
+
+        List<Set<Integer>> loaderCalls = new ArrayList<>();
+        Map<Integer, User> result = cache.getAll(Arrays.asList(4, 2, 1, 3, 2), missing -> {
+            loaderCalls.add(missing);
+            Map<Integer, User> loaded = new HashMap<>();
+            loaded.put(3, user(3, "王五"));
+            return loaded;
+        });
+
+        assertEquals(Arrays.asList(2, 1, 3), new ArrayList<>(result.keySet()));
+        assertEquals(1, loaderCalls.size());
+        assertEquals(new HashSet<>(Arrays.asList(4, 3)), loaderCalls.get(0));
+        // 加载结果按ID逐个写回
+        assertNotNull(remoteStore.get("demo:cache:userCache::3"));
+        assertEquals("王五", ((User) cache.get(3).get()).getName());
+    }
+
+    @Test
+    public void getAllTagsEachLoadedEntry() {
+        TieredCache cache = (TieredCache) cacheManager.getCache("userCache");
+        cache.getAll(Arrays.asList(1, 2), missing -> {
+            Map<Integer, User> loaded = new HashMap<>();
+            missing.forEach(id -> loaded.put(id, user(id, "用户" + id)));
+            return loaded;
+        }, id -> Collections.singleton(CacheTags.entity("user", id)));
+        // 外层加载同样带上批量加载条目的标签
+        cache.get("batch:[1,2]", () -> new ArrayList<>(cache.getAll(Arrays.asList(1, 2), missing -> new HashMap<>()).values()));
+
+        cacheManager.evictTags("user:1");
+
+        assertNull(cache.get(1));
+        assertNull(remoteStore.get("demo:cache:userCache::1"));
+        assertNull(cache.get("batch:[1,2]"));
+        assertEquals("用户2", ((User) cache.get(2).get()).getName());
+    }
+
+    @Test
+    public void statsAreRecordedPerTier() {
+        TieredCache cache = (TieredCache) cacheManager.getCache("userCache");
+        cache.get(1, () -> user(1, "张三"));
+        cache.get(1, () -> user(1, "张三"));
+        cache.evictLocal(1);
+        cache.get(1, () -> user(1, "张三"));
+
+        TieredCacheStats stats = cache.getStats();
+        assertEquals(1, stats.localHitCount());
+        assertEquals(2, stats.localMissCount());
+        assertEquals(1, stats.remoteHitCount());
+        assertEquals(1, stats.remoteMissCount());
+        assertEquals(1, stats.loadSuccessCount());
+        assertEquals(1, cache.localSize());
+        assertTrue(cache.localWeightedSize() > 0);
+
+        cache.evict(1);
+        assertEquals(1, stats.evictionCount(TieredCacheStats.TIER_LOCAL, TieredCacheStats.CAUSE_EXPLICIT));
+        assertEquals(1, stats.evictionCount(TieredCacheStats.TIER_REMOTE, TieredCacheStats.CAUSE_EXPLICIT));
+    }
+
+    @Test
+    public void evictByPatternRemovesMatchingKeysOnly() {
+        TieredCache cache = (TieredCache) cacheManager.getCache("userCache");
+        cache.put("job:开发", "a");
+        cache.put("job:产品", "b");
+        cache.put(1, user(1, "张三"));
+
+        assertEquals(2, cache.evictByPattern("job:*"));
+        assertNull(cache.get("job:开发"));
+        assertNull(remoteStore.get("demo:cache:userCache::job:产品"));
+        assertNotNull(cache.get(1));
+        assertEquals(2, cache.getStats().evictionCount(TieredCacheStats.TIER_REMOTE, TieredCacheStats.CAUSE_PATTERN));
+
+        // 管理端传入字符串形式的key
+        assertEquals(1, cache.resolveKey("1"));
+        assertNotNull(cache.peekLocal(cache.resolveKey("1")));
+    }
+
+    private User user(Integer id, String name) {
+        User user = new User();
+        user.setId(id);
+        user.setName(name);
+        user.setJob("开发");
+        return user;
+    }
+}
@@ -0,0 +1,97 @@
+package com.xkcoding.swagger.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteBehindBufferTests {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void updatesToTheSameKeyAreCoalescedIntoOneBatch() {
+        WriteBehindBuffer<String, String> buffer = buffer(null, null);
+        for (int i = 1; i <= 100; i++) {
+            buffer.submit("a=" + i);
+            buffer.submit("b=" + i);
+        }
+        assertEquals("a=100", buffer.pending("a"));
+
+        assertTrue(buffer.flush());
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertTrue(batches.get(0).contains("a=100"));
+        assertEquals(198, buffer.getCoalesced());
+        assertNull(buffer.pending("a"));
+        buffer.destroy();
+    }
+
+    @Test
+    public void unwrittenUpdatesAreReplayedFromTheLogAfterACrash() throws Exception {
+        Path file = tempDir.resolve("test.wal");
+        WriteBehindBuffer<String, String> crashed = buffer(file, null);
+        crashed.submit("a=1");
+        crashed.flush();
+        crashed.submit("b=1");
+        crashed.submit("b=2");
+        // 模拟崩溃：不关闭缓冲区，日志末尾还有写了一半的记录
+        Files.write(file, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+        batches.clear();
+
+        // 重启时重放日志（已写入的 a 不再出现，b 的两次更新合并为一次）
+        buffer(file, null).destroy();
+        assertEquals(1, batches.size());
+        assertEquals("b=2", batches.get(0).get(0));
+        assertEquals(0, Files.size(file));
+    }
+
+    @Test
+    public void failedBatchIsRequeuedBeforeNewerUpdates() {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        WriteBehindBuffer<String, String> buffer = buffer(null, failing);
+        buffer.submit("a=1");
+        buffer.submit("b=1");
+        assertFalse(buffer.flush());
+        assertEquals(1, buffer.getFailures());
+
+        buffer.submit("a=2");
+        assertEquals("a=2", buffer.pending("a"));
+        failing.set(false);
+        assertTrue(buffer.flush());
+        List<String> written = batches.get(batches.size() - 1);
+        assertEquals(2, written.size());
+        assertTrue(written.contains("a=2"));
+        assertTrue(written.contains("b=1"));
+        buffer.destroy();
+    }
+
+    /**
+     * 值的格式为 key=value，合并时新值覆盖旧值；合并窗口足够长，由测试手动写入
+     */
+    private WriteBehindBuffer<String, String> buffer(Path walFile, AtomicBoolean failing) {
+        WriteAheadLog<String> wal = null;
+        if (walFile != null) {
+            wal = WriteAheadLog.open(walFile.getParent().toString(), "test", false);
+        }
+        return new WriteBehindBuffer<>("test", value -> value.substring(0, value.indexOf('=')), (older, newer) -> newer,
+                batch -> {
+                    if (failing != null && failing.get()) {
+                        throw new IllegalStateException("数据库不可用");
+                    }
+                    batches.add(new ArrayList<>(batch));
+                }, Duration.ofMinutes(1), 1000, wal);
+    }
+}
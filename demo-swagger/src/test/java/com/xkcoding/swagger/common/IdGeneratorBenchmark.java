@@ -0,0 +1,86 @@
+package com.xkcoding.swagger.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * id 生成吞吐量压测：1 到 16 个线程各自持续生成 1 秒，对比 {@link IdGenerator} 的 long 和 13 位字符串形式、
+ * 原 WebLogAspect 的截断 UUID（SecureRandom）以及原 MessageInfo 的 "MSG" + 毫秒时间戳。
+ * 毫秒时间戳一列同时统计单线程内的重复数，多线程之间的重复只会更多
+ *
+ * mvn test -Dtest=IdGeneratorBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class IdGeneratorBenchmark {
+
+    private static final long RUN_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int[] THREADS = {1, 2, 4, 8, 16};
+
+    @Test
+    public void compareThroughput() throws Exception {
+        IdGenerator generator = new IdGenerator(1);
+        List<String> rows = new ArrayList<>();
+        for (int threads : THREADS) {
+            rows.add(String.format("%-8d %14.0f %14.0f %14.0f %14.0f", threads,
+                    run(threads, generator::nextId),
+                    run(threads, generator::nextCompactId),
+                    run(threads, () -> UUID.randomUUID().toString().replace("-", "").substring(0, 16)),
+                    run(threads, () -> "MSG" + System.currentTimeMillis())));
+        }
+        System.out.printf("%-8s %14s %14s %14s %14s (ids/s)%n", "threads", "snowflake", "compact", "uuid", "millis");
+        rows.forEach(System.out::println);
+
+        String previous = null;
+        long duplicates = 0;
+        long deadline = System.nanoTime() + RUN_NANOS;
+        while (System.nanoTime() < deadline) {
+            String id = "MSG" + System.currentTimeMillis();
+            if (id.equals(previous)) {
+                duplicates++;
+            }
+            previous = id;
+        }
+        System.out.println("millis 单线程 1 秒内重复: " + duplicates);
+    }
+
+    private static double run(int threads, Supplier<Object> idSupplier) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long deadline = System.nanoTime() + RUN_NANOS;
+                    long count = 0;
+                    int sink = 0;
+                    while (System.nanoTime() < deadline) {
+                        for (int i = 0; i < 256; i++) {
+                            sink += idSupplier.get().hashCode();
+                        }
+                        count += 256;
+                    }
+                    return sink == 42 ? count + 1 : count;
+                }));
+            }
+            start.countDown();
+            long total = 0;
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+            return total * 1e9 / RUN_NANOS;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.xkcoding.swagger.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdGeneratorTests {
+
+    @Test
+    public void idsAreUniqueAndIncreasingPerThread() throws Exception {
+        IdGenerator generator = new IdGenerator(5);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[20000];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            Set<Long> all = new HashSet<>();
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get();
+                for (int i = 0; i < ids.length; i++) {
+                    assertTrue(i == 0 || ids[i] > ids[i - 1]);
+                    assertTrue(all.add(ids[i]));
+                    assertEquals(5, IdGenerator.workerIdOf(ids[i]));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void clockGoingBackwardsKeepsIdsIncreasing() {
+        AtomicLong clock = new AtomicLong(IdGenerator.EPOCH + 1_000_000);
+        IdGenerator generator = new IdGenerator(1, 10, clock::get);
+        long previous = generator.nextId();
+        clock.addAndGet(-5000);
+        // 回拨期间连续生成超过一毫秒的序号容量，借用后续毫秒
+        for (int i = 0; i < 10000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        assertTrue(IdGenerator.timestampOf(previous) > clock.get());
+        clock.addAndGet(10000);
+        long id = generator.nextId();
+        assertTrue(id > previous);
+        assertEquals(clock.get(), IdGenerator.timestampOf(id));
+    }
+
+    @Test
+    public void compactFormRoundTripsAndSortsLikeTheId() {
+        IdGenerator generator = new IdGenerator(IdGenerator.MAX_WORKER_ID);
+        String previous = null;
+        for (int i = 0; i < 1000; i++) {
+            long id = generator.nextId();
+            String compact = IdGenerator.toCompact(id);
+            assertEquals(13, compact.length());
+            assertEquals(id, IdGenerator.fromCompact(compact));
+            assertEquals(id, IdGenerator.fromCompact(compact.toLowerCase()));
+            assertTrue(previous == null || compact.compareTo(previous) > 0);
+            previous = compact;
+        }
+        assertEquals(Long.MAX_VALUE, IdGenerator.fromCompact(IdGenerator.toCompact(Long.MAX_VALUE)));
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.fromCompact("0CKQ4ZP8R000U"));
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.fromCompact("8000000000000"));
+        assertThrows(IllegalArgumentException.class, () -> new IdGenerator(1024));
+    }
+}
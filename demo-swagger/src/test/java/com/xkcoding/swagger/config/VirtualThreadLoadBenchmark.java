@@ -0,0 +1,149 @@
+package com.xkcoding.swagger.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 虚拟线程压测：5000 个并发请求访问内嵌 Tomcat，每个请求阻塞 50ms（模拟 JDBC、Thread.sleep 等阻塞调用），
+ * 对比默认的平台线程池（200 个工作线程）和 {@link VirtualThreadConfig} 的虚拟线程执行器的吞吐量、
+ * 平台线程峰值和堆内存峰值。客户端与服务端在同一进程，支持时客户端也使用虚拟线程，两种模式的客户端开销相同。
+ * 虚拟线程模式需要 JDK 21，低版本只运行平台线程模式
+ *
+ * mvn -Pjava21 test -Dtest=VirtualThreadLoadBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class VirtualThreadLoadBenchmark {
+
+    private static final int CONCURRENCY = 5000;
+    private static final int ROUNDS = 4;
+    private static final long BLOCKING_MILLIS = 50;
+
+    @Test
+    public void comparePlatformAndVirtualThreads() throws Exception {
+        List<String> rows = new ArrayList<>();
+        rows.add(run("platform", false));
+        if (VirtualThreads.isSupported()) {
+            rows.add(run("virtual", true));
+        } else {
+            System.out.println("Java " + System.getProperty("java.version") + " 不支持虚拟线程，跳过 virtual 模式");
+        }
+        System.out.printf("%-10s %10s %10s %10s %14s %14s%n", "mode", "requests", "total(ms)", "req/s", "peakThreads", "peakHeap(MB)");
+        rows.forEach(System.out::println);
+    }
+
+    private String run(String mode, boolean virtual) throws Exception {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        factory.addConnectorCustomizers(connector -> connector.setProperty("acceptCount", String.valueOf(CONCURRENCY)));
+        if (virtual) {
+            factory.addProtocolHandlerCustomizers(new VirtualThreadConfig().virtualThreadProtocolHandlerCustomizer());
+        }
+        WebServer server = factory.getWebServer(context -> context.addServlet("blocking", new BlockingServlet()).addMapping("/"));
+        server.start();
+        ExecutorService clients = VirtualThreads.isSupported()
+                ? Executors.newCachedThreadPool(VirtualThreads.factory("client-"))
+                : Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            URL url = new URL("http://localhost:" + server.getPort() + "/");
+            // 预热
+            load(clients, url, 1);
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            System.gc();
+            threads.resetPeakThreadCount();
+            AtomicLong peakHeap = new AtomicLong();
+            Thread sampler = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            sampler.start();
+
+            long start = System.nanoTime();
+            int completed = load(clients, url, ROUNDS);
+            long elapsed = System.nanoTime() - start;
+            sampler.interrupt();
+            sampler.join();
+
+            assertEquals(CONCURRENCY * ROUNDS, completed);
+            return String.format("%-10s %10d %10.0f %10.0f %14d %14.1f", mode, completed, elapsed / 1e6,
+                    completed / (elapsed / 1e9), threads.getPeakThreadCount(), peakHeap.get() / 1024.0 / 1024.0);
+        } finally {
+            clients.shutdownNow();
+            server.stop();
+        }
+    }
+
+    /**
+     * 每轮同时发出 CONCURRENCY 个请求，全部完成后开始下一轮
+     */
+    private static int load(ExecutorService clients, URL url, int rounds) throws Exception {
+        int completed = 0;
+        for (int round = 0; round < rounds; round++) {
+            CountDownLatch ready = new CountDownLatch(1);
+            List<Future<Integer>> futures = new ArrayList<>(CONCURRENCY);
+            for (int i = 0; i < CONCURRENCY; i++) {
+                futures.add(clients.submit(() -> {
+                    ready.await();
+                    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                    connection.setConnectTimeout(60_000);
+                    connection.setReadTimeout(60_000);
+                    try (InputStream in = connection.getInputStream()) {
+                        while (in.read() >= 0) {
+                            // 读完响应
+                        }
+                    }
+                    return connection.getResponseCode();
+                }));
+            }
+            ready.countDown();
+            for (Future<Integer> future : futures) {
+                if (future.get() == 200) {
+                    completed++;
+                }
+            }
+        }
+        return completed;
+    }
+
+    private static class BlockingServlet extends HttpServlet {
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            try {
+                Thread.sleep(BLOCKING_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            response.setContentType("text/plain");
+            response.getWriter().write(Thread.currentThread().toString());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.xkcoding.swagger.controller;
+
+import com.xkcoding.swagger.TestDatabases;
+import com.xkcoding.swagger.common.BulkResult;
+import com.xkcoding.swagger.config.PageCursorUtil;
+import com.xkcoding.swagger.config.SearchProperties;
+import com.xkcoding.swagger.entity.User;
+import com.xkcoding.swagger.jdbc.UserShards;
+import com.xkcoding.swagger.service.UserBulkService;
+import com.xkcoding.swagger.service.UserSearchService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 批量写入基准：在 H2（MySQL 兼容模式）中对比逐条调用 addUser 与 /db/users/batch 导入 1 万个用户的耗时。
+ * H2 在进程内没有网络往返，连接 MySQL 时逐条写入每行还要多一次往返和一次提交，差距会更大
+ *
+ * mvn test -Dtest=UserBulkBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class UserBulkBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    @Test
+    public void compareOneAtATimeWithBatchImport() {
+        JdbcTemplate jdbcTemplate = TestDatabases.create("bulk_benchmark");
+        UserShards shards = UserShards.single(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+        UserSearchService searchService = new UserSearchService(shards, new SearchProperties());
+        DbController controller = new DbController(jdbcTemplate, shards, new PageCursorUtil(), new ConcurrentMapCacheManager(), searchService,
+                new UserBulkService(shards, searchService));
+
+        // 预热
+        controller.batchAddUsers(users("预热", ROWS));
+        for (User user : users("预热", 1000)) {
+            controller.addUser(user);
+        }
+
+        long start = System.nanoTime();
+        for (User user : users("逐条", ROWS)) {
+            controller.addUser(user);
+        }
+        long oneAtATime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        BulkResult result = controller.batchAddUsers(users("批量", ROWS)).getData();
+        long batch = System.nanoTime() - start;
+
+        assertEquals(ROWS, result.getSucceeded().intValue());
+        assertEquals(ROWS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_user WHERE name LIKE '批量%'", Integer.class));
+        System.out.printf("%-12s %10s %12s%n", "mode", "total(ms)", "rows/s");
+        System.out.printf("%-12s %10.1f %12.0f%n", "one-at-time", oneAtATime / 1e6, ROWS / (oneAtATime / 1e9));
+        System.out.printf("%-12s %10.1f %12.0f%n", "batch", batch / 1e6, ROWS / (batch / 1e9));
+    }
+
+    private static List<User> users(String prefix, int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setName(prefix + i);
+            user.setJob("岗位" + (i % 20));
+            users.add(user);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,93 @@
+package com.xkcoding.swagger.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xkcoding.swagger.TestDatabases;
+import com.xkcoding.swagger.config.PageCursorUtil;
+import com.xkcoding.swagger.config.SearchProperties;
+import com.xkcoding.swagger.jdbc.UserShards;
+import com.xkcoding.swagger.service.UserBulkService;
+import com.xkcoding.swagger.service.UserSearchService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserExportTests {
+
+    private JdbcTemplate jdbcTemplate;
+    private DbController controller;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = TestDatabases.create("user_export");
+        UserShards shards = UserShards.single(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+        UserSearchService searchService = new UserSearchService(shards, new SearchProperties());
+        controller = new DbController(jdbcTemplate, shards, new PageCursorUtil(), new ConcurrentMapCacheManager(), searchService,
+                new UserBulkService(shards, searchService));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TestDatabases.drop(jdbcTemplate);
+    }
+
+    @Test
+    public void exportsEscapedCsvAndOneJsonObjectPerLine() throws IOException {
+        jdbcTemplate.update("INSERT INTO t_user (name, job) VALUES (?, ?)", "张三", "开发, 测试");
+        jdbcTemplate.update("INSERT INTO t_user (name, job) VALUES (?, ?)", "李\"四\"", null);
+        jdbcTemplate.update("INSERT INTO t_user (name, job) VALUES (?, ?)", "=1+1", "多\n行");
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        controller.exportUsersCsv().getBody().writeTo(csv);
+        assertEquals("\uFEFFid,name,job\r\n" +
+                "1,张三,\"开发, 测试\"\r\n" +
+                "2,\"李\"\"四\"\"\",\r\n" +
+                "3,'=1+1,\"多\n行\"\r\n", csv.toString(StandardCharsets.UTF_8.name()));
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        controller.exportUsersNdjson().getBody().writeTo(ndjson);
+        String[] lines = ndjson.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(3, lines.length);
+        JsonNode second = new ObjectMapper().readTree(lines[1]);
+        assertEquals(2, second.get("id").asInt());
+        assertEquals("李\"四\"", second.get("name").asText());
+        assertTrue(second.get("job").isNull());
+        assertEquals("多\n行", new ObjectMapper().readTree(lines[2]).get("job").asText());
+    }
+
+    @Test
+    public void stopsReadingWhenTheClientDisconnects() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            rows.add(new Object[]{"用户" + i, "岗位" + (i % 10)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO t_user (name, job) VALUES (?, ?)", rows);
+
+        // 写出 64KB 后连接断开
+        OutputStream disconnecting = new OutputStream() {
+            private int written;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (++written > 64 * 1024) {
+                    throw new IOException("Broken pipe");
+                }
+            }
+        };
+        assertThrows(IOException.class, () -> controller.exportUsersNdjson().getBody().writeTo(disconnecting));
+    }
+}
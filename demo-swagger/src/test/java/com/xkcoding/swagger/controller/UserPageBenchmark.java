@@ -0,0 +1,92 @@
+package com.xkcoding.swagger.controller;
+
+import com.xkcoding.swagger.TestDatabases;
+import com.xkcoding.swagger.common.ApiResponse;
+import com.xkcoding.swagger.common.PageCursor;
+import com.xkcoding.swagger.common.PageResponse;
+import com.xkcoding.swagger.config.PageCursorUtil;
+import com.xkcoding.swagger.config.SearchProperties;
+import com.xkcoding.swagger.entity.User;
+import com.xkcoding.swagger.jdbc.UserShards;
+import com.xkcoding.swagger.service.UserBulkService;
+import com.xkcoding.swagger.service.UserSearchService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 分页基准：在 H2（MySQL 兼容模式）中准备 20 万用户，对比第 1 页与第 10000 页在页码分页（OFFSET）
+ * 和游标分页（keyset）下的耗时
+ *
+ * mvn test -Dtest=UserPageBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class UserPageBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int DEEP_PAGE = 10_000;
+    private static final int ROWS = PAGE_SIZE * DEEP_PAGE;
+    private static final int ROUNDS = 50;
+
+    @Test
+    public void comparePageOneWithDeepPage() {
+        // 真实表结构，含游标分页用的 idx_name_id、idx_job_id
+        JdbcTemplate jdbcTemplate = TestDatabases.create("page_benchmark");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= ROWS; i++) {
+            rows.add(new Object[]{"用户" + (i * 7919 % ROWS), i % 50 == 0 ? null : "岗位" + (i % 37)});
+            if (rows.size() == 10_000) {
+                jdbcTemplate.batchUpdate("INSERT INTO t_user (name, job) VALUES (?, ?)", rows);
+                rows.clear();
+            }
+        }
+
+        PageCursorUtil cursorUtil = new PageCursorUtil();
+        ReflectionTestUtils.setField(cursorUtil, "cursorSecret", "benchmark");
+        UserShards shards = UserShards.single(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+        UserSearchService searchService = new UserSearchService(shards, new SearchProperties());
+        DbController controller = new DbController(jdbcTemplate, shards, cursorUtil, new ConcurrentMapCacheManager(), searchService,
+                new UserBulkService(shards, searchService));
+
+        System.out.printf("%-6s %-8s %8s %14s%n", "sortBy", "mode", "page", "avg(ms)");
+        for (String sortBy : new String[]{"id", "name", "job"}) {
+            // 第 9999 页的最后一行，作为第 10000 页的游标位置
+            User last = controller.getUsersWithPage(DEEP_PAGE - 1, PAGE_SIZE, null, sortBy, "asc", null, "exact")
+                    .getData().getData().get(PAGE_SIZE - 1);
+            String lastValue = "name".equals(sortBy) ? last.getName() : "job".equals(sortBy) ? last.getJob() : null;
+            String cursor = cursorUtil.encode(new PageCursor(sortBy, "asc", null, DEEP_PAGE, lastValue, last.getId()));
+
+            List<User> byOffset = measure(sortBy, "offset", 1,
+                    () -> controller.getUsersWithPage(1, PAGE_SIZE, null, sortBy, "asc", null, "exact"));
+            byOffset = measure(sortBy, "offset", DEEP_PAGE,
+                    () -> controller.getUsersWithPage(DEEP_PAGE, PAGE_SIZE, null, sortBy, "asc", null, "exact"));
+            List<User> byCursor = measure(sortBy, "cursor", DEEP_PAGE,
+                    () -> controller.getUsersWithPage(1, PAGE_SIZE, null, "id", "desc", cursor, "exact"));
+            assertEquals(byOffset, byCursor);
+        }
+    }
+
+    private List<User> measure(String sortBy, String mode, int page, Supplier<ApiResponse<PageResponse<User>>> query) {
+        for (int i = 0; i < ROUNDS / 5; i++) {
+            query.get();
+        }
+        List<User> data = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            data = query.get().getData().getData();
+        }
+        System.out.printf("%-6s %-8s %8d %14.3f%n", sortBy, mode, page, (System.nanoTime() - start) / 1_000_000.0 / ROUNDS);
+        return data;
+    }
+}
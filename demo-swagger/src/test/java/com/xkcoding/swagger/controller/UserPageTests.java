@@ -0,0 +1,189 @@
+package com.xkcoding.swagger.controller;
+
+import com.xkcoding.swagger.TestDatabases;
+import com.xkcoding.swagger.common.PageCursor;
+import com.xkcoding.swagger.common.PageResponse;
+import com.xkcoding.swagger.config.PageCursorUtil;
+import com.xkcoding.swagger.config.SearchProperties;
+import com.xkcoding.swagger.entity.User;
+import com.xkcoding.swagger.jdbc.UserShards;
+import com.xkcoding.swagger.service.UserBulkService;
+import com.xkcoding.swagger.service.UserSearchService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserPageTests {
+
+    private static final int ROWS = 47;
+
+    private JdbcTemplate jdbcTemplate;
+    private PageCursorUtil cursorUtil;
+    private ConcurrentMapCacheManager cacheManager;
+    private SearchProperties searchProperties;
+    private UserSearchService searchService;
+    private DbController controller;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = TestDatabases.create("user_page");
+        // 姓名和岗位都有重复，约三分之一的岗位为空
+        for (int i = 1; i <= ROWS; i++) {
+            jdbcTemplate.update("INSERT INTO t_user (name, job) VALUES (?, ?)",
+                    "user" + (i * 7 % 13), i % 3 == 0 ? null : "job" + (i % 4));
+        }
+        cursorUtil = cursorUtil("test");
+        UserShards shards = UserShards.single(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+        searchProperties = new SearchProperties();
+        searchService = new UserSearchService(shards, searchProperties);
+        cacheManager = new ConcurrentMapCacheManager();
+        controller = new DbController(jdbcTemplate, shards, cursorUtil, cacheManager, searchService,
+                new UserBulkService(shards, searchService));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TestDatabases.drop(jdbcTemplate);
+    }
+
+    @Test
+    public void cursorPagesMatchOffsetPagesAcrossNullJobs() {
+        for (String sortBy : new String[]{"id", "name", "job"}) {
+            for (String sortDir : new String[]{"asc", "desc"}) {
+                List<Integer> byOffset = new ArrayList<>();
+                List<Integer> byCursor = new ArrayList<>();
+                String cursor = null;
+                for (int page = 1; page <= 7; page++) {
+                    byOffset.addAll(ids(controller.getUsersWithPage(page, 7, null, sortBy, sortDir, null, "none").getData()));
+                    PageResponse<User> cursored = controller.getUsersWithPage(1, 7, null, sortBy, sortDir, cursor, "none").getData();
+                    byCursor.addAll(ids(cursored));
+                    assertEquals(page < 7, cursored.getHasNext());
+                    cursor = cursored.getNextCursor();
+                }
+                assertNull(cursor);
+                assertEquals(ROWS, byOffset.size());
+                assertEquals(ROWS, byOffset.stream().distinct().count(), sortBy + " " + sortDir);
+                assertEquals(byOffset, byCursor, sortBy + " " + sortDir);
+            }
+        }
+    }
+
+    @Test
+    public void tamperedOrForeignCursorIsRejected() {
+        String cursor = controller.getUsersWithPage(1, 5, null, "job", "asc", null, "none").getData().getNextCursor();
+        assertNotNull(cursor);
+        assertEquals(200, controller.getUsersWithPage(1, 5, null, "id", "asc", cursor, "none").getCode());
+
+        int dot = cursor.indexOf('.');
+        String tamperedPayload = cursor.charAt(0) + (cursor.charAt(1) == 'A' ? "B" : "A") + cursor.substring(2);
+        String tamperedSignature = cursor.substring(0, dot + 1) + (cursor.charAt(dot + 1) == 'A' ? "B" : "A") + cursor.substring(dot + 2);
+        String foreign = cursorUtil("another-secret").encode(new PageCursor("id", "asc", null, 2, null, 5));
+        for (String invalid : new String[]{tamperedPayload, tamperedSignature, foreign, "not-a-cursor", "a.b"}) {
+            assertEquals(400, controller.getUsersWithPage(1, 5, null, "id", "asc", invalid, "none").getCode(), invalid);
+        }
+    }
+
+    @Test
+    public void countModesAndLastPageShortcut() {
+        PageResponse<User> exact = controller.getUsersWithPage(1, 10, null, "id", "asc", null, "exact").getData();
+        assertEquals(47L, exact.getTotalCount());
+        assertEquals(5, exact.getTotalPages());
+        assertTrue(exact.getHasNext());
+        assertNull(exact.getApproximateCount());
+
+        PageResponse<User> none = controller.getUsersWithPage(1, 10, null, "id", "asc", null, "none").getData();
+        assertNull(none.getTotalCount());
+        assertTrue(none.getHasNext());
+
+        // H2 没有 InnoDB 的表统计信息，approx 退回精确统计
+        PageResponse<User> approx = controller.getUsersWithPage(1, 10, null, "id", "asc", null, "approx").getData();
+        assertEquals(47L, approx.getTotalCount());
+        assertNotEquals(Boolean.TRUE, approx.getApproximateCount());
+
+        PageResponse<User> keyword = controller.getUsersWithPage(1, 10, "job1", "id", "asc", null, "exact").getData();
+        assertEquals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_user WHERE job LIKE '%job1%'", Long.class),
+                keyword.getTotalCount());
+
+        // 缓存中的总数被改掉后，只有需要统计的页才会读到它；最后一页直接由已读取的行数得出
+        cacheManager.getCache("countCache").put("t_user:", 999L);
+        assertEquals(999L, controller.getUsersWithPage(1, 10, null, "id", "asc", null, "exact").getData().getTotalCount());
+        PageResponse<User> last = controller.getUsersWithPage(5, 10, null, "id", "asc", null, "exact").getData();
+        assertEquals(7, last.getData().size());
+        assertFalse(last.getHasNext());
+        assertEquals(47L, last.getTotalCount());
+        assertNull(controller.getUsersWithPage(5, 10, null, "id", "asc", null, "none").getData().getTotalCount());
+        PageResponse<User> beyond = controller.getUsersWithPage(9, 10, null, "id", "asc", null, "exact").getData();
+        assertTrue(beyond.getData().isEmpty());
+        assertEquals(999L, beyond.getTotalCount());
+    }
+
+    @Test
+    public void writesClearTheCachedCount() {
+        Cache cache = cacheManager.getCache("countCache");
+
+        cache.put("t_user:", 999L);
+        User user = new User();
+        user.setName("newcomer");
+        user.setJob("job1");
+        assertEquals(200, controller.addUser(user).getCode());
+        assertEquals(48L, totalCount());
+
+        cache.put("t_user:", 999L);
+        user.setName("renamed");
+        assertEquals(200, controller.updateUser(user.getId(), user).getCode());
+        assertEquals(48L, totalCount());
+
+        cache.put("t_user:", 999L);
+        assertEquals(200, controller.deleteUser(user.getId()).getCode());
+        assertEquals(47L, totalCount());
+    }
+
+    @Test
+    public void keywordPagesSeeUsersMissingFromTheSearchIndex() throws InterruptedException {
+        assertTrue(searchService.rebuild());
+        PageResponse<User> indexed = controller.getUsersWithPage(1, 10, "user1", "id", "asc", null, "exact").getData();
+        assertFalse(indexed.getData().isEmpty());
+
+        // 直接写库（或其他节点写入）的用户不在本节点索引中：索引没有匹配时用 LIKE 确认
+        jdbcTemplate.update("INSERT INTO t_user (name, job) VALUES (?, ?)", "outsider", null);
+        PageResponse<User> missing = controller.getUsersWithPage(1, 10, "outsider", "id", "asc", null, "exact").getData();
+        assertEquals(1, missing.getData().size());
+        assertEquals(1L, missing.getTotalCount());
+
+        // 索引超过 max-index-age 未重建时不再使用，有匹配的关键字也用 LIKE
+        jdbcTemplate.update("INSERT INTO t_user (name, job) VALUES (?, ?)", "user1-late", null);
+        long expected = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_user WHERE name LIKE '%user1%'", Long.class);
+        searchProperties.setMaxIndexAge(Duration.ZERO);
+        Thread.sleep(5);
+        assertEquals(expected, controller.getUsersWithPage(1, 10, "user1", "id", "asc", null, "exact").getData().getTotalCount());
+    }
+
+    private Long totalCount() {
+        return controller.getUsersWithPage(1, 10, null, "id", "asc", null, "exact").getData().getTotalCount();
+    }
+
+    private static PageCursorUtil cursorUtil(String secret) {
+        PageCursorUtil util = new PageCursorUtil();
+        ReflectionTestUtils.setField(util, "cursorSecret", secret);
+        return util;
+    }
+
+    private static List<Integer> ids(PageResponse<User> page) {
+        List<Integer> ids = new ArrayList<>();
+        page.getData().forEach(user -> ids.add(user.getId()));
+        return ids;
+    }
+}
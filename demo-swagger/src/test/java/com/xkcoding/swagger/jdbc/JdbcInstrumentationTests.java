@@ -0,0 +1,78 @@
+package com.xkcoding.swagger.jdbc;
+
+import com.xkcoding.swagger.TestDatabases;
+import com.xkcoding.swagger.config.JdbcInstrumentationProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcInstrumentationTests {
+
+    private JdbcInstrumentation instrumentation;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        JdbcInstrumentationProperties properties = new JdbcInstrumentationProperties();
+        properties.setSlowQueryThreshold(Duration.ofMinutes(1));
+        instrumentation = new JdbcInstrumentation(properties);
+        jdbcTemplate = new JdbcTemplate(new InstrumentedDataSource(TestDatabases.dataSource("jdbc_instrumentation"), instrumentation));
+        TestDatabases.createTables(jdbcTemplate, "t_user");
+        jdbcTemplate.batchUpdate("INSERT INTO t_user (name, job) VALUES (?, ?)",
+                Arrays.asList(new Object[]{"张三", "开发"}, new Object[]{"李四", "开发"}, new Object[]{"王五", "测试"}));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TestDatabases.drop(jdbcTemplate);
+    }
+
+    @Test
+    public void literalsAndInListsNormalizeToTheSameShape() {
+        assertEquals("SELECT * FROM t_user WHERE name = ? AND id IN (?)",
+                SqlNormalizer.normalize("SELECT *  FROM t_user\n WHERE name = 'O''Brien' AND id IN (1, 2,3)"));
+        assertEquals("INSERT INTO t_user (name) VALUES (?)",
+                SqlNormalizer.normalize("INSERT INTO t_user (name) VALUES ('a'), ('b'), ('c')"));
+        assertEquals("SELECT name FROM t_user2 WHERE id = ?", SqlNormalizer.normalize("SELECT name FROM t_user2 WHERE id = 42"));
+    }
+
+    @Test
+    public void repeatedStatementsInOneRequestAreFlagged() {
+        instrumentation.beginRequest("GET /db/users");
+        jdbcTemplate.queryForList("SELECT id FROM t_user WHERE job = ?", Integer.class, "开发");
+        for (int id = 1; id <= 5; id++) {
+            jdbcTemplate.queryForList("SELECT name FROM t_user WHERE id = ?", String.class, id);
+        }
+        assertEquals(6, instrumentation.endRequest("GET /db/users/{id}"));
+
+        List<JdbcInstrumentation.RepeatedStatement> repeated = instrumentation.repeatedStatements();
+        assertEquals(1, repeated.size());
+        assertEquals("GET /db/users/{id}", repeated.get(0).getRequest());
+        assertEquals("SELECT name FROM t_user WHERE id = ?", repeated.get(0).getSql());
+        assertEquals(5, repeated.get(0).getMaxPerRequest().get());
+
+        Map<String, Object> byJob = find("SELECT id FROM t_user WHERE job = ?");
+        assertEquals(1L, byJob.get("count"));
+        assertEquals(2L, byJob.get("rows"));
+        Map<String, Object> insert = find("INSERT INTO t_user (name, job) VALUES (?, ?)");
+        assertEquals(3L, insert.get("rows"));
+    }
+
+    private Map<String, Object> find(String sql) {
+        for (Map<String, Object> stats : instrumentation.statementSummaries()) {
+            if (sql.equals(stats.get("sql"))) {
+                return stats;
+            }
+        }
+        fail("没有统计到语句: " + sql);
+        return null;
+    }
+}
@@ -0,0 +1,168 @@
+package com.xkcoding.swagger.jdbc;
+
+import com.xkcoding.swagger.TestDatabases;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadWriteRoutingDataSourceTests {
+
+    private final AtomicBoolean replicaDown = new AtomicBoolean();
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private ReadWriteRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        primary = database("routing_primary");
+        replica = database("routing_replica");
+        DelegatingDataSource flakyReplica = new DelegatingDataSource(replica.getDataSource()) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (replicaDown.get()) {
+                    throw new SQLException("Connection refused");
+                }
+                return super.getConnection();
+            }
+        };
+        routing = new ReadWriteRoutingDataSource(primary.getDataSource(),
+                Collections.singletonList(new ReadWriteRoutingDataSource.Replica("replica-1", flakyReplica, 1)),
+                Duration.ofSeconds(2), 2);
+        jdbcTemplate = new JdbcTemplate(routing);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TestDatabases.drop(primary);
+        TestDatabases.drop(replica);
+        RequestContextHolder.resetRequestAttributes();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void readOnlyTransactionsAndMarkedReadsGoToTheReplica() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        assertEquals("primary", source());
+        assertEquals("replica", read());
+
+        transactionTemplate.setReadOnly(true);
+        assertEquals("replica", transactionTemplate.execute(status -> source()));
+
+        // 读写事务中即使标记了只读也访问主库
+        transactionTemplate.setReadOnly(false);
+        assertEquals("primary", transactionTemplate.execute(status -> read()));
+    }
+
+    @Test
+    public void readsFollowWritesOfTheSameRequestAndUser() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        login("alice");
+        assertEquals("replica", read());
+
+        jdbcTemplate.update("UPDATE t_user SET job = ? WHERE id = 1", "写入");
+        assertEquals("primary", read());
+
+        // 新的请求：同一用户在窗口内仍访问主库，其他用户访问副本
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertEquals("primary", read());
+        login("bob");
+        assertEquals("replica", read());
+    }
+
+    @Test
+    public void propagatedTasksKeepTheReadOnlyMarkerAndReadYourWrites() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            boolean previous = ReadWriteRoutingDataSource.beginRead();
+            try {
+                assertEquals("primary", executor.submit(this::source).get());
+                assertEquals("replica", executor.submit(propagated()).get());
+            } finally {
+                ReadWriteRoutingDataSource.endRead(previous);
+            }
+
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+            jdbcTemplate.update("UPDATE t_user SET job = ? WHERE id = 1", "写入");
+            previous = ReadWriteRoutingDataSource.beginRead();
+            try {
+                assertEquals("primary", executor.submit(propagated()).get());
+            } finally {
+                ReadWriteRoutingDataSource.endRead(previous);
+            }
+            // 执行线程的标记已恢复
+            assertEquals("primary", executor.submit(this::source).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failingReplicaIsEjectedAndRestoredByHealthCheck() {
+        replicaDown.set(true);
+        assertEquals("primary", read());
+        assertTrue(routing.getReplicas().get(0).isHealthy());
+        assertEquals("primary", read());
+        assertFalse(routing.getReplicas().get(0).isHealthy());
+
+        replicaDown.set(false);
+        assertEquals("primary", read());
+        routing.checkHealth();
+        assertTrue(routing.getReplicas().get(0).isHealthy());
+        assertEquals("replica", read());
+    }
+
+    private String read() {
+        boolean previous = ReadWriteRoutingDataSource.beginRead();
+        try {
+            return source();
+        } finally {
+            ReadWriteRoutingDataSource.endRead(previous);
+        }
+    }
+
+    private Callable<String> propagated() {
+        FutureTask<String> task = new FutureTask<>(this::source);
+        Runnable decorated = ReadWriteRoutingDataSource.propagate(task);
+        return () -> {
+            decorated.run();
+            return task.get();
+        };
+    }
+
+    private String source() {
+        return jdbcTemplate.queryForObject("SELECT name FROM t_user WHERE id = 1", String.class);
+    }
+
+    private static void login(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, Collections.emptyList()));
+    }
+
+    private static JdbcTemplate database(String name) {
+        JdbcTemplate template = TestDatabases.create(name);
+        template.update("INSERT INTO t_user (name, job) VALUES (?, ?)", name.substring("routing_".length()), "开发");
+        return template;
+    }
+}
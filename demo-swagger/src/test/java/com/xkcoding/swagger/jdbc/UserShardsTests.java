@@ -0,0 +1,191 @@
+package com.xkcoding.swagger.jdbc;
+
+import com.xkcoding.swagger.TestDatabases;
+import com.xkcoding.swagger.common.BulkResult;
+import com.xkcoding.swagger.common.PageResponse;
+import com.xkcoding.swagger.config.JdbcInstrumentationProperties;
+import com.xkcoding.swagger.config.PageCursorUtil;
+import com.xkcoding.swagger.config.SearchProperties;
+import com.xkcoding.swagger.controller.DbController;
+import com.xkcoding.swagger.entity.User;
+import com.xkcoding.swagger.service.UserBulkService;
+import com.xkcoding.swagger.service.UserSearchService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserShardsTests {
+
+    private final List<JdbcTemplate> databases = new ArrayList<>();
+    private UserShards shards;
+    private DbController controller;
+
+    @BeforeEach
+    public void setUp() {
+        List<UserShards.Shard> shardList = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            JdbcTemplate jdbcTemplate = TestDatabases.create("user_shard_" + i);
+            databases.add(jdbcTemplate);
+            shardList.add(new UserShards.Shard("shard-" + i, jdbcTemplate,
+                    new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()))));
+        }
+        // 第一个分片同时是存放查找表的主库
+        JdbcTemplate directory = databases.get(0);
+        TestDatabases.createTables(directory, "t_user_lookup");
+        shards = new UserShards(shardList, new ShardLayout(64, Arrays.asList(null, null, null)), directory,
+                Executors.newCachedThreadPool(), Duration.ofSeconds(5), Collections.emptyList());
+
+        PageCursorUtil cursorUtil = new PageCursorUtil();
+        ReflectionTestUtils.setField(cursorUtil, "cursorSecret", "test");
+        UserSearchService searchService = new UserSearchService(shards, new SearchProperties());
+        controller = new DbController(directory, shards, cursorUtil, new ConcurrentMapCacheManager(), searchService,
+                new UserBulkService(shards, searchService));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        databases.forEach(TestDatabases::drop);
+        shards.destroy();
+    }
+
+    @Test
+    public void layoutAssignsConfiguredSlotRanges() {
+        ShardLayout layout = new ShardLayout(8, Arrays.asList("0-3", "4,5", "6-7"));
+        for (int id = 1; id <= 100; id++) {
+            int slot = layout.slotOf(id);
+            assertEquals(slot < 4 ? 0 : slot < 6 ? 1 : 2, layout.shardOf(id));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ShardLayout(8, Arrays.asList("0-3", "3-7")));
+        assertThrows(IllegalArgumentException.class, () -> new ShardLayout(8, Arrays.asList("0-3", "5-7")));
+    }
+
+    @Test
+    public void rowsAreSpreadByIdAndPagesMergeAcrossShards() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            User user = new User();
+            user.setName("user" + (char) ('a' + i * 7 % 26) + i);
+            user.setJob(i % 5 == 0 ? null : "job" + i % 3);
+            users.add(user);
+        }
+        BulkResult result = controller.batchAddUsers(users).getData();
+        assertEquals(30, result.getSucceeded());
+        for (JdbcTemplate database : databases) {
+            assertTrue(database.queryForObject("SELECT COUNT(*) FROM t_user", Integer.class) > 0);
+        }
+        assertEquals(30, controller.countUsers().getData());
+        assertEquals(30, databases.get(0).queryForObject("SELECT COUNT(*) FROM t_user_lookup", Integer.class));
+
+        for (String sortBy : new String[]{"id", "name", "job"}) {
+            List<User> expected = new ArrayList<>(controller.listUsers().getData());
+            expected.sort(userOrder(sortBy));
+            // 页码分页和游标分页都要得到与全量排序一致的结果
+            List<User> byPage = new ArrayList<>();
+            List<User> byCursor = new ArrayList<>();
+            String cursor = null;
+            for (int page = 1; page <= 4; page++) {
+                PageResponse<User> numbered = controller.getUsersWithPage(page, 8, null, sortBy, "asc", null, "exact").getData();
+                byPage.addAll(numbered.getData());
+                assertEquals(30L, numbered.getTotalCount());
+                PageResponse<User> cursored = controller.getUsersWithPage(1, 8, null, sortBy, "asc", cursor, "none").getData();
+                byCursor.addAll(cursored.getData());
+                cursor = cursored.getNextCursor();
+            }
+            assertNull(cursor);
+            assertEquals(ids(expected), ids(byPage), sortBy);
+            assertEquals(ids(expected), ids(byCursor), sortBy);
+        }
+
+        User first = controller.listUsers().getData().get(0);
+        assertEquals(first.getName(), controller.getUserById(first.getId()).getData().getName());
+        assertEquals(200, controller.deleteUser(first.getId()).getCode());
+        assertEquals(29, controller.countUsers().getData());
+        assertEquals(29, databases.get(0).queryForObject("SELECT COUNT(*) FROM t_user_lookup", Integer.class));
+    }
+
+    @Test
+    public void existingUsersAreRegisteredAndMovedToTheirShards() {
+        // 开启分片前的用户都在主库，查找表为空
+        JdbcTemplate primary = databases.get(0);
+        for (int id = 1; id <= 20; id++) {
+            primary.update("INSERT INTO t_user (id, name, username) VALUES (?, ?, ?)", id, "legacy" + id, "login" + id);
+        }
+        assertNull(shards.forUsername("login1"));
+
+        assertEquals(20, shards.syncLookup());
+        assertEquals(0, shards.syncLookup());
+        assertEquals(shards.forId(7), shards.forUsername("login7"));
+        // 新分配的 id 不能与已有用户重复，否则会继承其角色
+        assertTrue(shards.allocateId("newcomer") > 20);
+
+        int misplaced = 0;
+        for (int id = 1; id <= 20; id++) {
+            if (shards.forId(id).getJdbcTemplate() != primary) {
+                misplaced++;
+            }
+        }
+        assertTrue(misplaced > 0);
+
+        // 外键仍在时移出主库会级联删除角色，必须拒绝
+        TestDatabases.createTables(primary, "t_role", "t_user_role");
+        primary.update("INSERT INTO t_role (role_code, role_name) VALUES ('ROLE_USER', '普通用户')");
+        primary.update("INSERT INTO t_user_role (user_id, role_id) SELECT id, 1 FROM t_user");
+        assertThrows(IllegalStateException.class, () -> shards.rebalance(3));
+        assertEquals(20, primary.queryForObject("SELECT COUNT(*) FROM t_user_role", Integer.class));
+        primary.execute("ALTER TABLE t_user_role DROP CONSTRAINT fk_user_role_user_id");
+
+        assertEquals(misplaced, shards.rebalance(3));
+        assertEquals(0, shards.rebalance(3));
+        for (int id = 1; id <= 20; id++) {
+            JdbcTemplate owner = shards.forId(id).getJdbcTemplate();
+            assertEquals("login" + id, owner.queryForObject("SELECT username FROM t_user WHERE id = ?", String.class, id));
+        }
+        assertEquals(20, controller.countUsers().getData());
+        assertEquals(20, primary.queryForObject("SELECT COUNT(*) FROM t_user_role", Integer.class));
+    }
+
+    @Test
+    public void shardThreadsKeepTheCallersRequestScope() {
+        JdbcInstrumentation instrumentation = new JdbcInstrumentation(new JdbcInstrumentationProperties());
+        shards.setTaskDecorator(instrumentation::propagate);
+        instrumentation.beginRequest("GET /db/users");
+        List<String> threads = shards.scatter(shards.getShards(), shard -> {
+            instrumentation.record("SELECT COUNT(*) FROM t_user", 0, -1, Collections.emptyList(), false);
+            return Thread.currentThread().getName();
+        });
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+        assertEquals(3, instrumentation.endRequest(null));
+    }
+
+    private static Comparator<User> userOrder(String sortBy) {
+        Comparator<User> byId = Comparator.comparing(User::getId);
+        if ("name".equals(sortBy)) {
+            return Comparator.comparing(User::getName).thenComparing(byId);
+        }
+        if ("job".equals(sortBy)) {
+            return Comparator.comparing(User::getJob, Comparator.nullsFirst(String::compareTo)).thenComparing(byId);
+        }
+        return byId;
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        List<Integer> ids = new ArrayList<>();
+        users.forEach(user -> ids.add(user.getId()));
+        return ids;
+    }
+}
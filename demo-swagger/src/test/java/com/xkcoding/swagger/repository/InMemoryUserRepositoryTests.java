@@ -0,0 +1,80 @@
+package com.xkcoding.swagger.repository;
+
+import com.xkcoding.swagger.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryUserRepositoryTests {
+
+    @Test
+    public void findByJobMatchesSubstrings() {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+
+        assertEquals(Arrays.asList(1, 2, 3), ids(repository.findByJobContaining("开发")));
+        assertEquals(Arrays.asList(2), ids(repository.findByJobContaining("后端开")));
+        assertEquals(Arrays.asList(5), ids(repository.findByJobContaining("I")));
+        // 双字都命中但不连续时不应匹配
+        assertTrue(repository.findByJobContaining("开发经理").isEmpty());
+        assertEquals(5, repository.findByJobContaining("").size());
+    }
+
+    @Test
+    public void writesKeepJobIndexInSync() {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+
+        User user = new User();
+        user.setName("孙八");
+        user.setJob("测试开发");
+        User saved = repository.save(user);
+        assertEquals(Integer.valueOf(6), user.getId());
+        assertEquals(4, repository.countByJobContaining("开发"));
+
+        repository.update(saved.getId(), "孙八", "运维");
+        assertEquals(3, repository.countByJobContaining("开发"));
+        assertEquals(Arrays.asList(6), ids(repository.findByJobContaining("运维")));
+        // 更新替换为新对象，已返回的对象不变
+        assertEquals("测试开发", saved.getJob());
+
+        assertTrue(repository.deleteById(6));
+        assertFalse(repository.deleteById(6));
+        assertTrue(repository.findByJobContaining("运维").isEmpty());
+    }
+
+    @Test
+    public void concurrentSavesAssignUniqueIds() throws Exception {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(pool.submit(() -> {
+                User user = new User();
+                user.setName("并发");
+                user.setJob("压测开发");
+                repository.save(user);
+                repository.findByJobContaining("开发");
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(205, repository.count());
+        assertEquals(203, repository.countByJobContaining("开发"));
+    }
+
+    private List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,74 @@
+package com.xkcoding.swagger.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NgramIndexTests {
+
+    private final NgramIndex index = new NgramIndex(2.0, 1.0);
+
+    @Test
+    public void substringMatchesChineseAndLatinTextLikeLike() {
+        index.put(1, "张三", "高级开发工程师");
+        index.put(2, "李四", "Java 开发");
+        index.put(3, "王五", "开源发布");
+        index.put(4, "张三丰", null);
+        index.put(5, "赵六", "Ab Bc");
+
+        assertEquals(Arrays.asList(1, 2), sorted(index.matchIds("开发", 10)));
+        // "ab"、"bc" 都出现但 "abc" 没有连续出现，校验原文后排除
+        assertTrue(index.matchIds("abc", 10).isEmpty());
+        assertEquals(Arrays.asList(1, 4), sorted(index.matchIds("张", 10)));
+        assertEquals(Arrays.asList(2), index.matchIds("JAVA", 10));
+        assertTrue(index.matchIds("产品", 10).isEmpty());
+        // 超过上限时返回 null，由调用方改用 LIKE
+        assertNull(index.matchIds("张", 1));
+
+        index.put(2, "李四", "测试");
+        index.remove(1);
+        assertTrue(index.matchIds("开发", 10).isEmpty());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void searchRanksByFieldWeightAndMatchQuality() {
+        index.put(1, "王开发", "测试");
+        index.put(2, "李四", "开发");
+        index.put(3, "赵六", "前端开发工程师");
+        index.put(4, "孙七", "产品经理");
+
+        List<NgramIndex.Hit> hits = index.search("开发", 10);
+        assertEquals(3, hits.size());
+        // 岗位完全相等 > 姓名包含（姓名权重更高）> 岗位包含
+        assertEquals(2, hits.get(0).getId());
+        assertEquals(1, hits.get(1).getId());
+        assertEquals(3, hits.get(2).getId());
+
+        // 多个词时命中更多词的排在前面
+        assertEquals(3, index.search("前端 工程师", 10).get(0).getId());
+    }
+
+    @Test
+    public void suggestReturnsPrefixMatchesByPopularity() {
+        index.put(1, "张三", "开发");
+        index.put(2, "张伟", "开发");
+        index.put(3, "张伟", "开发经理");
+        index.put(4, "李四", "测试");
+
+        assertEquals(Arrays.asList("张伟", "张三"), index.suggest("张", 10));
+        assertEquals(Arrays.asList("开发", "开发经理"), index.suggest("开", 10));
+        index.remove(3);
+        assertEquals(Arrays.asList("开发"), index.suggest("开发", 10));
+    }
+
+    private static List<Integer> sorted(List<Integer> ids) {
+        List<Integer> copy = new ArrayList<>(ids);
+        copy.sort(null);
+        return copy;
+    }
+}
@@ -0,0 +1,102 @@
+package com.xkcoding.swagger.service;
+
+import com.xkcoding.swagger.config.HealthSnapshotProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HealthSnapshotServiceTests {
+
+    private HealthSnapshotService service;
+
+    @AfterEach
+    public void tearDown() {
+        if (service != null) {
+            service.destroy();
+        }
+    }
+
+    @Test
+    public void slowCheckTimesOutWithoutBlockingOthers() throws Exception {
+        HealthSnapshotProperties properties = new HealthSnapshotProperties();
+        properties.setInterval(Duration.ofMinutes(10));
+        properties.setTimeout(Duration.ofMillis(200));
+        CountDownLatch hang = new CountDownLatch(1);
+        AtomicInteger fastCalls = new AtomicInteger();
+        service = new HealthSnapshotService(properties, Arrays.asList(
+                new HealthSnapshotService.Check("fast", null, () -> {
+                    fastCalls.incrementAndGet();
+                    return Health.up().build();
+                }),
+                new HealthSnapshotService.Check("slow", null, () -> {
+                    hang.await();
+                    return Health.up().build();
+                })));
+
+        assertEquals(Status.UNKNOWN, service.health("fast").getStatus());
+        long start = System.nanoTime();
+        Map<String, Health> result = service.deepCheck();
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        assertEquals(Status.UP, result.get("fast").getStatus());
+        assertEquals(Status.DOWN, result.get("slow").getStatus());
+        assertEquals(Status.DOWN, service.health("slow").getStatus());
+        assertEquals(1, fastCalls.get());
+        hang.countDown();
+    }
+
+    @Test
+    public void repeatedDeepChecksDoNotPileUpOnAHungCheck() throws Exception {
+        HealthSnapshotProperties properties = new HealthSnapshotProperties();
+        properties.setTimeout(Duration.ofMillis(200));
+        CountDownLatch hang = new CountDownLatch(1);
+        AtomicInteger slowCalls = new AtomicInteger();
+        service = new HealthSnapshotService(properties, Arrays.asList(
+                new HealthSnapshotService.Check("slow", null, () -> {
+                    slowCalls.incrementAndGet();
+                    // 模拟不响应中断的阻塞（如卡在 socket 读取）
+                    while (hang.getCount() > 0) {
+                        try {
+                            hang.await();
+                        } catch (InterruptedException ignored) {
+                        }
+                    }
+                    return Health.up().build();
+                })));
+
+        assertEquals(Status.DOWN, service.deepCheck().get("slow").getStatus());
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Status.DOWN, service.deepCheck().get("slow").getStatus());
+        }
+        // 上一次的线程仍卡住：直接返回，不再提交新的检查
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 200);
+        assertEquals(1, slowCalls.get());
+        hang.countDown();
+    }
+
+    @Test
+    public void staleSnapshotReportsDown() throws Exception {
+        HealthSnapshotProperties properties = new HealthSnapshotProperties();
+        properties.setMaxStaleness(Duration.ofMillis(100));
+        service = new HealthSnapshotService(properties, Arrays.asList(
+                new HealthSnapshotService.Check("db", null, () -> Health.up().withDetail("count", 3).build())));
+
+        service.deepCheck();
+        assertEquals(Status.UP, service.health("db").getStatus());
+        assertEquals(3, service.detail("db", "count"));
+        Thread.sleep(200);
+        Health stale = service.health("db");
+        assertEquals(Status.DOWN, stale.getStatus());
+        assertEquals("UP", stale.getDetails().get("lastStatus"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.xkcoding.swagger.service;
+
+import com.xkcoding.swagger.TestDatabases;
+import com.xkcoding.swagger.common.BulkResult;
+import com.xkcoding.swagger.config.SearchProperties;
+import com.xkcoding.swagger.entity.User;
+import com.xkcoding.swagger.jdbc.UserShards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserBulkServiceTests {
+
+    private JdbcTemplate jdbcTemplate;
+    private UserBulkService service;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = TestDatabases.create("user_bulk");
+        UserShards shards = UserShards.single(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource())));
+        service = new UserBulkService(shards, new UserSearchService(shards, new SearchProperties()));
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TestDatabases.drop(jdbcTemplate);
+    }
+
+    @Test
+    public void failingRowsAreReportedWithoutRollingBackTheOthers() {
+        char[] tooLong = new char[60];
+        Arrays.fill(tooLong, '长');
+        BulkResult result = service.insert(Arrays.asList(
+                user(null, "张三", "开发"), user(null, new String(tooLong), "开发"),
+                user(null, " ", "测试"), user(null, "李四", null)));
+
+        assertEquals(2, result.getSucceeded().intValue());
+        assertEquals(BulkResult.CREATED, result.getItems().get(0).getStatus());
+        assertNotNull(result.getItems().get(0).getId());
+        // 与张三同一块，整块回滚后逐条重试，只有超长的一条失败
+        assertEquals(BulkResult.FAILED, result.getItems().get(1).getStatus());
+        assertEquals("姓名不能为空", result.getItems().get(2).getMessage());
+        assertEquals(BulkResult.CREATED, result.getItems().get(3).getStatus());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_user", Integer.class).intValue());
+    }
+
+    @Test
+    public void updateUpsertAndDeleteReportEachItem() {
+        Integer id = service.insert(Arrays.asList(user(null, "张三", "开发"))).getItems().get(0).getId();
+
+        BulkResult updated = service.update(Arrays.asList(user(id, "张三", "测试"), user(999, "王五", null)));
+        assertEquals(BulkResult.UPDATED, updated.getItems().get(0).getStatus());
+        assertEquals(BulkResult.NOT_FOUND, updated.getItems().get(1).getStatus());
+
+        BulkResult upserted = service.upsert(Arrays.asList(user(id, "张三", "经理"), user(100, "赵六", "开发")));
+        assertEquals(BulkResult.UPDATED, upserted.getItems().get(0).getStatus());
+        assertEquals(BulkResult.CREATED, upserted.getItems().get(1).getStatus());
+        assertEquals("经理", jdbcTemplate.queryForObject("SELECT job FROM t_user WHERE id = ?", String.class, id));
+
+        BulkResult deleted = service.delete(Arrays.asList(id, 100, 999, null));
+        assertEquals(BulkResult.DELETED, deleted.getItems().get(0).getStatus());
+        assertEquals(BulkResult.DELETED, deleted.getItems().get(1).getStatus());
+        assertEquals(BulkResult.NOT_FOUND, deleted.getItems().get(2).getStatus());
+        assertEquals(BulkResult.FAILED, deleted.getItems().get(3).getStatus());
+        assertEquals(2, deleted.getSucceeded().intValue());
+    }
+
+    private static User user(Integer id, String name, String job) {
+        User user = new User();
+        user.setId(id);
+        user.setName(name);
+        user.setJob(job);
+        return user;
+    }
+}